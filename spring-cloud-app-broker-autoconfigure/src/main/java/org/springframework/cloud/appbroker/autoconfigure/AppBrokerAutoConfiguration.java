@@ -29,9 +29,18 @@ import org.springframework.cloud.appbroker.deployer.BackingApplication;
 import org.springframework.cloud.appbroker.deployer.BackingService;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.deployer.DefaultBackingAppDeploymentService;
 import org.springframework.cloud.appbroker.deployer.DefaultBackingServicesProvisionService;
+import org.springframework.cloud.appbroker.deployer.DeployerCircuitBreaker;
+import org.springframework.cloud.appbroker.deployer.DeployerCircuitBreakerProperties;
 import org.springframework.cloud.appbroker.deployer.DeployerClient;
+import org.springframework.cloud.appbroker.deployer.DeployerConcurrencyLimiter;
+import org.springframework.cloud.appbroker.deployer.DeployerConcurrencyProperties;
+import org.springframework.cloud.appbroker.deployer.DeployerRetry;
+import org.springframework.cloud.appbroker.deployer.DeployerRetryProperties;
+import org.springframework.cloud.appbroker.deployer.OverloadDetector;
+import org.springframework.cloud.appbroker.deployer.TransientErrorClassifier;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialGenerator;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderFactory;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderService;
@@ -50,6 +59,8 @@ import org.springframework.cloud.appbroker.extensions.targets.TargetFactory;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.manager.AppManager;
 import org.springframework.cloud.appbroker.manager.BackingAppManagementService;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeProperties;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeService;
 import org.springframework.cloud.appbroker.manager.ManagementClient;
 import org.springframework.cloud.appbroker.oauth2.OAuth2Client;
 import org.springframework.cloud.appbroker.service.CreateServiceInstanceAppBindingWorkflow;
@@ -57,11 +68,18 @@ import org.springframework.cloud.appbroker.service.CreateServiceInstanceRouteBin
 import org.springframework.cloud.appbroker.service.CreateServiceInstanceWorkflow;
 import org.springframework.cloud.appbroker.service.DeleteServiceInstanceBindingWorkflow;
 import org.springframework.cloud.appbroker.service.DeleteServiceInstanceWorkflow;
+import org.springframework.cloud.appbroker.service.OperationExecutor;
+import org.springframework.cloud.appbroker.service.OperationExecutorProperties;
 import org.springframework.cloud.appbroker.service.UpdateServiceInstanceWorkflow;
 import org.springframework.cloud.appbroker.service.WorkflowServiceInstanceBindingService;
 import org.springframework.cloud.appbroker.service.WorkflowServiceInstanceService;
+import org.springframework.cloud.appbroker.state.BackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.InMemoryBackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.InMemoryProvisioningCheckpointRepository;
 import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceBindingStateRepository;
 import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.InMemoryStateRepositoryProperties;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpointRepository;
 import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
 import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
 import org.springframework.cloud.appbroker.workflow.instance.AppDeploymentCreateServiceInstanceWorkflow;
@@ -71,6 +89,7 @@ import org.springframework.cloud.servicebroker.service.ServiceInstanceBindingSer
 import org.springframework.cloud.servicebroker.service.ServiceInstanceService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * App Broker Auto-configuration
@@ -83,15 +102,118 @@ public class AppBrokerAutoConfiguration {
 
 	private static final String PROPERTY_PREFIX = "spring.cloud.appbroker";
 
+	/**
+	 * Provide a {@link DeployerConcurrencyProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".deployer.concurrency")
+	public DeployerConcurrencyProperties deployerConcurrencyProperties() {
+		return new DeployerConcurrencyProperties();
+	}
+
+	/**
+	 * Provide an {@link OverloadDetector} bean that does not recognize any overloads, used when the deployer does not
+	 * provide one
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public OverloadDetector overloadDetector() {
+		return exception -> false;
+	}
+
+	/**
+	 * Provide a {@link TransientErrorClassifier} bean that recognizes failed or timed out connections, used when the
+	 * deployer does not provide one
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public TransientErrorClassifier transientErrorClassifier() {
+		return new TransientErrorClassifier() {
+		};
+	}
+
+	/**
+	 * Provide a {@link DeployerConcurrencyLimiter} bean
+	 *
+	 * @param properties the DeployerConcurrencyProperties bean
+	 * @param overloadDetector the OverloadDetector bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public DeployerConcurrencyLimiter deployerConcurrencyLimiter(DeployerConcurrencyProperties properties,
+		OverloadDetector overloadDetector) {
+		return new DeployerConcurrencyLimiter(properties, overloadDetector);
+	}
+
+	/**
+	 * Provide a {@link DeployerRetryProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".deployer.retry")
+	public DeployerRetryProperties deployerRetryProperties() {
+		return new DeployerRetryProperties();
+	}
+
+	/**
+	 * Provide a {@link DeployerRetry} bean
+	 *
+	 * @param properties the DeployerRetryProperties bean
+	 * @param errorClassifier the TransientErrorClassifier bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public DeployerRetry deployerRetry(DeployerRetryProperties properties, TransientErrorClassifier errorClassifier) {
+		return new DeployerRetry(properties, errorClassifier);
+	}
+
+	/**
+	 * Provide a {@link DeployerCircuitBreakerProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".deployer.circuit-breaker")
+	public DeployerCircuitBreakerProperties deployerCircuitBreakerProperties() {
+		return new DeployerCircuitBreakerProperties();
+	}
+
+	/**
+	 * Provide a {@link DeployerCircuitBreaker} bean
+	 *
+	 * @param properties the DeployerCircuitBreakerProperties bean
+	 * @param errorClassifier the TransientErrorClassifier bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public DeployerCircuitBreaker deployerCircuitBreaker(DeployerCircuitBreakerProperties properties,
+		TransientErrorClassifier errorClassifier) {
+		return new DeployerCircuitBreaker(properties, errorClassifier);
+	}
+
 	/**
 	 * Provide a {@link DeployerClient} bean
 	 *
 	 * @param appDeployer the AppDeployer bean
+	 * @param concurrencyLimiter the DeployerConcurrencyLimiter bean
+	 * @param retry the DeployerRetry bean
+	 * @param circuitBreaker the DeployerCircuitBreaker bean
 	 * @return the bean
 	 */
 	@Bean
-	public DeployerClient deployerClient(AppDeployer appDeployer) {
-		return new DeployerClient(appDeployer);
+	public DeployerClient deployerClient(AppDeployer appDeployer, DeployerConcurrencyLimiter concurrencyLimiter,
+		DeployerRetry retry, DeployerCircuitBreaker circuitBreaker) {
+		return new DeployerClient(appDeployer, concurrencyLimiter, retry, circuitBreaker);
 	}
 
 	/**
@@ -110,11 +232,12 @@ public class AppBrokerAutoConfiguration {
 	 * Provide a {@link ManagementClient} bean
 	 *
 	 * @param appManager the AppManager bean
+	 * @param concurrencyLimiter the DeployerConcurrencyLimiter bean
 	 * @return the bean
 	 */
 	@Bean
-	public ManagementClient managementClient(AppManager appManager) {
-		return new ManagementClient(appManager);
+	public ManagementClient managementClient(AppManager appManager, DeployerConcurrencyLimiter concurrencyLimiter) {
+		return new ManagementClient(appManager, concurrencyLimiter);
 	}
 
 	/**
@@ -122,14 +245,48 @@ public class AppBrokerAutoConfiguration {
 	 *
 	 * @param managementClient the ManagementClient bean
 	 * @param appDeployer the AppDeployer bean
-	 * @param brokeredServices the BrokeredServices bean
+	 * @param brokeredServicesCatalog the BrokeredServicesCatalog bean
 	 * @param targetService the TargetService bean
 	 * @return the bean
 	 */
 	@Bean
 	public BackingAppManagementService backingAppManagementService(ManagementClient managementClient,
-		AppDeployer appDeployer, BrokeredServices brokeredServices, TargetService targetService) {
-		return new BackingAppManagementService(managementClient, appDeployer, brokeredServices, targetService);
+		AppDeployer appDeployer, BrokeredServicesCatalog brokeredServicesCatalog, TargetService targetService) {
+		return new BackingAppManagementService(managementClient, appDeployer, brokeredServicesCatalog,
+			targetService);
+	}
+
+	/**
+	 * Provide a {@link FleetUpgradeProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".fleet-upgrade")
+	public FleetUpgradeProperties fleetUpgradeProperties() {
+		return new FleetUpgradeProperties();
+	}
+
+	/**
+	 * Provide a {@link FleetUpgradeService} bean
+	 *
+	 * @param appDeployer the AppDeployer bean
+	 * @param deploymentService the BackingAppDeploymentService bean
+	 * @param brokeredServicesCatalog the BrokeredServicesCatalog bean
+	 * @param targetService the TargetService bean
+	 * @param properties the FleetUpgradeProperties bean
+	 * @param operationExecutor the OperationExecutor bean
+	 * @param stateRepository the ServiceInstanceStateRepository bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public FleetUpgradeService fleetUpgradeService(AppDeployer appDeployer,
+		BackingAppDeploymentService deploymentService, BrokeredServicesCatalog brokeredServicesCatalog,
+		TargetService targetService, FleetUpgradeProperties properties, OperationExecutor operationExecutor,
+		ServiceInstanceStateRepository stateRepository) {
+		return new FleetUpgradeService(appDeployer, deploymentService, brokeredServicesCatalog, targetService,
+			properties, operationExecutor, stateRepository);
 	}
 
 	/**
@@ -143,26 +300,88 @@ public class AppBrokerAutoConfiguration {
 		return BrokeredServices.builder().build();
 	}
 
+	/**
+	 * Provide a {@link BrokeredServicesCatalog} bean
+	 *
+	 * @param brokeredServices the BrokeredServices bean
+	 * @return the bean
+	 */
+	@Bean
+	public BrokeredServicesCatalog brokeredServicesCatalog(BrokeredServices brokeredServices) {
+		return new BrokeredServicesCatalog(brokeredServices);
+	}
+
+	/**
+	 * Provide a {@link BrokeredServicesCatalogRefresher} bean
+	 *
+	 * @param brokeredServicesCatalog the BrokeredServicesCatalog bean
+	 * @param environment the Environment
+	 * @return the bean
+	 */
+	@Bean
+	public BrokeredServicesCatalogRefresher brokeredServicesCatalogRefresher(
+		BrokeredServicesCatalog brokeredServicesCatalog, Environment environment) {
+		return new BrokeredServicesCatalogRefresher(brokeredServicesCatalog, environment,
+			PROPERTY_PREFIX + ".services");
+	}
+
+	/**
+	 * Provide an {@link InMemoryStateRepositoryProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".state.in-memory")
+	public InMemoryStateRepositoryProperties inMemoryStateRepositoryProperties() {
+		return new InMemoryStateRepositoryProperties();
+	}
+
 	/**
 	 * Provide a {@link ServiceInstanceStateRepository} bean
 	 *
+	 * @param properties the InMemoryStateRepositoryProperties bean
 	 * @return the bean
 	 */
 	@Bean
 	@ConditionalOnMissingBean(ServiceInstanceStateRepository.class)
-	public ServiceInstanceStateRepository serviceInstanceStateRepository() {
-		return new InMemoryServiceInstanceStateRepository();
+	public ServiceInstanceStateRepository serviceInstanceStateRepository(
+		InMemoryStateRepositoryProperties properties) {
+		return new InMemoryServiceInstanceStateRepository(properties);
 	}
 
 	/**
 	 * Provide a {@link ServiceInstanceBindingStateRepository} bean
 	 *
+	 * @param properties the InMemoryStateRepositoryProperties bean
 	 * @return the bean
 	 */
 	@Bean
 	@ConditionalOnMissingBean(ServiceInstanceBindingStateRepository.class)
-	public ServiceInstanceBindingStateRepository serviceInstanceBindingStateRepository() {
-		return new InMemoryServiceInstanceBindingStateRepository();
+	public ServiceInstanceBindingStateRepository serviceInstanceBindingStateRepository(
+		InMemoryStateRepositoryProperties properties) {
+		return new InMemoryServiceInstanceBindingStateRepository(properties);
+	}
+
+	/**
+	 * Provide a {@link ProvisioningCheckpointRepository} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean(ProvisioningCheckpointRepository.class)
+	public ProvisioningCheckpointRepository provisioningCheckpointRepository() {
+		return new InMemoryProvisioningCheckpointRepository();
+	}
+
+	/**
+	 * Provide a {@link BackingApplicationFingerprintRepository} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean(BackingApplicationFingerprintRepository.class)
+	public BackingApplicationFingerprintRepository backingApplicationFingerprintRepository() {
+		return new InMemoryBackingApplicationFingerprintRepository();
 	}
 
 	/**
@@ -313,84 +532,121 @@ public class AppBrokerAutoConfiguration {
 	/**
 	 * Provide a {@link CreateServiceInstanceWorkflow} bean
 	 *
-	 * @param brokeredServices the BrokeredServices bean
+	 * @param brokeredServicesCatalog the BrokeredServicesCatalog bean
 	 * @param backingAppDeploymentService the BackingAppDeploymentService bean
 	 * @param appsParametersTransformationService the BackingApplicationsParametersTransformationService bean
 	 * @param servicesParametersTransformationService the BackingServicesParametersTransformationService bean
 	 * @param credentialProviderService the CredentialProviderService bean
 	 * @param targetService the TargetService bean
 	 * @param backingServicesProvisionService the BackingServicesProvisionService bean
+	 * @param checkpointRepository the ProvisioningCheckpointRepository bean
+	 * @param fingerprintRepository the BackingApplicationFingerprintRepository bean
 	 * @return the bean
 	 */
 	@Bean
 	public CreateServiceInstanceWorkflow appDeploymentCreateServiceInstanceWorkflow(
-		BrokeredServices brokeredServices, BackingAppDeploymentService backingAppDeploymentService,
+		BrokeredServicesCatalog brokeredServicesCatalog, BackingAppDeploymentService backingAppDeploymentService,
 		BackingApplicationsParametersTransformationService appsParametersTransformationService,
 		BackingServicesParametersTransformationService servicesParametersTransformationService,
 		CredentialProviderService credentialProviderService, TargetService targetService,
-		BackingServicesProvisionService backingServicesProvisionService) {
+		BackingServicesProvisionService backingServicesProvisionService,
+		ProvisioningCheckpointRepository checkpointRepository,
+		BackingApplicationFingerprintRepository fingerprintRepository) {
 		return new AppDeploymentCreateServiceInstanceWorkflow(
-			brokeredServices,
+			brokeredServicesCatalog,
 			backingAppDeploymentService,
 			backingServicesProvisionService,
 			appsParametersTransformationService,
 			servicesParametersTransformationService,
 			credentialProviderService,
-			targetService);
+			targetService,
+			checkpointRepository,
+			fingerprintRepository);
 	}
 
 	/**
 	 * Provide a {@link UpdateServiceInstanceWorkflow} bean
 	 *
-	 * @param brokeredServices the BrokeredServices bean
+	 * @param brokeredServicesCatalog the BrokeredServicesCatalog bean
 	 * @param backingAppDeploymentService the BackingAppDeploymentService bean
 	 * @param backingServicesProvisionService the BackingServicesProvisionService bean
 	 * @param appsParametersTransformationService the BackingApplicationsParametersTransformationService bean
 	 * @param servicesParametersTransformationService the BackingServicesParametersTransformationService bean
 	 * @param targetService the TargetService bean
+	 * @param fingerprintRepository the BackingApplicationFingerprintRepository bean
 	 * @return the bean
 	 */
 	@Bean
 	public UpdateServiceInstanceWorkflow appDeploymentUpdateServiceInstanceWorkflow(
-		BrokeredServices brokeredServices, BackingAppDeploymentService backingAppDeploymentService,
+		BrokeredServicesCatalog brokeredServicesCatalog, BackingAppDeploymentService backingAppDeploymentService,
 		BackingServicesProvisionService backingServicesProvisionService,
 		BackingApplicationsParametersTransformationService appsParametersTransformationService,
 		BackingServicesParametersTransformationService servicesParametersTransformationService,
-		TargetService targetService) {
+		TargetService targetService, BackingApplicationFingerprintRepository fingerprintRepository) {
 
 		return new AppDeploymentUpdateServiceInstanceWorkflow(
-			brokeredServices,
+			brokeredServicesCatalog,
 			backingAppDeploymentService,
 			backingServicesProvisionService,
 			appsParametersTransformationService,
 			servicesParametersTransformationService,
-			targetService);
+			targetService,
+			fingerprintRepository);
 	}
 
 	/**
 	 * Provide a {@link DeleteServiceInstanceWorkflow} bean
 	 *
-	 * @param brokeredServices the BrokeredServices bean
+	 * @param brokeredServicesCatalog the BrokeredServicesCatalog bean
 	 * @param backingAppDeploymentService the BackingAppDeploymentService bean
 	 * @param backingServicesProvisionService the BackingServicesProvisionService bean
 	 * @param credentialProviderService the CredentialProviderService bean
 	 * @param targetService the TargetService bean
+	 * @param checkpointRepository the ProvisioningCheckpointRepository bean
+	 * @param fingerprintRepository the BackingApplicationFingerprintRepository bean
 	 * @return the bean
 	 */
 	@Bean
 	public DeleteServiceInstanceWorkflow appDeploymentDeleteServiceInstanceWorkflow(
-		BrokeredServices brokeredServices, BackingAppDeploymentService backingAppDeploymentService,
+		BrokeredServicesCatalog brokeredServicesCatalog, BackingAppDeploymentService backingAppDeploymentService,
 		BackingServicesProvisionService backingServicesProvisionService,
-		CredentialProviderService credentialProviderService, TargetService targetService) {
+		CredentialProviderService credentialProviderService, TargetService targetService,
+		ProvisioningCheckpointRepository checkpointRepository,
+		BackingApplicationFingerprintRepository fingerprintRepository) {
 
 		return new AppDeploymentDeleteServiceInstanceWorkflow(
-			brokeredServices,
+			brokeredServicesCatalog,
 			backingAppDeploymentService,
 			backingServicesProvisionService, credentialProviderService,
-			targetService
+			targetService,
+			checkpointRepository,
+			fingerprintRepository
 		);
 	}
 
+	/**
+	 * Provide an {@link OperationExecutorProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".operations")
+	public OperationExecutorProperties operationExecutorProperties() {
+		return new OperationExecutorProperties();
+	}
+
+	/**
+	 * Provide an {@link OperationExecutor} bean
+	 *
+	 * @param properties the OperationExecutorProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public OperationExecutor operationExecutor(OperationExecutorProperties properties) {
+		return new OperationExecutor(properties.getMaxInFlight(), properties.getMaxPending());
+	}
+
 	/**
 	 * Provide a {@link WorkflowServiceInstanceService} bean
 	 *
@@ -398,14 +654,18 @@ public class AppBrokerAutoConfiguration {
 	 * @param createWorkflows a collection of create workflows
 	 * @param deleteWorkflows a collection of delete workflows
 	 * @param updateWorkflows a collection of update workflows
+	 * @param operationExecutor the OperationExecutor bean
+	 * @param bindingStateRepository the ServiceInstanceBindingStateRepository bean
 	 * @return the bean
 	 */
 	@Bean
 	@ConditionalOnMissingBean(ServiceInstanceService.class)
 	public WorkflowServiceInstanceService serviceInstanceService(ServiceInstanceStateRepository stateRepository,
 		List<CreateServiceInstanceWorkflow> createWorkflows, List<DeleteServiceInstanceWorkflow> deleteWorkflows,
-		List<UpdateServiceInstanceWorkflow> updateWorkflows) {
-		return new WorkflowServiceInstanceService(stateRepository, createWorkflows, deleteWorkflows, updateWorkflows);
+		List<UpdateServiceInstanceWorkflow> updateWorkflows, OperationExecutor operationExecutor,
+		ServiceInstanceBindingStateRepository bindingStateRepository) {
+		return new WorkflowServiceInstanceService(stateRepository, createWorkflows, deleteWorkflows, updateWorkflows,
+			operationExecutor, bindingStateRepository);
 	}
 
 	/**
@@ -415,6 +675,7 @@ public class AppBrokerAutoConfiguration {
 	 * @param createServiceInstanceAppBindingWorkflows a collection of create app binding workflows
 	 * @param createServiceInstanceRouteBindingWorkflows a collection of create route binding workflows
 	 * @param deleteServiceInstanceBindingWorkflows a collection of update workflows
+	 * @param operationExecutor the OperationExecutor bean
 	 * @return the bean
 	 */
 	@Bean
@@ -423,10 +684,11 @@ public class AppBrokerAutoConfiguration {
 		ServiceInstanceBindingStateRepository stateRepository,
 		@Autowired(required = false) List<CreateServiceInstanceAppBindingWorkflow> createServiceInstanceAppBindingWorkflows,
 		@Autowired(required = false) List<CreateServiceInstanceRouteBindingWorkflow> createServiceInstanceRouteBindingWorkflows,
-		@Autowired(required = false) List<DeleteServiceInstanceBindingWorkflow> deleteServiceInstanceBindingWorkflows) {
+		@Autowired(required = false) List<DeleteServiceInstanceBindingWorkflow> deleteServiceInstanceBindingWorkflows,
+		OperationExecutor operationExecutor) {
 		return new WorkflowServiceInstanceBindingService(stateRepository,
 			createServiceInstanceAppBindingWorkflows, createServiceInstanceRouteBindingWorkflows,
-			deleteServiceInstanceBindingWorkflows);
+			deleteServiceInstanceBindingWorkflows, operationExecutor);
 	}
 
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.appbroker.deployer.BrokeredService;
+import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * Reloads the {@link BrokeredServicesCatalog} from the {@link Environment} when the environment is refreshed. When
+ * Spring Cloud Context is on the classpath, this happens on every {@code EnvironmentChangeEvent} and
+ * {@code RefreshScopeRefreshedEvent}, for example after a {@code /actuator/refresh} or a Spring Cloud Bus refresh.
+ * {@link #refresh()} can also be called directly.
+ */
+public class BrokeredServicesCatalogRefresher implements SmartApplicationListener {
+
+	private static final Logger LOG = Loggers.getLogger(BrokeredServicesCatalogRefresher.class);
+
+	private static final Set<String> REFRESH_EVENT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+		"org.springframework.cloud.context.environment.EnvironmentChangeEvent",
+		"org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent")));
+
+	private final BrokeredServicesCatalog brokeredServicesCatalog;
+
+	private final Environment environment;
+
+	private final String propertyName;
+
+	public BrokeredServicesCatalogRefresher(BrokeredServicesCatalog brokeredServicesCatalog, Environment environment,
+		String propertyName) {
+		this.brokeredServicesCatalog = brokeredServicesCatalog;
+		this.environment = environment;
+		this.propertyName = propertyName;
+	}
+
+	@Override
+	public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+		return REFRESH_EVENT_TYPES.contains(eventType.getName());
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		refresh();
+	}
+
+	/**
+	 * Bind the brokered services from the environment and swap them into the catalog. If the configuration can not
+	 * be bound, the current catalog is kept.
+	 */
+	public void refresh() {
+		try {
+			BrokeredServices brokeredServices = Binder.get(environment)
+				.bind(propertyName, Bindable.listOf(BrokeredService.class))
+				.map(BrokeredServices::new)
+				.orElseGet(() -> BrokeredServices.builder().build());
+			brokeredServicesCatalog.reload(brokeredServices);
+		}
+		catch (BindException e) {
+			LOG.error(String.format("Error reloading brokered services from '%s', keeping the current catalog: %s",
+				propertyName, e.getMessage()), e);
+		}
+	}
+
+}
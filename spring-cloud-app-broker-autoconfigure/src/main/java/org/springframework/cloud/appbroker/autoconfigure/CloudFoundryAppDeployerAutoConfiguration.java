@@ -20,6 +20,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -37,17 +38,32 @@ import org.cloudfoundry.reactor.tokenprovider.PasswordGrantTokenProvider;
 import org.cloudfoundry.reactor.uaa.ReactorUaaClient;
 import org.cloudfoundry.uaa.UaaClient;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.appbroker.deployer.AppDeployer;
+import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.OverloadDetector;
+import org.springframework.cloud.appbroker.deployer.TransientErrorClassifier;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryAppDeployer;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryAppManager;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactCache;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactCacheProperties;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryDeploymentProperties;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryDropletRegistry;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryLookupCache;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryLookupCacheProperties;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryOAuth2Client;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryOperationsUtils;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryOverloadDetector;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryStatusPollerProperties;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryTargetProperties;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryTransientErrorClassifier;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryWarmPool;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryWarmPoolProperties;
+import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.manager.AppManager;
 import org.springframework.cloud.appbroker.oauth2.OAuth2Client;
 import org.springframework.context.annotation.Bean;
@@ -87,6 +103,109 @@ public class CloudFoundryAppDeployerAutoConfiguration {
 		return new CloudFoundryTargetProperties();
 	}
 
+	/**
+	 * Provide a {@link CloudFoundryLookupCacheProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".lookup-cache")
+	public CloudFoundryLookupCacheProperties cloudFoundryLookupCacheProperties() {
+		return new CloudFoundryLookupCacheProperties();
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryLookupCache} bean
+	 *
+	 * @param properties the CloudFoundryLookupCacheProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	public CloudFoundryLookupCache cloudFoundryLookupCache(CloudFoundryLookupCacheProperties properties) {
+		return new CloudFoundryLookupCache(properties);
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryStatusPollerProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".status-poller")
+	public CloudFoundryStatusPollerProperties cloudFoundryStatusPollerProperties() {
+		return new CloudFoundryStatusPollerProperties();
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryDropletRegistry} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	public CloudFoundryDropletRegistry cloudFoundryDropletRegistry() {
+		return new CloudFoundryDropletRegistry();
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryWarmPoolProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".warm-pool")
+	public CloudFoundryWarmPoolProperties cloudFoundryWarmPoolProperties() {
+		return new CloudFoundryWarmPoolProperties();
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryWarmPool} bean
+	 *
+	 * @param properties the CloudFoundryWarmPoolProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	public CloudFoundryWarmPool cloudFoundryWarmPool(CloudFoundryWarmPoolProperties properties) {
+		return new CloudFoundryWarmPool(properties);
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryArtifactCacheProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".artifact-cache")
+	public CloudFoundryArtifactCacheProperties cloudFoundryArtifactCacheProperties() {
+		return new CloudFoundryArtifactCacheProperties();
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryArtifactCache} bean
+	 *
+	 * @param properties the CloudFoundryArtifactCacheProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	public CloudFoundryArtifactCache cloudFoundryArtifactCache(CloudFoundryArtifactCacheProperties properties) {
+		return new CloudFoundryArtifactCache(properties);
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryArtifactCachePrefetcher} bean
+	 *
+	 * @param artifactCache the CloudFoundryArtifactCache bean
+	 * @param resourceLoader the ResourceLoader bean
+	 * @param brokeredServices the BrokeredServices bean, if available
+	 * @return the bean
+	 */
+	@Bean
+	public CloudFoundryArtifactCachePrefetcher cloudFoundryArtifactCachePrefetcher(
+		CloudFoundryArtifactCache artifactCache, ResourceLoader resourceLoader,
+		ObjectProvider<BrokeredServices> brokeredServices) {
+		return new CloudFoundryArtifactCachePrefetcher(artifactCache, resourceLoader,
+			brokeredServices.getIfAvailable(() -> BrokeredServices.builder().build()));
+	}
+
 	/**
 	 * Provide a {@link AppDeployer} bean
 	 *
@@ -96,15 +215,39 @@ public class CloudFoundryAppDeployerAutoConfiguration {
 	 * @param operationsUtils the CloudFoundryOperationsUtils bean
 	 * @param targetProperties the CloudFoundryTargetProperties bean
 	 * @param resourceLoader the ResourceLoader bean
+	 * @param lookupCache the CloudFoundryLookupCache bean
+	 * @param statusPollerProperties the CloudFoundryStatusPollerProperties bean
+	 * @param dropletRegistry the CloudFoundryDropletRegistry bean
+	 * @param warmPool the CloudFoundryWarmPool bean
+	 * @param artifactCache the CloudFoundryArtifactCache bean
 	 * @return the bean
 	 */
 	@Bean
 	public AppDeployer cloudFoundryAppDeployer(CloudFoundryDeploymentProperties deploymentProperties,
 		CloudFoundryOperations cloudFoundryOperations, CloudFoundryClient cloudFoundryClient,
 		CloudFoundryOperationsUtils operationsUtils, CloudFoundryTargetProperties targetProperties,
-		ResourceLoader resourceLoader) {
+		ResourceLoader resourceLoader, CloudFoundryLookupCache lookupCache,
+		CloudFoundryStatusPollerProperties statusPollerProperties, CloudFoundryDropletRegistry dropletRegistry,
+		CloudFoundryWarmPool warmPool, CloudFoundryArtifactCache artifactCache) {
 		return new CloudFoundryAppDeployer(deploymentProperties, cloudFoundryOperations, cloudFoundryClient,
-			operationsUtils, targetProperties, resourceLoader);
+			operationsUtils, targetProperties, resourceLoader, lookupCache, statusPollerProperties, dropletRegistry,
+			warmPool, artifactCache);
+	}
+
+	/**
+	 * Provide a {@link CloudFoundryWarmPoolInitializer} bean
+	 *
+	 * @param appDeployer the AppDeployer bean
+	 * @param brokeredServices the BrokeredServices bean, if available
+	 * @param targetService the TargetService bean, if available
+	 * @return the bean
+	 */
+	@Bean
+	public CloudFoundryWarmPoolInitializer cloudFoundryWarmPoolInitializer(AppDeployer appDeployer,
+		ObjectProvider<BrokeredServices> brokeredServices, ObjectProvider<TargetService> targetService) {
+		return new CloudFoundryWarmPoolInitializer(appDeployer,
+			brokeredServices.getIfAvailable(() -> BrokeredServices.builder().build()),
+			targetService.getIfAvailable(() -> new TargetService(Collections.emptyList())));
 	}
 
 	/**
@@ -118,6 +261,26 @@ public class CloudFoundryAppDeployerAutoConfiguration {
 		return new CloudFoundryAppManager(cloudFoundryOperationsUtils);
 	}
 
+	/**
+	 * Provide an {@link OverloadDetector} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	public OverloadDetector cloudFoundryOverloadDetector() {
+		return new CloudFoundryOverloadDetector();
+	}
+
+	/**
+	 * Provide a {@link TransientErrorClassifier} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	public TransientErrorClassifier cloudFoundryTransientErrorClassifier() {
+		return new CloudFoundryTransientErrorClassifier();
+	}
+
 	/**
 	 * Provide an {@link OAuth2Client} bean
 	 *
@@ -170,11 +333,13 @@ public class CloudFoundryAppDeployerAutoConfiguration {
 	 * Provide a {@link CloudFoundryOperationsUtils} bean
 	 *
 	 * @param operations the CloudFoundryOperations bean
+	 * @param lookupCacheProperties the CloudFoundryLookupCacheProperties bean
 	 * @return the bean
 	 */
 	@Bean
-	public CloudFoundryOperationsUtils cloudFoundryOperationsUtils(CloudFoundryOperations operations) {
-		return new CloudFoundryOperationsUtils(operations);
+	public CloudFoundryOperationsUtils cloudFoundryOperationsUtils(CloudFoundryOperations operations,
+		CloudFoundryLookupCacheProperties lookupCacheProperties) {
+		return new CloudFoundryOperationsUtils(operations, lookupCacheProperties);
 	}
 
 	/**
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import java.util.Objects;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.BrokeredService;
+import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactCache;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Downloads the artifacts of all backing applications in the catalog into the Cloud Foundry artifact cache once the
+ * broker is ready, so that the first service instances do not wait for the download. Artifacts of backing
+ * applications added by a later catalog reload are cached when they are first deployed.
+ */
+public class CloudFoundryArtifactCachePrefetcher implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger LOG = Loggers.getLogger(CloudFoundryArtifactCachePrefetcher.class);
+
+	private final CloudFoundryArtifactCache artifactCache;
+
+	private final ResourceLoader resourceLoader;
+
+	private final BrokeredServices brokeredServices;
+
+	public CloudFoundryArtifactCachePrefetcher(CloudFoundryArtifactCache artifactCache, ResourceLoader resourceLoader,
+		BrokeredServices brokeredServices) {
+		this.artifactCache = artifactCache;
+		this.resourceLoader = resourceLoader;
+		this.brokeredServices = brokeredServices;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		prefetch().subscribe();
+	}
+
+	/**
+	 * Cache the artifacts of all brokered services, one at a time.
+	 *
+	 * @return completes when all artifacts are cached; artifacts that can not be cached are logged and skipped
+	 */
+	public Mono<Void> prefetch() {
+		return Flux.fromIterable(brokeredServices)
+			.filter(brokeredService -> brokeredService.getApps() != null)
+			.flatMapIterable(BrokeredService::getApps)
+			.map(BackingApplication::getPath)
+			.filter(Objects::nonNull)
+			.distinct()
+			.concatMap(path -> artifactCache.resolve(resourceLoader.getResource(path))
+				.doOnError(e -> LOG.warn(String.format("Error caching the artifact %s: %s", path, e.getMessage())))
+				.onErrorResume(e -> Mono.empty()))
+			.then();
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import java.util.HashMap;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.appbroker.deployer.AppDeployer;
+import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.BrokeredService;
+import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.DeployApplicationRequest;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryAppDeployer;
+import org.springframework.cloud.appbroker.extensions.targets.TargetService;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Starts filling the Cloud Foundry warm pools of all backing applications that enable one once the broker is ready,
+ * so that the first service instances created for a plan can already claim a warm application. Pools of backing
+ * applications added by a later catalog reload are filled when they are first deployed.
+ */
+public class CloudFoundryWarmPoolInitializer implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger LOG = Loggers.getLogger(CloudFoundryWarmPoolInitializer.class);
+
+	private static final String TEMPLATE_SERVICE_INSTANCE_ID = "warm-pool";
+
+	private final AppDeployer appDeployer;
+
+	private final BrokeredServices brokeredServices;
+
+	private final TargetService targetService;
+
+	public CloudFoundryWarmPoolInitializer(AppDeployer appDeployer, BrokeredServices brokeredServices,
+		TargetService targetService) {
+		this.appDeployer = appDeployer;
+		this.brokeredServices = brokeredServices;
+		this.targetService = targetService;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		initialize().subscribe();
+	}
+
+	/**
+	 * Register the warm pools of all brokered services.
+	 *
+	 * @return completes when all warm pools are registered; they are filled in the background
+	 */
+	public Mono<Void> initialize() {
+		if (!(appDeployer instanceof CloudFoundryAppDeployer)) {
+			return Mono.empty();
+		}
+		return Flux.fromIterable(brokeredServices)
+			.concatMap(this::prepareWarmPools)
+			.then();
+	}
+
+	private Mono<Void> prepareWarmPools(BrokeredService brokeredService) {
+		if (brokeredService.getApps() == null) {
+			return Mono.empty();
+		}
+		return Flux.fromIterable(brokeredService.getApps())
+			.map(app -> BackingApplication.builder()
+				.name(app.getName())
+				.path(app.getPath())
+				.properties(app.getProperties() == null ? new HashMap<>() : new HashMap<>(app.getProperties()))
+				.build())
+			.collectList()
+			// apply the plan target, so that the pool key matches the deployments of the plan
+			.flatMap(apps -> targetService.addToBackingApplications(apps, brokeredService.getTarget(),
+				TEMPLATE_SERVICE_INSTANCE_ID))
+			.flatMapMany(Flux::fromIterable)
+			.concatMap(app -> ((CloudFoundryAppDeployer) appDeployer).prepareWarmPool(DeployApplicationRequest.builder()
+				.name(app.getName())
+				.path(app.getPath())
+				.properties(app.getProperties())
+				.build())
+				.doOnError(e -> LOG.warn(String.format("Error preparing the warm pool of application %s of " +
+					"service %s plan %s: %s", app.getName(), brokeredService.getServiceName(),
+					brokeredService.getPlanName(), e.getMessage())))
+				.onErrorResume(e -> Mono.empty()))
+			.then();
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeProgress;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeService;
+
+/**
+ * Actuator endpoint to start, pause, resume and follow the upgrade of the service instances of a plan, e.g.
+ * {@code POST /actuator/fleetupgrades/{service}/{plan}} with {@code {"action": "start"}}.
+ */
+@Endpoint(id = "fleetupgrades")
+public class FleetUpgradeEndpoint {
+
+	private static final String START = "start";
+
+	private static final String PAUSE = "pause";
+
+	private static final String RESUME = "resume";
+
+	private final FleetUpgradeService fleetUpgradeService;
+
+	public FleetUpgradeEndpoint(FleetUpgradeService fleetUpgradeService) {
+		this.fleetUpgradeService = fleetUpgradeService;
+	}
+
+	@ReadOperation
+	public List<FleetUpgradeProgress> upgrades() {
+		return fleetUpgradeService.getProgress();
+	}
+
+	@ReadOperation
+	public FleetUpgradeProgress upgrade(@Selector String serviceName, @Selector String planName) {
+		return fleetUpgradeService.getProgress(serviceName, planName);
+	}
+
+	@WriteOperation
+	public FleetUpgradeProgress changeUpgrade(@Selector String serviceName, @Selector String planName,
+		String action) {
+		if (START.equals(action)) {
+			return fleetUpgradeService.start(serviceName, planName);
+		}
+		if (PAUSE.equals(action)) {
+			return fleetUpgradeService.pause(serviceName, planName);
+		}
+		if (RESUME.equals(action)) {
+			return fleetUpgradeService.resume(serviceName, planName);
+		}
+		throw new IllegalArgumentException(String.format("Unknown action %s, expected one of %s, %s or %s", action,
+			START, PAUSE, RESUME));
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto-configuration for the fleet upgrade actuator endpoint. Enabled when Spring Boot Actuator is available and the
+ * {@code fleetupgrades} endpoint is enabled and exposed.
+ */
+@Configuration
+@AutoConfigureAfter(AppBrokerAutoConfiguration.class)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnBean(FleetUpgradeService.class)
+public class FleetUpgradeEndpointAutoConfiguration {
+
+	/**
+	 * Provide a {@link FleetUpgradeEndpoint} bean
+	 *
+	 * @param fleetUpgradeService the FleetUpgradeService bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnAvailableEndpoint(endpoint = FleetUpgradeEndpoint.class)
+	public FleetUpgradeEndpoint fleetUpgradeEndpoint(FleetUpgradeService fleetUpgradeService) {
+		return new FleetUpgradeEndpoint(fleetUpgradeService);
+	}
+
+}
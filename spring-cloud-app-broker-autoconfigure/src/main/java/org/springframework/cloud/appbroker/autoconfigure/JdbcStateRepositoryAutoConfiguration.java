@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.appbroker.state.JdbcServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.JdbcServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.JdbcStateRepositoryProperties;
+import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Auto-configuration for state repositories backed by a database. Enabled by setting
+ * {@code spring.cloud.appbroker.state.store=jdbc} when a {@link JdbcTemplate} is available.
+ */
+@Configuration
+@AutoConfigureBefore(AppBrokerAutoConfiguration.class)
+@AutoConfigureAfter(JdbcTemplateAutoConfiguration.class)
+@ConditionalOnClass({JdbcTemplate.class, JdbcServiceInstanceStateRepository.class})
+@ConditionalOnBean(JdbcTemplate.class)
+@ConditionalOnProperty(prefix = JdbcStateRepositoryAutoConfiguration.PROPERTY_PREFIX, name = "store",
+	havingValue = "jdbc")
+public class JdbcStateRepositoryAutoConfiguration {
+
+	protected static final String PROPERTY_PREFIX = "spring.cloud.appbroker.state";
+
+	/**
+	 * Provide a {@link JdbcStateRepositoryProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".jdbc")
+	public JdbcStateRepositoryProperties jdbcStateRepositoryProperties() {
+		return new JdbcStateRepositoryProperties();
+	}
+
+	/**
+	 * Provide a {@link ServiceInstanceStateRepository} bean
+	 *
+	 * @param jdbcTemplate the JdbcTemplate bean
+	 * @param properties the JdbcStateRepositoryProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean(ServiceInstanceStateRepository.class)
+	public ServiceInstanceStateRepository jdbcServiceInstanceStateRepository(JdbcTemplate jdbcTemplate,
+		JdbcStateRepositoryProperties properties) {
+		return new JdbcServiceInstanceStateRepository(jdbcTemplate, properties);
+	}
+
+	/**
+	 * Provide a {@link ServiceInstanceBindingStateRepository} bean
+	 *
+	 * @param jdbcTemplate the JdbcTemplate bean
+	 * @param properties the JdbcStateRepositoryProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean(ServiceInstanceBindingStateRepository.class)
+	public ServiceInstanceBindingStateRepository jdbcServiceInstanceBindingStateRepository(JdbcTemplate jdbcTemplate,
+		JdbcStateRepositoryProperties properties) {
+		return new JdbcServiceInstanceBindingStateRepository(jdbcTemplate, properties);
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import java.nio.file.Paths;
+
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.appbroker.state.FileProvisioningCheckpointRepository;
+import org.springframework.cloud.appbroker.state.JournalServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.JournalStateRepositoryProperties;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpointRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto-configuration for a service instance state repository backed by a journal on the local file system. Enabled
+ * by setting {@code spring.cloud.appbroker.state.store=journal}.
+ */
+@Configuration
+@AutoConfigureBefore(AppBrokerAutoConfiguration.class)
+@ConditionalOnProperty(prefix = JournalStateRepositoryAutoConfiguration.PROPERTY_PREFIX, name = "store",
+	havingValue = "journal")
+public class JournalStateRepositoryAutoConfiguration {
+
+	protected static final String PROPERTY_PREFIX = "spring.cloud.appbroker.state";
+
+	/**
+	 * Provide a {@link JournalStateRepositoryProperties} bean
+	 *
+	 * @return the bean
+	 */
+	@Bean
+	@ConfigurationProperties(PROPERTY_PREFIX + ".journal")
+	public JournalStateRepositoryProperties journalStateRepositoryProperties() {
+		return new JournalStateRepositoryProperties();
+	}
+
+	/**
+	 * Provide a {@link ServiceInstanceStateRepository} bean
+	 *
+	 * @param properties the JournalStateRepositoryProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean(ServiceInstanceStateRepository.class)
+	public ServiceInstanceStateRepository journalServiceInstanceStateRepository(
+		JournalStateRepositoryProperties properties) {
+		return new JournalServiceInstanceStateRepository(properties);
+	}
+
+	/**
+	 * Provide a {@link ProvisioningCheckpointRepository} bean that keeps checkpoints next to the journal
+	 *
+	 * @param properties the JournalStateRepositoryProperties bean
+	 * @return the bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean(ProvisioningCheckpointRepository.class)
+	public ProvisioningCheckpointRepository fileProvisioningCheckpointRepository(
+		JournalStateRepositoryProperties properties) {
+		return new FileProvisioningCheckpointRepository(Paths.get(properties.getDirectory(), "checkpoints"));
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.appbroker.autoconfigure;
 
+import java.util.Collections;
+
 import org.cloudfoundry.reactor.TokenProvider;
 import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
 import org.junit.jupiter.api.Test;
@@ -28,7 +30,15 @@ import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
 import org.springframework.cloud.appbroker.deployer.BackingApplications;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesIndex;
+import org.springframework.cloud.appbroker.deployer.DeployerCircuitBreaker;
 import org.springframework.cloud.appbroker.deployer.DeployerClient;
+import org.springframework.cloud.appbroker.deployer.DeployerConcurrencyLimiter;
+import org.springframework.cloud.appbroker.deployer.DeployerOperation;
+import org.springframework.cloud.appbroker.deployer.DeployerRetry;
+import org.springframework.cloud.appbroker.deployer.OverloadDetector;
+import org.springframework.cloud.appbroker.deployer.TransientErrorClassifier;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialGenerator;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderService;
 import org.springframework.cloud.appbroker.extensions.credentials.SimpleCredentialGenerator;
@@ -43,11 +53,16 @@ import org.springframework.cloud.appbroker.extensions.targets.ServiceInstanceGui
 import org.springframework.cloud.appbroker.extensions.targets.SpacePerServiceInstance;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.manager.BackingAppManagementService;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeProperties;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeService;
 import org.springframework.cloud.appbroker.manager.ManagementClient;
 import org.springframework.cloud.appbroker.service.CreateServiceInstanceAppBindingWorkflow;
 import org.springframework.cloud.appbroker.service.CreateServiceInstanceRouteBindingWorkflow;
 import org.springframework.cloud.appbroker.service.DeleteServiceInstanceBindingWorkflow;
+import org.springframework.cloud.appbroker.service.OperationExecutor;
 import org.springframework.cloud.appbroker.service.WorkflowServiceInstanceBindingService;
+import org.springframework.cloud.appbroker.state.BackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpointRepository;
 import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
 import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
 import org.springframework.cloud.appbroker.workflow.instance.AppDeploymentCreateServiceInstanceWorkflow;
@@ -62,6 +77,7 @@ import org.springframework.cloud.servicebroker.service.ServiceInstanceService;
 import org.springframework.context.Lifecycle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -156,6 +172,100 @@ class AppBrokerAutoConfigurationTest {
 			});
 	}
 
+	@Test
+	void operationExecutorIsConfiguredFromProperties() {
+		configuredContext()
+			.withPropertyValues("spring.cloud.appbroker.operations.max-in-flight=5",
+				"spring.cloud.appbroker.operations.max-pending=50")
+			.run(context -> {
+				assertThat(context).hasSingleBean(OperationExecutor.class);
+				OperationExecutor executor = context.getBean(OperationExecutor.class);
+				assertThat(executor.getMaxInFlight()).isEqualTo(5);
+				assertThat(executor.getMaxPending()).isEqualTo(50);
+			});
+	}
+
+	@Test
+	void fleetUpgradeIsConfiguredFromProperties() {
+		configuredContext()
+			.withPropertyValues("spring.cloud.appbroker.fleet-upgrade.max-in-flight=10",
+				"spring.cloud.appbroker.fleet-upgrade.max-failures=3")
+			.run(context -> {
+				FleetUpgradeProperties properties = context.getBean(FleetUpgradeProperties.class);
+				assertThat(properties.getMaxInFlight()).isEqualTo(10);
+				assertThat(properties.getMaxFailures()).isEqualTo(3);
+			});
+	}
+
+	@Test
+	void fleetUpgradeEndpointIsCreatedWhenExposed() {
+		configuredContext()
+			.withConfiguration(AutoConfigurations.of(FleetUpgradeEndpointAutoConfiguration.class))
+			.withPropertyValues("management.endpoints.web.exposure.include=fleetupgrades")
+			.run(context -> assertThat(context).hasSingleBean(FleetUpgradeEndpoint.class));
+	}
+
+	@Test
+	void deployerConcurrencyLimiterIsConfiguredFromProperties() {
+		configuredContext()
+			.withPropertyValues("spring.cloud.appbroker.deployer.concurrency.max-concurrent=20",
+				"spring.cloud.appbroker.deployer.concurrency.operations.deploy=5",
+				"spring.cloud.appbroker.deployer.concurrency.operations.create-service-instance=10")
+			.run(context -> {
+				assertThat(context).hasSingleBean(DeployerConcurrencyLimiter.class);
+				DeployerConcurrencyLimiter limiter = context.getBean(DeployerConcurrencyLimiter.class);
+				assertThat(limiter.getMaxConcurrent()).isEqualTo(20);
+				assertThat(limiter.getMaxConcurrent(DeployerOperation.DEPLOY)).isEqualTo(5);
+				assertThat(limiter.getMaxConcurrent(DeployerOperation.CREATE_SERVICE_INSTANCE)).isEqualTo(10);
+				assertThat(limiter.getMaxConcurrent(DeployerOperation.UNDEPLOY)).isEqualTo(Integer.MAX_VALUE);
+			});
+	}
+
+	@Test
+	void deployerConcurrencyLimiterAdaptsWhenEnabled() {
+		configuredContext()
+			.withPropertyValues("spring.cloud.appbroker.deployer.concurrency.max-concurrent=20",
+				"spring.cloud.appbroker.deployer.concurrency.adaptive.enabled=true",
+				"spring.cloud.appbroker.deployer.concurrency.adaptive.initial-limit=5")
+			.run(context -> {
+				DeployerConcurrencyLimiter limiter = context.getBean(DeployerConcurrencyLimiter.class);
+				assertThat(limiter.getCurrentLimit()).isEqualTo(5);
+			});
+	}
+
+	@Test
+	void deployerRetryIsConfiguredFromProperties() {
+		configuredContext()
+			.withPropertyValues("spring.cloud.appbroker.deployer.retry.max-attempts=4",
+				"spring.cloud.appbroker.deployer.retry.operations.create-service-instance.max-attempts=2")
+			.run(context -> {
+				DeployerRetry retry = context.getBean(DeployerRetry.class);
+				assertThat(retry.getMaxAttempts(DeployerOperation.DEPLOY)).isEqualTo(4);
+				assertThat(retry.getMaxAttempts(DeployerOperation.CREATE_SERVICE_INSTANCE)).isEqualTo(2);
+			});
+	}
+
+	@Test
+	void brokeredServicesCatalogIsReloadedFromEnvironment() {
+		configuredContext()
+			.run(context -> {
+				BrokeredServicesCatalog catalog = context.getBean(BrokeredServicesCatalog.class);
+				BrokeredServicesIndex initialSnapshot = catalog.getSnapshot();
+				assertThat(initialSnapshot.get("service3", "service3-plan1")).isNull();
+
+				context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("reloaded",
+					Collections.singletonMap("spring.cloud.appbroker.services[2].service-name", "service3")));
+				context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("reloaded-plan",
+					Collections.singletonMap("spring.cloud.appbroker.services[2].plan-name", "service3-plan1")));
+				context.getBean(BrokeredServicesCatalogRefresher.class).refresh();
+
+				assertThat(catalog.getReloadCount()).isEqualTo(1);
+				assertThat(catalog.getSnapshot().get("service3", "service3-plan1")).isNotNull();
+				assertThat(catalog.getSnapshot().get("service1", "service1-plan1")).isNotNull();
+				assertThat(initialSnapshot.get("service3", "service3-plan1")).isNull();
+			});
+	}
+
 	@Test
 	void serviceInstanceStateRepositoryIsNotCreatedIfProvided() {
 		configuredContext()
@@ -213,14 +323,26 @@ class AppBrokerAutoConfigurationTest {
 
 	private void assertBeansCreated(AssertableApplicationContext context) {
 		assertThat(context).hasSingleBean(DeployerClient.class);
+		assertThat(context).hasSingleBean(DeployerConcurrencyLimiter.class);
+		assertThat(context).hasSingleBean(DeployerRetry.class);
+		assertThat(context).hasSingleBean(DeployerCircuitBreaker.class);
+		assertThat(context).hasSingleBean(OverloadDetector.class);
+		assertThat(context).hasSingleBean(TransientErrorClassifier.class);
 		assertThat(context).hasSingleBean(ManagementClient.class);
 		assertThat(context).hasSingleBean(BrokeredServices.class);
+		assertThat(context).hasSingleBean(BrokeredServicesCatalog.class);
+		assertThat(context).hasSingleBean(BrokeredServicesCatalogRefresher.class);
 
 		assertThat(context).hasSingleBean(ServiceInstanceStateRepository.class);
 		assertThat(context).hasSingleBean(ServiceInstanceBindingStateRepository.class);
+		assertThat(context).hasSingleBean(ProvisioningCheckpointRepository.class);
+		assertThat(context).hasSingleBean(BackingApplicationFingerprintRepository.class);
+
+		assertThat(context).hasSingleBean(OperationExecutor.class);
 
 		assertThat(context).hasSingleBean(BackingAppDeploymentService.class);
 		assertThat(context).hasSingleBean(BackingAppManagementService.class);
+		assertThat(context).hasSingleBean(FleetUpgradeService.class);
 		assertThat(context).hasSingleBean(BackingServicesProvisionService.class);
 
 		assertThat(context).hasSingleBean(BackingApplicationsParametersTransformationService.class);
@@ -275,6 +397,10 @@ class AppBrokerAutoConfigurationTest {
 
 		assertThat(brokeredServices.get(1).getApps().get(0).getName()).isEqualTo("app3");
 		assertThat(brokeredServices.get(1).getApps().get(0).getPath()).isEqualTo("classpath:app3.jar");
+
+		BrokeredServicesCatalog catalog = context.getBean(BrokeredServicesCatalog.class);
+		assertThat(catalog.getSnapshot().size()).isEqualTo(2);
+		assertThat(catalog.getSnapshot().get("service1", "service1-plan1")).isSameAs(brokeredServices.get(0));
 	}
 
 	@Configuration
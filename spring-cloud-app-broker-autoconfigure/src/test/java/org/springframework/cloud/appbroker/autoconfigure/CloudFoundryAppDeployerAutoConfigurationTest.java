@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.appbroker.autoconfigure;
 
+import java.time.Duration;
+
 import org.cloudfoundry.operations.CloudFoundryOperations;
 import org.cloudfoundry.reactor.ConnectionContext;
 import org.cloudfoundry.reactor.DefaultConnectionContext;
@@ -30,11 +32,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.cloud.appbroker.deployer.AppDeployer;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactCache;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactCacheProperties;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryDeploymentProperties;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryDropletRegistry;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryLookupCache;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryLookupCacheProperties;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryOperationsUtils;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryStatusPollerProperties;
 import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryTargetProperties;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryWarmPool;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryWarmPoolProperties;
 import org.springframework.cloud.appbroker.manager.AppManager;
 import org.springframework.cloud.appbroker.oauth2.OAuth2Client;
+import org.springframework.util.unit.DataSize;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -56,7 +67,10 @@ class CloudFoundryAppDeployerAutoConfigurationTest {
 				"spring.cloud.appbroker.deployer.cloudfoundry.properties.memory=2G",
 				"spring.cloud.appbroker.deployer.cloudfoundry.properties.count=3",
 				"spring.cloud.appbroker.deployer.cloudfoundry.properties.buildpack=example-buildpack",
-				"spring.cloud.appbroker.deployer.cloudfoundry.properties.domain=example.com"
+				"spring.cloud.appbroker.deployer.cloudfoundry.properties.domain=example.com",
+				"spring.cloud.appbroker.deployer.cloudfoundry.properties.stack=cflinuxfs3",
+				"spring.cloud.appbroker.deployer.cloudfoundry.properties.droplet-reuse=true",
+				"spring.cloud.appbroker.deployer.cloudfoundry.properties.warm-pool-size=2"
 			)
 			.run((context) -> {
 				assertThat(context).hasSingleBean(CloudFoundryTargetProperties.class);
@@ -75,6 +89,17 @@ class CloudFoundryAppDeployerAutoConfigurationTest {
 				assertThat(deploymentProperties.getCount()).isEqualTo(3);
 				assertThat(deploymentProperties.getBuildpack()).isEqualTo("example-buildpack");
 				assertThat(deploymentProperties.getDomain()).isEqualTo("example.com");
+				assertThat(deploymentProperties.getStack()).isEqualTo("cflinuxfs3");
+				assertThat(deploymentProperties.isDropletReuse()).isTrue();
+				assertThat(context).hasSingleBean(CloudFoundryDropletRegistry.class);
+				assertThat(deploymentProperties.getWarmPoolSize()).isEqualTo(2);
+				assertThat(context).hasSingleBean(CloudFoundryWarmPool.class);
+				assertThat(context).hasSingleBean(CloudFoundryWarmPoolInitializer.class);
+				assertThat(context).hasSingleBean(CloudFoundryArtifactCache.class);
+				assertThat(context).hasSingleBean(CloudFoundryArtifactCachePrefetcher.class);
+
+				assertThat(context).hasSingleBean(CloudFoundryLookupCacheProperties.class);
+				assertThat(context).hasSingleBean(CloudFoundryLookupCache.class);
 
 				assertThat(context).hasSingleBean(AppDeployer.class);
 				assertThat(context).hasSingleBean(AppManager.class);
@@ -99,7 +124,14 @@ class CloudFoundryAppDeployerAutoConfigurationTest {
 				"spring.cloud.appbroker.deployer.cloudfoundry.default-org=example-org",
 				"spring.cloud.appbroker.deployer.cloudfoundry.default-space=example-space",
 				"spring.cloud.appbroker.deployer.cloudfoundry.client-id=oauth-client",
-				"spring.cloud.appbroker.deployer.cloudfoundry.client-secret=secret"
+				"spring.cloud.appbroker.deployer.cloudfoundry.client-secret=secret",
+				"spring.cloud.appbroker.deployer.cloudfoundry.lookup-cache.time-to-live=30s",
+				"spring.cloud.appbroker.deployer.cloudfoundry.lookup-cache.max-entries=50",
+				"spring.cloud.appbroker.deployer.cloudfoundry.lookup-cache.max-operations=20",
+				"spring.cloud.appbroker.deployer.cloudfoundry.status-poller.max-interval=5s",
+				"spring.cloud.appbroker.deployer.cloudfoundry.warm-pool.max-concurrent-refills=3",
+				"spring.cloud.appbroker.deployer.cloudfoundry.artifact-cache.enabled=false",
+				"spring.cloud.appbroker.deployer.cloudfoundry.artifact-cache.max-size=2GB"
 			)
 			.run((context) -> {
 				assertThat(context).hasSingleBean(CloudFoundryTargetProperties.class);
@@ -111,6 +143,28 @@ class CloudFoundryAppDeployerAutoConfigurationTest {
 				assertThat(targetProperties.getClientId()).isEqualTo("oauth-client");
 				assertThat(targetProperties.getClientSecret()).isEqualTo("secret");
 
+				assertThat(context).hasSingleBean(CloudFoundryLookupCacheProperties.class);
+				CloudFoundryLookupCacheProperties lookupCacheProperties = context
+					.getBean(CloudFoundryLookupCacheProperties.class);
+				assertThat(lookupCacheProperties.isEnabled()).isTrue();
+				assertThat(lookupCacheProperties.getTimeToLive()).isEqualTo(Duration.ofSeconds(30));
+				assertThat(lookupCacheProperties.getMaxEntries()).isEqualTo(50);
+				assertThat(lookupCacheProperties.getMaxOperations()).isEqualTo(20);
+
+				assertThat(context).hasSingleBean(CloudFoundryStatusPollerProperties.class);
+				assertThat(context.getBean(CloudFoundryStatusPollerProperties.class).getMaxInterval())
+					.isEqualTo(Duration.ofSeconds(5));
+
+				assertThat(context).hasSingleBean(CloudFoundryWarmPoolProperties.class);
+				assertThat(context.getBean(CloudFoundryWarmPoolProperties.class).getMaxConcurrentRefills())
+					.isEqualTo(3);
+
+				assertThat(context).hasSingleBean(CloudFoundryArtifactCacheProperties.class);
+				CloudFoundryArtifactCacheProperties artifactCacheProperties = context
+					.getBean(CloudFoundryArtifactCacheProperties.class);
+				assertThat(artifactCacheProperties.isEnabled()).isFalse();
+				assertThat(artifactCacheProperties.getMaxSize()).isEqualTo(DataSize.ofGigabytes(2));
+
 				assertThat(context).hasSingleBean(AppDeployer.class);
 				assertThat(context).hasSingleBean(AppManager.class);
 
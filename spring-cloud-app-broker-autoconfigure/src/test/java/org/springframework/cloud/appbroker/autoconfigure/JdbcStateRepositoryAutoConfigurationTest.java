@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.JdbcServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.JdbcServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.JdbcStateRepositoryProperties;
+import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcStateRepositoryAutoConfigurationTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+		.withConfiguration(AutoConfigurations.of(
+			DataSourceAutoConfiguration.class,
+			JdbcTemplateAutoConfiguration.class,
+			CloudFoundryAppDeployerAutoConfiguration.class,
+			AppBrokerAutoConfiguration.class,
+			JdbcStateRepositoryAutoConfiguration.class
+		))
+		.withPropertyValues(
+			"spring.cloud.appbroker.deployer.cloudfoundry.api-host=https://api.example.com",
+			"spring.cloud.appbroker.deployer.cloudfoundry.username=user",
+			"spring.cloud.appbroker.deployer.cloudfoundry.password=secret"
+		);
+
+	@Test
+	void inMemoryRepositoriesAreUsedByDefault() {
+		contextRunner
+			.run(context -> {
+				assertThat(context)
+					.getBean(ServiceInstanceStateRepository.class)
+					.isExactlyInstanceOf(InMemoryServiceInstanceStateRepository.class);
+				assertThat(context)
+					.getBean(ServiceInstanceBindingStateRepository.class)
+					.isExactlyInstanceOf(InMemoryServiceInstanceBindingStateRepository.class);
+			});
+	}
+
+	@Test
+	void jdbcRepositoriesAreUsedWhenConfigured() {
+		contextRunner
+			.withPropertyValues("spring.cloud.appbroker.state.store=jdbc",
+				"spring.cloud.appbroker.state.jdbc.batch-size=10")
+			.run(context -> {
+				assertThat(context)
+					.getBean(ServiceInstanceStateRepository.class)
+					.isExactlyInstanceOf(JdbcServiceInstanceStateRepository.class);
+				assertThat(context)
+					.getBean(ServiceInstanceBindingStateRepository.class)
+					.isExactlyInstanceOf(JdbcServiceInstanceBindingStateRepository.class);
+				assertThat(context.getBean(JdbcStateRepositoryProperties.class).getBatchSize()).isEqualTo(10);
+			});
+	}
+
+}
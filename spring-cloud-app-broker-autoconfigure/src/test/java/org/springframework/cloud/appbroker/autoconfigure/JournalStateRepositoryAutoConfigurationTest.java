@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.autoconfigure;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.appbroker.state.FileProvisioningCheckpointRepository;
+import org.springframework.cloud.appbroker.state.InMemoryProvisioningCheckpointRepository;
+import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.JournalServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpointRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalStateRepositoryAutoConfigurationTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+		.withConfiguration(AutoConfigurations.of(
+			CloudFoundryAppDeployerAutoConfiguration.class,
+			AppBrokerAutoConfiguration.class,
+			JournalStateRepositoryAutoConfiguration.class
+		))
+		.withPropertyValues(
+			"spring.cloud.appbroker.deployer.cloudfoundry.api-host=https://api.example.com",
+			"spring.cloud.appbroker.deployer.cloudfoundry.username=user",
+			"spring.cloud.appbroker.deployer.cloudfoundry.password=secret"
+		);
+
+	@Test
+	void inMemoryRepositoryIsUsedByDefault() {
+		contextRunner
+			.run(context -> {
+				assertThat(context)
+					.getBean(ServiceInstanceStateRepository.class)
+					.isExactlyInstanceOf(InMemoryServiceInstanceStateRepository.class);
+				assertThat(context)
+					.getBean(ProvisioningCheckpointRepository.class)
+					.isExactlyInstanceOf(InMemoryProvisioningCheckpointRepository.class);
+			});
+	}
+
+	@Test
+	void journalRepositoryIsUsedWhenConfigured(@TempDir Path directory) {
+		contextRunner
+			.withPropertyValues("spring.cloud.appbroker.state.store=journal",
+				"spring.cloud.appbroker.state.journal.directory=" + directory,
+				"spring.cloud.appbroker.state.journal.initial-journal-size=4096")
+			.run(context -> {
+				assertThat(context)
+					.getBean(ServiceInstanceStateRepository.class)
+					.isExactlyInstanceOf(JournalServiceInstanceStateRepository.class);
+				assertThat(context)
+					.getBean(ServiceInstanceBindingStateRepository.class)
+					.isExactlyInstanceOf(InMemoryServiceInstanceBindingStateRepository.class);
+				assertThat(context)
+					.getBean(ProvisioningCheckpointRepository.class)
+					.isExactlyInstanceOf(FileProvisioningCheckpointRepository.class);
+			});
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+/**
+ * Measures {@link InMemoryServiceInstanceStateRepository#saveState} and
+ * {@link InMemoryServiceInstanceStateRepository#getState}, the calls behind every create, update and delete and every
+ * poll of the last operation. Run with {@code -prof gc} to report the bytes allocated per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryServiceInstanceStateRepositoryBenchmark {
+
+	@Param({"unbounded", "evicting"})
+	private String store;
+
+	@Param("10000")
+	private int serviceInstances;
+
+	private InMemoryServiceInstanceStateRepository repository;
+
+	private String[] serviceInstanceIds;
+
+	@Setup
+	public void setUp() {
+		if ("evicting".equals(store)) {
+			InMemoryStateRepositoryProperties properties = new InMemoryStateRepositoryProperties();
+			properties.setTerminalStateTimeToLive(Duration.ofMinutes(10));
+			properties.setMaxTerminalStates(serviceInstances);
+			repository = new InMemoryServiceInstanceStateRepository(properties);
+		}
+		else {
+			repository = new InMemoryServiceInstanceStateRepository();
+		}
+
+		serviceInstanceIds = new String[serviceInstances];
+		for (int i = 0; i < serviceInstances; i++) {
+			serviceInstanceIds[i] = "service-instance-" + i;
+			repository.saveState(serviceInstanceIds[i], OperationState.IN_PROGRESS, "create in progress").block();
+		}
+	}
+
+	@Benchmark
+	public ServiceInstanceState saveState(Cursor cursor) {
+		return repository.saveState(cursor.next(serviceInstanceIds), OperationState.IN_PROGRESS,
+			"update in progress").block();
+	}
+
+	@Benchmark
+	public ServiceInstanceState getState(Cursor cursor) {
+		return repository.getState(cursor.next(serviceInstanceIds)).block();
+	}
+
+	/**
+	 * Walks through the service instance IDs, so that each thread looks up different entries in turn
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int index;
+
+		String next(String[] serviceInstanceIds) {
+			index = index + 1 == serviceInstanceIds.length ? 0 : index + 1;
+			return serviceInstanceIds[index];
+		}
+
+	}
+
+}
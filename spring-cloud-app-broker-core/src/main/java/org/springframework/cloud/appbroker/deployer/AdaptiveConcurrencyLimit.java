@@ -0,0 +1,194 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * A concurrency limit that adapts to the latency and errors of calls to the deployment platform, using additive
+ * increase and multiplicative decrease (AIMD).
+ * <p>
+ * While calls complete within {@code latencyTolerance} times the baseline latency and the limit is being used, the
+ * limit grows by about one for every {@code limit} calls. When a call takes longer, or fails with an error that the
+ * {@link OverloadDetector} recognizes as an overload, the limit is multiplied by {@code backoffRatio}. The limit is
+ * decreased at most once for all the calls that were already running when it was last decreased, so that a single
+ * slow period does not collapse it to the minimum.
+ * <p>
+ * The baseline latency is the latency of the fastest call within the last one to two {@code baselineWindow}s. It
+ * reflects how fast the platform answers when it is not loaded, and allows a platform that becomes slower for good to
+ * be accepted as normal after a while. A baseline is kept for each {@link DeployerOperation} type, since staging an
+ * application takes far longer than stopping one, and a call is only compared to calls of the same type.
+ */
+public class AdaptiveConcurrencyLimit {
+
+	private static final Logger LOG = Loggers.getLogger(AdaptiveConcurrencyLimit.class);
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double backoffRatio;
+
+	private final double latencyTolerance;
+
+	private final long baselineWindowNanos;
+
+	private final Map<DeployerOperation, Baseline> baselines = new EnumMap<>(DeployerOperation.class);
+
+	private double limit;
+
+	private long lastDecreaseNanos = Long.MIN_VALUE;
+
+	private long decreaseCount;
+
+	/**
+	 * Construct a new {@link AdaptiveConcurrencyLimit}
+	 *
+	 * @param initialLimit the limit to start with
+	 * @param minLimit the lowest limit
+	 * @param maxLimit the highest limit
+	 * @param backoffRatio the factor the limit is multiplied by when the platform is overloaded, between 0 and 1
+	 * @param latencyTolerance how many times the baseline latency a call may take before the platform is considered
+	 * 	overloaded
+	 * @param baselineWindow how long the latency of the fastest call is remembered as the baseline
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+		double latencyTolerance, Duration baselineWindow) {
+		if (minLimit <= 0 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("minLimit must be greater than zero and not greater than maxLimit");
+		}
+		if (backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+		}
+		if (latencyTolerance <= 1) {
+			throw new IllegalArgumentException("latencyTolerance must be greater than 1");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.latencyTolerance = latencyTolerance;
+		this.baselineWindowNanos = baselineWindow.toNanos();
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		for (DeployerOperation operation : DeployerOperation.values()) {
+			this.baselines.put(operation, new Baseline());
+		}
+	}
+
+	/**
+	 * Construct a new {@link AdaptiveConcurrencyLimit}
+	 *
+	 * @param properties the configuration properties
+	 */
+	public AdaptiveConcurrencyLimit(AdaptiveConcurrencyProperties properties) {
+		this(properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit(),
+			properties.getBackoffRatio(), properties.getLatencyTolerance(), properties.getBaselineWindow());
+	}
+
+	/**
+	 * Record the outcome of a call
+	 *
+	 * @param operation the type of the call
+	 * @param startNanos when the call started, in the nanoseconds of the limiter's ticker
+	 * @param endNanos when the call ended, in the nanoseconds of the limiter's ticker
+	 * @param overloaded whether the call failed with an error that indicates an overloaded platform
+	 * @param inFlight the number of calls that were running when the call ended, including the call itself
+	 */
+	public synchronized void onSample(DeployerOperation operation, long startNanos, long endNanos, boolean overloaded,
+		int inFlight) {
+		long latencyNanos = endNanos - startNanos;
+		Baseline baseline = baselines.get(operation);
+		if (!overloaded) {
+			baseline.update(latencyNanos, endNanos, baselineWindowNanos);
+		}
+		long baselineNanos = baseline.getNanos();
+		boolean slow = baselineNanos != Long.MAX_VALUE && latencyNanos > baselineNanos * latencyTolerance;
+
+		if (overloaded || slow) {
+			if (startNanos > lastDecreaseNanos) {
+				double previous = limit;
+				limit = Math.max(minLimit, limit * backoffRatio);
+				lastDecreaseNanos = endNanos;
+				decreaseCount++;
+				LOG.debug("Decreased deployment platform concurrency limit from {} to {} after {} {} call of {}ms",
+					(int) previous, getLimit(), overloaded ? "an overloaded" : "a slow", operation,
+					Duration.ofNanos(latencyNanos).toMillis());
+			}
+		}
+		else if (inFlight * 2 >= limit) {
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+	}
+
+	/**
+	 * @return the current limit
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the baseline latency that calls of the given type are compared to, or {@link Duration#ZERO} before the
+	 * 	first call of that type
+	 */
+	public synchronized Duration getBaselineLatency(DeployerOperation operation) {
+		long baselineNanos = baselines.get(operation).getNanos();
+		return baselineNanos == Long.MAX_VALUE ? Duration.ZERO : Duration.ofNanos(baselineNanos);
+	}
+
+	/**
+	 * @return the number of times the limit was decreased
+	 */
+	public synchronized long getDecreaseCount() {
+		return decreaseCount;
+	}
+
+	/**
+	 * The fastest latency of one operation type. Only accessed while holding the limit's lock.
+	 */
+	private static class Baseline {
+
+		private long windowStartNanos;
+
+		private long windowMinNanos = Long.MAX_VALUE;
+
+		private long previousWindowMinNanos = Long.MAX_VALUE;
+
+		public void update(long latencyNanos, long nowNanos, long baselineWindowNanos) {
+			if (windowMinNanos == Long.MAX_VALUE && previousWindowMinNanos == Long.MAX_VALUE) {
+				windowStartNanos = nowNanos;
+			}
+			else if (nowNanos - windowStartNanos >= baselineWindowNanos) {
+				previousWindowMinNanos = windowMinNanos;
+				windowMinNanos = Long.MAX_VALUE;
+				windowStartNanos = nowNanos;
+			}
+			windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+		}
+
+		public long getNanos() {
+			return Math.min(windowMinNanos, previousWindowMinNanos);
+		}
+
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the {@link AdaptiveConcurrencyLimit}
+ */
+public class AdaptiveConcurrencyProperties {
+
+	/**
+	 * Whether to adapt the total number of concurrent calls to the deployment platform to its latency and errors.
+	 */
+	private boolean enabled;
+
+	/**
+	 * The limit to start with.
+	 */
+	private int initialLimit = 10;
+
+	/**
+	 * The lowest limit.
+	 */
+	private int minLimit = 1;
+
+	/**
+	 * The highest limit.
+	 */
+	private int maxLimit = 200;
+
+	/**
+	 * The factor the limit is multiplied by when the deployment platform is overloaded.
+	 */
+	private double backoffRatio = 0.5;
+
+	/**
+	 * How many times the baseline latency a call may take before the deployment platform is considered overloaded.
+	 */
+	private double latencyTolerance = 2.0;
+
+	/**
+	 * How long the latency of the fastest call is remembered as the baseline latency of the deployment platform.
+	 */
+	private Duration baselineWindow = Duration.ofMinutes(10);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+
+	public double getLatencyTolerance() {
+		return latencyTolerance;
+	}
+
+	public void setLatencyTolerance(double latencyTolerance) {
+		this.latencyTolerance = latencyTolerance;
+	}
+
+	public Duration getBaselineWindow() {
+		return baselineWindow;
+	}
+
+	public void setBaselineWindow(Duration baselineWindow) {
+		this.baselineWindow = baselineWindow;
+	}
+
+}
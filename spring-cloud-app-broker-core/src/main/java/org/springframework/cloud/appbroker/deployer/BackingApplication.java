@@ -48,6 +48,8 @@ public class BackingApplication {
 
 	private List<CredentialProviderSpec> credentialProviders;
 
+	private List<String> dependsOn;
+
 	private BackingApplication() {
 	}
 
@@ -77,6 +79,29 @@ public class BackingApplication {
 		this.credentialProviders = credentialProviders;
 	}
 
+	/**
+	 * Construct a new {@link BackingApplication}
+	 *
+	 * @param name the name of the application
+	 * @param path the path to the application
+	 * @param properties the properties
+	 * @param environment the environment variables
+	 * @param services the services required by the application
+	 * @param parametersTransformers the parameter transformers
+	 * @param credentialProviders the credential providers
+	 * @param dependsOn the names of the applications that must be deployed before this application
+	 */
+	public BackingApplication(String name, String path,
+		Map<String, String> properties,
+		Map<String, Object> environment,
+		List<ServicesSpec> services,
+		List<ParametersTransformerSpec> parametersTransformers,
+		List<CredentialProviderSpec> credentialProviders,
+		List<String> dependsOn) {
+		this(name, path, properties, environment, services, parametersTransformers, credentialProviders);
+		this.dependsOn = dependsOn;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -153,6 +178,14 @@ public class BackingApplication {
 		this.credentialProviders = credentialProviders;
 	}
 
+	public List<String> getDependsOn() {
+		return dependsOn;
+	}
+
+	public void setDependsOn(List<String> dependsOn) {
+		this.dependsOn = dependsOn;
+	}
+
 	/**
 	 * Create a builder that provides a fluent API for constructing a {@literal BackingApplication}.
 	 *
@@ -177,12 +210,14 @@ public class BackingApplication {
 			Objects.equals(environment, that.environment) &&
 			Objects.equals(services, that.services) &&
 			Objects.equals(parametersTransformers, that.parametersTransformers) &&
-			Objects.equals(credentialProviders, that.credentialProviders);
+			Objects.equals(credentialProviders, that.credentialProviders) &&
+			Objects.equals(dependsOn, that.dependsOn);
 	}
 
 	@Override
 	public final int hashCode() {
-		return Objects.hash(name, path, properties, environment, services, parametersTransformers, credentialProviders);
+		return Objects.hash(name, path, properties, environment, services, parametersTransformers, credentialProviders,
+			dependsOn);
 	}
 
 	@Override
@@ -195,6 +230,7 @@ public class BackingApplication {
 			", services=" + services +
 			", parametersTransformers=" + parametersTransformers +
 			", credentialProviders=" + credentialProviders +
+			", dependsOn=" + dependsOn +
 			'}';
 	}
 
@@ -228,6 +264,8 @@ public class BackingApplication {
 
 		private final List<CredentialProviderSpec> credentialProviders = new ArrayList<>();
 
+		private final List<String> dependsOn = new ArrayList<>();
+
 		private BackingApplicationBuilder() {
 		}
 
@@ -263,6 +301,7 @@ public class BackingApplication {
 						.build())
 					.collect(Collectors.toList()));
 			}
+			this.dependsOn(backingApplication.getDependsOn());
 			return this;
 		}
 
@@ -420,6 +459,32 @@ public class BackingApplication {
 			return this;
 		}
 
+		/**
+		 * Applications that must be deployed before this application, and undeployed after it
+		 *
+		 * @param dependsOn the names of the applications
+		 * @return the builder
+		 */
+		public BackingApplicationBuilder dependsOn(List<String> dependsOn) {
+			if (!CollectionUtils.isEmpty(dependsOn)) {
+				this.dependsOn.addAll(dependsOn);
+			}
+			return this;
+		}
+
+		/**
+		 * Applications that must be deployed before this application, and undeployed after it
+		 *
+		 * @param dependsOn the names of the applications
+		 * @return the builder
+		 */
+		public BackingApplicationBuilder dependsOn(String... dependsOn) {
+			if (dependsOn != null) {
+				this.dependsOn(Arrays.asList(dependsOn));
+			}
+			return this;
+		}
+
 		/**
 		 * Construct a {@link BackingApplication} from the provided values.
 		 *
@@ -427,7 +492,7 @@ public class BackingApplication {
 		 */
 		public BackingApplication build() {
 			return new BackingApplication(name, path, properties, environment, services, parameterTransformers,
-				credentialProviders);
+				credentialProviders, dependsOn);
 		}
 
 	}
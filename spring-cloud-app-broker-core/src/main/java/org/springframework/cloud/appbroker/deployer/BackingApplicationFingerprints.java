@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Computes a fingerprint of the effective manifest of a backing application: its name, path, properties,
+ * environment, and services. Two backing applications have the same fingerprint exactly when these are equal,
+ * regardless of the order of map entries, so that an update can tell whether deploying an application again would
+ * change it.
+ */
+public final class BackingApplicationFingerprints {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private BackingApplicationFingerprints() {
+	}
+
+	/**
+	 * Compute the fingerprint of a backing application
+	 *
+	 * @param backingApp the backing application, after targets and parameters transformers were applied
+	 * @return the hex encoded SHA-256 digest of the effective manifest
+	 */
+	public static String fingerprint(BackingApplication backingApp) {
+		StringBuilder manifest = new StringBuilder();
+		write(manifest, backingApp.getName());
+		write(manifest, backingApp.getPath());
+		write(manifest, backingApp.getProperties());
+		write(manifest, backingApp.getEnvironment());
+		if (backingApp.getServices() == null) {
+			write(manifest, null);
+		}
+		else {
+			manifest.append('[');
+			backingApp.getServices().forEach(service -> write(manifest, service.getServiceInstanceName()));
+			manifest.append(']');
+		}
+		return toHex(sha256(manifest.toString()));
+	}
+
+	/**
+	 * Compute the fingerprints of backing applications
+	 *
+	 * @param backingApps the backing applications, after targets and parameters transformers were applied
+	 * @return the fingerprints by backing application name
+	 */
+	public static Map<String, String> fingerprints(List<BackingApplication> backingApps) {
+		return backingApps.stream()
+			.collect(Collectors.toMap(BackingApplication::getName, BackingApplicationFingerprints::fingerprint,
+				(first, second) -> second, LinkedHashMap::new));
+	}
+
+	/**
+	 * Write a value in a form that cannot be confused with another value: strings are prefixed with their length,
+	 * and map entries are sorted by key.
+	 */
+	private static void write(StringBuilder manifest, Object value) {
+		if (value == null) {
+			manifest.append('n');
+		}
+		else if (value instanceof Map) {
+			Map<String, Object> sorted = new TreeMap<>();
+			((Map<?, ?>) value).forEach((key, entry) -> sorted.put(String.valueOf(key), entry));
+			manifest.append('{');
+			sorted.forEach((key, entry) -> {
+				write(manifest, key);
+				write(manifest, entry);
+			});
+			manifest.append('}');
+		}
+		else if (value instanceof Collection) {
+			manifest.append('[');
+			((Collection<?>) value).forEach(element -> write(manifest, element));
+			manifest.append(']');
+		}
+		else {
+			String string = value.toString();
+			manifest.append('s').append(string.length()).append(':').append(string);
+		}
+	}
+
+	private static byte[] sha256(String manifest) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(manifest.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	private static String toHex(byte[] digest) {
+		char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Orders backing applications into waves according to their {@link BackingApplication#getDependsOn() depends-on}
+ * declarations. Every application of a wave depends only on applications of earlier waves, so the applications of a
+ * wave can be deployed in parallel once the previous wave is deployed. Dependencies on applications that are not
+ * part of the list are ignored.
+ */
+public final class BackingApplicationWaves {
+
+	private BackingApplicationWaves() {
+	}
+
+	/**
+	 * Order backing applications into waves
+	 *
+	 * @param backingApps the backing applications
+	 * @return the waves, in deployment order
+	 * @throws IllegalArgumentException if the dependencies are circular
+	 */
+	public static List<List<BackingApplication>> of(List<BackingApplication> backingApps) {
+		if (backingApps.stream().allMatch(backingApp -> CollectionUtils.isEmpty(backingApp.getDependsOn()))) {
+			return backingApps.isEmpty() ? Collections.emptyList() : Collections.singletonList(backingApps);
+		}
+
+		Set<String> names = backingApps.stream()
+			.map(BackingApplication::getName)
+			.collect(Collectors.toSet());
+
+		List<List<BackingApplication>> waves = new ArrayList<>();
+		List<BackingApplication> remaining = new ArrayList<>(backingApps);
+		Set<String> deployed = new HashSet<>();
+		while (!remaining.isEmpty()) {
+			List<BackingApplication> wave = remaining.stream()
+				.filter(backingApp -> isReady(backingApp, names, deployed))
+				.collect(Collectors.toList());
+			if (wave.isEmpty()) {
+				throw new IllegalArgumentException("Backing applications " + remaining.stream()
+					.map(BackingApplication::getName)
+					.collect(Collectors.toList()) + " have circular depends-on declarations");
+			}
+			wave.forEach(backingApp -> deployed.add(backingApp.getName()));
+			remaining.removeAll(wave);
+			waves.add(wave);
+		}
+		return waves;
+	}
+
+	private static boolean isReady(BackingApplication backingApp, Set<String> names, Set<String> deployed) {
+		if (CollectionUtils.isEmpty(backingApp.getDependsOn())) {
+			return true;
+		}
+		return backingApp.getDependsOn().stream()
+			.allMatch(dependency -> deployed.contains(dependency) || !names.contains(dependency));
+	}
+
+}
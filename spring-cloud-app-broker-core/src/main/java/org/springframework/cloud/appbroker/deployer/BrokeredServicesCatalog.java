@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Holds the current {@link BrokeredServicesIndex} and allows it to be replaced at runtime without restarting the
+ * broker. A reload builds a complete new index before swapping it in, so readers always see either the old or the
+ * new catalog, never a mix of both.
+ * <p>
+ * Operations that look up the catalog several times, such as creating a service instance, can be pinned to the
+ * snapshot that was current when they started by wrapping them with {@link #pin(Mono)} or {@link #pin(Flux)} and
+ * reading the catalog with {@link #snapshot()}.
+ */
+public class BrokeredServicesCatalog {
+
+	private static final Logger LOG = Loggers.getLogger(BrokeredServicesCatalog.class);
+
+	private final AtomicReference<BrokeredServicesIndex> current;
+
+	private final AtomicLong reloadCount = new AtomicLong();
+
+	public BrokeredServicesCatalog(BrokeredServices brokeredServices) {
+		this.current = new AtomicReference<>(new BrokeredServicesIndex(brokeredServices));
+	}
+
+	/**
+	 * @return the current catalog snapshot
+	 */
+	public BrokeredServicesIndex getSnapshot() {
+		return current.get();
+	}
+
+	/**
+	 * Replace the catalog. Operations already pinned to a snapshot keep using it until they complete.
+	 *
+	 * @param brokeredServices the new catalog
+	 */
+	public void reload(BrokeredServices brokeredServices) {
+		BrokeredServicesIndex index = new BrokeredServicesIndex(brokeredServices);
+		current.set(index);
+		reloadCount.incrementAndGet();
+		LOG.info("Reloaded brokered services catalog with {} service plans", index.size());
+	}
+
+	/**
+	 * @return the number of times the catalog has been reloaded
+	 */
+	public long getReloadCount() {
+		return reloadCount.get();
+	}
+
+	/**
+	 * Resolve the snapshot pinned by an enclosing {@link #pin(Mono)} or {@link #pin(Flux)}, or the current snapshot
+	 * if there is none.
+	 *
+	 * @return the snapshot
+	 */
+	public Mono<BrokeredServicesIndex> snapshot() {
+		return Mono.subscriberContext()
+			.map(context -> context.getOrDefault(this, current.get()));
+	}
+
+	/**
+	 * Pin the catalog snapshot that is current when {@code operation} is subscribed for the whole operation
+	 *
+	 * @param operation the operation
+	 * @param <T> the type of the element
+	 * @return the pinned operation
+	 */
+	public <T> Mono<T> pin(Mono<T> operation) {
+		return operation.subscriberContext(context -> context.hasKey(this) ? context : context.put(this, current.get()));
+	}
+
+	/**
+	 * Pin the catalog snapshot that is current when {@code operation} is subscribed for the whole operation
+	 *
+	 * @param operation the operation
+	 * @param <T> the type of the elements
+	 * @return the pinned operation
+	 */
+	public <T> Flux<T> pin(Flux<T> operation) {
+		return operation.subscriberContext(context -> context.hasKey(this) ? context : context.put(this, current.get()));
+	}
+
+}
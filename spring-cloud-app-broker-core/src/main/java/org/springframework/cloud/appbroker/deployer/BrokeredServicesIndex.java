@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of {@link BrokeredService}s by service name and plan name, so that the configuration for a
+ * service and plan can be found without scanning the whole catalog on every request.
+ */
+public class BrokeredServicesIndex {
+
+	private final Map<String, Map<String, BrokeredService>> servicesByName;
+
+	/**
+	 * Build an index of the given services. When a service and plan name combination is configured more than once,
+	 * the first occurrence wins.
+	 *
+	 * @param brokeredServices the services to index
+	 */
+	public BrokeredServicesIndex(List<BrokeredService> brokeredServices) {
+		Map<String, Map<String, BrokeredService>> services = new HashMap<>();
+		if (brokeredServices != null) {
+			for (BrokeredService brokeredService : brokeredServices) {
+				services.computeIfAbsent(brokeredService.getServiceName(), name -> new HashMap<>())
+					.putIfAbsent(brokeredService.getPlanName(), brokeredService);
+			}
+		}
+		services.replaceAll((name, plans) -> Collections.unmodifiableMap(plans));
+		this.servicesByName = Collections.unmodifiableMap(services);
+	}
+
+	/**
+	 * Find the configuration for a service and plan
+	 *
+	 * @param serviceName the service name
+	 * @param planName the plan name
+	 * @return the configured service, or {@literal null} if the service and plan are not configured
+	 */
+	public BrokeredService get(String serviceName, String planName) {
+		Map<String, BrokeredService> plans = servicesByName.get(serviceName);
+		return plans == null ? null : plans.get(planName);
+	}
+
+	/**
+	 * @return the number of indexed service and plan combinations
+	 */
+	public int size() {
+		return servicesByName.values().stream()
+			.mapToInt(Map::size)
+			.sum();
+	}
+
+}
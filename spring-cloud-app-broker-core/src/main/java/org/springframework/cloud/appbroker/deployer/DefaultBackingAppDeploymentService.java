@@ -16,9 +16,13 @@
 
 package org.springframework.cloud.appbroker.deployer;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.Logger;
 import reactor.util.Loggers;
@@ -35,11 +39,11 @@ public class DefaultBackingAppDeploymentService implements BackingAppDeploymentS
 
 	@Override
 	public Flux<String> deploy(List<BackingApplication> backingApps, String serviceInstanceId) {
-		return Flux.fromIterable(backingApps)
+		return inWaves(backingApps, false, wave -> Flux.fromIterable(wave)
 			.parallel()
 			.runOn(Schedulers.parallel())
 			.flatMap(backingApplication -> deployerClient.deploy(backingApplication, serviceInstanceId))
-			.sequential()
+			.sequential())
 			.doOnRequest(l -> log.debug("Deploying applications {}", backingApps))
 			.doOnEach(response -> log.debug("Finished deploying application {}", response))
 			.doOnComplete(() -> log.debug("Finished deploying application {}", backingApps))
@@ -49,11 +53,11 @@ public class DefaultBackingAppDeploymentService implements BackingAppDeploymentS
 
 	@Override
 	public Flux<String> update(List<BackingApplication> backingApps, String serviceInstanceId) {
-		return Flux.fromIterable(backingApps)
+		return inWaves(backingApps, false, wave -> Flux.fromIterable(wave)
 			.parallel()
 			.runOn(Schedulers.parallel())
 			.flatMap(backingApplication -> deployerClient.update(backingApplication, serviceInstanceId))
-			.sequential()
+			.sequential())
 			.doOnRequest(l -> log.debug("Updating applications {}", backingApps))
 			.doOnEach(response -> log.debug("Finished updating application {}", response))
 			.doOnComplete(() -> log.debug("Finished updating application {}", backingApps))
@@ -63,11 +67,11 @@ public class DefaultBackingAppDeploymentService implements BackingAppDeploymentS
 
 	@Override
 	public Flux<String> undeploy(List<BackingApplication> backingApps) {
-		return Flux.fromIterable(backingApps)
+		return inWaves(backingApps, true, wave -> Flux.fromIterable(wave)
 			.parallel()
 			.runOn(Schedulers.parallel())
 			.flatMap(deployerClient::undeploy)
-			.sequential()
+			.sequential())
 			.doOnRequest(l -> log.debug("Undeploying applications {}", backingApps))
 			.doOnEach(response -> log.debug("Finished undeploying application {}", response))
 			.doOnComplete(() -> log.debug("Finished undeploying application {}", backingApps))
@@ -75,4 +79,25 @@ public class DefaultBackingAppDeploymentService implements BackingAppDeploymentS
 				backingApps, exception.getMessage()), exception));
 	}
 
+	/**
+	 * Run an operation on each wave of applications, one wave after the other
+	 *
+	 * @param backingApps the applications
+	 * @param reverse whether to run the waves in reverse order, e.g. to undeploy dependent applications first
+	 * @param operation the operation to run on the applications of a wave
+	 * @return the results of the operation
+	 */
+	private Flux<String> inWaves(List<BackingApplication> backingApps, boolean reverse,
+		Function<List<BackingApplication>, Flux<String>> operation) {
+		return Mono.fromCallable(() -> BackingApplicationWaves.of(backingApps))
+			.flatMapMany(waves -> {
+				List<List<BackingApplication>> ordered = new ArrayList<>(waves);
+				if (reverse) {
+					Collections.reverse(ordered);
+				}
+				return Flux.fromIterable(ordered);
+			})
+			.concatMap(operation);
+	}
+
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.cloud.servicebroker.exception.ServiceBrokerUnavailableException;
+
+/**
+ * Stops calling the deployment platform while it is down, so that service instance operations fail fast instead of
+ * each waiting for its calls to time out.
+ * <p>
+ * The circuit opens after {@code failureThreshold} consecutive calls failed with a transient error. While it is open,
+ * calls fail immediately with a {@link ServiceBrokerUnavailableException}. After {@code openDuration}, a single trial
+ * call is let through: the circuit closes if it succeeds and opens again if it fails with a transient error. Errors
+ * that are not transient, such as a missing application, show that the platform is reachable and count as successes.
+ */
+public class DeployerCircuitBreaker {
+
+	private static final Logger LOG = Loggers.getLogger(DeployerCircuitBreaker.class);
+
+	private final boolean enabled;
+
+	private final int failureThreshold;
+
+	private final Duration openDuration;
+
+	private final TransientErrorClassifier errorClassifier;
+
+	private final Clock clock;
+
+	private State state = State.CLOSED;
+
+	private int consecutiveFailures;
+
+	private Instant openedAt;
+
+	private boolean trialInProgress;
+
+	private long openedCount;
+
+	private long rejectedCount;
+
+	/**
+	 * Construct a new {@link DeployerCircuitBreaker}
+	 *
+	 * @param properties the configuration properties
+	 * @param errorClassifier recognizes transient errors
+	 */
+	public DeployerCircuitBreaker(DeployerCircuitBreakerProperties properties,
+		TransientErrorClassifier errorClassifier) {
+		this(properties, errorClassifier, Clock.systemUTC());
+	}
+
+	/**
+	 * Construct a new {@link DeployerCircuitBreaker}
+	 *
+	 * @param properties the configuration properties
+	 * @param errorClassifier recognizes transient errors
+	 * @param clock the clock that times how long the circuit stays open
+	 */
+	public DeployerCircuitBreaker(DeployerCircuitBreakerProperties properties,
+		TransientErrorClassifier errorClassifier, Clock clock) {
+		if (properties.getFailureThreshold() <= 0) {
+			throw new IllegalArgumentException("failureThreshold must be greater than zero");
+		}
+		this.enabled = properties.isEnabled();
+		this.failureThreshold = properties.getFailureThreshold();
+		this.openDuration = properties.getOpenDuration();
+		this.errorClassifier = errorClassifier;
+		this.clock = clock;
+	}
+
+	/**
+	 * Create a circuit breaker that never opens
+	 *
+	 * @return the circuit breaker
+	 */
+	public static DeployerCircuitBreaker disabled() {
+		DeployerCircuitBreakerProperties properties = new DeployerCircuitBreakerProperties();
+		properties.setEnabled(false);
+		return new DeployerCircuitBreaker(properties, new TransientErrorClassifier() {
+		});
+	}
+
+	/**
+	 * Make a call to the deployment platform unless the circuit is open
+	 *
+	 * @param call supplies the call; only invoked if the circuit lets the call through
+	 * @param <T> the type of the result
+	 * @return the result of the call, or a {@link ServiceBrokerUnavailableException} if the circuit is open
+	 */
+	public <T> Mono<T> protect(Supplier<Mono<T>> call) {
+		if (!enabled) {
+			return Mono.defer(call);
+		}
+		return Mono.defer(() -> {
+			if (!tryPass()) {
+				return Mono.error(new ServiceBrokerUnavailableException(String.format(
+					"The deployment platform is unavailable after %d consecutive failures, try again later",
+					failureThreshold)));
+			}
+			return call.get()
+				.doOnSuccess(result -> onSuccess())
+				.doOnError(exception -> {
+					if (errorClassifier.isTransient(exception)) {
+						onFailure();
+					}
+					else {
+						onSuccess();
+					}
+				})
+				.doOnCancel(this::onCancel);
+		});
+	}
+
+	/**
+	 * @return the current state of the circuit
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the number of times the circuit opened since the circuit breaker was created
+	 */
+	public synchronized long getOpenedCount() {
+		return openedCount;
+	}
+
+	/**
+	 * @return the number of calls that failed immediately because the circuit was open
+	 */
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	private synchronized boolean tryPass() {
+		switch (state) {
+			case CLOSED:
+				return true;
+			case OPEN:
+				if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+					rejectedCount++;
+					return false;
+				}
+				state = State.HALF_OPEN;
+				trialInProgress = true;
+				LOG.info("Letting a trial call through to the deployment platform");
+				return true;
+			default:
+				if (trialInProgress) {
+					rejectedCount++;
+					return false;
+				}
+				trialInProgress = true;
+				return true;
+		}
+	}
+
+	private synchronized void onSuccess() {
+		if (state == State.HALF_OPEN) {
+			LOG.info("Closing the circuit to the deployment platform after a successful trial call");
+			state = State.CLOSED;
+			trialInProgress = false;
+		}
+		if (state == State.CLOSED) {
+			consecutiveFailures = 0;
+		}
+	}
+
+	private synchronized void onFailure() {
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = clock.instant();
+			trialInProgress = false;
+			openedCount++;
+			LOG.warn("Opening the circuit to the deployment platform for {}ms after {} consecutive failures",
+				openDuration.toMillis(), consecutiveFailures);
+		}
+	}
+
+	private synchronized void onCancel() {
+		if (state == State.HALF_OPEN) {
+			trialInProgress = false;
+		}
+	}
+
+	public enum State {
+
+		/**
+		 * Calls are let through
+		 */
+		CLOSED,
+
+		/**
+		 * Calls fail immediately
+		 */
+		OPEN,
+
+		/**
+		 * A single trial call is let through
+		 */
+		HALF_OPEN
+
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the {@link DeployerCircuitBreaker}
+ */
+public class DeployerCircuitBreakerProperties {
+
+	/**
+	 * Whether to stop calling the deployment platform while it keeps failing with transient errors.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * The number of consecutive calls failing with a transient error that opens the circuit.
+	 */
+	private int failureThreshold = 5;
+
+	/**
+	 * How long calls fail immediately once the circuit is open, before a single trial call is let through.
+	 */
+	private Duration openDuration = Duration.ofSeconds(30);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public Duration getOpenDuration() {
+		return openDuration;
+	}
+
+	public void setOpenDuration(Duration openDuration) {
+		this.openDuration = openDuration;
+	}
+
+}
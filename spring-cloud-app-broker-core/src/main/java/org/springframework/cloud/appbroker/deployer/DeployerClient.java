@@ -16,24 +16,45 @@
 
 package org.springframework.cloud.appbroker.deployer;
 
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import reactor.core.publisher.Mono;
 import reactor.util.Logger;
 import reactor.util.Loggers;
 
+import org.springframework.cloud.servicebroker.exception.ServiceBrokerUnavailableException;
+
 public class DeployerClient {
 
 	private final Logger log = Loggers.getLogger(DeployerClient.class);
 
 	private final AppDeployer appDeployer;
 
+	private final DeployerConcurrencyLimiter concurrencyLimiter;
+
+	private final DeployerRetry retry;
+
+	private final DeployerCircuitBreaker circuitBreaker;
+
 	public DeployerClient(AppDeployer appDeployer) {
+		this(appDeployer, DeployerConcurrencyLimiter.unlimited());
+	}
+
+	public DeployerClient(AppDeployer appDeployer, DeployerConcurrencyLimiter concurrencyLimiter) {
+		this(appDeployer, concurrencyLimiter, DeployerRetry.none(), DeployerCircuitBreaker.disabled());
+	}
+
+	public DeployerClient(AppDeployer appDeployer, DeployerConcurrencyLimiter concurrencyLimiter, DeployerRetry retry,
+		DeployerCircuitBreaker circuitBreaker) {
 		this.appDeployer = appDeployer;
+		this.concurrencyLimiter = concurrencyLimiter;
+		this.retry = retry;
+		this.circuitBreaker = circuitBreaker;
 	}
 
 	public Mono<String> deploy(BackingApplication backingApplication, String serviceInstanceId) {
-		return appDeployer
+		return call(DeployerOperation.DEPLOY, () -> appDeployer
 			.deploy(DeployApplicationRequest
 				.builder()
 				.name(backingApplication.getName())
@@ -44,7 +65,7 @@ public class DeployerClient {
 					.map(ServicesSpec::getServiceInstanceName)
 					.collect(Collectors.toList()))
 				.serviceInstanceId(serviceInstanceId)
-				.build())
+				.build()))
 			.doOnRequest(l -> log.debug("Deploying application {}", backingApplication))
 			.doOnSuccess(response -> log.debug("Finished deploying application {}", backingApplication))
 			.doOnError(exception -> log.error(String.format("Error deploying application %s with error '%s'",
@@ -53,7 +74,7 @@ public class DeployerClient {
 	}
 
 	public Mono<String> update(BackingApplication backingApplication, String serviceInstanceId) {
-		return appDeployer
+		return call(DeployerOperation.UPDATE, () -> appDeployer
 			.update(UpdateApplicationRequest
 				.builder()
 				.name(backingApplication.getName())
@@ -64,7 +85,7 @@ public class DeployerClient {
 					.map(ServicesSpec::getServiceInstanceName)
 					.collect(Collectors.toList()))
 				.serviceInstanceId(serviceInstanceId)
-				.build())
+				.build()))
 			.doOnRequest(l -> log.debug("Updating application {}", backingApplication))
 			.doOnSuccess(response -> log.debug("Finished updating application {}", backingApplication))
 			.doOnError(exception -> log.error(String.format("Error updating application %s with error '%s'",
@@ -73,24 +94,25 @@ public class DeployerClient {
 	}
 
 	public Mono<String> undeploy(BackingApplication backingApplication) {
-		return appDeployer
+		return call(DeployerOperation.UNDEPLOY, () -> appDeployer
 			.undeploy(UndeployApplicationRequest
 				.builder()
 				.properties(backingApplication.getProperties())
 				.name(backingApplication.getName())
-				.build())
+				.build()))
 			.doOnRequest(l -> log.debug("Undeploying application {}", backingApplication))
 			.doOnSuccess(response -> log.debug("Finished undeploying application {}", backingApplication))
 			.doOnError(exception -> log.error(String.format("Error undeploying application %s with error '%s'",
 				backingApplication, exception.getMessage()), exception))
-			.onErrorReturn(UndeployApplicationResponse.builder()
+			.onErrorResume(exception -> !isUnavailable(exception), exception -> Mono.just(UndeployApplicationResponse
+				.builder()
 				.name(backingApplication.getName())
-				.build())
+				.build()))
 			.map(UndeployApplicationResponse::getName);
 	}
 
 	public Mono<String> createServiceInstance(BackingService backingService) {
-		return appDeployer
+		return call(DeployerOperation.CREATE_SERVICE_INSTANCE, () -> appDeployer
 			.createServiceInstance(
 				CreateServiceInstanceRequest
 					.builder()
@@ -99,7 +121,7 @@ public class DeployerClient {
 					.plan(backingService.getPlan())
 					.parameters(backingService.getParameters())
 					.properties(backingService.getProperties())
-					.build())
+					.build()))
 			.doOnRequest(l -> log.debug("Creating backing service {}", backingService.getName()))
 			.doOnSuccess(response -> log.debug("Finished creating backing service {}", backingService.getName()))
 			.doOnError(exception -> log.error(String.format("Error creating backing service %s with error '%s'",
@@ -108,7 +130,7 @@ public class DeployerClient {
 	}
 
 	public Mono<String> updateServiceInstance(BackingService backingService) {
-		return appDeployer
+		return call(DeployerOperation.UPDATE_SERVICE_INSTANCE, () -> appDeployer
 			.updateServiceInstance(
 				UpdateServiceInstanceRequest
 					.builder()
@@ -116,7 +138,7 @@ public class DeployerClient {
 					.parameters(backingService.getParameters())
 					.properties(backingService.getProperties())
 					.rebindOnUpdate(backingService.isRebindOnUpdate())
-					.build())
+					.build()))
 			.doOnRequest(l -> log.debug("Updating backing service {}", backingService.getName()))
 			.doOnSuccess(response -> log.debug("Finished updating backing service {}", backingService.getName()))
 			.doOnError(exception -> log.error(String.format("Error updating backing service %s with error '%s'",
@@ -125,21 +147,38 @@ public class DeployerClient {
 	}
 
 	public Mono<String> deleteServiceInstance(BackingService backingService) {
-		return appDeployer
+		return call(DeployerOperation.DELETE_SERVICE_INSTANCE, () -> appDeployer
 			.deleteServiceInstance(
 				DeleteServiceInstanceRequest
 					.builder()
 					.serviceInstanceName(backingService.getServiceInstanceName())
 					.properties(backingService.getProperties())
-					.build())
+					.build()))
 			.doOnRequest(l -> log.debug("Deleting backing service {}", backingService.getName()))
 			.doOnSuccess(response -> log.debug("Finished deleting backing service {}", backingService.getName()))
 			.doOnError(exception -> log.error(String.format("Error deleting backing service %s with error '%s'",
 				backingService.getName(), exception.getMessage()), exception))
-			.onErrorReturn(DeleteServiceInstanceResponse.builder()
+			.onErrorResume(exception -> !isUnavailable(exception), exception -> Mono.just(DeleteServiceInstanceResponse
+				.builder()
 				.name(backingService.getServiceInstanceName())
-				.build())
+				.build()))
 			.map(DeleteServiceInstanceResponse::getName);
 	}
 
+	/**
+	 * Make a call to the deployment platform, retrying transient errors, failing fast while the platform is down,
+	 * and waiting for a permit of the concurrency limiter on every attempt
+	 */
+	private <T> Mono<T> call(DeployerOperation operation, Supplier<Mono<T>> request) {
+		return retry.retry(operation, () -> circuitBreaker.protect(() -> concurrencyLimiter.limit(operation, request)));
+	}
+
+	/**
+	 * Errors that leave it unknown whether an application or service instance was deleted. Deletes that fail with
+	 * other errors, for example because there is nothing to delete, are reported as successful.
+	 */
+	private boolean isUnavailable(Throwable exception) {
+		return exception instanceof ServiceBrokerUnavailableException || retry.isTransient(exception);
+	}
+
 }
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Limits the number of calls to the deployment platform that run at the same time, across all service instance
+ * operations of the broker. Limits apply to the total number of calls and, optionally, to each
+ * {@link DeployerOperation} type.
+ * <p>
+ * Calls that cannot start immediately wait in a single queue and start in the order they arrived. A call whose
+ * operation type is at its limit does not hold up queued calls of other types.
+ * <p>
+ * The total limit can be combined with an {@link AdaptiveConcurrencyLimit}, which lowers it while the platform is
+ * slow or overloaded and raises it again while calls complete quickly.
+ */
+public class DeployerConcurrencyLimiter {
+
+	private static final Logger LOG = Loggers.getLogger(DeployerConcurrencyLimiter.class);
+
+	private static final OverloadDetector NEVER_OVERLOADED = exception -> false;
+
+	private final int maxConcurrent;
+
+	private final AdaptiveConcurrencyLimit adaptiveLimit;
+
+	private final OverloadDetector overloadDetector;
+
+	private final LongSupplier ticker;
+
+	private final Map<DeployerOperation, OperationPermits> operations = new EnumMap<>(DeployerOperation.class);
+
+	private final Deque<Permit> waiting = new ArrayDeque<>();
+
+	private final Object lock = new Object();
+
+	private int permitsInUse;
+
+	/**
+	 * Construct a new {@link DeployerConcurrencyLimiter}
+	 *
+	 * @param maxConcurrent the maximum number of calls running at the same time, or zero or less for no limit
+	 * @param operationLimits the maximum number of calls running at the same time for each operation type; types
+	 * 	without an entry, or with a limit of zero or less, are only limited by {@code maxConcurrent}
+	 */
+	public DeployerConcurrencyLimiter(int maxConcurrent, Map<DeployerOperation, Integer> operationLimits) {
+		this(maxConcurrent, operationLimits, null, NEVER_OVERLOADED, System::nanoTime);
+	}
+
+	/**
+	 * Construct a new {@link DeployerConcurrencyLimiter} with an adaptive total limit
+	 *
+	 * @param maxConcurrent the maximum number of calls running at the same time, or zero or less for no limit
+	 * @param operationLimits the maximum number of calls running at the same time for each operation type; types
+	 * 	without an entry, or with a limit of zero or less, are only limited by {@code maxConcurrent}
+	 * @param adaptiveLimit further limits the number of calls running at the same time, or {@code null}
+	 * @param overloadDetector recognizes errors that indicate an overloaded platform
+	 * @param ticker supplies the current time in nanoseconds, used to measure the latency of calls and the time they
+	 * 	wait; {@code System::nanoTime} unless time needs to be controlled in tests
+	 */
+	public DeployerConcurrencyLimiter(int maxConcurrent, Map<DeployerOperation, Integer> operationLimits,
+		AdaptiveConcurrencyLimit adaptiveLimit, OverloadDetector overloadDetector, LongSupplier ticker) {
+		this.maxConcurrent = positiveOrUnlimited(maxConcurrent);
+		this.adaptiveLimit = adaptiveLimit;
+		this.overloadDetector = overloadDetector;
+		this.ticker = ticker;
+		for (DeployerOperation operation : DeployerOperation.values()) {
+			Integer limit = operationLimits.get(operation);
+			this.operations.put(operation,
+				new OperationPermits(limit == null ? Integer.MAX_VALUE : positiveOrUnlimited(limit)));
+		}
+	}
+
+	/**
+	 * Construct a new {@link DeployerConcurrencyLimiter}
+	 *
+	 * @param properties the configuration properties
+	 */
+	public DeployerConcurrencyLimiter(DeployerConcurrencyProperties properties) {
+		this(properties, NEVER_OVERLOADED);
+	}
+
+	/**
+	 * Construct a new {@link DeployerConcurrencyLimiter}
+	 *
+	 * @param properties the configuration properties
+	 * @param overloadDetector recognizes errors that indicate an overloaded platform
+	 */
+	public DeployerConcurrencyLimiter(DeployerConcurrencyProperties properties, OverloadDetector overloadDetector) {
+		this(properties.getMaxConcurrent(), properties.getOperations(),
+			properties.getAdaptive().isEnabled() ? new AdaptiveConcurrencyLimit(properties.getAdaptive()) : null,
+			overloadDetector, System::nanoTime);
+	}
+
+	/**
+	 * Create a limiter that starts every call immediately
+	 *
+	 * @return the limiter
+	 */
+	public static DeployerConcurrencyLimiter unlimited() {
+		return new DeployerConcurrencyLimiter(0, Collections.emptyMap());
+	}
+
+	/**
+	 * Run a call to the deployment platform once a permit for its operation type is available. The permit is held
+	 * until the call completes, errors, or is cancelled.
+	 *
+	 * @param operation the type of the call
+	 * @param call supplies the call; invoked once the permit is acquired
+	 * @param <T> the type of the result
+	 * @return the result of the call
+	 */
+	public <T> Mono<T> limit(DeployerOperation operation, Supplier<Mono<T>> call) {
+		return Mono.usingWhen(acquire(operation),
+			permit -> call.get(),
+			permit -> release(permit, Boolean.FALSE),
+			(permit, exception) -> release(permit, overloadDetector.isOverloaded(exception) ? Boolean.TRUE : null),
+			permit -> release(permit, null));
+	}
+
+	/**
+	 * @return the maximum number of calls running at the same time, or {@link Integer#MAX_VALUE} for no limit
+	 */
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * @return the number of calls that may currently run at the same time, taking the adaptive limit into account
+	 */
+	public int getCurrentLimit() {
+		return adaptiveLimit == null ? maxConcurrent : Math.min(maxConcurrent, adaptiveLimit.getLimit());
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the maximum number of calls of the given type running at the same time, or {@link Integer#MAX_VALUE}
+	 * 	for no limit
+	 */
+	public int getMaxConcurrent(DeployerOperation operation) {
+		return operations.get(operation).getMaxConcurrent();
+	}
+
+	/**
+	 * @return the number of calls currently running
+	 */
+	public int getPermitsInUse() {
+		synchronized (lock) {
+			return permitsInUse;
+		}
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the number of calls of the given type currently running
+	 */
+	public int getPermitsInUse(DeployerOperation operation) {
+		synchronized (lock) {
+			return operations.get(operation).getInUse();
+		}
+	}
+
+	/**
+	 * @return the number of calls waiting for a permit
+	 */
+	public int getWaitingCount() {
+		synchronized (lock) {
+			return waiting.size();
+		}
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the number of calls of the given type waiting for a permit
+	 */
+	public int getWaitingCount(DeployerOperation operation) {
+		synchronized (lock) {
+			return operations.get(operation).getWaiting();
+		}
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the number of calls of the given type that were started since the limiter was created
+	 */
+	public long getAcquiredCount(DeployerOperation operation) {
+		synchronized (lock) {
+			return operations.get(operation).getAcquired();
+		}
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the total time calls of the given type waited for a permit since the limiter was created
+	 */
+	public Duration getTotalWaitTime(DeployerOperation operation) {
+		synchronized (lock) {
+			return Duration.ofNanos(operations.get(operation).getTotalWaitNanos());
+		}
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the longest time a call of the given type waited for a permit since the limiter was created
+	 */
+	public Duration getMaxWaitTime(DeployerOperation operation) {
+		synchronized (lock) {
+			return Duration.ofNanos(operations.get(operation).getMaxWaitNanos());
+		}
+	}
+
+	private Mono<Permit> acquire(DeployerOperation operation) {
+		return Mono.create(sink -> {
+			Permit permit = new Permit(operation, sink, nanoTime());
+			synchronized (lock) {
+				waiting.addLast(permit);
+				operations.get(operation).waiting(1);
+			}
+			sink.onCancel(() -> cancelWaiting(permit));
+			drain();
+
+			if (LOG.isDebugEnabled() && !permit.isGranted()) {
+				LOG.debug("Waiting for a permit to {} with {} calls to the deployment platform in progress",
+					operation, getPermitsInUse());
+			}
+		});
+	}
+
+	private void cancelWaiting(Permit permit) {
+		boolean release;
+		synchronized (lock) {
+			if (waiting.remove(permit)) {
+				operations.get(permit.getOperation()).waiting(-1);
+				return;
+			}
+			release = permit.isGranted();
+		}
+		if (release) {
+			releaseNow(permit, null);
+		}
+	}
+
+	private Mono<Void> release(Permit permit, Boolean overloaded) {
+		return Mono.fromRunnable(() -> releaseNow(permit, overloaded));
+	}
+
+	/**
+	 * @param overloaded whether the call indicated an overloaded platform, or {@code null} if the call was cancelled
+	 * 	or failed for another reason, and its latency tells nothing about the platform
+	 */
+	private void releaseNow(Permit permit, Boolean overloaded) {
+		if (!permit.markReleased()) {
+			return;
+		}
+		synchronized (lock) {
+			if (adaptiveLimit != null && overloaded != null) {
+				adaptiveLimit.onSample(permit.getOperation(), permit.getGrantedAt(), nanoTime(), overloaded, permitsInUse);
+			}
+			permitsInUse--;
+			operations.get(permit.getOperation()).release();
+		}
+		drain();
+	}
+
+	/**
+	 * Grant permits to waiting calls in arrival order, skipping calls whose operation type is at its limit. Callers
+	 * are signalled outside of the lock.
+	 */
+	private void drain() {
+		List<Permit> granted = new ArrayList<>();
+		synchronized (lock) {
+			int limit = getCurrentLimit();
+			long now = nanoTime();
+			Iterator<Permit> iterator = waiting.iterator();
+			while (permitsInUse < limit && iterator.hasNext()) {
+				Permit permit = iterator.next();
+				OperationPermits permits = operations.get(permit.getOperation());
+				if (permits.tryAcquire(now - permit.getRequestedAt())) {
+					iterator.remove();
+					permitsInUse++;
+					permit.grant(now);
+					granted.add(permit);
+				}
+			}
+		}
+		granted.forEach(permit -> permit.getSink().success(permit));
+	}
+
+	private long nanoTime() {
+		return ticker.getAsLong();
+	}
+
+	private static int positiveOrUnlimited(int limit) {
+		return limit > 0 ? limit : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Permits and statistics of one operation type. Only accessed while holding the limiter's lock.
+	 */
+	private static class OperationPermits {
+
+		private final int maxConcurrent;
+
+		private int inUse;
+
+		private int waiting;
+
+		private long acquired;
+
+		private long totalWaitNanos;
+
+		private long maxWaitNanos;
+
+		public OperationPermits(int maxConcurrent) {
+			this.maxConcurrent = maxConcurrent;
+		}
+
+		public boolean tryAcquire(long waitNanos) {
+			if (inUse >= maxConcurrent) {
+				return false;
+			}
+			inUse++;
+			waiting--;
+			acquired++;
+			totalWaitNanos += waitNanos;
+			maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+			return true;
+		}
+
+		public void release() {
+			inUse--;
+		}
+
+		public int getMaxConcurrent() {
+			return maxConcurrent;
+		}
+
+		public void waiting(int delta) {
+			waiting += delta;
+		}
+
+		public int getInUse() {
+			return inUse;
+		}
+
+		public int getWaiting() {
+			return waiting;
+		}
+
+		public long getAcquired() {
+			return acquired;
+		}
+
+		public long getTotalWaitNanos() {
+			return totalWaitNanos;
+		}
+
+		public long getMaxWaitNanos() {
+			return maxWaitNanos;
+		}
+
+	}
+
+	private static class Permit {
+
+		private final DeployerOperation operation;
+
+		private final MonoSink<Permit> sink;
+
+		private final long requestedAt;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private boolean granted;
+
+		private long grantedAt;
+
+		public Permit(DeployerOperation operation, MonoSink<Permit> sink, long requestedAt) {
+			this.operation = operation;
+			this.sink = sink;
+			this.requestedAt = requestedAt;
+		}
+
+		public DeployerOperation getOperation() {
+			return operation;
+		}
+
+		public MonoSink<Permit> getSink() {
+			return sink;
+		}
+
+		public long getRequestedAt() {
+			return requestedAt;
+		}
+
+		public synchronized boolean isGranted() {
+			return granted;
+		}
+
+		public synchronized void grant(long grantedAt) {
+			this.granted = true;
+			this.grantedAt = grantedAt;
+		}
+
+		public synchronized long getGrantedAt() {
+			return grantedAt;
+		}
+
+		public boolean markReleased() {
+			return released.compareAndSet(false, true);
+		}
+
+	}
+
+}
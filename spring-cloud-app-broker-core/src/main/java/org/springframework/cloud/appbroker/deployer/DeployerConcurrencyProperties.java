@@ -0,0 +1,70 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the {@link DeployerConcurrencyLimiter}
+ */
+public class DeployerConcurrencyProperties {
+
+	/**
+	 * The maximum number of calls to the deployment platform running at the same time across all operation types. A
+	 * value of zero or less does not limit the number of calls.
+	 */
+	private int maxConcurrent;
+
+	/**
+	 * The maximum number of calls to the deployment platform running at the same time for each operation type, for
+	 * example {@code deploy} or {@code create-service-instance}. Operation types that are not listed are only limited
+	 * by {@code max-concurrent}.
+	 */
+	private Map<DeployerOperation, Integer> operations = new EnumMap<>(DeployerOperation.class);
+
+	/**
+	 * Adapts the total number of concurrent calls to the latency and errors of the deployment platform, within
+	 * {@code max-concurrent}.
+	 */
+	private AdaptiveConcurrencyProperties adaptive = new AdaptiveConcurrencyProperties();
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public void setMaxConcurrent(int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	public Map<DeployerOperation, Integer> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(Map<DeployerOperation, Integer> operations) {
+		this.operations = operations;
+	}
+
+	public AdaptiveConcurrencyProperties getAdaptive() {
+		return adaptive;
+	}
+
+	public void setAdaptive(AdaptiveConcurrencyProperties adaptive) {
+		this.adaptive = adaptive;
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+/**
+ * The types of calls the {@link DeployerClient} and the
+ * {@link org.springframework.cloud.appbroker.manager.ManagementClient} make to the deployment platform
+ */
+public enum DeployerOperation {
+
+	DEPLOY(false),
+
+	UPDATE(false),
+
+	UNDEPLOY(true),
+
+	CREATE_SERVICE_INSTANCE(false),
+
+	UPDATE_SERVICE_INSTANCE(true),
+
+	DELETE_SERVICE_INSTANCE(true),
+
+	START(true),
+
+	STOP(true),
+
+	RESTART(true),
+
+	RESTAGE(true);
+
+	private final boolean idempotent;
+
+	DeployerOperation(boolean idempotent) {
+		this.idempotent = idempotent;
+	}
+
+	/**
+	 * @return {@code true} if repeating a call that may already have been processed by the platform has the same
+	 * 	effect as making it once
+	 */
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+}
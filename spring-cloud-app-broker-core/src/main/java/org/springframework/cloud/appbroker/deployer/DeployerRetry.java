@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * Retries calls to the deployment platform that fail with a transient error, waiting a random delay of up to an
+ * exponentially growing bound between attempts ("full jitter"), so that calls that failed together do not retry
+ * together.
+ * <p>
+ * Calls of {@link DeployerOperation#isIdempotent() idempotent} operations are retried after any transient error. Calls
+ * of other operations are only retried when the platform rejected them without processing them, because repeating a
+ * call that was processed could, for example, fail with a name conflict or create a duplicate.
+ */
+public class DeployerRetry {
+
+	private static final Logger LOG = Loggers.getLogger(DeployerRetry.class);
+
+	private final Map<DeployerOperation, RetryPolicy> policies = new EnumMap<>(DeployerOperation.class);
+
+	private final Map<DeployerOperation, AtomicLong> retryCounts = new EnumMap<>(DeployerOperation.class);
+
+	private final Map<DeployerOperation, AtomicLong> exhaustedCounts = new EnumMap<>(DeployerOperation.class);
+
+	private final TransientErrorClassifier errorClassifier;
+
+	private final Scheduler scheduler;
+
+	private final Random random;
+
+	/**
+	 * Construct a new {@link DeployerRetry}
+	 *
+	 * @param properties the configuration properties
+	 * @param errorClassifier recognizes transient errors and rejected calls
+	 */
+	public DeployerRetry(DeployerRetryProperties properties, TransientErrorClassifier errorClassifier) {
+		this(properties, errorClassifier, Schedulers.parallel(), new Random());
+	}
+
+	/**
+	 * Construct a new {@link DeployerRetry}
+	 *
+	 * @param properties the configuration properties
+	 * @param errorClassifier recognizes transient errors and rejected calls
+	 * @param scheduler the scheduler that delays retries
+	 * @param random the source of the random delays
+	 */
+	public DeployerRetry(DeployerRetryProperties properties, TransientErrorClassifier errorClassifier,
+		Scheduler scheduler, Random random) {
+		this.errorClassifier = errorClassifier;
+		this.scheduler = scheduler;
+		this.random = random;
+		for (DeployerOperation operation : DeployerOperation.values()) {
+			DeployerRetryProperties.Policy overrides = properties.getOperations().get(operation);
+			this.policies.put(operation, new RetryPolicy(properties, overrides));
+			this.retryCounts.put(operation, new AtomicLong());
+			this.exhaustedCounts.put(operation, new AtomicLong());
+		}
+	}
+
+	/**
+	 * Create a retry that never retries
+	 *
+	 * @return the retry
+	 */
+	public static DeployerRetry none() {
+		DeployerRetryProperties properties = new DeployerRetryProperties();
+		properties.setMaxAttempts(1);
+		return new DeployerRetry(properties, new TransientErrorClassifier() {
+		});
+	}
+
+	/**
+	 * Make a call to the deployment platform, repeating it while it fails with a retryable error
+	 *
+	 * @param operation the type of the call
+	 * @param call supplies the call; invoked once for every attempt
+	 * @param <T> the type of the result
+	 * @return the result of the first successful attempt, or the error of the last attempt
+	 */
+	public <T> Mono<T> retry(DeployerOperation operation, Supplier<Mono<T>> call) {
+		RetryPolicy policy = policies.get(operation);
+		if (policy.getMaxAttempts() <= 1) {
+			return Mono.defer(call);
+		}
+		return Mono.defer(call)
+			.retryWhen(errors -> errors.index()
+				.concatMap(failure -> {
+					long attempt = failure.getT1() + 1;
+					Throwable exception = failure.getT2();
+					if (!isRetryable(operation, exception)) {
+						return Mono.error(exception);
+					}
+					if (attempt >= policy.getMaxAttempts()) {
+						exhaustedCounts.get(operation).incrementAndGet();
+						return Mono.error(exception);
+					}
+					retryCounts.get(operation).incrementAndGet();
+					Duration delay = policy.backoff(attempt, random.nextDouble());
+					LOG.warn("Retrying {} in {}ms after attempt {} of {} failed with '{}'", operation,
+						delay.toMillis(), attempt, policy.getMaxAttempts(), exception.getMessage());
+					return Mono.delay(delay, scheduler);
+				}));
+	}
+
+	/**
+	 * @param exception the error returned by the deployment platform
+	 * @return {@code true} if the error is likely to go away when the call is repeated later
+	 */
+	public boolean isTransient(Throwable exception) {
+		return errorClassifier.isTransient(exception);
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the number of retries of calls of the given type since the retry was created
+	 */
+	public long getRetryCount(DeployerOperation operation) {
+		return retryCounts.get(operation).get();
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the number of calls of the given type that failed with a retryable error after all their attempts
+	 */
+	public long getExhaustedCount(DeployerOperation operation) {
+		return exhaustedCounts.get(operation).get();
+	}
+
+	/**
+	 * @param operation the operation type
+	 * @return the maximum number of attempts of calls of the given type
+	 */
+	public int getMaxAttempts(DeployerOperation operation) {
+		return policies.get(operation).getMaxAttempts();
+	}
+
+	private boolean isRetryable(DeployerOperation operation, Throwable exception) {
+		return errorClassifier.isRejected(exception) ||
+			operation.isIdempotent() && errorClassifier.isTransient(exception);
+	}
+
+	private static class RetryPolicy {
+
+		private final int maxAttempts;
+
+		private final Duration initialBackoff;
+
+		private final Duration maxBackoff;
+
+		public RetryPolicy(DeployerRetryProperties defaults, DeployerRetryProperties.Policy overrides) {
+			boolean overridden = overrides != null;
+			this.maxAttempts = overridden && overrides.getMaxAttempts() != null ?
+				overrides.getMaxAttempts() : defaults.getMaxAttempts();
+			this.initialBackoff = overridden && overrides.getInitialBackoff() != null ?
+				overrides.getInitialBackoff() : defaults.getInitialBackoff();
+			this.maxBackoff = overridden && overrides.getMaxBackoff() != null ?
+				overrides.getMaxBackoff() : defaults.getMaxBackoff();
+		}
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		/**
+		 * @param attempt the number of the attempt that failed, starting at one
+		 * @param jitter a random number between 0 and 1
+		 * @return the delay before the next attempt
+		 */
+		public Duration backoff(long attempt, double jitter) {
+			Duration bound = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 30));
+			if (bound.compareTo(maxBackoff) > 0 || bound.isNegative()) {
+				bound = maxBackoff;
+			}
+			return Duration.ofNanos((long) (bound.toNanos() * jitter));
+		}
+
+	}
+
+}
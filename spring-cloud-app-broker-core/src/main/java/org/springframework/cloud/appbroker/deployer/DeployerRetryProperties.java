@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the {@link DeployerRetry}
+ */
+public class DeployerRetryProperties {
+
+	/**
+	 * The maximum number of attempts of a call to the deployment platform that fails with a transient error,
+	 * including the first attempt.
+	 */
+	private int maxAttempts = 3;
+
+	/**
+	 * The upper bound of the delay before the first retry. The bound doubles with every retry.
+	 */
+	private Duration initialBackoff = Duration.ofSeconds(1);
+
+	/**
+	 * The largest upper bound of the delay between retries.
+	 */
+	private Duration maxBackoff = Duration.ofSeconds(30);
+
+	/**
+	 * Overrides for each operation type, for example {@code deploy} or {@code create-service-instance}.
+	 */
+	private Map<DeployerOperation, Policy> operations = new EnumMap<>(DeployerOperation.class);
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public Duration getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	public void setInitialBackoff(Duration initialBackoff) {
+		this.initialBackoff = initialBackoff;
+	}
+
+	public Duration getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	public void setMaxBackoff(Duration maxBackoff) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	public Map<DeployerOperation, Policy> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(Map<DeployerOperation, Policy> operations) {
+		this.operations = operations;
+	}
+
+	/**
+	 * Retry settings of one operation type. Settings that are not set fall back to the settings for all operations.
+	 */
+	public static class Policy {
+
+		private Integer maxAttempts;
+
+		private Duration initialBackoff;
+
+		private Duration maxBackoff;
+
+		public Integer getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(Integer maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getInitialBackoff() {
+			return initialBackoff;
+		}
+
+		public void setInitialBackoff(Duration initialBackoff) {
+			this.initialBackoff = initialBackoff;
+		}
+
+		public Duration getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+	}
+
+}
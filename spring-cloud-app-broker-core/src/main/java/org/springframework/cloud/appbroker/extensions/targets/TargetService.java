@@ -19,6 +19,7 @@ package org.springframework.cloud.appbroker.extensions.targets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -27,6 +28,7 @@ import org.springframework.cloud.appbroker.deployer.BackingApplication;
 import org.springframework.cloud.appbroker.deployer.BackingService;
 import org.springframework.cloud.appbroker.deployer.TargetSpec;
 import org.springframework.cloud.appbroker.extensions.ExtensionLocator;
+import org.springframework.util.CollectionUtils;
 
 public class TargetService {
 
@@ -51,6 +53,13 @@ public class TargetService {
 							servicesSpec.getServiceInstanceName(), new HashMap<>());
 						servicesSpec.setServiceInstanceName(serviceDetails.getName());
 					});
+
+					if (!CollectionUtils.isEmpty(backingApplication.getDependsOn())) {
+						backingApplication.setDependsOn(backingApplication.getDependsOn().stream()
+							.map(dependency -> getArtifactDetails(targetSpec, serviceInstanceId, dependency,
+								new HashMap<>()).getName())
+							.collect(Collectors.toList()));
+					}
 				}
 				return Mono.just(backingApplication);
 			})
@@ -29,6 +29,7 @@ import org.springframework.cloud.appbroker.deployer.BackingApplication;
 import org.springframework.cloud.appbroker.deployer.BackingApplications;
 import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.deployer.GetServiceInstanceRequest;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 
@@ -40,15 +41,20 @@ public class BackingAppManagementService {
 
 	private final AppDeployer appDeployer;
 
-	private final BrokeredServices brokeredServices;
+	private final BrokeredServicesCatalog brokeredServicesCatalog;
 
 	private final TargetService targetService;
 
 	public BackingAppManagementService(ManagementClient managementClient, AppDeployer appDeployer,
 		BrokeredServices brokeredServices, TargetService targetService) {
+		this(managementClient, appDeployer, new BrokeredServicesCatalog(brokeredServices), targetService);
+	}
+
+	public BackingAppManagementService(ManagementClient managementClient, AppDeployer appDeployer,
+		BrokeredServicesCatalog brokeredServicesCatalog, TargetService targetService) {
 		this.managementClient = managementClient;
 		this.appDeployer = appDeployer;
-		this.brokeredServices = brokeredServices;
+		this.brokeredServicesCatalog = brokeredServicesCatalog;
 		this.targetService = targetService;
 	}
 
@@ -117,10 +123,7 @@ public class BackingAppManagementService {
 	}
 
 	private Mono<BrokeredService> findBrokeredService(String serviceName, String planName) {
-		return Flux.fromIterable(brokeredServices)
-			.filter(brokeredService -> brokeredService.getServiceName().equals(serviceName)
-				&& brokeredService.getPlanName().equals(planName))
-			.singleOrEmpty();
+		return Mono.fromSupplier(() -> brokeredServicesCatalog.getSnapshot().get(serviceName, planName));
 	}
 
 	private Mono<List<BackingApplication>> updateBackingApps(BrokeredService brokeredService,
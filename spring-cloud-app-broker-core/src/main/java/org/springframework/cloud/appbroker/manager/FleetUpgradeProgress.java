@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.manager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A snapshot of the progress of upgrading the service instances of a plan
+ */
+public class FleetUpgradeProgress {
+
+	private final String serviceName;
+
+	private final String planName;
+
+	private final State state;
+
+	private final int total;
+
+	private final int succeeded;
+
+	private final int skipped;
+
+	private final int failed;
+
+	private final int inFlight;
+
+	private final int pending;
+
+	private final Map<String, String> failures;
+
+	public FleetUpgradeProgress(String serviceName, String planName, State state, int total, int succeeded,
+		int skipped, int failed, int inFlight, int pending, Map<String, String> failures) {
+		this.serviceName = serviceName;
+		this.planName = planName;
+		this.state = state;
+		this.total = total;
+		this.succeeded = succeeded;
+		this.skipped = skipped;
+		this.failed = failed;
+		this.inFlight = inFlight;
+		this.pending = pending;
+		this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public String getPlanName() {
+		return planName;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the number of service instances of the plan, known once the upgrade left {@link State#PREPARING}
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	public int getSucceeded() {
+		return succeeded;
+	}
+
+	/**
+	 * @return the number of service instances that were not upgraded because they were deleted or another operation
+	 * 	on them was in progress
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * @return the error message of each failed service instance, by service instance ID
+	 */
+	public Map<String, String> getFailures() {
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+		return "FleetUpgradeProgress{" +
+			"serviceName='" + serviceName + '\'' +
+			", planName='" + planName + '\'' +
+			", state=" + state +
+			", total=" + total +
+			", succeeded=" + succeeded +
+			", skipped=" + skipped +
+			", failed=" + failed +
+			", inFlight=" + inFlight +
+			", pending=" + pending +
+			'}';
+	}
+
+	/**
+	 * The state of an upgrade
+	 */
+	public enum State {
+
+		/**
+		 * The service instances of the plan are being listed
+		 */
+		PREPARING,
+
+		/**
+		 * Service instances are being upgraded
+		 */
+		RUNNING,
+
+		/**
+		 * No further service instances are started until the upgrade is resumed
+		 */
+		PAUSED,
+
+		/**
+		 * More service instances failed than tolerated; no further service instances are started until the upgrade
+		 * is resumed
+		 */
+		HALTED,
+
+		/**
+		 * Every service instance was upgraded, skipped, or failed within the tolerated number of failures
+		 */
+		COMPLETED,
+
+		/**
+		 * The service instances of the plan could not be listed
+		 */
+		FAILED
+
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.manager;
+
+/**
+ * Configuration properties for the {@link FleetUpgradeService}
+ */
+public class FleetUpgradeProperties {
+
+	/**
+	 * The maximum number of service instances upgraded at the same time.
+	 */
+	private int maxInFlight = 5;
+
+	/**
+	 * The number of failed service instances tolerated before an upgrade halts. Resuming a halted upgrade grants the
+	 * same number of failures again.
+	 */
+	private int maxFailures;
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public int getMaxFailures() {
+		return maxFailures;
+	}
+
+	public void setMaxFailures(int maxFailures) {
+		this.maxFailures = maxFailures;
+	}
+
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.cloud.appbroker.deployer.AppDeployer;
+import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
+import org.springframework.cloud.appbroker.deployer.BackingApplications;
+import org.springframework.cloud.appbroker.deployer.BrokeredService;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
+import org.springframework.cloud.appbroker.deployer.ListServiceInstancesRequest;
+import org.springframework.cloud.appbroker.extensions.targets.TargetService;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeProgress.State;
+import org.springframework.cloud.appbroker.service.OperationExecutor;
+import org.springframework.cloud.appbroker.service.WorkflowServiceInstanceService;
+import org.springframework.cloud.appbroker.state.ServiceInstanceState;
+import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+/**
+ * Upgrades the backing applications of every service instance of a plan to the configured application artifacts.
+ * <p>
+ * The first service instance is upgraded on its own, so that a broken artifact fails a single instance and so that
+ * deployers reusing staged droplets stage the artifact only once. The remaining service instances are upgraded with
+ * at most {@link FleetUpgradeProperties#getMaxInFlight()} at the same time. An upgrade halts once more than {@link
+ * FleetUpgradeProperties#getMaxFailures()} service instances failed, and can be paused and resumed at any time.
+ * Service instances already being upgraded when an upgrade is paused or halts are left to finish.
+ * <p>
+ * Each service instance is upgraded through the {@link OperationExecutor} under its service instance ID, so that an
+ * upgrade never overlaps a create, update, or delete of the same service instance. A service instance that was
+ * deleted, or whose last recorded operation is still in progress, by the time its upgrade runs is skipped.
+ */
+public class FleetUpgradeService {
+
+	private static final String UPGRADE_PROPERTY_KEY = "upgrade";
+
+	private final Logger log = Loggers.getLogger(FleetUpgradeService.class);
+
+	private final AppDeployer appDeployer;
+
+	private final BackingAppDeploymentService deploymentService;
+
+	private final BrokeredServicesCatalog brokeredServicesCatalog;
+
+	private final TargetService targetService;
+
+	private final FleetUpgradeProperties properties;
+
+	private final OperationExecutor operationExecutor;
+
+	private final ServiceInstanceStateRepository stateRepository;
+
+	private final Map<String, FleetUpgrade> upgrades = new ConcurrentHashMap<>();
+
+	public FleetUpgradeService(AppDeployer appDeployer, BackingAppDeploymentService deploymentService,
+		BrokeredServicesCatalog brokeredServicesCatalog, TargetService targetService,
+		FleetUpgradeProperties properties) {
+		this(appDeployer, deploymentService, brokeredServicesCatalog, targetService, properties,
+			OperationExecutor.unbounded(), new ServiceInstanceStateRepository() {
+			});
+	}
+
+	public FleetUpgradeService(AppDeployer appDeployer, BackingAppDeploymentService deploymentService,
+		BrokeredServicesCatalog brokeredServicesCatalog, TargetService targetService,
+		FleetUpgradeProperties properties, OperationExecutor operationExecutor,
+		ServiceInstanceStateRepository stateRepository) {
+		if (properties.getMaxInFlight() < 1) {
+			throw new IllegalArgumentException("The maximum number of upgrades in flight must be at least 1");
+		}
+		if (properties.getMaxFailures() < 0) {
+			throw new IllegalArgumentException("The maximum number of failed upgrades must not be negative");
+		}
+		this.appDeployer = appDeployer;
+		this.deploymentService = deploymentService;
+		this.brokeredServicesCatalog = brokeredServicesCatalog;
+		this.targetService = targetService;
+		this.properties = properties;
+		this.operationExecutor = operationExecutor;
+		this.stateRepository = stateRepository;
+	}
+
+	/**
+	 * Start upgrading the service instances of a plan. The service instances are listed and upgraded in the
+	 * background.
+	 *
+	 * @param serviceName the service name
+	 * @param planName the plan name
+	 * @return the progress of the upgrade
+	 * @throws IllegalArgumentException if the service and plan are not configured
+	 * @throws IllegalStateException if the service instances of the plan are already being upgraded
+	 */
+	public FleetUpgradeProgress start(String serviceName, String planName) {
+		BrokeredService brokeredService = brokeredServicesCatalog.getSnapshot().get(serviceName, planName);
+		if (brokeredService == null) {
+			throw new IllegalArgumentException(String.format("No brokered service configured for service %s and " +
+				"plan %s", serviceName, planName));
+		}
+
+		FleetUpgrade upgrade = new FleetUpgrade(brokeredService);
+		upgrades.compute(key(serviceName, planName), (key, existing) -> {
+			if (existing != null && existing.isActive()) {
+				throw new IllegalStateException(String.format("The service instances of service %s and plan %s " +
+					"are already being upgraded", serviceName, planName));
+			}
+			return upgrade;
+		});
+
+		log.info("Starting upgrade of service instances of {}/{}", serviceName, planName);
+		appDeployer.listServiceInstances(ListServiceInstancesRequest.builder()
+			.serviceName(serviceName)
+			.planName(planName)
+			.build())
+			.subscribe(response -> upgrade.begin(response.getServiceInstanceIds()),
+				upgrade::abort,
+				() -> upgrade.begin(null));
+		return upgrade.getProgress();
+	}
+
+	/**
+	 * Stop starting further service instance upgrades of a plan
+	 *
+	 * @param serviceName the service name
+	 * @param planName the plan name
+	 * @return the progress of the upgrade
+	 * @throws IllegalStateException if the service instances of the plan are not being upgraded
+	 */
+	public FleetUpgradeProgress pause(String serviceName, String planName) {
+		FleetUpgrade upgrade = getUpgrade(serviceName, planName);
+		upgrade.pause();
+		return upgrade.getProgress();
+	}
+
+	/**
+	 * Continue a paused or halted upgrade of the service instances of a plan
+	 *
+	 * @param serviceName the service name
+	 * @param planName the plan name
+	 * @return the progress of the upgrade
+	 * @throws IllegalStateException if the service instances of the plan are not being upgraded
+	 */
+	public FleetUpgradeProgress resume(String serviceName, String planName) {
+		FleetUpgrade upgrade = getUpgrade(serviceName, planName);
+		upgrade.resume();
+		return upgrade.getProgress();
+	}
+
+	/**
+	 * @param serviceName the service name
+	 * @param planName the plan name
+	 * @return the progress of the last upgrade of the service instances of the plan, or {@literal null} if they were
+	 * 	never upgraded
+	 */
+	public FleetUpgradeProgress getProgress(String serviceName, String planName) {
+		FleetUpgrade upgrade = upgrades.get(key(serviceName, planName));
+		return upgrade == null ? null : upgrade.getProgress();
+	}
+
+	/**
+	 * @return the progress of the last upgrade of each plan
+	 */
+	public List<FleetUpgradeProgress> getProgress() {
+		List<FleetUpgradeProgress> progress = new ArrayList<>();
+		upgrades.values().forEach(upgrade -> progress.add(upgrade.getProgress()));
+		return progress;
+	}
+
+	private FleetUpgrade getUpgrade(String serviceName, String planName) {
+		FleetUpgrade upgrade = upgrades.get(key(serviceName, planName));
+		if (upgrade == null) {
+			throw new IllegalStateException(String.format("The service instances of service %s and plan %s are " +
+				"not being upgraded", serviceName, planName));
+		}
+		return upgrade;
+	}
+
+	private static String key(String serviceName, String planName) {
+		return serviceName + "/" + planName;
+	}
+
+	/**
+	 * @return whether the service instance was upgraded, or {@code false} if it was skipped
+	 */
+	private Mono<Boolean> upgradeServiceInstanceIfIdle(BrokeredService brokeredService, String serviceInstanceId) {
+		return stateRepository.getState(serviceInstanceId)
+			.map(state -> !isDeletedOrBusy(state))
+			// an instance without a recorded state, e.g. after a restart, is upgraded
+			.onErrorReturn(Boolean.TRUE)
+			.defaultIfEmpty(Boolean.TRUE)
+			.flatMap(idle -> idle ?
+				upgradeServiceInstance(brokeredService, serviceInstanceId).thenReturn(Boolean.TRUE) :
+				Mono.just(Boolean.FALSE));
+	}
+
+	private static boolean isDeletedOrBusy(ServiceInstanceState state) {
+		return state.getOperationState() == OperationState.IN_PROGRESS ||
+			state.getOperationState() == OperationState.SUCCEEDED &&
+				WorkflowServiceInstanceService.DELETE_COMPLETED_DESCRIPTION.equals(state.getDescription());
+	}
+
+	private Mono<Void> upgradeServiceInstance(BrokeredService brokeredService, String serviceInstanceId) {
+		return Mono.fromCallable(() -> {
+			BackingApplications backingApps = BackingApplications.builder()
+				.backingApplications(brokeredService.getApps())
+				.build();
+			backingApps.forEach(backingApp -> backingApp.addProperty(UPGRADE_PROPERTY_KEY, "true"));
+			return backingApps;
+		})
+			.flatMap(backingApps -> targetService.addToBackingApplications(backingApps,
+				brokeredService.getTarget(), serviceInstanceId))
+			.flatMapMany(backingApps -> deploymentService.update(backingApps, serviceInstanceId))
+			.then();
+	}
+
+	/**
+	 * The upgrade of the service instances of one plan. State changes are guarded by the upgrade's monitor;
+	 * upgrades of service instances are started outside of it by whichever thread drains the pending instances, so
+	 * that instances completing on the draining thread do not recurse.
+	 */
+	private final class FleetUpgrade {
+
+		private final BrokeredService brokeredService;
+
+		private final Deque<String> pending = new ArrayDeque<>();
+
+		private final Map<String, String> failures = new LinkedHashMap<>();
+
+		private final AtomicInteger drainRequests = new AtomicInteger();
+
+		private State state = State.PREPARING;
+
+		private int total;
+
+		private int succeeded;
+
+		private int skipped;
+
+		private int inFlight;
+
+		private int failuresSinceResume;
+
+		public FleetUpgrade(BrokeredService brokeredService) {
+			this.brokeredService = brokeredService;
+		}
+
+		public synchronized boolean isActive() {
+			return state != State.COMPLETED && state != State.FAILED;
+		}
+
+		public synchronized FleetUpgradeProgress getProgress() {
+			return new FleetUpgradeProgress(brokeredService.getServiceName(), brokeredService.getPlanName(), state,
+				total, succeeded, skipped, failures.size(), inFlight, pending.size(), failures);
+		}
+
+		public void begin(List<String> serviceInstanceIds) {
+			synchronized (this) {
+				if (state != State.PREPARING) {
+					return;
+				}
+				if (serviceInstanceIds != null) {
+					pending.addAll(serviceInstanceIds);
+				}
+				total = pending.size();
+				state = State.RUNNING;
+				log.info("Upgrading {} service instances of {}/{}", total, brokeredService.getServiceName(),
+					brokeredService.getPlanName());
+				completeIfDone();
+			}
+			drain();
+		}
+
+		public synchronized void abort(Throwable error) {
+			log.error(String.format("Error listing service instances of %s/%s: %s", brokeredService.getServiceName(),
+				brokeredService.getPlanName(), error.getMessage()), error);
+			state = State.FAILED;
+		}
+
+		public synchronized void pause() {
+			if (state == State.RUNNING) {
+				state = State.PAUSED;
+			}
+		}
+
+		public void resume() {
+			synchronized (this) {
+				if (state != State.PAUSED && state != State.HALTED) {
+					return;
+				}
+				state = State.RUNNING;
+				failuresSinceResume = 0;
+				completeIfDone();
+			}
+			drain();
+		}
+
+		private void drain() {
+			if (drainRequests.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				String serviceInstanceId;
+				while ((serviceInstanceId = next()) != null) {
+					upgrade(serviceInstanceId);
+				}
+				missed = drainRequests.addAndGet(-missed);
+			}
+			while (missed != 0);
+		}
+
+		private synchronized String next() {
+			// skipped instances did not prove the artifact, so the canary keeps running alone until one succeeds
+			int limit = succeeded == 0 ? 1 : properties.getMaxInFlight();
+			if (state != State.RUNNING || inFlight >= limit || pending.isEmpty()) {
+				return null;
+			}
+			inFlight++;
+			return pending.poll();
+		}
+
+		private void upgrade(String serviceInstanceId) {
+			Mono<Void> operation = upgradeServiceInstanceIfIdle(brokeredService, serviceInstanceId)
+				.doOnRequest(l -> log.debug("Upgrading service instance {}", serviceInstanceId))
+				.doOnNext(upgraded -> succeeded(serviceInstanceId, upgraded))
+				.doOnError(error -> failed(serviceInstanceId, error))
+				.onErrorResume(error -> Mono.empty())
+				.then();
+			operationExecutor.submit(serviceInstanceId, operation, Mono.empty())
+				.subscribe(null, error -> failed(serviceInstanceId, error));
+		}
+
+		private void succeeded(String serviceInstanceId, boolean upgraded) {
+			synchronized (this) {
+				inFlight--;
+				if (upgraded) {
+					log.info("Successfully upgraded service instance {}", serviceInstanceId);
+					succeeded++;
+				}
+				else {
+					log.info("Skipped upgrade of service instance {} that was deleted or has an operation in progress",
+						serviceInstanceId);
+					skipped++;
+				}
+				completeIfDone();
+			}
+			drain();
+		}
+
+		private void failed(String serviceInstanceId, Throwable error) {
+			synchronized (this) {
+				log.error(String.format("Error upgrading service instance %s: %s", serviceInstanceId,
+					error.getMessage()), error);
+				inFlight--;
+				failures.put(serviceInstanceId, String.valueOf(error.getMessage()));
+				failuresSinceResume++;
+				if (failuresSinceResume > properties.getMaxFailures() && state == State.RUNNING) {
+					log.warn("Halting upgrade of service instances of {}/{} after {} failures",
+						brokeredService.getServiceName(), brokeredService.getPlanName(), failuresSinceResume);
+					state = State.HALTED;
+				}
+				completeIfDone();
+			}
+			drain();
+		}
+
+		private void completeIfDone() {
+			if (state == State.RUNNING && pending.isEmpty() && inFlight == 0) {
+				log.info("Finished upgrading service instances of {}/{}: {} succeeded, {} skipped, {} failed",
+					brokeredService.getServiceName(), brokeredService.getPlanName(), succeeded, skipped,
+					failures.size());
+				state = State.COMPLETED;
+			}
+		}
+
+	}
+
+}
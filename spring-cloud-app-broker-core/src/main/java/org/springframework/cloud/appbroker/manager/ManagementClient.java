@@ -21,6 +21,8 @@ import reactor.util.Logger;
 import reactor.util.Loggers;
 
 import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.DeployerConcurrencyLimiter;
+import org.springframework.cloud.appbroker.deployer.DeployerOperation;
 
 public class ManagementClient {
 
@@ -28,16 +30,24 @@ public class ManagementClient {
 
 	private final AppManager appManager;
 
+	private final DeployerConcurrencyLimiter concurrencyLimiter;
+
 	public ManagementClient(AppManager appManager) {
+		this(appManager, DeployerConcurrencyLimiter.unlimited());
+	}
+
+	public ManagementClient(AppManager appManager, DeployerConcurrencyLimiter concurrencyLimiter) {
 		this.appManager = appManager;
+		this.concurrencyLimiter = concurrencyLimiter;
 	}
 
 	public Mono<Void> start(BackingApplication backingApplication) {
 		return Mono.justOrEmpty(backingApplication)
-			.flatMap(backingApp -> appManager.start(StartApplicationRequest.builder()
-				.name(backingApp.getName())
-				.properties(backingApp.getProperties())
-				.build())
+			.flatMap(backingApp -> concurrencyLimiter.limit(DeployerOperation.START,
+				() -> appManager.start(StartApplicationRequest.builder()
+					.name(backingApp.getName())
+					.properties(backingApp.getProperties())
+					.build()))
 				.doOnRequest(l -> LOG.debug("Starting application {}", backingApp))
 				.doOnSuccess(response -> LOG.debug("Finished starting application {}", backingApp))
 				.doOnError(exception -> LOG.error(String.format("Error starting application %s with error '%s'",
@@ -46,10 +56,11 @@ public class ManagementClient {
 
 	public Mono<Void> stop(BackingApplication backingApplication) {
 		return Mono.justOrEmpty(backingApplication)
-			.flatMap(backingApp -> appManager.stop(StopApplicationRequest.builder()
-				.name(backingApp.getName())
-				.properties(backingApp.getProperties())
-				.build())
+			.flatMap(backingApp -> concurrencyLimiter.limit(DeployerOperation.STOP,
+				() -> appManager.stop(StopApplicationRequest.builder()
+					.name(backingApp.getName())
+					.properties(backingApp.getProperties())
+					.build()))
 				.doOnRequest(l -> LOG.debug("Stopping application {}", backingApp))
 				.doOnSuccess(response -> LOG.debug("Finished stopping application {}", backingApp))
 				.doOnError(exception -> LOG.error(String.format("Error stopping application %s with error '%s'",
@@ -58,10 +69,11 @@ public class ManagementClient {
 
 	public Mono<Void> restart(BackingApplication backingApplication) {
 		return Mono.justOrEmpty(backingApplication)
-			.flatMap(backingApp -> appManager.restart(RestartApplicationRequest.builder()
-				.name(backingApp.getName())
-				.properties(backingApp.getProperties())
-				.build())
+			.flatMap(backingApp -> concurrencyLimiter.limit(DeployerOperation.RESTART,
+				() -> appManager.restart(RestartApplicationRequest.builder()
+					.name(backingApp.getName())
+					.properties(backingApp.getProperties())
+					.build()))
 				.doOnRequest(l -> LOG.debug("Restarting application {}", backingApp))
 				.doOnSuccess(response -> LOG.debug("Finished restarting application {}", backingApp))
 				.doOnError(exception -> LOG.error(String.format("Error restarting application %s with error '%s'",
@@ -70,10 +82,11 @@ public class ManagementClient {
 
 	public Mono<Void> restage(BackingApplication backingApplication) {
 		return Mono.justOrEmpty(backingApplication)
-			.flatMap(backingApp -> appManager.restage(RestageApplicationRequest.builder()
-				.name(backingApp.getName())
-				.properties(backingApp.getProperties())
-				.build())
+			.flatMap(backingApp -> concurrencyLimiter.limit(DeployerOperation.RESTAGE,
+				() -> appManager.restage(RestageApplicationRequest.builder()
+					.name(backingApp.getName())
+					.properties(backingApp.getProperties())
+					.build()))
 				.doOnRequest(l -> LOG.debug("Restaging application {}", backingApp))
 				.doOnSuccess(response -> LOG.debug("Finished restaging application {}", backingApp))
 				.doOnError(exception -> LOG.error(String.format("Error restaging application %s with error '%s'",
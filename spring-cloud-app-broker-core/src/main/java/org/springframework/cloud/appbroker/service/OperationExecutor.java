@@ -0,0 +1,428 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.cloud.servicebroker.exception.ServiceBrokerConcurrencyException;
+
+/**
+ * Runs the asynchronous part of service broker operations with a bounded number of operations in flight.
+ * Operations that cannot start immediately wait in a bounded queue. When the queue is full, new operations are
+ * rejected with a {@link ServiceBrokerConcurrencyException} so that the platform retries the request later.
+ * <p>
+ * Operations submitted with a key, such as a service instance ID, run strictly one after the other in submission
+ * order, while operations for different keys run in parallel. A coalescing operation that is still waiting for an
+ * earlier operation with the same key is replaced by a later coalescing operation for that key.
+ */
+public class OperationExecutor {
+
+	private static final Logger LOG = Loggers.getLogger(OperationExecutor.class);
+
+	private final int maxInFlight;
+
+	private final int maxPending;
+
+	private final Queue<Operation> pending = new ConcurrentLinkedQueue<>();
+
+	private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private final AtomicInteger inFlightCount = new AtomicInteger();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private final AtomicInteger drainWorkInProgress = new AtomicInteger();
+
+	/**
+	 * Construct a new {@link OperationExecutor}
+	 *
+	 * @param maxInFlight the maximum number of operations running at the same time
+	 * @param maxPending the maximum number of operations waiting to start
+	 */
+	public OperationExecutor(int maxInFlight, int maxPending) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("maxInFlight must be greater than zero");
+		}
+		if (maxPending < 0) {
+			throw new IllegalArgumentException("maxPending must not be negative");
+		}
+		this.maxInFlight = maxInFlight;
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Create an executor that starts every operation immediately
+	 *
+	 * @return the executor
+	 */
+	public static OperationExecutor unbounded() {
+		return new OperationExecutor(Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Submit an operation for execution. The returned {@code Mono} completes as soon as the operation is started or
+	 * queued; it does not wait for the operation itself to complete.
+	 *
+	 * @param operation the operation to run
+	 * @param onQueued subscribed before the operation is queued, e.g. to record a "queued" operation state
+	 * @return a {@code Mono} that completes once the operation is accepted, or errors if it is rejected
+	 */
+	public Mono<Void> submit(Mono<Void> operation, Mono<Void> onQueued) {
+		return Mono.defer(() -> admit(new Operation(null, operation, false), onQueued));
+	}
+
+	/**
+	 * Submit an operation that must not run concurrently with other operations for the same key. Operations for a
+	 * key run in the order they were submitted.
+	 *
+	 * @param key the key, e.g. the service instance ID
+	 * @param operation the operation to run
+	 * @param onQueued subscribed when the operation cannot start immediately, e.g. to record a "queued" state; if it
+	 * 	fails, the operation is not run
+	 * @return a {@code Mono} that completes once the operation is accepted, or errors if it is rejected
+	 */
+	public Mono<Void> submit(String key, Mono<Void> operation, Mono<Void> onQueued) {
+		return Mono.defer(() -> admitKeyed(new Operation(key, operation, false), onQueued));
+	}
+
+	/**
+	 * Submit an operation like {@link #submit(String, Mono, Mono)}, allowing it to be superseded. If the operation is
+	 * still waiting behind an earlier operation for the same key when another coalescing operation is submitted for
+	 * that key, it is discarded in favor of the later one.
+	 *
+	 * @param key the key, e.g. the service instance ID
+	 * @param operation the operation to run
+	 * @param onQueued subscribed when the operation cannot start immediately, e.g. to record a "queued" state; if it
+	 * 	fails, the operation is not run
+	 * @return a {@code Mono} that completes once the operation is accepted, or errors if it is rejected
+	 */
+	public Mono<Void> submitCoalescing(String key, Mono<Void> operation, Mono<Void> onQueued) {
+		return Mono.defer(() -> admitKeyed(new Operation(key, operation, true), onQueued));
+	}
+
+	/**
+	 * @return the number of operations currently running
+	 */
+	public int getInFlightCount() {
+		return inFlightCount.get();
+	}
+
+	/**
+	 * @return the number of operations waiting to start
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * @return the number of operations rejected since the executor was created
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return the number of queued operations that were superseded by a later operation for the same key
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of keys with an operation running or waiting
+	 */
+	public int getActiveKeyCount() {
+		return mailboxes.size();
+	}
+
+	/**
+	 * Whether an operation submitted with a key is waiting for the running operation for that key to finish. The
+	 * running operation can use this to leave the state visible to the platform to the waiting operation.
+	 *
+	 * @param key the key, e.g. the service instance ID
+	 * @return {@literal true} if an operation for the key is waiting
+	 */
+	public boolean hasWaiting(String key) {
+		AtomicBoolean waiting = new AtomicBoolean();
+		mailboxes.computeIfPresent(key, (k, mailbox) -> {
+			waiting.set(!mailbox.isEmpty());
+			return mailbox;
+		});
+		return waiting.get();
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	private Mono<Void> admit(Operation operation, Mono<Void> onQueued) {
+		if (pendingCount.get() == 0 && tryAcquire()) {
+			start(operation);
+			return Mono.empty();
+		}
+
+		if (!reservePending()) {
+			return reject();
+		}
+
+		return onQueued
+			.doOnError(exception -> pendingCount.decrementAndGet())
+			.then(Mono.fromRunnable(() -> {
+				pending.offer(operation);
+				drain();
+			}));
+	}
+
+	private Mono<Void> admitKeyed(Operation operation, Mono<Void> onQueued) {
+		AtomicReference<Admission> admission = new AtomicReference<>(Admission.START);
+		Mono<Void> queued = onQueued.cache();
+		Operation waiting = operation.after(queued);
+
+		mailboxes.compute(operation.getKey(), (key, mailbox) -> {
+			if (mailbox == null) {
+				return new Mailbox();
+			}
+			if (operation.isCoalescing() && mailbox.replaceLastCoalescing(waiting)) {
+				admission.set(Admission.COALESCED);
+			}
+			else if (reservePending()) {
+				mailbox.add(waiting);
+				admission.set(Admission.WAIT);
+			}
+			else {
+				admission.set(Admission.REJECTED);
+			}
+			return mailbox;
+		});
+
+		switch (admission.get()) {
+			case START:
+				return admit(operation, onQueued)
+					.doOnError(exception -> release(operation.getKey()));
+			case COALESCED:
+				coalescedCount.incrementAndGet();
+				LOG.debug("Replaced queued operation for {} with a newer operation", operation.getKey());
+				return queued
+					.doOnError(exception -> discard(waiting));
+			case WAIT:
+				return queued
+					.doOnError(exception -> discard(waiting));
+			default:
+				return reject();
+		}
+	}
+
+	/**
+	 * Remove an operation whose {@code onQueued} failed from its key's mailbox and give up its pending slot. An
+	 * operation that was already handed over to the shared queue skips itself when it starts, see
+	 * {@link Operation#after}.
+	 */
+	private void discard(Operation operation) {
+		AtomicBoolean removed = new AtomicBoolean();
+		mailboxes.computeIfPresent(operation.getKey(), (key, mailbox) -> {
+			removed.set(mailbox.remove(operation));
+			return mailbox;
+		});
+		if (removed.get()) {
+			pendingCount.decrementAndGet();
+		}
+	}
+
+	private boolean reservePending() {
+		if (pendingCount.incrementAndGet() > maxPending) {
+			pendingCount.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private Mono<Void> reject() {
+		rejectedCount.incrementAndGet();
+		int inFlight = inFlightCount.get();
+		int pendingOperations = pendingCount.get();
+		LOG.warn("Rejecting operation with {} operations in flight and {} pending (limit: {})",
+			inFlight, pendingOperations, maxPending);
+		return Mono.error(new ServiceBrokerConcurrencyException(String.format(
+			"The service broker is processing too many operations, try again later (in flight: %d, " +
+				"pending: %d of %d)", inFlight, pendingOperations, maxPending)));
+	}
+
+	private boolean tryAcquire() {
+		for (int current = inFlightCount.get(); current < maxInFlight; current = inFlightCount.get()) {
+			if (inFlightCount.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void start(Operation operation) {
+		operation.getOperation()
+			.doFinally(signal -> {
+				inFlightCount.decrementAndGet();
+				if (operation.getKey() != null) {
+					release(operation.getKey());
+				}
+				drain();
+			})
+			.subscribe();
+	}
+
+	/**
+	 * Hand the next waiting operation for a key over to the shared queue, or forget the key if nothing is waiting.
+	 * The handed over operation was already admitted, so it keeps its reserved pending slot.
+	 */
+	private void release(String key) {
+		AtomicReference<Operation> next = new AtomicReference<>();
+		mailboxes.computeIfPresent(key, (k, mailbox) -> {
+			Operation waiting = mailbox.poll();
+			if (waiting == null) {
+				return null;
+			}
+			next.set(waiting);
+			return mailbox;
+		});
+
+		Operation operation = next.get();
+		if (operation != null) {
+			pending.offer(operation);
+			drain();
+		}
+	}
+
+	private void drain() {
+		if (drainWorkInProgress.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			while (!pending.isEmpty() && tryAcquire()) {
+				Operation operation = pending.poll();
+				if (operation == null) {
+					inFlightCount.decrementAndGet();
+					break;
+				}
+				pendingCount.decrementAndGet();
+				start(operation);
+			}
+			missed = drainWorkInProgress.addAndGet(-missed);
+		}
+		while (missed != 0);
+	}
+
+	private enum Admission {
+
+		START, WAIT, COALESCED, REJECTED
+
+	}
+
+	private static class Operation {
+
+		private final String key;
+
+		private final Mono<Void> operation;
+
+		private final boolean coalescing;
+
+		public Operation(String key, Mono<Void> operation, boolean coalescing) {
+			this.key = key;
+			this.operation = operation;
+			this.coalescing = coalescing;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public Mono<Void> getOperation() {
+			return operation;
+		}
+
+		public boolean isCoalescing() {
+			return coalescing;
+		}
+
+		/**
+		 * Delay this operation until {@code precondition} has completed, and skip it if {@code precondition} fails
+		 */
+		public Operation after(Mono<Void> precondition) {
+			return new Operation(key, precondition
+				.thenReturn(Boolean.TRUE)
+				.onErrorReturn(Boolean.FALSE)
+				.flatMap(admitted -> admitted ? operation : Mono.<Void>empty()), coalescing);
+		}
+
+	}
+
+	/**
+	 * Operations waiting for the running operation of a key to finish. Only accessed from within
+	 * {@link ConcurrentHashMap#compute} for that key.
+	 */
+	private static class Mailbox {
+
+		private final Deque<Operation> waiting = new ArrayDeque<>();
+
+		public void add(Operation operation) {
+			waiting.addLast(operation);
+		}
+
+		public Operation poll() {
+			return waiting.pollFirst();
+		}
+
+		public boolean remove(Operation operation) {
+			return waiting.remove(operation);
+		}
+
+		public boolean isEmpty() {
+			return waiting.isEmpty();
+		}
+
+		public boolean replaceLastCoalescing(Operation operation) {
+			Operation last = waiting.peekLast();
+			if (last == null || !last.isCoalescing()) {
+				return false;
+			}
+			waiting.pollLast();
+			waiting.addLast(operation);
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Tracks the steps of a running service instance operation. Workflows mark their steps with {@link #step(String,
+ * Mono)}; the start and end of each step are timed and reported as the description of the operation, so that the
+ * platform and operators can see which step a long-running operation is in.
+ * <p>
+ * The progress of an operation is passed to the workflows in the Reactor subscriber context. Steps of workflows
+ * running without a tracked operation, e.g. in tests, are not recorded.
+ */
+public class WorkflowProgress {
+
+	private static final int PERCENT = 100;
+
+	private final String operation;
+
+	private final Function<String, Mono<Void>> descriptionWriter;
+
+	private final Clock clock;
+
+	private final Queue<Step> steps = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger expectedSteps = new AtomicInteger();
+
+	private final AtomicInteger completedSteps = new AtomicInteger();
+
+	/**
+	 * Construct a new {@link WorkflowProgress}
+	 *
+	 * @param operation the operation, e.g. "create service instance"
+	 * @param descriptionWriter records the description of the operation at the start and end of each step
+	 */
+	public WorkflowProgress(String operation, Function<String, Mono<Void>> descriptionWriter) {
+		this(operation, descriptionWriter, Clock.systemUTC());
+	}
+
+	public WorkflowProgress(String operation, Function<String, Mono<Void>> descriptionWriter, Clock clock) {
+		this.operation = operation;
+		this.descriptionWriter = descriptionWriter;
+		this.clock = clock;
+	}
+
+	/**
+	 * Announce the number of steps a workflow is going to run, so that the progress can be reported as a percentage
+	 *
+	 * @param count the number of steps
+	 * @return a {@code Mono} that completes once the steps are announced
+	 */
+	public static Mono<Void> expectSteps(int count) {
+		return Mono.subscriberContext()
+			.doOnNext(context -> current(context)
+				.ifPresent(progress -> progress.expectedSteps.addAndGet(count)))
+			.then();
+	}
+
+	/**
+	 * Run a step of the current operation
+	 *
+	 * @param name the name of the step, e.g. "deploying backing applications"
+	 * @param source the step
+	 * @param <T> the type of the step result
+	 * @return the step, timed if an operation is tracked
+	 */
+	public static <T> Mono<T> step(String name, Mono<T> source) {
+		return Mono.subscriberContext()
+			.flatMap(context -> current(context)
+				.map(progress -> progress.track(name, source))
+				.orElse(source));
+	}
+
+	/**
+	 * Run a step of the current operation
+	 *
+	 * @param name the name of the step, e.g. "deploying backing applications"
+	 * @param source the step
+	 * @param <T> the type of the step results
+	 * @return the step, timed if an operation is tracked
+	 */
+	public static <T> Flux<T> step(String name, Flux<T> source) {
+		return Mono.subscriberContext()
+			.flatMapMany(context -> current(context)
+				.map(progress -> progress.track(name, source))
+				.orElse(source));
+	}
+
+	/**
+	 * Make this progress the current progress of the workflows subscribed with the returned context
+	 *
+	 * @param context the subscriber context
+	 * @return the context holding this progress
+	 */
+	public Context addTo(Context context) {
+		return context.put(WorkflowProgress.class, this);
+	}
+
+	public <T> Mono<T> track(String name, Mono<T> source) {
+		return Mono.usingWhen(begin(name), step -> source, this::complete, (step, e) -> fail(step), this::cancel);
+	}
+
+	public <T> Flux<T> track(String name, Flux<T> source) {
+		return Flux.usingWhen(begin(name), step -> source, this::complete, (step, e) -> fail(step), this::cancel);
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the steps started so far, in the order they were started
+	 */
+	public List<Step> getSteps() {
+		return new ArrayList<>(steps);
+	}
+
+	/**
+	 * @return the share of the expected steps that completed, from 0 to 100
+	 */
+	public int getPercentComplete() {
+		int total = Math.max(expectedSteps.get(), steps.size());
+		return total == 0 ? 0 : Math.min(PERCENT, completedSteps.get() * PERCENT / total);
+	}
+
+	/**
+	 * @return a summary of the duration of each step, e.g. to be logged when the operation finished
+	 */
+	public String summary() {
+		return steps.stream()
+			.map(step -> step.getName() + " " + step.getDurationMillis() + "ms" + (step.isFailed() ? " (failed)" : ""))
+			.collect(Collectors.joining(", "));
+	}
+
+	private Mono<Step> begin(String name) {
+		return Mono.defer(() -> {
+			Step step = new Step(name, clock.millis());
+			steps.add(step);
+			return descriptionWriter.apply(describe(name))
+				.thenReturn(step);
+		});
+	}
+
+	private Mono<Void> complete(Step step) {
+		return Mono.defer(() -> {
+			step.end(clock.millis(), false);
+			completedSteps.incrementAndGet();
+			return descriptionWriter.apply(describe(step.getName() + " completed"));
+		});
+	}
+
+	private Mono<Void> fail(Step step) {
+		return Mono.fromRunnable(() -> step.end(clock.millis(), true));
+	}
+
+	private Mono<Void> cancel(Step step) {
+		return fail(step);
+	}
+
+	private String describe(String status) {
+		return String.format("%s: %s (%d%%)", operation, status, getPercentComplete());
+	}
+
+	private static Optional<WorkflowProgress> current(Context context) {
+		return context.getOrEmpty(WorkflowProgress.class);
+	}
+
+	/**
+	 * A step of an operation
+	 */
+	public static class Step {
+
+		private static final long RUNNING = -1;
+
+		private final String name;
+
+		private final long startedAt;
+
+		private final AtomicLong endedAt = new AtomicLong(RUNNING);
+
+		private boolean failed;
+
+		public Step(String name, long startedAt) {
+			this.name = name;
+			this.startedAt = startedAt;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return when the step started, in milliseconds since the epoch
+		 */
+		public long getStartedAt() {
+			return startedAt;
+		}
+
+		/**
+		 * @return when the step ended, in milliseconds since the epoch, or -1 if it is still running
+		 */
+		public long getEndedAt() {
+			return endedAt.get();
+		}
+
+		public long getDurationMillis() {
+			long end = endedAt.get();
+			return end == RUNNING ? 0 : end - startedAt;
+		}
+
+		public boolean isFailed() {
+			return endedAt.get() != RUNNING && failed;
+		}
+
+		protected void end(long time, boolean stepFailed) {
+			this.failed = stepFailed;
+			this.endedAt.set(time);
+		}
+
+	}
+
+}
@@ -57,12 +57,26 @@ public class WorkflowServiceInstanceBindingService implements ServiceInstanceBin
 
 	private final List<DeleteServiceInstanceBindingWorkflow> deleteServiceInstanceBindingWorkflows = new ArrayList<>();
 
+	private final OperationExecutor operationExecutor;
+
 	public WorkflowServiceInstanceBindingService(
 		ServiceInstanceBindingStateRepository serviceInstanceBindingStateRepository,
 		List<CreateServiceInstanceAppBindingWorkflow> createServiceInstanceAppBindingWorkflows,
 		List<CreateServiceInstanceRouteBindingWorkflow> createServiceInstanceRouteBindingWorkflows,
 		List<DeleteServiceInstanceBindingWorkflow> deleteServiceInstanceBindingWorkflows) {
+		this(serviceInstanceBindingStateRepository, createServiceInstanceAppBindingWorkflows,
+			createServiceInstanceRouteBindingWorkflows, deleteServiceInstanceBindingWorkflows,
+			OperationExecutor.unbounded());
+	}
+
+	public WorkflowServiceInstanceBindingService(
+		ServiceInstanceBindingStateRepository serviceInstanceBindingStateRepository,
+		List<CreateServiceInstanceAppBindingWorkflow> createServiceInstanceAppBindingWorkflows,
+		List<CreateServiceInstanceRouteBindingWorkflow> createServiceInstanceRouteBindingWorkflows,
+		List<DeleteServiceInstanceBindingWorkflow> deleteServiceInstanceBindingWorkflows,
+		OperationExecutor operationExecutor) {
 		this.stateRepository = serviceInstanceBindingStateRepository;
+		this.operationExecutor = operationExecutor;
 		if (!CollectionUtils.isEmpty(createServiceInstanceAppBindingWorkflows)) {
 			this.createServiceInstanceAppBindingWorkflows.addAll(createServiceInstanceAppBindingWorkflows);
 		}
@@ -82,8 +96,11 @@ public class WorkflowServiceInstanceBindingService implements ServiceInstanceBin
 		CreateServiceInstanceBindingRequest request) {
 		return invokeCreateResponseBuilders(request)
 			.publishOn(Schedulers.parallel())
-			.doOnNext(response -> create(request, response)
-				.subscribe());
+			.flatMap(response -> operationExecutor.submit(
+				operationKey(request.getServiceInstanceId(), request.getBindingId()),
+				Mono.defer(() -> create(request, response)),
+				queued(request.getServiceInstanceId(), request.getBindingId(), "create service instance binding queued"))
+				.thenReturn(response));
 	}
 
 	private Mono<CreateServiceInstanceBindingResponse> invokeCreateResponseBuilders(
@@ -182,8 +199,11 @@ public class WorkflowServiceInstanceBindingService implements ServiceInstanceBin
 		DeleteServiceInstanceBindingRequest request) {
 		return invokeDeleteResponseBuilders(request)
 			.publishOn(Schedulers.parallel())
-			.doOnNext(response -> delete(request, response)
-				.subscribe());
+			.flatMap(response -> operationExecutor.submit(
+				operationKey(request.getServiceInstanceId(), request.getBindingId()),
+				Mono.defer(() -> delete(request, response)),
+				queued(request.getServiceInstanceId(), request.getBindingId(), "delete service instance binding queued"))
+				.thenReturn(response));
 	}
 
 	private Mono<DeleteServiceInstanceBindingResponse> invokeDeleteResponseBuilders(
@@ -224,6 +244,16 @@ public class WorkflowServiceInstanceBindingService implements ServiceInstanceBin
 			.concatMap(workflow -> workflow.delete(request, response));
 	}
 
+	private static String operationKey(String serviceInstanceId, String bindingId) {
+		return serviceInstanceId + "/" + bindingId;
+	}
+
+	private Mono<Void> queued(String serviceInstanceId, String bindingId, String description) {
+		return Mono.defer(() -> stateRepository.saveState(serviceInstanceId, bindingId, OperationState.IN_PROGRESS,
+			description)
+			.then());
+	}
+
 	@Override
 	public Mono<GetLastServiceBindingOperationResponse> getLastOperation(
 		GetLastServiceBindingOperationRequest request) {
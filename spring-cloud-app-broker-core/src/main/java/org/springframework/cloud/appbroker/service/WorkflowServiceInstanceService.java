@@ -25,6 +25,7 @@ import reactor.core.scheduler.Schedulers;
 import reactor.util.Logger;
 import reactor.util.Loggers;
 
+import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
 import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
 import org.springframework.cloud.servicebroker.exception.ServiceInstanceDoesNotExistException;
 import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceRequest;
@@ -52,6 +53,11 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 
 	private final Logger log = Loggers.getLogger(WorkflowServiceInstanceService.class);
 
+	/**
+	 * The description of the state saved once a service instance has been deleted
+	 */
+	public static final String DELETE_COMPLETED_DESCRIPTION = "delete service instance completed";
+
 	private final List<CreateServiceInstanceWorkflow> createServiceInstanceWorkflows;
 
 	private final List<DeleteServiceInstanceWorkflow> deleteServiceInstanceWorkflows;
@@ -60,11 +66,37 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 
 	private final ServiceInstanceStateRepository stateRepository;
 
+	private final ServiceInstanceBindingStateRepository bindingStateRepository;
+
+	private final OperationExecutor operationExecutor;
+
 	public WorkflowServiceInstanceService(ServiceInstanceStateRepository serviceInstanceStateRepository,
 		List<CreateServiceInstanceWorkflow> createServiceInstanceWorkflows,
 		List<DeleteServiceInstanceWorkflow> deleteServiceInstanceWorkflows,
 		List<UpdateServiceInstanceWorkflow> updateServiceInstanceWorkflows) {
+		this(serviceInstanceStateRepository, createServiceInstanceWorkflows, deleteServiceInstanceWorkflows,
+			updateServiceInstanceWorkflows, OperationExecutor.unbounded());
+	}
+
+	public WorkflowServiceInstanceService(ServiceInstanceStateRepository serviceInstanceStateRepository,
+		List<CreateServiceInstanceWorkflow> createServiceInstanceWorkflows,
+		List<DeleteServiceInstanceWorkflow> deleteServiceInstanceWorkflows,
+		List<UpdateServiceInstanceWorkflow> updateServiceInstanceWorkflows,
+		OperationExecutor operationExecutor) {
+		this(serviceInstanceStateRepository, createServiceInstanceWorkflows, deleteServiceInstanceWorkflows,
+			updateServiceInstanceWorkflows, operationExecutor, new ServiceInstanceBindingStateRepository() {
+			});
+	}
+
+	public WorkflowServiceInstanceService(ServiceInstanceStateRepository serviceInstanceStateRepository,
+		List<CreateServiceInstanceWorkflow> createServiceInstanceWorkflows,
+		List<DeleteServiceInstanceWorkflow> deleteServiceInstanceWorkflows,
+		List<UpdateServiceInstanceWorkflow> updateServiceInstanceWorkflows,
+		OperationExecutor operationExecutor,
+		ServiceInstanceBindingStateRepository serviceInstanceBindingStateRepository) {
 		this.stateRepository = serviceInstanceStateRepository;
+		this.bindingStateRepository = serviceInstanceBindingStateRepository;
+		this.operationExecutor = operationExecutor;
 		this.createServiceInstanceWorkflows = createServiceInstanceWorkflows;
 		this.deleteServiceInstanceWorkflows = deleteServiceInstanceWorkflows;
 		this.updateServiceInstanceWorkflows = updateServiceInstanceWorkflows;
@@ -78,8 +110,10 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 	public Mono<CreateServiceInstanceResponse> createServiceInstance(CreateServiceInstanceRequest request) {
 		return invokeCreateResponseBuilders(request)
 			.publishOn(Schedulers.parallel())
-			.doOnNext(response -> create(request, response)
-				.subscribe());
+			.flatMap(response -> operationExecutor.submit(request.getServiceInstanceId(),
+				Mono.defer(() -> create(request, response)),
+				queued(request.getServiceInstanceId(), "create service instance queued"))
+				.thenReturn(response));
 	}
 
 	private Mono<CreateServiceInstanceResponse> invokeCreateResponseBuilders(CreateServiceInstanceRequest request) {
@@ -95,20 +129,21 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 	}
 
 	private Mono<Void> create(CreateServiceInstanceRequest request, CreateServiceInstanceResponse response) {
-		return stateRepository.saveState(request.getServiceInstanceId(),
-			OperationState.IN_PROGRESS,
+		WorkflowProgress progress = progress(request.getServiceInstanceId(), "create service instance");
+		return saveState(request.getServiceInstanceId(), OperationState.IN_PROGRESS,
 			"create service instance started")
 			.thenMany(invokeCreateWorkflows(request, response)
+				.subscriberContext(progress::addTo)
 				.doOnRequest(l -> log.debug("Creating service instance"))
 				.doOnComplete(() -> log.debug("Finished creating service instance"))
+				.doFinally(signal -> log.info("{} {}: {}", progress.getOperation(), request.getServiceInstanceId(),
+					progress.summary()))
 				.doOnError(exception -> log.error(String.format("Error creating service instance with error '%s'",
 					exception.getMessage()), exception)))
-			.thenEmpty(stateRepository.saveState(request.getServiceInstanceId(),
-				OperationState.SUCCEEDED, "create service instance completed")
-				.then())
-			.onErrorResume(exception -> stateRepository.saveState(request.getServiceInstanceId(),
-				OperationState.FAILED, exception.getMessage())
-				.then());
+			.thenEmpty(saveState(request.getServiceInstanceId(), OperationState.SUCCEEDED,
+				"create service instance completed"))
+			.onErrorResume(exception -> saveState(request.getServiceInstanceId(), OperationState.FAILED,
+				exception.getMessage()));
 	}
 
 	private Flux<Void> invokeCreateWorkflows(CreateServiceInstanceRequest request,
@@ -122,8 +157,10 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 	public Mono<DeleteServiceInstanceResponse> deleteServiceInstance(DeleteServiceInstanceRequest request) {
 		return invokeDeleteResponseBuilders(request)
 			.publishOn(Schedulers.parallel())
-			.doOnNext(response -> delete(request, response)
-				.subscribe());
+			.flatMap(response -> operationExecutor.submit(request.getServiceInstanceId(),
+				Mono.defer(() -> delete(request, response)),
+				queued(request.getServiceInstanceId(), "delete service instance queued"))
+				.thenReturn(response));
 	}
 
 	private Mono<DeleteServiceInstanceResponse> invokeDeleteResponseBuilders(DeleteServiceInstanceRequest request) {
@@ -139,19 +176,35 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 	}
 
 	private Mono<Void> delete(DeleteServiceInstanceRequest request, DeleteServiceInstanceResponse response) {
-		return stateRepository.saveState(request.getServiceInstanceId(),
-			OperationState.IN_PROGRESS, "delete service instance started")
+		WorkflowProgress progress = progress(request.getServiceInstanceId(), "delete service instance");
+		return saveState(request.getServiceInstanceId(), OperationState.IN_PROGRESS,
+			"delete service instance started")
 			.thenMany(invokeDeleteWorkflows(request, response)
+				.subscriberContext(progress::addTo)
 				.doOnRequest(l -> log.debug("Deleting service instance"))
 				.doOnComplete(() -> log.debug("Finished deleting service instance"))
+				.doFinally(signal -> log.info("{} {}: {}", progress.getOperation(), request.getServiceInstanceId(),
+					progress.summary()))
 				.doOnError(exception -> log.error(String.format("Error deleting service instance with error '%s'",
 					exception.getMessage()), exception)))
-			.thenEmpty(stateRepository.saveState(request.getServiceInstanceId(),
-				OperationState.SUCCEEDED, "delete service instance completed")
-				.then())
-			.onErrorResume(e -> stateRepository.saveState(request.getServiceInstanceId(),
-				OperationState.FAILED, e.getMessage())
-				.then());
+			.thenEmpty(removeBindingStates(request.getServiceInstanceId()))
+			.then(saveState(request.getServiceInstanceId(), OperationState.SUCCEEDED,
+				DELETE_COMPLETED_DESCRIPTION))
+			.onErrorResume(e -> saveState(request.getServiceInstanceId(), OperationState.FAILED,
+				e.getMessage()));
+	}
+
+	private Mono<Void> removeBindingStates(String serviceInstanceId) {
+		return Mono.defer(() -> bindingStateRepository.removeStates(serviceInstanceId))
+			.doOnNext(states -> log.debug("Removed {} binding states of deleted service instance {}", states.size(),
+				serviceInstanceId))
+			.onErrorResume(UnsupportedOperationException.class, e -> Mono.empty())
+			.onErrorResume(e -> {
+				log.warn(String.format("Error removing binding states of deleted service instance %s with error '%s'",
+					serviceInstanceId, e.getMessage()), e);
+				return Mono.empty();
+			})
+			.then();
 	}
 
 	private Flux<Void> invokeDeleteWorkflows(DeleteServiceInstanceRequest request,
@@ -165,8 +218,10 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 	public Mono<UpdateServiceInstanceResponse> updateServiceInstance(UpdateServiceInstanceRequest request) {
 		return invokeUpdateResponseBuilders(request)
 			.publishOn(Schedulers.parallel())
-			.doOnNext(response -> update(request, response)
-				.subscribe());
+			.flatMap(response -> operationExecutor.submitCoalescing(request.getServiceInstanceId(),
+				Mono.defer(() -> update(request, response)),
+				queued(request.getServiceInstanceId(), "update service instance queued"))
+				.thenReturn(response));
 	}
 
 	private Mono<UpdateServiceInstanceResponse> invokeUpdateResponseBuilders(UpdateServiceInstanceRequest request) {
@@ -182,19 +237,21 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 	}
 
 	private Mono<Void> update(UpdateServiceInstanceRequest request, UpdateServiceInstanceResponse response) {
-		return stateRepository.saveState(request.getServiceInstanceId(),
-			OperationState.IN_PROGRESS, "update service instance started")
+		WorkflowProgress progress = progress(request.getServiceInstanceId(), "update service instance");
+		return saveState(request.getServiceInstanceId(), OperationState.IN_PROGRESS,
+			"update service instance started")
 			.thenMany(invokeUpdateWorkflows(request, response)
+				.subscriberContext(progress::addTo)
 				.doOnRequest(l -> log.debug("Updating service instance"))
 				.doOnComplete(() -> log.debug("Finished updating service instance"))
+				.doFinally(signal -> log.info("{} {}: {}", progress.getOperation(), request.getServiceInstanceId(),
+					progress.summary()))
 				.doOnError(exception -> log.error(String.format("Error updating service instance with error '%s'",
 					exception.getMessage()), exception)))
-			.thenEmpty(stateRepository.saveState(request.getServiceInstanceId(),
-				OperationState.SUCCEEDED, "update service instance completed")
-				.then())
-			.onErrorResume(exception -> stateRepository.saveState(request.getServiceInstanceId(),
-				OperationState.FAILED, exception.getMessage())
-				.then());
+			.thenEmpty(saveState(request.getServiceInstanceId(), OperationState.SUCCEEDED,
+				"update service instance completed"))
+			.onErrorResume(exception -> saveState(request.getServiceInstanceId(), OperationState.FAILED,
+				exception.getMessage()));
 	}
 
 	private Flux<Void> invokeUpdateWorkflows(UpdateServiceInstanceRequest request,
@@ -204,6 +261,32 @@ public class WorkflowServiceInstanceService implements ServiceInstanceService {
 			.concatMap(workflow -> workflow.update(request, response));
 	}
 
+	private WorkflowProgress progress(String serviceInstanceId, String operation) {
+		return new WorkflowProgress(operation, description -> saveState(serviceInstanceId,
+			OperationState.IN_PROGRESS, description));
+	}
+
+	/**
+	 * Save the state of a running operation, unless a later operation for the service instance is queued behind it.
+	 * The platform polls for the state of the latest operation it requested, so the queued state must not be
+	 * replaced by the progress or outcome of the operation it is waiting for.
+	 */
+	private Mono<Void> saveState(String serviceInstanceId, OperationState state, String description) {
+		return Mono.defer(() -> {
+			if (operationExecutor.hasWaiting(serviceInstanceId)) {
+				log.debug("Not saving state {} of service instance {} because a later operation is queued", state,
+					serviceInstanceId);
+				return Mono.empty();
+			}
+			return stateRepository.saveState(serviceInstanceId, state, description).then();
+		});
+	}
+
+	private Mono<Void> queued(String serviceInstanceId, String description) {
+		return Mono.defer(() -> stateRepository.saveState(serviceInstanceId, OperationState.IN_PROGRESS, description)
+			.then());
+	}
+
 	@Override
 	public Mono<GetLastServiceOperationResponse> getLastOperation(GetLastServiceOperationRequest request) {
 		return stateRepository.getState(request.getServiceInstanceId())
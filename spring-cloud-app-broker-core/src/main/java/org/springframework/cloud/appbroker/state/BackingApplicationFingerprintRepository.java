@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.util.Collections;
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Stores the fingerprint of the effective manifest each backing application of a service instance was last created or
+ * updated with, so that an update can skip the backing applications that would not change. The default methods keep no
+ * fingerprints, so that every backing application is updated.
+ *
+ * @see org.springframework.cloud.appbroker.deployer.BackingApplicationFingerprints
+ */
+public interface BackingApplicationFingerprintRepository {
+
+	/**
+	 * @param serviceInstanceId the service instance ID
+	 * @return the fingerprints by backing application name, or an empty map if none were recorded
+	 */
+	default Mono<Map<String, String>> getFingerprints(String serviceInstanceId) {
+		return Mono.just(Collections.emptyMap());
+	}
+
+	/**
+	 * Record the fingerprints of created or updated backing applications, keeping those of other backing applications
+	 *
+	 * @param serviceInstanceId the service instance ID
+	 * @param fingerprints the fingerprints by backing application name
+	 * @return a {@code Mono} that completes once the fingerprints are recorded
+	 */
+	default Mono<Void> saveFingerprints(String serviceInstanceId, Map<String, String> fingerprints) {
+		return Mono.empty();
+	}
+
+	/**
+	 * Forget the fingerprints, once the service instance is deleted
+	 *
+	 * @param serviceInstanceId the service instance ID
+	 * @return a {@code Mono} that completes once the fingerprints are removed
+	 */
+	default Mono<Void> removeFingerprints(String serviceInstanceId) {
+		return Mono.empty();
+	}
+
+}
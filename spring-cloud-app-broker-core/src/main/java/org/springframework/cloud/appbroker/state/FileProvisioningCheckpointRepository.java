@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+/**
+ * A {@link ProvisioningCheckpointRepository} that writes each checkpoint to a file in a directory, so that checkpoints
+ * survive a restart of the broker. A create operation is not resumed on its own after a restart; checkpoints are only
+ * used when the platform repeats the create operation for the same service instance. Each change replaces the file of
+ * the service instance atomically.
+ * <p>
+ * Checkpoints hold the generated credentials of backing applications, and they are written to the files in plain
+ * text. Files are created readable by their owner only where the file system supports it, and the directory must be
+ * protected accordingly. The directory must not be shared with other broker instances.
+ */
+public class FileProvisioningCheckpointRepository implements ProvisioningCheckpointRepository {
+
+	private static final Logger LOG = Loggers.getLogger(FileProvisioningCheckpointRepository.class);
+
+	private static final String SUFFIX = ".checkpoint";
+
+	private static final String SERVICE_INSTANCE_ID = "service-instance-id";
+
+	private static final String SERVICE = "service.";
+
+	private static final String APPLICATION = "application.";
+
+	private static final String CREDENTIALS = "credentials.";
+
+	private final Map<String, ProvisioningCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+	private final Object lock = new Object();
+
+	private final Path directory;
+
+	private final Scheduler scheduler;
+
+	public FileProvisioningCheckpointRepository(Path directory) {
+		this(directory, Schedulers.boundedElastic());
+	}
+
+	/**
+	 * Construct a new {@link FileProvisioningCheckpointRepository}, reading the checkpoints found in the directory
+	 *
+	 * @param directory the directory holding the checkpoint files, created if needed
+	 * @param scheduler the scheduler files are written on
+	 */
+	public FileProvisioningCheckpointRepository(Path directory, Scheduler scheduler) {
+		this.directory = directory;
+		this.scheduler = scheduler;
+		try {
+			Files.createDirectories(directory);
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : files.filter(path -> path.toString().endsWith(SUFFIX)).collect(Collectors.toList())) {
+					recover(file);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Error reading provisioning checkpoints from " + directory, e);
+		}
+		LOG.info("Recovered {} provisioning checkpoints", checkpoints.size());
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> getCheckpoint(String serviceInstanceId) {
+		return Mono.fromCallable(() -> checkpoints.getOrDefault(serviceInstanceId, ProvisioningCheckpoint.empty()));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> saveCreatedService(String serviceInstanceId, String serviceInstanceName) {
+		return update(serviceInstanceId, checkpoint -> checkpoint.withCreatedService(serviceInstanceName));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> saveDeployedApplication(String serviceInstanceId, String applicationName) {
+		return update(serviceInstanceId, checkpoint -> checkpoint.withDeployedApplication(applicationName));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> saveCredentials(String serviceInstanceId, String applicationName,
+		Map<String, Object> environment) {
+		return update(serviceInstanceId, checkpoint -> checkpoint.withCredentials(applicationName, environment));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> removeCheckpoint(String serviceInstanceId) {
+		return Mono.fromCallable(() -> {
+			synchronized (lock) {
+				Files.deleteIfExists(file(serviceInstanceId));
+				return checkpoints.remove(serviceInstanceId);
+			}
+		})
+			.subscribeOn(scheduler);
+	}
+
+	/**
+	 * @return the number of create operations with completed steps
+	 */
+	public int getCheckpointCount() {
+		return checkpoints.size();
+	}
+
+	private Mono<ProvisioningCheckpoint> update(String serviceInstanceId,
+		UnaryOperator<ProvisioningCheckpoint> step) {
+		return Mono.fromCallable(() -> {
+			synchronized (lock) {
+				ProvisioningCheckpoint checkpoint = step.apply(
+					checkpoints.getOrDefault(serviceInstanceId, ProvisioningCheckpoint.empty()));
+				write(serviceInstanceId, checkpoint);
+				checkpoints.put(serviceInstanceId, checkpoint);
+				return checkpoint;
+			}
+		})
+			.subscribeOn(scheduler);
+	}
+
+	private void write(String serviceInstanceId, ProvisioningCheckpoint checkpoint) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(SERVICE_INSTANCE_ID, serviceInstanceId);
+		int index = 0;
+		for (String service : checkpoint.getCreatedServices()) {
+			properties.setProperty(SERVICE + index++, service);
+		}
+		index = 0;
+		for (String application : checkpoint.getDeployedApplications()) {
+			properties.setProperty(APPLICATION + index++, application);
+		}
+		index = 0;
+		for (Map.Entry<String, Map<String, Object>> credentials : checkpoint.getCredentials().entrySet()) {
+			String prefix = CREDENTIALS + index++;
+			properties.setProperty(prefix, credentials.getKey());
+			int entry = 0;
+			for (Map.Entry<String, Object> environment : credentials.getValue().entrySet()) {
+				properties.setProperty(prefix + "." + entry + ".name", environment.getKey());
+				properties.setProperty(prefix + "." + entry + ".value", String.valueOf(environment.getValue()));
+				entry++;
+			}
+		}
+
+		Path file = file(serviceInstanceId);
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.deleteIfExists(temporary);
+		if (Files.getFileStore(directory).supportsFileAttributeView("posix")) {
+			Files.createFile(temporary,
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void recover(Path file) {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		catch (IOException | IllegalArgumentException e) {
+			LOG.warn("Ignoring unreadable provisioning checkpoint " + file, e);
+			return;
+		}
+		String serviceInstanceId = properties.getProperty(SERVICE_INSTANCE_ID);
+		if (serviceInstanceId == null) {
+			LOG.warn("Ignoring provisioning checkpoint {} without a service instance ID", file);
+			return;
+		}
+
+		ProvisioningCheckpoint checkpoint = ProvisioningCheckpoint.empty();
+		for (String service : indexed(properties, SERVICE)) {
+			checkpoint = checkpoint.withCreatedService(service);
+		}
+		for (String application : indexed(properties, APPLICATION)) {
+			checkpoint = checkpoint.withDeployedApplication(application);
+		}
+		for (int index = 0; properties.getProperty(CREDENTIALS + index) != null; index++) {
+			String prefix = CREDENTIALS + index;
+			Map<String, Object> environment = new HashMap<>();
+			for (int entry = 0; properties.getProperty(prefix + "." + entry + ".name") != null; entry++) {
+				environment.put(properties.getProperty(prefix + "." + entry + ".name"),
+					properties.getProperty(prefix + "." + entry + ".value"));
+			}
+			checkpoint = checkpoint.withCredentials(properties.getProperty(prefix), environment);
+		}
+		checkpoints.put(serviceInstanceId, checkpoint);
+	}
+
+	private static List<String> indexed(Properties properties, String prefix) {
+		List<String> values = new ArrayList<>();
+		for (int index = 0; properties.getProperty(prefix + index) != null; index++) {
+			values.add(properties.getProperty(prefix + index));
+		}
+		return values;
+	}
+
+	private Path file(String serviceInstanceId) {
+		try {
+			// encoding keeps arbitrary service instance IDs inside the directory
+			return directory.resolve(URLEncoder.encode(serviceInstanceId, StandardCharsets.UTF_8.name()) + SUFFIX);
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link BackingApplicationFingerprintRepository} that keeps fingerprints in memory. After a restart of the
+ * broker, the first update of each service instance updates all of its backing applications.
+ */
+public class InMemoryBackingApplicationFingerprintRepository implements BackingApplicationFingerprintRepository {
+
+	private final Map<String, Map<String, String>> fingerprints = new ConcurrentHashMap<>();
+
+	@Override
+	public Mono<Map<String, String>> getFingerprints(String serviceInstanceId) {
+		return Mono.fromCallable(() -> fingerprints.getOrDefault(serviceInstanceId, Collections.emptyMap()));
+	}
+
+	@Override
+	public Mono<Void> saveFingerprints(String serviceInstanceId, Map<String, String> applicationFingerprints) {
+		return Mono.fromRunnable(() -> fingerprints.compute(serviceInstanceId, (id, existing) -> {
+			Map<String, String> updated = existing == null ? new HashMap<>() : new HashMap<>(existing);
+			updated.putAll(applicationFingerprints);
+			return Collections.unmodifiableMap(updated);
+		}));
+	}
+
+	@Override
+	public Mono<Void> removeFingerprints(String serviceInstanceId) {
+		return Mono.fromRunnable(() -> fingerprints.remove(serviceInstanceId));
+	}
+
+	/**
+	 * @return the number of service instances with recorded fingerprints
+	 */
+	public int getServiceInstanceCount() {
+		return fingerprints.size();
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link ProvisioningCheckpointRepository} that keeps checkpoints in memory. A create operation that fails and is
+ * repeated by the platform skips the completed steps, but checkpoints do not survive a restart of the broker.
+ */
+public class InMemoryProvisioningCheckpointRepository implements ProvisioningCheckpointRepository {
+
+	private final Map<String, ProvisioningCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+	@Override
+	public Mono<ProvisioningCheckpoint> getCheckpoint(String serviceInstanceId) {
+		return Mono.fromCallable(() -> checkpoints.getOrDefault(serviceInstanceId, ProvisioningCheckpoint.empty()));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> saveCreatedService(String serviceInstanceId, String serviceInstanceName) {
+		return update(serviceInstanceId, checkpoint -> checkpoint.withCreatedService(serviceInstanceName));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> saveDeployedApplication(String serviceInstanceId, String applicationName) {
+		return update(serviceInstanceId, checkpoint -> checkpoint.withDeployedApplication(applicationName));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> saveCredentials(String serviceInstanceId, String applicationName,
+		Map<String, Object> environment) {
+		return update(serviceInstanceId, checkpoint -> checkpoint.withCredentials(applicationName, environment));
+	}
+
+	@Override
+	public Mono<ProvisioningCheckpoint> removeCheckpoint(String serviceInstanceId) {
+		return Mono.fromSupplier(() -> checkpoints.remove(serviceInstanceId));
+	}
+
+	/**
+	 * @return the number of create operations with completed steps
+	 */
+	public int getCheckpointCount() {
+		return checkpoints.size();
+	}
+
+	private Mono<ProvisioningCheckpoint> update(String serviceInstanceId,
+		UnaryOperator<ProvisioningCheckpoint> step) {
+		return Mono.fromCallable(() -> checkpoints.compute(serviceInstanceId, (id, checkpoint) ->
+			step.apply(checkpoint == null ? ProvisioningCheckpoint.empty() : checkpoint)));
+	}
+
+}
@@ -16,10 +16,12 @@
 
 package org.springframework.cloud.appbroker.state;
 
-import java.sql.Timestamp;
-import java.time.Instant;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import reactor.core.publisher.Mono;
@@ -27,53 +29,145 @@ import reactor.core.publisher.Mono;
 import org.springframework.cloud.servicebroker.model.instance.OperationState;
 
 /**
+ * A {@link ServiceInstanceBindingStateRepository} that keeps states in an {@link InMemoryStateStore}. Like
+ * {@link InMemoryServiceInstanceStateRepository}, every operation is a single lookup or update of a concurrent map,
+ * and states of completed operations can be evicted.
+ * <p>
+ * The binding IDs of each service instance are indexed, so that the states of all bindings of a service instance
+ * can be found or removed without scanning the states of other service instances.
+ *
  * @author Roy Clarkson
  */
 public class InMemoryServiceInstanceBindingStateRepository implements ServiceInstanceBindingStateRepository {
 
-	private final Map<BindingKey, ServiceInstanceState> states = new ConcurrentHashMap<>();
+	private final InMemoryStateStore<BindingKey> states;
+
+	private final Map<String, Set<String>> bindingIdsByServiceInstance = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct a new {@link InMemoryServiceInstanceBindingStateRepository} that keeps states until they are removed
+	 */
+	public InMemoryServiceInstanceBindingStateRepository() {
+		this.states = InMemoryStateStore.unbounded();
+	}
+
+	/**
+	 * Construct a new {@link InMemoryServiceInstanceBindingStateRepository} that evicts states of completed operations
+	 *
+	 * @param properties the eviction settings
+	 */
+	public InMemoryServiceInstanceBindingStateRepository(InMemoryStateRepositoryProperties properties) {
+		this(properties, Clock.systemUTC());
+	}
+
+	public InMemoryServiceInstanceBindingStateRepository(InMemoryStateRepositoryProperties properties, Clock clock) {
+		this.states = new InMemoryStateStore<>(properties.getTerminalStateTimeToLive(),
+			properties.getMaxTerminalStates(), clock, this::unindex);
+	}
 
 	@Override
 	public Mono<ServiceInstanceState> saveState(String serviceInstanceId, String bindingId, OperationState state,
 		String description) {
-		return Mono.just(new BindingKey(serviceInstanceId, bindingId))
-			.flatMap(bindingKey -> Mono
-				.just(new ServiceInstanceState(state, description, new Timestamp(Instant.now().toEpochMilli())))
-				.flatMap(
-					serviceInstanceState -> Mono.fromCallable(() -> this.states.put(bindingKey, serviceInstanceState))
-						.thenReturn(serviceInstanceState)));
+		return Mono.fromCallable(() -> {
+			ServiceInstanceState serviceInstanceState =
+				this.states.save(new BindingKey(serviceInstanceId, bindingId), state, description);
+			index(serviceInstanceId, bindingId);
+			return serviceInstanceState;
+		});
 	}
 
 	@Override
 	public Mono<ServiceInstanceState> getState(String serviceInstanceId, String bindingId) {
-		return Mono.just(new BindingKey(serviceInstanceId, bindingId))
-			.flatMap(bindingKey -> containsState(bindingKey)
-				.flatMap(contains -> Mono.defer(() -> {
-					if (contains) {
-						return Mono.fromCallable(() -> this.states.get(bindingKey));
-					}
-					else {
-						return Mono.error(new IllegalArgumentException("Unknown binding " + bindingKey));
-					}
-				})));
+		return Mono.defer(() -> {
+			BindingKey bindingKey = new BindingKey(serviceInstanceId, bindingId);
+			return found(bindingKey, this.states.get(bindingKey));
+		});
 	}
 
 	@Override
 	public Mono<ServiceInstanceState> removeState(String serviceInstanceId, String bindingId) {
-		return Mono.just(new BindingKey(serviceInstanceId, bindingId))
-			.flatMap(bindingKey -> containsState(bindingKey)
-				.flatMap(contains -> Mono.defer(() -> {
-					if (contains) {
-						return Mono.fromCallable(() -> this.states.remove(bindingKey));
-					}
-					else {
-						return Mono.error(new IllegalArgumentException("Unknown binding " + bindingKey));
-					}
-				})));
+		return Mono.defer(() -> {
+			BindingKey bindingKey = new BindingKey(serviceInstanceId, bindingId);
+			ServiceInstanceState removed = this.states.remove(bindingKey);
+			unindex(bindingKey);
+			return found(bindingKey, removed);
+		});
 	}
 
-	private Mono<Boolean> containsState(BindingKey bindingKey) {
-		return Mono.fromCallable(() -> this.states.containsKey(bindingKey));
+	@Override
+	public Mono<Map<String, ServiceInstanceState>> getStates(String serviceInstanceId) {
+		return Mono.fromCallable(() -> {
+			Set<String> bindingIds = this.bindingIdsByServiceInstance.getOrDefault(serviceInstanceId,
+				Collections.emptySet());
+			Map<String, ServiceInstanceState> found = new HashMap<>(bindingIds.size());
+			for (String bindingId : bindingIds) {
+				ServiceInstanceState state = this.states.get(new BindingKey(serviceInstanceId, bindingId));
+				if (state != null) {
+					found.put(bindingId, state);
+				}
+			}
+			return found;
+		});
+	}
+
+	@Override
+	public Mono<Map<String, ServiceInstanceState>> removeStates(String serviceInstanceId) {
+		return Mono.fromCallable(() -> {
+			Set<String> bindingIds = this.bindingIdsByServiceInstance.getOrDefault(serviceInstanceId,
+				Collections.emptySet());
+			Map<String, ServiceInstanceState> removed = new HashMap<>(bindingIds.size());
+			for (String bindingId : bindingIds) {
+				BindingKey bindingKey = new BindingKey(serviceInstanceId, bindingId);
+				ServiceInstanceState state = this.states.remove(bindingKey);
+				if (state != null) {
+					removed.put(bindingId, state);
+				}
+				unindex(bindingKey);
+			}
+			return removed;
+		});
+	}
+
+	/**
+	 * @return the number of states currently held
+	 */
+	public int getResidentCount() {
+		return this.states.getResidentCount();
+	}
+
+	/**
+	 * @return the number of states evicted since the repository was created
+	 */
+	public long getEvictionCount() {
+		return this.states.getEvictionCount();
+	}
+
+	private void index(String serviceInstanceId, String bindingId) {
+		this.bindingIdsByServiceInstance.compute(serviceInstanceId, (id, bindingIds) -> {
+			Set<String> indexed = bindingIds == null ? ConcurrentHashMap.newKeySet() : bindingIds;
+			indexed.add(bindingId);
+			return indexed;
+		});
+	}
+
+	/**
+	 * Remove a binding from the index unless its state was saved again concurrently, in which case the saving thread
+	 * keeps it indexed
+	 */
+	private void unindex(BindingKey bindingKey) {
+		this.bindingIdsByServiceInstance.computeIfPresent(bindingKey.getServiceInstanceId(), (id, bindingIds) -> {
+			if (this.states.get(bindingKey) == null) {
+				bindingIds.remove(bindingKey.getBindingId());
+			}
+			return bindingIds.isEmpty() ? null : bindingIds;
+		});
+	}
+
+	private static Mono<ServiceInstanceState> found(BindingKey bindingKey, ServiceInstanceState state) {
+		if (state == null) {
+			return Mono.error(new IllegalArgumentException("Unknown binding " + bindingKey));
+		}
+		return Mono.just(state);
 	}
 
 	private static class BindingKey {
@@ -82,6 +176,8 @@ public class InMemoryServiceInstanceBindingStateRepository implements ServiceIns
 
 		private final String bindingId;
 
+		private final int hash;
+
 		public String getServiceInstanceId() {
 			return this.serviceInstanceId;
 		}
@@ -93,6 +189,7 @@ public class InMemoryServiceInstanceBindingStateRepository implements ServiceIns
 		public BindingKey(String serviceInstanceId, String bindingId) {
 			this.serviceInstanceId = serviceInstanceId;
 			this.bindingId = bindingId;
+			this.hash = 31 * Objects.hashCode(serviceInstanceId) + Objects.hashCode(bindingId);
 		}
 
 		@Override
@@ -104,13 +201,14 @@ public class InMemoryServiceInstanceBindingStateRepository implements ServiceIns
 				return false;
 			}
 			BindingKey that = (BindingKey) obj;
-			return Objects.equals(this.bindingId, that.bindingId) &&
+			return this.hash == that.hash &&
+				Objects.equals(this.bindingId, that.bindingId) &&
 				Objects.equals(this.serviceInstanceId, that.serviceInstanceId);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(serviceInstanceId, bindingId);
+			return hash;
 		}
 
 		@Override
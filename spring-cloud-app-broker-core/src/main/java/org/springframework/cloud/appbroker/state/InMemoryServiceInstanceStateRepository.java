@@ -16,55 +16,76 @@
 
 package org.springframework.cloud.appbroker.state;
 
-import java.sql.Timestamp;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Clock;
 
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.servicebroker.model.instance.OperationState;
 
+/**
+ * A {@link ServiceInstanceStateRepository} that keeps states in an {@link InMemoryStateStore}. Each state is built
+ * once when it is saved and handed out as is, and every operation is a single lookup or update of a concurrent map,
+ * so polling for the last operation neither locks nor copies. States of completed operations can be evicted.
+ */
 public class InMemoryServiceInstanceStateRepository implements ServiceInstanceStateRepository {
 
-	private final Map<String, ServiceInstanceState> states = new ConcurrentHashMap<>();
+	private final InMemoryStateStore<String> states;
+
+	/**
+	 * Construct a new {@link InMemoryServiceInstanceStateRepository} that keeps states until they are removed
+	 */
+	public InMemoryServiceInstanceStateRepository() {
+		this.states = InMemoryStateStore.unbounded();
+	}
+
+	/**
+	 * Construct a new {@link InMemoryServiceInstanceStateRepository} that evicts states of completed operations
+	 *
+	 * @param properties the eviction settings
+	 */
+	public InMemoryServiceInstanceStateRepository(InMemoryStateRepositoryProperties properties) {
+		this(properties, Clock.systemUTC());
+	}
+
+	public InMemoryServiceInstanceStateRepository(InMemoryStateRepositoryProperties properties, Clock clock) {
+		this.states = new InMemoryStateStore<>(properties.getTerminalStateTimeToLive(),
+			properties.getMaxTerminalStates(), clock);
+	}
 
 	@Override
 	public Mono<ServiceInstanceState> saveState(String serviceInstanceId, OperationState state, String description) {
-		return Mono.just(new ServiceInstanceState(state, description, new Timestamp(Instant.now().toEpochMilli())))
-			.flatMap(serviceInstanceState -> Mono
-				.fromCallable(() -> this.states.put(serviceInstanceId, serviceInstanceState))
-				.thenReturn(serviceInstanceState));
+		return Mono.fromCallable(() -> this.states.save(serviceInstanceId, state, description));
 	}
 
 	@Override
 	public Mono<ServiceInstanceState> getState(String serviceInstanceId) {
-		return containsState(serviceInstanceId)
-			.flatMap(contains -> Mono.defer(() -> {
-				if (contains) {
-					return Mono.fromCallable(() -> this.states.get(serviceInstanceId));
-				}
-				else {
-					return Mono.error(new IllegalArgumentException("Unknown service instance ID " + serviceInstanceId));
-				}
-			}));
+		return Mono.defer(() -> found(serviceInstanceId, this.states.get(serviceInstanceId)));
 	}
 
 	@Override
 	public Mono<ServiceInstanceState> removeState(String serviceInstanceId) {
-		return containsState(serviceInstanceId)
-			.flatMap(contains -> Mono.defer(() -> {
-				if (contains) {
-					return Mono.fromCallable(() -> this.states.remove(serviceInstanceId));
-				}
-				else {
-					return Mono.error(new IllegalArgumentException("Unknown service instance ID " + serviceInstanceId));
-				}
-			}));
+		return Mono.defer(() -> found(serviceInstanceId, this.states.remove(serviceInstanceId)));
+	}
+
+	/**
+	 * @return the number of states currently held
+	 */
+	public int getResidentCount() {
+		return this.states.getResidentCount();
+	}
+
+	/**
+	 * @return the number of states evicted since the repository was created
+	 */
+	public long getEvictionCount() {
+		return this.states.getEvictionCount();
 	}
 
-	private Mono<Boolean> containsState(String serviceInstanceId) {
-		return Mono.fromCallable(() -> this.states.containsKey(serviceInstanceId));
+	private static Mono<ServiceInstanceState> found(String serviceInstanceId, ServiceInstanceState state) {
+		if (state == null) {
+			return Mono.error(new IllegalArgumentException("Unknown service instance ID " + serviceInstanceId));
+		}
+		return Mono.just(state);
 	}
 
 }
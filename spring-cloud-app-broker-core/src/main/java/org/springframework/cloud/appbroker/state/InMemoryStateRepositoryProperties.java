@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory state repositories
+ */
+public class InMemoryStateRepositoryProperties {
+
+	/**
+	 * How long the states of succeeded or failed operations are kept. States are kept until they are removed if not
+	 * set.
+	 */
+	private Duration terminalStateTimeToLive;
+
+	/**
+	 * The maximum number of succeeded or failed operation states kept per repository. The least recently used states
+	 * are evicted first. There is no maximum if set to 0.
+	 */
+	private int maxTerminalStates;
+
+	public Duration getTerminalStateTimeToLive() {
+		return terminalStateTimeToLive;
+	}
+
+	public void setTerminalStateTimeToLive(Duration terminalStateTimeToLive) {
+		this.terminalStateTimeToLive = terminalStateTimeToLive;
+	}
+
+	public int getMaxTerminalStates() {
+		return maxTerminalStates;
+	}
+
+	public void setMaxTerminalStates(int maxTerminalStates) {
+		this.maxTerminalStates = maxTerminalStates;
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+/**
+ * Operation states kept in memory by the in-memory state repositories. States of completed operations (succeeded
+ * or failed) can be evicted once they are older than a time-to-live, or once there are more of them than a maximum,
+ * in which case the least recently used (saved or read) are evicted first. States of operations in progress are never
+ * evicted.
+ * <p>
+ * Reads of operations in progress are a single lock-free map lookup. Reads of completed operations also refresh their
+ * recency when there is a maximum. Eviction runs as part of saving and removing states.
+ *
+ * @param <K> the key type
+ */
+public class InMemoryStateStore<K> {
+
+	/**
+	 * Sweep stale entries out of the expiry queue once it holds this many times more entries than there are
+	 * completed states
+	 */
+	private static final int STALE_ENTRY_FACTOR = 2;
+
+	private final Map<K, ServiceInstanceState> states = new ConcurrentHashMap<>();
+
+	/**
+	 * Completed states in access order, guarded by synchronizing on the map
+	 */
+	private final LinkedHashMap<K, ServiceInstanceState> terminalStates = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Completed states in the order they were saved, used to find expired states
+	 */
+	private final Queue<TerminalState<K>> expiryQueue = new ArrayDeque<>();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private final long timeToLiveMillis;
+
+	private final int maxTerminalStates;
+
+	private final Clock clock;
+
+	private final Consumer<K> evictionListener;
+
+	/**
+	 * Construct a new {@link InMemoryStateStore}
+	 *
+	 * @param terminalStateTimeToLive how long completed operation states are kept, or {@literal null} to keep them
+	 * 	until they are removed
+	 * @param maxTerminalStates the maximum number of completed operation states kept, or {@literal 0} for no maximum
+	 * @param clock the clock used to timestamp states
+	 */
+	public InMemoryStateStore(Duration terminalStateTimeToLive, int maxTerminalStates, Clock clock) {
+		this(terminalStateTimeToLive, maxTerminalStates, clock, key -> {
+		});
+	}
+
+	/**
+	 * Construct a new {@link InMemoryStateStore}
+	 *
+	 * @param terminalStateTimeToLive how long completed operation states are kept, or {@literal null} to keep them
+	 * 	until they are removed
+	 * @param maxTerminalStates the maximum number of completed operation states kept, or {@literal 0} for no maximum
+	 * @param clock the clock used to timestamp states
+	 * @param evictionListener called with the key of each evicted state
+	 */
+	public InMemoryStateStore(Duration terminalStateTimeToLive, int maxTerminalStates, Clock clock,
+		Consumer<K> evictionListener) {
+		if (maxTerminalStates < 0) {
+			throw new IllegalArgumentException("maxTerminalStates must not be negative");
+		}
+		this.timeToLiveMillis = terminalStateTimeToLive == null ? Long.MAX_VALUE : terminalStateTimeToLive.toMillis();
+		this.maxTerminalStates = maxTerminalStates == 0 ? Integer.MAX_VALUE : maxTerminalStates;
+		this.clock = clock;
+		this.evictionListener = evictionListener;
+	}
+
+	/**
+	 * Create a store that never evicts states
+	 *
+	 * @return the store
+	 */
+	public static <K> InMemoryStateStore<K> unbounded() {
+		return new InMemoryStateStore<>(null, 0, Clock.systemUTC());
+	}
+
+	public ServiceInstanceState save(K key, OperationState operationState, String description) {
+		ServiceInstanceState state = new ServiceInstanceState(operationState, description,
+			new Timestamp(clock.millis()));
+		if (!isEvicting()) {
+			states.put(key, state);
+			return state;
+		}
+		synchronized (terminalStates) {
+			states.put(key, state);
+			if (isTerminal(state)) {
+				terminalStates.put(key, state);
+				if (isExpiring()) {
+					expiryQueue.offer(new TerminalState<>(key, state));
+				}
+			}
+			else {
+				terminalStates.remove(key);
+			}
+		}
+		evict();
+		return state;
+	}
+
+	public ServiceInstanceState get(K key) {
+		ServiceInstanceState state = states.get(key);
+		if (isTerminal(state) && isCapped()) {
+			synchronized (terminalStates) {
+				terminalStates.get(key);
+			}
+		}
+		return state;
+	}
+
+	public ServiceInstanceState remove(K key) {
+		if (!isEvicting()) {
+			return states.remove(key);
+		}
+		ServiceInstanceState previous;
+		synchronized (terminalStates) {
+			previous = states.remove(key);
+			terminalStates.remove(key);
+		}
+		evict();
+		return previous;
+	}
+
+	/**
+	 * Evict completed operation states that expired or exceed the maximum
+	 */
+	public void evict() {
+		if (!isEvicting()) {
+			return;
+		}
+		List<K> evicted = new ArrayList<>();
+		synchronized (terminalStates) {
+			long expiredBefore = clock.millis() - timeToLiveMillis;
+			for (TerminalState<K> head = expiryQueue.peek(); head != null; head = expiryQueue.peek()) {
+				boolean stale = states.get(head.getKey()) != head.getState();
+				boolean expired = head.getState().getLastUpdated().getTime() < expiredBefore;
+				if (!stale && !expired) {
+					break;
+				}
+				expiryQueue.remove();
+				if (!stale) {
+					terminalStates.remove(head.getKey());
+					states.remove(head.getKey());
+					evicted.add(head.getKey());
+				}
+			}
+			Iterator<K> leastRecentlyUsed = terminalStates.keySet().iterator();
+			while (terminalStates.size() > maxTerminalStates) {
+				K key = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				states.remove(key);
+				evicted.add(key);
+			}
+			if (expiryQueue.size() > STALE_ENTRY_FACTOR * Math.max(terminalStates.size(), 1)) {
+				expiryQueue.removeIf(terminalState ->
+					states.get(terminalState.getKey()) != terminalState.getState());
+			}
+		}
+		evictionCount.addAndGet(evicted.size());
+		evicted.forEach(evictionListener);
+	}
+
+	/**
+	 * @return the number of states currently held
+	 */
+	public int getResidentCount() {
+		return states.size();
+	}
+
+	/**
+	 * @return the number of completed operation states currently held that may be evicted
+	 */
+	public int getTerminalCount() {
+		synchronized (terminalStates) {
+			return terminalStates.size();
+		}
+	}
+
+	/**
+	 * @return the number of states evicted since the store was created
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private boolean isExpiring() {
+		return timeToLiveMillis != Long.MAX_VALUE;
+	}
+
+	private boolean isCapped() {
+		return maxTerminalStates != Integer.MAX_VALUE;
+	}
+
+	private boolean isEvicting() {
+		return timeToLiveMillis != Long.MAX_VALUE || maxTerminalStates != Integer.MAX_VALUE;
+	}
+
+	private boolean isTerminal(ServiceInstanceState state) {
+		return state != null && isEvicting() &&
+			(state.getOperationState() == OperationState.SUCCEEDED ||
+				state.getOperationState() == OperationState.FAILED);
+	}
+
+	private static class TerminalState<K> {
+
+		private final K key;
+
+		private final ServiceInstanceState state;
+
+		public TerminalState(K key, ServiceInstanceState state) {
+			this.key = key;
+			this.state = state;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public ServiceInstanceState getState() {
+			return state;
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+/**
+ * A {@link ServiceInstanceStateRepository} that keeps states in memory and records every change in a
+ * {@link ServiceInstanceStateJournal}, so that the states survive a restart of the broker. Journal writes run on the
+ * given {@link Scheduler}, so callers on event loop threads are never blocked by file IO. The journal is rotated and
+ * compacted into a snapshot in the background once it grows beyond a threshold.
+ * <p>
+ * The journal files must not be shared between broker instances, so this repository is only suitable for brokers
+ * running a single instance.
+ */
+public class JournalServiceInstanceStateRepository implements ServiceInstanceStateRepository, Closeable {
+
+	private static final Logger LOG = Loggers.getLogger(JournalServiceInstanceStateRepository.class);
+
+	private final Map<String, ServiceInstanceState> states = new ConcurrentHashMap<>();
+
+	private final Object lock = new Object();
+
+	private final ServiceInstanceStateJournal journal;
+
+	private final long compactionThreshold;
+
+	private final Scheduler scheduler;
+
+	private final AtomicBoolean compacting = new AtomicBoolean();
+
+	private final AtomicLong compactionCount = new AtomicLong();
+
+	private final long recoveredCount;
+
+	public JournalServiceInstanceStateRepository(JournalStateRepositoryProperties properties) {
+		this(new ServiceInstanceStateJournal(Paths.get(properties.getDirectory()), properties.getInitialJournalSize()),
+			properties.getCompactionThreshold(), Schedulers.boundedElastic());
+	}
+
+	/**
+	 * Construct a new {@link JournalServiceInstanceStateRepository}, recovering the states recorded in the journal
+	 *
+	 * @param journal the journal, not yet opened
+	 * @param compactionThreshold the journal size in bytes that triggers a compaction
+	 * @param scheduler the scheduler journal writes and compactions run on
+	 */
+	public JournalServiceInstanceStateRepository(ServiceInstanceStateJournal journal, long compactionThreshold,
+		Scheduler scheduler) {
+		this.journal = journal;
+		this.compactionThreshold = compactionThreshold;
+		this.scheduler = scheduler;
+
+		AtomicLong recovered = new AtomicLong();
+		int replayedJournals;
+		try {
+			replayedJournals = journal.open((serviceInstanceId, state) -> {
+				recovered.incrementAndGet();
+				if (state == null) {
+					states.remove(serviceInstanceId);
+				}
+				else {
+					states.put(serviceInstanceId, state);
+				}
+			});
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Error recovering service instance states from journal", e);
+		}
+		this.recoveredCount = recovered.get();
+		LOG.info("Recovered {} service instance states from {} journal records", states.size(), recoveredCount);
+
+		if (replayedJournals > 0) {
+			compact();
+		}
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> saveState(String serviceInstanceId, OperationState state, String description) {
+		return Mono.fromCallable(() -> {
+			ServiceInstanceState serviceInstanceState =
+				new ServiceInstanceState(state, description, new Timestamp(Instant.now().toEpochMilli()));
+			synchronized (lock) {
+				journal.append(serviceInstanceId, serviceInstanceState);
+				states.put(serviceInstanceId, serviceInstanceState);
+			}
+			compactIfNeeded();
+			return serviceInstanceState;
+		})
+			.subscribeOn(scheduler);
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> getState(String serviceInstanceId) {
+		return Mono.defer(() -> {
+			ServiceInstanceState state = states.get(serviceInstanceId);
+			return state == null ? unknown(serviceInstanceId) : Mono.just(state);
+		});
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> removeState(String serviceInstanceId) {
+		return Mono.fromCallable(() -> {
+			ServiceInstanceState removed;
+			synchronized (lock) {
+				removed = states.get(serviceInstanceId);
+				if (removed != null) {
+					journal.append(serviceInstanceId, null);
+					states.remove(serviceInstanceId);
+				}
+			}
+			if (removed != null) {
+				compactIfNeeded();
+			}
+			return removed;
+		})
+			.subscribeOn(scheduler)
+			.switchIfEmpty(Mono.defer(() -> unknown(serviceInstanceId)));
+	}
+
+	/**
+	 * Start a new journal and write a snapshot of the current states in the background
+	 */
+	public void compact() {
+		if (!compacting.compareAndSet(false, true)) {
+			return;
+		}
+
+		scheduler.schedule(() -> {
+			try {
+				Map<String, ServiceInstanceState> snapshot;
+				long generation;
+				synchronized (lock) {
+					generation = journal.rotate();
+					snapshot = new HashMap<>(states);
+				}
+				journal.writeSnapshot(snapshot, generation);
+				compactionCount.incrementAndGet();
+				LOG.debug("Compacted service instance state journal into {} states", snapshot.size());
+			}
+			catch (IOException e) {
+				LOG.error("Error compacting service instance state journal, it will be replayed on restart", e);
+			}
+			finally {
+				compacting.set(false);
+			}
+		});
+	}
+
+	/**
+	 * @return the number of journal records replayed when the repository was created
+	 */
+	public long getRecoveredCount() {
+		return recoveredCount;
+	}
+
+	/**
+	 * @return the number of completed compactions
+	 */
+	public long getCompactionCount() {
+		return compactionCount.get();
+	}
+
+	/**
+	 * @return the number of bytes in the current journal
+	 */
+	public int getJournalSize() {
+		synchronized (lock) {
+			return journal.getJournalSize();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			journal.close();
+		}
+	}
+
+	private void compactIfNeeded() {
+		if (!compacting.get() && getJournalSize() >= compactionThreshold) {
+			compact();
+		}
+	}
+
+	private static Mono<ServiceInstanceState> unknown(String serviceInstanceId) {
+		return Mono.error(new IllegalArgumentException("Unknown service instance ID " + serviceInstanceId));
+	}
+
+}
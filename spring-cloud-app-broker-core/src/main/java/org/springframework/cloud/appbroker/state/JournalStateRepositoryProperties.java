@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+/**
+ * Configuration properties for the {@link JournalServiceInstanceStateRepository}
+ */
+public class JournalStateRepositoryProperties {
+
+	/**
+	 * The directory holding the journal and snapshot files. It must not be shared with other broker instances.
+	 */
+	private String directory = "appbroker-state";
+
+	/**
+	 * The initial size in bytes of a memory-mapped journal file. Journal files grow as needed.
+	 */
+	private int initialJournalSize = 16 * 1024 * 1024;
+
+	/**
+	 * The journal size in bytes at which the journal is compacted into a snapshot.
+	 */
+	private long compactionThreshold = 64 * 1024 * 1024;
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public int getInitialJournalSize() {
+		return initialJournalSize;
+	}
+
+	public void setInitialJournalSize(int initialJournalSize) {
+		this.initialJournalSize = initialJournalSize;
+	}
+
+	public long getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	public void setCompactionThreshold(long compactionThreshold) {
+		this.compactionThreshold = compactionThreshold;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The steps of a service instance create operation that have completed: the backing services created, the backing
+ * applications deployed, and the credentials generated for each backing application. When the platform repeats a
+ * create operation for the same service instance, for example after a failure, these steps are skipped.
+ * <p>
+ * Checkpoints are immutable; each completed step produces a new checkpoint.
+ */
+public final class ProvisioningCheckpoint {
+
+	private static final ProvisioningCheckpoint EMPTY = new ProvisioningCheckpoint(Collections.emptySet(),
+		Collections.emptySet(), Collections.emptyMap());
+
+	private final Set<String> createdServices;
+
+	private final Set<String> deployedApplications;
+
+	private final Map<String, Map<String, Object>> credentials;
+
+	private ProvisioningCheckpoint(Set<String> createdServices, Set<String> deployedApplications,
+		Map<String, Map<String, Object>> credentials) {
+		this.createdServices = Collections.unmodifiableSet(createdServices);
+		this.deployedApplications = Collections.unmodifiableSet(deployedApplications);
+		this.credentials = Collections.unmodifiableMap(credentials);
+	}
+
+	/**
+	 * @return a checkpoint with no completed steps
+	 */
+	public static ProvisioningCheckpoint empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * @return the service instance names of the backing services that were created
+	 */
+	public Set<String> getCreatedServices() {
+		return createdServices;
+	}
+
+	/**
+	 * @return the names of the backing applications that were deployed
+	 */
+	public Set<String> getDeployedApplications() {
+		return deployedApplications;
+	}
+
+	/**
+	 * @return the environment entries added by credential providers, by backing application name
+	 */
+	public Map<String, Map<String, Object>> getCredentials() {
+		return credentials;
+	}
+
+	public boolean isServiceCreated(String serviceInstanceName) {
+		return createdServices.contains(serviceInstanceName);
+	}
+
+	public boolean isApplicationDeployed(String applicationName) {
+		return deployedApplications.contains(applicationName);
+	}
+
+	public boolean hasCredentials(String applicationName) {
+		return credentials.containsKey(applicationName);
+	}
+
+	/**
+	 * @param applicationName the backing application name
+	 * @return the environment entries added by credential providers, or {@literal null} if no credentials were
+	 * 	generated for the application
+	 */
+	public Map<String, Object> getCredentials(String applicationName) {
+		return credentials.get(applicationName);
+	}
+
+	public boolean isEmpty() {
+		return createdServices.isEmpty() && deployedApplications.isEmpty() && credentials.isEmpty();
+	}
+
+	/**
+	 * @param serviceInstanceName the service instance name of the created backing service
+	 * @return a new checkpoint that also records the backing service as created
+	 */
+	public ProvisioningCheckpoint withCreatedService(String serviceInstanceName) {
+		Set<String> services = new HashSet<>(createdServices);
+		services.add(serviceInstanceName);
+		return new ProvisioningCheckpoint(services, deployedApplications, credentials);
+	}
+
+	/**
+	 * @param applicationName the name of the deployed backing application
+	 * @return a new checkpoint that also records the backing application as deployed
+	 */
+	public ProvisioningCheckpoint withDeployedApplication(String applicationName) {
+		Set<String> applications = new HashSet<>(deployedApplications);
+		applications.add(applicationName);
+		return new ProvisioningCheckpoint(createdServices, applications, credentials);
+	}
+
+	/**
+	 * @param applicationName the backing application name
+	 * @param environment the environment entries added by credential providers, possibly empty
+	 * @return a new checkpoint that also records the credentials of the backing application
+	 */
+	public ProvisioningCheckpoint withCredentials(String applicationName, Map<String, Object> environment) {
+		Map<String, Map<String, Object>> allCredentials = new HashMap<>(credentials);
+		allCredentials.put(applicationName, Collections.unmodifiableMap(new HashMap<>(environment)));
+		return new ProvisioningCheckpoint(createdServices, deployedApplications, allCredentials);
+	}
+
+	@Override
+	public String toString() {
+		return "ProvisioningCheckpoint{" +
+			"createdServices=" + createdServices +
+			", deployedApplications=" + deployedApplications +
+			", credentials=" + credentials.keySet() +
+			'}';
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Stores the {@link ProvisioningCheckpoint} of each service instance create operation, so that a repeated create
+ * operation can skip the steps that already completed. The default methods keep no checkpoints.
+ */
+public interface ProvisioningCheckpointRepository {
+
+	/**
+	 * @param serviceInstanceId the service instance ID
+	 * @return the checkpoint, or an empty checkpoint if no step completed
+	 */
+	default Mono<ProvisioningCheckpoint> getCheckpoint(String serviceInstanceId) {
+		return Mono.just(ProvisioningCheckpoint.empty());
+	}
+
+	default Mono<ProvisioningCheckpoint> saveCreatedService(String serviceInstanceId, String serviceInstanceName) {
+		return Mono.empty();
+	}
+
+	default Mono<ProvisioningCheckpoint> saveDeployedApplication(String serviceInstanceId, String applicationName) {
+		return Mono.empty();
+	}
+
+	default Mono<ProvisioningCheckpoint> saveCredentials(String serviceInstanceId, String applicationName,
+		Map<String, Object> environment) {
+		return Mono.empty();
+	}
+
+	/**
+	 * Forget the completed steps, once the create operation succeeded or the service instance is deleted
+	 *
+	 * @param serviceInstanceId the service instance ID
+	 * @return the removed checkpoint, or empty if there was none
+	 */
+	default Mono<ProvisioningCheckpoint> removeCheckpoint(String serviceInstanceId) {
+		return Mono.empty();
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.appbroker.state;
 
+import java.util.Map;
+
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.servicebroker.model.instance.OperationState;
@@ -38,4 +40,24 @@ public interface ServiceInstanceBindingStateRepository {
 		return Mono.empty();
 	}
 
+	/**
+	 * Get the states of all bindings of a service instance
+	 *
+	 * @param serviceInstanceId the service instance ID
+	 * @return the states, keyed by binding ID
+	 */
+	default Mono<Map<String, ServiceInstanceState>> getStates(String serviceInstanceId) {
+		return Mono.error(new UnsupportedOperationException("getStates() not implemented"));
+	}
+
+	/**
+	 * Remove the states of all bindings of a service instance, e.g. when the service instance is deleted
+	 *
+	 * @param serviceInstanceId the service instance ID
+	 * @return the removed states, keyed by binding ID
+	 */
+	default Mono<Map<String, ServiceInstanceState>> removeStates(String serviceInstanceId) {
+		return Mono.error(new UnsupportedOperationException("removeStates() not implemented"));
+	}
+
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+/**
+ * An append-only journal of {@link ServiceInstanceState} changes, kept in memory-mapped files in a directory.
+ * <p>
+ * Each change is appended to the current journal file as a length-prefixed, checksummed record. Journals are
+ * numbered by generation. A snapshot of generation {@code n} holds the complete state before journal {@code n} was
+ * started, so the state is recovered by reading the newest snapshot and replaying the journals of the same or a
+ * later generation. Reading stops at the first incomplete or corrupt record of a file, which is where a crash
+ * interrupted the last append.
+ * <p>
+ * This class is not thread-safe; callers must serialize {@link #append}, {@link #rotate} and {@link #close}.
+ * {@link #writeSnapshot} only touches files of earlier generations and may run concurrently with appends.
+ */
+public class ServiceInstanceStateJournal implements Closeable {
+
+	private static final String JOURNAL_PREFIX = "journal-";
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+	private static final String SUFFIX = ".log";
+
+	private static final byte SAVE = 1;
+
+	private static final byte REMOVE = 2;
+
+	private static final int HEADER_SIZE = 8;
+
+	private static final int NULL_LENGTH = -1;
+
+	private static final OperationState[] OPERATION_STATES = OperationState.values();
+
+	private final Path directory;
+
+	private final int initialSize;
+
+	private long generation;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer journal;
+
+	/**
+	 * Construct a new {@link ServiceInstanceStateJournal}. The journal must be opened with {@link #open} before
+	 * changes can be appended.
+	 *
+	 * @param directory the directory holding the journal and snapshot files
+	 * @param initialSize the initial size of a journal file in bytes; files grow as needed
+	 */
+	public ServiceInstanceStateJournal(Path directory, int initialSize) {
+		if (initialSize < HEADER_SIZE) {
+			throw new IllegalArgumentException("initialSize must be at least " + HEADER_SIZE + " bytes");
+		}
+		this.directory = directory;
+		this.initialSize = initialSize;
+	}
+
+	/**
+	 * Recover the state from the newest snapshot and the journals written after it, then start a new journal
+	 *
+	 * @param consumer receives each recovered change in order; the state is {@literal null} for a removal
+	 * @return the number of journal generations replayed, which is a hint that the journal should be compacted
+	 * @throws IOException if the files can not be read or the new journal can not be created
+	 */
+	public int open(BiConsumer<String, ServiceInstanceState> consumer) throws IOException {
+		Files.createDirectories(directory);
+
+		long snapshotGeneration = latestGeneration(SNAPSHOT_PREFIX);
+		if (snapshotGeneration >= 0) {
+			read(file(SNAPSHOT_PREFIX, snapshotGeneration), consumer);
+		}
+
+		List<Long> journalGenerations = generations(JOURNAL_PREFIX).stream()
+			.filter(journalGeneration -> journalGeneration >= snapshotGeneration)
+			.collect(Collectors.toList());
+		for (Long journalGeneration : journalGenerations) {
+			read(file(JOURNAL_PREFIX, journalGeneration), consumer);
+		}
+
+		long lastGeneration = journalGenerations.isEmpty() ? snapshotGeneration :
+			journalGenerations.get(journalGenerations.size() - 1);
+		startJournal(Math.max(lastGeneration, snapshotGeneration) + 1);
+		return journalGenerations.size();
+	}
+
+	/**
+	 * Append a change to the current journal
+	 *
+	 * @param serviceInstanceId the service instance ID
+	 * @param state the new state, or {@literal null} if the state was removed
+	 * @throws IOException if the journal needs to grow and can not be remapped
+	 */
+	public void append(String serviceInstanceId, ServiceInstanceState state) throws IOException {
+		byte[] record = encode(serviceInstanceId, state);
+		ensureCapacity(HEADER_SIZE + record.length);
+
+		int position = journal.position();
+		journal.position(position + HEADER_SIZE);
+		journal.put(record);
+		journal.putInt(position + Integer.BYTES, checksum(record));
+		// the length is written last, so that a partially written record is never read back
+		journal.putInt(position, record.length);
+	}
+
+	/**
+	 * Close the current journal and start the next generation
+	 *
+	 * @return the generation of the new journal, to be passed to {@link #writeSnapshot}
+	 * @throws IOException if the new journal can not be created
+	 */
+	public long rotate() throws IOException {
+		closeJournal();
+		startJournal(generation + 1);
+		return generation;
+	}
+
+	/**
+	 * Write a snapshot holding the complete state at the start of journal {@code snapshotGeneration}, and delete the
+	 * snapshots and journals it replaces
+	 *
+	 * @param states the complete state
+	 * @param snapshotGeneration the generation returned by {@link #rotate}
+	 * @throws IOException if the snapshot can not be written
+	 */
+	public void writeSnapshot(Map<String, ServiceInstanceState> states, long snapshotGeneration) throws IOException {
+		Path snapshot = file(SNAPSHOT_PREFIX, snapshotGeneration);
+		Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+
+		try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			for (Map.Entry<String, ServiceInstanceState> entry : states.entrySet()) {
+				byte[] record = encode(entry.getKey(), entry.getValue());
+				if (buffer.remaining() < HEADER_SIZE + record.length) {
+					flush(buffer, out);
+					if (buffer.capacity() < HEADER_SIZE + record.length) {
+						buffer = ByteBuffer.allocate(HEADER_SIZE + record.length);
+					}
+				}
+				buffer.putInt(record.length);
+				buffer.putInt(checksum(record));
+				buffer.put(record);
+			}
+			flush(buffer, out);
+			out.force(true);
+		}
+		Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		for (Long obsolete : generations(SNAPSHOT_PREFIX)) {
+			if (obsolete < snapshotGeneration) {
+				Files.deleteIfExists(file(SNAPSHOT_PREFIX, obsolete));
+			}
+		}
+		for (Long obsolete : generations(JOURNAL_PREFIX)) {
+			if (obsolete < snapshotGeneration) {
+				Files.deleteIfExists(file(JOURNAL_PREFIX, obsolete));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of bytes appended to the current journal
+	 */
+	public int getJournalSize() {
+		return journal == null ? 0 : journal.position();
+	}
+
+	/**
+	 * @return the generation of the current journal
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeJournal();
+	}
+
+	private void startJournal(long newGeneration) throws IOException {
+		this.generation = newGeneration;
+		this.channel = FileChannel.open(file(JOURNAL_PREFIX, newGeneration), StandardOpenOption.CREATE_NEW,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, initialSize);
+	}
+
+	private void closeJournal() throws IOException {
+		if (channel != null) {
+			journal.force();
+			// trim the unused, zero-filled tail of the mapping
+			channel.truncate(journal.position());
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private void ensureCapacity(int size) throws IOException {
+		if (journal.remaining() >= size) {
+			return;
+		}
+		int position = journal.position();
+		long newSize = Math.max(2L * journal.capacity(), (long) position + size);
+		if (newSize > Integer.MAX_VALUE) {
+			throw new IOException("Journal " + generation + " is full, it must be compacted");
+		}
+		journal.force();
+		journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+		journal.position(position);
+	}
+
+	private void read(Path file, BiConsumer<String, ServiceInstanceState> consumer) throws IOException {
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+			CRC32 crc = new CRC32();
+			while (buffer.remaining() >= HEADER_SIZE) {
+				int length = buffer.getInt();
+				int checksum = buffer.getInt();
+				if (length <= 0 || length > buffer.remaining()) {
+					break;
+				}
+				byte[] record = new byte[length];
+				buffer.get(record);
+				crc.reset();
+				crc.update(record, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				decode(record, consumer);
+			}
+		}
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel out) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static byte[] encode(String serviceInstanceId, ServiceInstanceState state) {
+		byte[] id = serviceInstanceId.getBytes(StandardCharsets.UTF_8);
+		byte[] description = state == null || state.getDescription() == null ? null :
+			state.getDescription().getBytes(StandardCharsets.UTF_8);
+
+		int size = 1 + Integer.BYTES + id.length;
+		if (state != null) {
+			size += 1 + Long.BYTES + Integer.BYTES + (description == null ? 0 : description.length);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.put(state == null ? REMOVE : SAVE);
+		buffer.putInt(id.length);
+		buffer.put(id);
+		if (state != null) {
+			buffer.put((byte) state.getOperationState().ordinal());
+			buffer.putLong(state.getLastUpdated().getTime());
+			buffer.putInt(description == null ? NULL_LENGTH : description.length);
+			if (description != null) {
+				buffer.put(description);
+			}
+		}
+		return buffer.array();
+	}
+
+	private static void decode(byte[] record, BiConsumer<String, ServiceInstanceState> consumer) {
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		byte type = buffer.get();
+		String serviceInstanceId = readString(buffer);
+		if (type == REMOVE) {
+			consumer.accept(serviceInstanceId, null);
+			return;
+		}
+		OperationState operationState = OPERATION_STATES[buffer.get()];
+		Timestamp lastUpdated = new Timestamp(buffer.getLong());
+		String description = readString(buffer);
+		consumer.accept(serviceInstanceId, new ServiceInstanceState(operationState, description, lastUpdated));
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		return (int) crc.getValue();
+	}
+
+	private Path file(String prefix, long fileGeneration) {
+		return directory.resolve(String.format("%s%019d%s", prefix, fileGeneration, SUFFIX));
+	}
+
+	private long latestGeneration(String prefix) throws IOException {
+		List<Long> generations = generations(prefix);
+		return generations.isEmpty() ? -1 : generations.get(generations.size() - 1);
+	}
+
+	private List<Long> generations(String prefix) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+				.map(path -> path.getFileName().toString())
+				.filter(name -> name.startsWith(prefix) && name.endsWith(SUFFIX))
+				.map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length())))
+				.sorted()
+				.collect(Collectors.toList());
+		}
+	}
+
+}
@@ -16,23 +16,47 @@
 
 package org.springframework.cloud.appbroker.workflow.instance;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.Logger;
 import reactor.util.Loggers;
 
 import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
+import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.BackingApplicationFingerprints;
+import org.springframework.cloud.appbroker.deployer.BackingApplicationWaves;
+import org.springframework.cloud.appbroker.deployer.BackingService;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
+import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
+import org.springframework.cloud.appbroker.deployer.ServicesSpec;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderService;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingApplicationsParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingServicesParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.service.CreateServiceInstanceWorkflow;
+import org.springframework.cloud.appbroker.service.WorkflowProgress;
+import org.springframework.cloud.appbroker.state.BackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpoint;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpointRepository;
 import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceRequest;
 import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceResponse;
 import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceResponse.CreateServiceInstanceResponseBuilder;
 import org.springframework.core.annotation.Order;
+import org.springframework.util.CollectionUtils;
 
 @Order(0)
 public class AppDeploymentCreateServiceInstanceWorkflow
@@ -53,6 +77,10 @@ public class AppDeploymentCreateServiceInstanceWorkflow
 
 	private final TargetService targetService;
 
+	private final ProvisioningCheckpointRepository checkpointRepository;
+
+	private final BackingApplicationFingerprintRepository fingerprintRepository;
+
 	public AppDeploymentCreateServiceInstanceWorkflow(BrokeredServices brokeredServices,
 		BackingAppDeploymentService deploymentService,
 		BackingServicesProvisionService backingServicesProvisionService,
@@ -60,32 +88,148 @@ public class AppDeploymentCreateServiceInstanceWorkflow
 		BackingServicesParametersTransformationService servicesParametersTransformationService,
 		CredentialProviderService credentialProviderService,
 		TargetService targetService) {
-		super(brokeredServices);
+		this(new BrokeredServicesCatalog(brokeredServices),
+			deploymentService,
+			backingServicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService);
+	}
+
+	public AppDeploymentCreateServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		BackingApplicationsParametersTransformationService appsParametersTransformationService,
+		BackingServicesParametersTransformationService servicesParametersTransformationService,
+		CredentialProviderService credentialProviderService,
+		TargetService targetService) {
+		this(brokeredServicesCatalog,
+			deploymentService,
+			backingServicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService,
+			new ProvisioningCheckpointRepository() {
+			});
+	}
+
+	public AppDeploymentCreateServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		BackingApplicationsParametersTransformationService appsParametersTransformationService,
+		BackingServicesParametersTransformationService servicesParametersTransformationService,
+		CredentialProviderService credentialProviderService,
+		TargetService targetService,
+		ProvisioningCheckpointRepository checkpointRepository) {
+		this(brokeredServicesCatalog,
+			deploymentService,
+			backingServicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService,
+			checkpointRepository,
+			new BackingApplicationFingerprintRepository() {
+			});
+	}
+
+	public AppDeploymentCreateServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		BackingApplicationsParametersTransformationService appsParametersTransformationService,
+		BackingServicesParametersTransformationService servicesParametersTransformationService,
+		CredentialProviderService credentialProviderService,
+		TargetService targetService,
+		ProvisioningCheckpointRepository checkpointRepository,
+		BackingApplicationFingerprintRepository fingerprintRepository) {
+		super(brokeredServicesCatalog);
 		this.deploymentService = deploymentService;
 		this.backingServicesProvisionService = backingServicesProvisionService;
 		this.appsParametersTransformationService = appsParametersTransformationService;
 		this.servicesParametersTransformationService = servicesParametersTransformationService;
 		this.credentialProviderService = credentialProviderService;
 		this.targetService = targetService;
+		this.checkpointRepository = checkpointRepository;
+		this.fingerprintRepository = fingerprintRepository;
 	}
 
 	@Override
 	public Mono<Void> create(CreateServiceInstanceRequest request, CreateServiceInstanceResponse response) {
-		return createBackingServices(request)
-			.thenMany(deployBackingApplications(request))
-			.then();
+		// fingerprints are taken before credentials are added, as an update computes them without credentials
+		Map<String, String> fingerprints = new ConcurrentHashMap<>();
+		return pinCatalog(WorkflowProgress.expectSteps(5)
+			.then(getBrokeredService(request.getServiceDefinition(), request.getPlan()))
+			.flatMapMany(brokeredService -> checkpointRepository.getCheckpoint(request.getServiceInstanceId())
+				.defaultIfEmpty(ProvisioningCheckpoint.empty())
+				.doOnNext(checkpoint -> {
+					if (!checkpoint.isEmpty()) {
+						log.info("Resuming create of service instance {} after completed steps {}",
+							request.getServiceInstanceId(), checkpoint);
+					}
+				})
+				.flatMapMany(checkpoint -> createAndDeploy(request, brokeredService, checkpoint, fingerprints)))
+			.then(Mono.defer(() -> fingerprintRepository.saveFingerprints(request.getServiceInstanceId(),
+				fingerprints)))
+			.then(checkpointRepository.removeCheckpoint(request.getServiceInstanceId()))
+			.then());
 	}
 
-	private Flux<String> createBackingServices(CreateServiceInstanceRequest request) {
-		return getBackingServicesForService(request.getServiceDefinition(), request.getPlan())
+	/**
+	 * Create the backing services and deploy the backing applications at the same time. Each backing application is
+	 * deployed as soon as the backing services it binds to are created, without waiting for the other backing
+	 * services. Steps recorded in the checkpoint by an earlier attempt are skipped, and each completed step is
+	 * recorded. The fingerprints of the backing applications are added to the given map.
+	 */
+	private Flux<String> createAndDeploy(CreateServiceInstanceRequest request, BrokeredService brokeredService,
+		ProvisioningCheckpoint checkpoint, Map<String, String> fingerprints) {
+		Mono<List<BackingService>> backingServices = prepareBackingServices(request, brokeredService).cache();
+
+		Flux<String> createdServices = WorkflowProgress.step("creating backing services",
+			createBackingServices(request, backingServices, checkpoint))
+			.cache();
+
+		Flux<String> deployedApps = prepareBackingApplications(request, brokeredService, checkpoint, fingerprints)
+			.zipWith(backingServices
+				.map(AppDeploymentCreateServiceInstanceWorkflow::serviceInstanceNames)
+				.defaultIfEmpty(Collections.emptySet()))
+			.flatMapMany(prepared -> WorkflowProgress.step("deploying backing applications",
+				deployBackingApplications(request, prepared.getT1(), prepared.getT2(), createdServices,
+					checkpoint)));
+
+		return Flux.merge(createdServices, deployedApps);
+	}
+
+	private Mono<List<BackingService>> prepareBackingServices(CreateServiceInstanceRequest request,
+		BrokeredService brokeredService) {
+		return getBackingServicesForService(brokeredService)
 			.flatMap(backingServices ->
-				targetService.addToBackingServices(backingServices,
-					getTargetForService(request.getServiceDefinition(), request.getPlan()),
+				targetService.addToBackingServices(backingServices, brokeredService.getTarget(),
 					request.getServiceInstanceId()))
 			.flatMap(backingServices ->
 				servicesParametersTransformationService.transformParameters(backingServices,
-					request.getParameters()))
-			.flatMapMany(backingServicesProvisionService::createServiceInstance)
+					request.getParameters()));
+	}
+
+	private Flux<String> createBackingServices(CreateServiceInstanceRequest request,
+		Mono<List<BackingService>> backingServices, ProvisioningCheckpoint checkpoint) {
+		return backingServices
+			.flatMapMany(services -> {
+				List<BackingService> remaining = remaining(services,
+					service -> checkpoint.isServiceCreated(service.getServiceInstanceName()));
+				Set<String> remainingNames = serviceInstanceNames(remaining);
+				// a backing service is recorded as created only if it reports its service instance name
+				Flux<String> created = remaining.isEmpty() && !services.isEmpty() ? Flux.empty() :
+					backingServicesProvisionService.createServiceInstance(remaining)
+						.concatMapDelayError(name -> remainingNames.contains(name) ?
+							checkpointRepository.saveCreatedService(request.getServiceInstanceId(), name)
+								.thenReturn(name) :
+							Mono.just(name));
+				return Flux.fromIterable(checkpoint.getCreatedServices())
+					.filter(name -> !remainingNames.contains(name))
+					.concatWith(created);
+			})
 			.doOnRequest(l -> log.debug("Creating backing services for {}/{}",
 				request.getServiceDefinition().getName(), request.getPlan().getName()))
 			.doOnComplete(() -> log.debug("Finished creating backing services for {}/{}",
@@ -95,19 +239,73 @@ public class AppDeploymentCreateServiceInstanceWorkflow
 				exception));
 	}
 
-	private Flux<String> deployBackingApplications(CreateServiceInstanceRequest request) {
-		return getBackingApplicationsForService(request.getServiceDefinition(), request.getPlan())
-			.flatMap(backingApps ->
-				targetService.addToBackingApplications(backingApps,
-					getTargetForService(request.getServiceDefinition(),
-						request.getPlan()), request.getServiceInstanceId()))
-			.flatMap(backingApps ->
+	private Mono<List<BackingApplication>> prepareBackingApplications(CreateServiceInstanceRequest request,
+		BrokeredService brokeredService, ProvisioningCheckpoint checkpoint, Map<String, String> fingerprints) {
+		return getBackingApplicationsForService(brokeredService)
+			.flatMap(backingApps -> WorkflowProgress.step("resolving targets",
+				targetService.addToBackingApplications(backingApps, brokeredService.getTarget(),
+					request.getServiceInstanceId())))
+			.flatMap(backingApps -> WorkflowProgress.step("transforming parameters",
 				appsParametersTransformationService.transformParameters(backingApps,
-					request.getParameters()))
-			.flatMap(backingApps ->
-				credentialProviderService.addCredentials(backingApps,
-					request.getServiceInstanceId()))
-			.flatMapMany(backingApps -> deploymentService.deploy(backingApps, request.getServiceInstanceId()))
+					request.getParameters())))
+			.doOnNext(backingApps -> fingerprints.putAll(BackingApplicationFingerprints.fingerprints(backingApps)))
+			.flatMap(backingApps -> WorkflowProgress.step("adding credentials",
+				addCredentials(request, backingApps, checkpoint)));
+	}
+
+	/**
+	 * Add credentials to the backing applications that have none in the checkpoint, and record the environment
+	 * entries the credential providers added. Backing applications with recorded credentials get the same credentials
+	 * again, so that they match the backing applications deployed by an earlier attempt.
+	 */
+	private Mono<List<BackingApplication>> addCredentials(CreateServiceInstanceRequest request,
+		List<BackingApplication> backingApps, ProvisioningCheckpoint checkpoint) {
+		for (BackingApplication backingApp : backingApps) {
+			if (checkpoint.hasCredentials(backingApp.getName())) {
+				environment(backingApp).putAll(checkpoint.getCredentials(backingApp.getName()));
+			}
+		}
+
+		List<BackingApplication> pending = remaining(backingApps,
+			backingApp -> checkpoint.hasCredentials(backingApp.getName()));
+		if (pending.isEmpty() && !backingApps.isEmpty()) {
+			return Mono.just(backingApps);
+		}
+
+		Map<String, Map<String, Object>> environmentsBefore = new HashMap<>();
+		pending.forEach(backingApp -> environmentsBefore.put(backingApp.getName(),
+			new HashMap<>(environment(backingApp))));
+
+		return credentialProviderService.addCredentials(pending, request.getServiceInstanceId())
+			.flatMap(withCredentials -> Flux.fromIterable(pending)
+				.concatMap(backingApp -> checkpointRepository.saveCredentials(request.getServiceInstanceId(),
+					backingApp.getName(),
+					addedEntries(environmentsBefore.get(backingApp.getName()), environment(backingApp))))
+				.then(Mono.just(pending == backingApps ? withCredentials : backingApps)));
+	}
+
+	private Flux<String> deployBackingApplications(CreateServiceInstanceRequest request,
+		List<BackingApplication> backingApps, Set<String> createdServiceNames, Flux<String> createdServices,
+		ProvisioningCheckpoint checkpoint) {
+		List<BackingApplication> remaining = remaining(backingApps,
+			backingApp -> checkpoint.isApplicationDeployed(backingApp.getName()));
+		Set<String> remainingNames = remaining.stream()
+			.map(BackingApplication::getName)
+			.collect(Collectors.toSet());
+
+		// waves are built over all remaining applications, so that depends-on holds across applications that bind
+		// different backing services; within a wave, applications waiting for the same services deploy together
+		return Flux.fromIterable(checkpoint.getDeployedApplications())
+			.filter(name -> !remainingNames.contains(name))
+			.concatWith(Flux.defer(() -> Flux.fromIterable(BackingApplicationWaves.of(remaining)))
+				.concatMap(wave -> Flux.fromIterable(groupByRequiredServices(wave, createdServiceNames).entrySet())
+					.flatMap(group -> awaitServices(group.getKey(), createdServices)
+						.thenMany(Flux.defer(() -> deploymentService.deploy(group.getValue(),
+							request.getServiceInstanceId())))
+						.concatMapDelayError(name -> remainingNames.contains(name) ?
+							checkpointRepository.saveDeployedApplication(request.getServiceInstanceId(), name)
+								.thenReturn(name) :
+							Mono.just(name)))))
 			.doOnRequest(l -> log.debug("Deploying backing applications for {}/{}",
 				request.getServiceDefinition().getName(), request.getPlan().getName()))
 			.doOnComplete(() -> log.debug("Finished deploying backing applications for {}/{}",
@@ -118,6 +316,76 @@ public class AppDeploymentCreateServiceInstanceWorkflow
 					exception));
 	}
 
+	private static Map<Set<String>, List<BackingApplication>> groupByRequiredServices(
+		List<BackingApplication> backingApps, Set<String> createdServiceNames) {
+		Map<Set<String>, List<BackingApplication>> appsByRequiredServices = new LinkedHashMap<>();
+		for (BackingApplication backingApp : backingApps) {
+			appsByRequiredServices
+				.computeIfAbsent(requiredServices(backingApp, createdServiceNames), required -> new ArrayList<>())
+				.add(backingApp);
+		}
+		return appsByRequiredServices;
+	}
+
+	/**
+	 * Wait until the required backing services are reported as created. If a backing service reports a different
+	 * name, this waits for all backing services to be created.
+	 */
+	private Mono<Void> awaitServices(Set<String> requiredServices, Flux<String> createdServices) {
+		if (requiredServices.isEmpty()) {
+			return Mono.empty();
+		}
+		return createdServices
+			.filter(requiredServices::contains)
+			.take(requiredServices.size())
+			.then();
+	}
+
+	private static Set<String> requiredServices(BackingApplication backingApp, Set<String> createdServiceNames) {
+		if (CollectionUtils.isEmpty(backingApp.getServices())) {
+			return Collections.emptySet();
+		}
+		return backingApp.getServices().stream()
+			.map(ServicesSpec::getServiceInstanceName)
+			.filter(createdServiceNames::contains)
+			.collect(Collectors.toSet());
+	}
+
+	/**
+	 * @return the items that are not completed, or the same list if none is completed
+	 */
+	private static <T> List<T> remaining(List<T> items, Predicate<T> completed) {
+		if (items.stream().noneMatch(completed)) {
+			return items;
+		}
+		return items.stream()
+			.filter(completed.negate())
+			.collect(Collectors.toList());
+	}
+
+	private static Map<String, Object> environment(BackingApplication backingApp) {
+		if (backingApp.getEnvironment() == null) {
+			backingApp.setEnvironment(new HashMap<>());
+		}
+		return backingApp.getEnvironment();
+	}
+
+	private static Map<String, Object> addedEntries(Map<String, Object> before, Map<String, Object> after) {
+		Map<String, Object> added = new HashMap<>();
+		after.forEach((key, value) -> {
+			if (!Objects.equals(before.get(key), value)) {
+				added.put(key, value);
+			}
+		});
+		return added;
+	}
+
+	private static Set<String> serviceInstanceNames(List<BackingService> backingServices) {
+		return backingServices.stream()
+			.map(BackingService::getServiceInstanceName)
+			.collect(Collectors.toSet());
+	}
+
 	@Override
 	public Mono<Boolean> accept(CreateServiceInstanceRequest request) {
 		return accept(request.getServiceDefinition(), request.getPlan());
@@ -24,9 +24,13 @@ import reactor.util.Loggers;
 import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderService;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.service.DeleteServiceInstanceWorkflow;
+import org.springframework.cloud.appbroker.service.WorkflowProgress;
+import org.springframework.cloud.appbroker.state.BackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.ProvisioningCheckpointRepository;
 import org.springframework.cloud.servicebroker.model.instance.DeleteServiceInstanceRequest;
 import org.springframework.cloud.servicebroker.model.instance.DeleteServiceInstanceResponse;
 import org.springframework.cloud.servicebroker.model.instance.DeleteServiceInstanceResponse.DeleteServiceInstanceResponseBuilder;
@@ -47,32 +51,87 @@ public class AppDeploymentDeleteServiceInstanceWorkflow
 
 	private final BackingServicesProvisionService backingServicesProvisionService;
 
+	private final ProvisioningCheckpointRepository checkpointRepository;
+
+	private final BackingApplicationFingerprintRepository fingerprintRepository;
+
 	public AppDeploymentDeleteServiceInstanceWorkflow(BrokeredServices brokeredServices,
 		BackingAppDeploymentService deploymentService,
 		BackingServicesProvisionService backingServicesProvisionService,
 		CredentialProviderService credentialProviderService,
 		TargetService targetService) {
-		super(brokeredServices);
+		this(new BrokeredServicesCatalog(brokeredServices),
+			deploymentService,
+			backingServicesProvisionService,
+			credentialProviderService,
+			targetService);
+	}
+
+	public AppDeploymentDeleteServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		CredentialProviderService credentialProviderService,
+		TargetService targetService) {
+		this(brokeredServicesCatalog,
+			deploymentService,
+			backingServicesProvisionService,
+			credentialProviderService,
+			targetService,
+			new ProvisioningCheckpointRepository() {
+			});
+	}
+
+	public AppDeploymentDeleteServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		CredentialProviderService credentialProviderService,
+		TargetService targetService,
+		ProvisioningCheckpointRepository checkpointRepository) {
+		this(brokeredServicesCatalog,
+			deploymentService,
+			backingServicesProvisionService,
+			credentialProviderService,
+			targetService,
+			checkpointRepository,
+			new BackingApplicationFingerprintRepository() {
+			});
+	}
+
+	public AppDeploymentDeleteServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		CredentialProviderService credentialProviderService,
+		TargetService targetService,
+		ProvisioningCheckpointRepository checkpointRepository,
+		BackingApplicationFingerprintRepository fingerprintRepository) {
+		super(brokeredServicesCatalog);
 		this.deploymentService = deploymentService;
 		this.credentialProviderService = credentialProviderService;
 		this.targetService = targetService;
 		this.backingServicesProvisionService = backingServicesProvisionService;
+		this.checkpointRepository = checkpointRepository;
+		this.fingerprintRepository = fingerprintRepository;
 	}
 
 	@Override
 	public Mono<Void> delete(DeleteServiceInstanceRequest request, DeleteServiceInstanceResponse response) {
-		return undeployBackingApplications(request)
-			.thenMany(deleteBackingServices(request))
-			.then();
+		// the steps of an earlier create and the fingerprints of earlier updates no longer hold once backing
+		// applications and services are deleted
+		return pinCatalog(WorkflowProgress.expectSteps(2)
+			.then(checkpointRepository.removeCheckpoint(request.getServiceInstanceId()))
+			.then(fingerprintRepository.removeFingerprints(request.getServiceInstanceId()))
+			.thenMany(WorkflowProgress.step("undeploying backing applications", undeployBackingApplications(request)))
+			.thenMany(WorkflowProgress.step("deleting backing services", deleteBackingServices(request)))
+			.then());
 	}
 
 	private Flux<String> deleteBackingServices(DeleteServiceInstanceRequest request) {
-		return getBackingServicesForService(request.getServiceDefinition(), request.getPlan())
-			.flatMapMany(backingServices ->
-				targetService.addToBackingServices(backingServices,
-					getTargetForService(request.getServiceDefinition(), request.getPlan()),
-					request.getServiceInstanceId()))
-			.flatMap(backingServicesProvisionService::deleteServiceInstance)
+		return getBrokeredService(request.getServiceDefinition(), request.getPlan())
+			.flatMap(brokeredService -> getBackingServicesForService(brokeredService)
+				.flatMap(backingServices ->
+					targetService.addToBackingServices(backingServices, brokeredService.getTarget(),
+						request.getServiceInstanceId())))
+			.flatMapMany(backingServicesProvisionService::deleteServiceInstance)
 			.doOnRequest(l -> log.debug("Deleting backing services for{}/{}",
 				request.getServiceDefinition().getName(), request.getPlan().getName()))
 			.doOnComplete(() -> log.debug("Finished deleting backing services for {}/{}",
@@ -83,14 +142,14 @@ public class AppDeploymentDeleteServiceInstanceWorkflow
 	}
 
 	private Flux<String> undeployBackingApplications(DeleteServiceInstanceRequest request) {
-		return getBackingApplicationsForService(request.getServiceDefinition(), request.getPlan())
-			.flatMap(backingApps ->
-				credentialProviderService.deleteCredentials(backingApps,
-					request.getServiceInstanceId()))
-			.flatMap(backingApps ->
-				targetService.addToBackingApplications(backingApps,
-					getTargetForService(request.getServiceDefinition(), request.getPlan()),
-					request.getServiceInstanceId()))
+		return getBrokeredService(request.getServiceDefinition(), request.getPlan())
+			.flatMap(brokeredService -> getBackingApplicationsForService(brokeredService)
+				.flatMap(backingApps ->
+					credentialProviderService.deleteCredentials(backingApps,
+						request.getServiceInstanceId()))
+				.flatMap(backingApps ->
+					targetService.addToBackingApplications(backingApps, brokeredService.getTarget(),
+						request.getServiceInstanceId())))
 			.flatMapMany(deploymentService::undeploy)
 			.doOnRequest(l -> log.debug("Undeploying backing applications for {}/{}",
 				request.getServiceDefinition().getName(), request.getPlan().getName()))
@@ -26,6 +26,7 @@ import org.springframework.cloud.appbroker.deployer.BackingService;
 import org.springframework.cloud.appbroker.deployer.BackingServices;
 import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.deployer.TargetSpec;
 import org.springframework.cloud.servicebroker.model.catalog.Plan;
 import org.springframework.cloud.servicebroker.model.catalog.ServiceDefinition;
@@ -33,69 +34,82 @@ import org.springframework.util.CollectionUtils;
 
 public class AppDeploymentInstanceWorkflow {
 
-	private final BrokeredServices brokeredServices;
+	private final BrokeredServicesCatalog brokeredServicesCatalog;
 
 	protected AppDeploymentInstanceWorkflow(BrokeredServices brokeredServices) {
-		this.brokeredServices = brokeredServices;
+		this(new BrokeredServicesCatalog(brokeredServices));
+	}
+
+	protected AppDeploymentInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog) {
+		this.brokeredServicesCatalog = brokeredServicesCatalog;
 	}
 
 	protected Mono<Boolean> accept(ServiceDefinition serviceDefinition, Plan plan) {
-		return getBackingApplicationsForService(serviceDefinition, plan)
-			.map(backingApplications -> !backingApplications.isEmpty())
+		return getBrokeredService(serviceDefinition, plan)
+			.map(brokeredService -> !CollectionUtils.isEmpty(brokeredService.getApps()))
 			.defaultIfEmpty(false);
 	}
 
+	/**
+	 * Run an operation against the catalog snapshot that is current when it starts, so that a catalog reload does
+	 * not change the configuration seen by the remaining steps of the operation.
+	 *
+	 * @param operation the operation
+	 * @param <T> the type of the element
+	 * @return the pinned operation
+	 */
+	protected <T> Mono<T> pinCatalog(Mono<T> operation) {
+		return brokeredServicesCatalog.pin(operation);
+	}
+
+	protected Mono<BrokeredService> getBrokeredService(ServiceDefinition serviceDefinition, Plan plan) {
+		return brokeredServicesCatalog.snapshot()
+			.flatMap(snapshot -> Mono.justOrEmpty(snapshot.get(serviceDefinition.getName(), plan.getName())));
+	}
+
+	/**
+	 * Find the target of a brokered service in the current catalog snapshot. Being synchronous, this cannot see a
+	 * snapshot pinned with {@link #pinCatalog(Mono)}.
+	 *
+	 * @param serviceDefinition the service definition
+	 * @param plan the plan
+	 * @return the target, or {@literal null} if the service or plan is not brokered or has no target
+	 * @deprecated use {@link #getBrokeredService(ServiceDefinition, Plan)} and {@link BrokeredService#getTarget()},
+	 * 	which read the pinned catalog snapshot
+	 */
+	@Deprecated
 	protected TargetSpec getTargetForService(ServiceDefinition serviceDefinition, Plan plan) {
-		BrokeredService brokeredService = findBrokeredService(serviceDefinition, plan);
+		BrokeredService brokeredService = brokeredServicesCatalog.getSnapshot()
+			.get(serviceDefinition.getName(), plan.getName());
 		return brokeredService == null ? null : brokeredService.getTarget();
 	}
 
 	protected Mono<List<BackingApplication>> getBackingApplicationsForService(ServiceDefinition serviceDefinition,
 		Plan plan) {
-		return Mono.defer(() ->
-			Mono.justOrEmpty(findBackingApplications(serviceDefinition, plan)));
+		return getBrokeredService(serviceDefinition, plan)
+			.flatMap(this::getBackingApplicationsForService);
 	}
 
-	protected Mono<List<BackingService>> getBackingServicesForService(ServiceDefinition serviceDefinition, Plan plan) {
-		return Mono.defer(() ->
-			Mono.justOrEmpty(findBackingServices(serviceDefinition, plan)));
+	protected Mono<List<BackingApplication>> getBackingApplicationsForService(BrokeredService brokeredService) {
+		return Mono.fromSupplier(() -> BackingApplications.builder()
+			.backingApplications(brokeredService.getApps())
+			.build());
 	}
 
-	private BackingApplications findBackingApplications(ServiceDefinition serviceDefinition,
-		Plan plan) {
-		BrokeredService brokeredService = findBrokeredService(serviceDefinition, plan);
-		BackingApplications backingApplications = null;
-		if (brokeredService != null) {
-			backingApplications = BackingApplications.builder()
-				.backingApplications(brokeredService.getApps())
-				.build();
-		}
-		return backingApplications;
+	protected Mono<List<BackingService>> getBackingServicesForService(ServiceDefinition serviceDefinition, Plan plan) {
+		return getBrokeredService(serviceDefinition, plan)
+			.flatMap(this::getBackingServicesForService);
 	}
 
-	private BackingServices findBackingServices(ServiceDefinition serviceDefinition,
-		Plan plan) {
-		BrokeredService brokeredService = findBrokeredService(serviceDefinition, plan);
-		BackingServices backingServices = null;
-		if (brokeredService != null && !CollectionUtils.isEmpty(brokeredService.getServices())) {
-			backingServices = BackingServices.builder()
+	protected Mono<List<BackingService>> getBackingServicesForService(BrokeredService brokeredService) {
+		return Mono.defer(() -> {
+			if (CollectionUtils.isEmpty(brokeredService.getServices())) {
+				return Mono.empty();
+			}
+			return Mono.just(BackingServices.builder()
 				.backingServices(brokeredService.getServices())
-				.build();
-		}
-		return backingServices;
-	}
-
-	private BrokeredService findBrokeredService(ServiceDefinition serviceDefinition,
-		Plan plan) {
-		String serviceName = serviceDefinition.getName();
-		String planName = plan.getName();
-
-		return brokeredServices.stream()
-			.filter(brokeredService ->
-				brokeredService.getServiceName().equals(serviceName)
-					&& brokeredService.getPlanName().equals(planName))
-			.findFirst()
-			.orElse(null);
+				.build());
+		});
 	}
 
 }
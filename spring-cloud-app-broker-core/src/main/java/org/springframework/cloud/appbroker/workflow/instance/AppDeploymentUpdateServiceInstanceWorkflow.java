@@ -16,18 +16,27 @@
 
 package org.springframework.cloud.appbroker.workflow.instance;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.Logger;
 import reactor.util.Loggers;
 
 import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
+import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.BackingApplicationFingerprints;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingApplicationsParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingServicesParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.service.UpdateServiceInstanceWorkflow;
+import org.springframework.cloud.appbroker.service.WorkflowProgress;
+import org.springframework.cloud.appbroker.state.BackingApplicationFingerprintRepository;
 import org.springframework.cloud.servicebroker.model.instance.UpdateServiceInstanceRequest;
 import org.springframework.cloud.servicebroker.model.instance.UpdateServiceInstanceResponse;
 import org.springframework.cloud.servicebroker.model.instance.UpdateServiceInstanceResponse.UpdateServiceInstanceResponseBuilder;
@@ -37,6 +46,8 @@ import org.springframework.core.annotation.Order;
 public class AppDeploymentUpdateServiceInstanceWorkflow extends AppDeploymentInstanceWorkflow
 	implements UpdateServiceInstanceWorkflow {
 
+	private static final String UPGRADE_PROPERTY_KEY = "upgrade";
+
 	private final Logger log = Loggers.getLogger(AppDeploymentUpdateServiceInstanceWorkflow.class);
 
 	private final BackingAppDeploymentService deploymentService;
@@ -49,33 +60,68 @@ public class AppDeploymentUpdateServiceInstanceWorkflow extends AppDeploymentIns
 
 	private final TargetService targetService;
 
+	private final BackingApplicationFingerprintRepository fingerprintRepository;
+
 	public AppDeploymentUpdateServiceInstanceWorkflow(BrokeredServices brokeredServices,
 		BackingAppDeploymentService deploymentService,
 		BackingServicesProvisionService backingServicesProvisionService,
 		BackingApplicationsParametersTransformationService appsParametersTransformationService,
 		BackingServicesParametersTransformationService servicesParametersTransformationService,
 		TargetService targetService) {
-		super(brokeredServices);
+		this(new BrokeredServicesCatalog(brokeredServices),
+			deploymentService,
+			backingServicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			targetService);
+	}
+
+	public AppDeploymentUpdateServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		BackingApplicationsParametersTransformationService appsParametersTransformationService,
+		BackingServicesParametersTransformationService servicesParametersTransformationService,
+		TargetService targetService) {
+		this(brokeredServicesCatalog,
+			deploymentService,
+			backingServicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			targetService,
+			new BackingApplicationFingerprintRepository() {
+			});
+	}
+
+	public AppDeploymentUpdateServiceInstanceWorkflow(BrokeredServicesCatalog brokeredServicesCatalog,
+		BackingAppDeploymentService deploymentService,
+		BackingServicesProvisionService backingServicesProvisionService,
+		BackingApplicationsParametersTransformationService appsParametersTransformationService,
+		BackingServicesParametersTransformationService servicesParametersTransformationService,
+		TargetService targetService,
+		BackingApplicationFingerprintRepository fingerprintRepository) {
+		super(brokeredServicesCatalog);
 		this.deploymentService = deploymentService;
 		this.backingServicesProvisionService = backingServicesProvisionService;
 		this.appsParametersTransformationService = appsParametersTransformationService;
 		this.servicesParametersTransformationService = servicesParametersTransformationService;
 		this.targetService = targetService;
+		this.fingerprintRepository = fingerprintRepository;
 	}
 
 	@Override
 	public Mono<Void> update(UpdateServiceInstanceRequest request, UpdateServiceInstanceResponse response) {
-		return updateBackingServices(request)
-			.thenMany(updateBackingApplications(request))
-			.then();
+		return pinCatalog(WorkflowProgress.expectSteps(2)
+			.thenMany(WorkflowProgress.step("updating backing services", updateBackingServices(request)))
+			.thenMany(WorkflowProgress.step("updating backing applications", updateBackingApplications(request)))
+			.then());
 	}
 
 	private Flux<String> updateBackingServices(UpdateServiceInstanceRequest request) {
-		return getBackingServicesForService(request.getServiceDefinition(), request.getPlan())
-			.flatMap(backingServices ->
-				targetService.addToBackingServices(backingServices,
-					getTargetForService(request.getServiceDefinition(), request.getPlan()),
-					request.getServiceInstanceId()))
+		return getBrokeredService(request.getServiceDefinition(), request.getPlan())
+			.flatMap(brokeredService -> getBackingServicesForService(brokeredService)
+				.flatMap(backingServices ->
+					targetService.addToBackingServices(backingServices, brokeredService.getTarget(),
+						request.getServiceInstanceId())))
 			.flatMap(backingServices ->
 				servicesParametersTransformationService.transformParameters(backingServices,
 					request.getParameters()))
@@ -90,14 +136,14 @@ public class AppDeploymentUpdateServiceInstanceWorkflow extends AppDeploymentIns
 	}
 
 	private Flux<String> updateBackingApplications(UpdateServiceInstanceRequest request) {
-		return getBackingApplicationsForService(request.getServiceDefinition(), request.getPlan())
-			.flatMap(backingApps ->
-				targetService.addToBackingApplications(backingApps,
-					getTargetForService(request.getServiceDefinition(), request.getPlan()),
-					request.getServiceInstanceId()))
+		return getBrokeredService(request.getServiceDefinition(), request.getPlan())
+			.flatMap(brokeredService -> getBackingApplicationsForService(brokeredService)
+				.flatMap(backingApps ->
+					targetService.addToBackingApplications(backingApps, brokeredService.getTarget(),
+						request.getServiceInstanceId())))
 			.flatMap(backingApps ->
 				appsParametersTransformationService.transformParameters(backingApps, request.getParameters()))
-			.flatMapMany(backingApps -> deploymentService.update(backingApps, request.getServiceInstanceId()))
+			.flatMapMany(backingApps -> updateChangedBackingApplications(backingApps, request.getServiceInstanceId()))
 			.doOnRequest(l -> log.debug("Updating backing applications for {}/{}",
 				request.getServiceDefinition().getName(), request.getPlan().getName()))
 			.doOnComplete(() -> log.debug("Finished updating backing applications for {}/{}",
@@ -108,6 +154,32 @@ public class AppDeploymentUpdateServiceInstanceWorkflow extends AppDeploymentIns
 					exception));
 	}
 
+	/**
+	 * Update only the backing applications whose effective manifest changed since their last update, and those
+	 * that request an upgrade of their artifact, which may have changed at the same path
+	 */
+	private Flux<String> updateChangedBackingApplications(List<BackingApplication> backingApps,
+		String serviceInstanceId) {
+		Map<String, String> fingerprints = BackingApplicationFingerprints.fingerprints(backingApps);
+		return fingerprintRepository.getFingerprints(serviceInstanceId)
+			.flatMapMany(updatedFingerprints -> {
+				List<BackingApplication> changedApps = backingApps.stream()
+					.filter(backingApp -> backingApp.getProperties().containsKey(UPGRADE_PROPERTY_KEY) ||
+						!fingerprints.get(backingApp.getName()).equals(updatedFingerprints.get(backingApp.getName())))
+					.collect(Collectors.toList());
+				if (changedApps.isEmpty()) {
+					log.debug("Backing applications of service instance {} are unchanged", serviceInstanceId);
+					return Flux.empty();
+				}
+				Map<String, String> changedFingerprints = changedApps.stream()
+					.collect(Collectors.toMap(BackingApplication::getName, backingApp ->
+						fingerprints.get(backingApp.getName()), (first, second) -> second));
+				return deploymentService.update(changedApps, serviceInstanceId)
+					.concatWith(fingerprintRepository.saveFingerprints(serviceInstanceId, changedFingerprints)
+						.then(Mono.empty()));
+			});
+	}
+
 	@Override
 	public Mono<Boolean> accept(UpdateServiceInstanceRequest request) {
 		return accept(request.getServiceDefinition(), request.getPlan());
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimitTest {
+
+	private static final long MILLIS = Duration.ofMillis(1).toNanos();
+
+	private long now;
+
+	@Test
+	void limitGrowsWhileLatencyStaysFlatAndTheLimitIsUsed() {
+		AdaptiveConcurrencyLimit limit = limit(1);
+
+		for (int i = 0; i < 100; i++) {
+			call(limit, 100, false, limit.getLimit());
+		}
+
+		assertThat(limit.getLimit()).isGreaterThan(10);
+		assertThat(limit.getDecreaseCount()).isZero();
+	}
+
+	@Test
+	void limitDoesNotGrowWhileMostOfItIsUnused() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+
+		for (int i = 0; i < 100; i++) {
+			call(limit, 100, false, 1);
+		}
+
+		assertThat(limit.getLimit()).isEqualTo(20);
+	}
+
+	@Test
+	void limitBacksOffWhenThePlatformIsOverloaded() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+
+		call(limit, 10, true, 20);
+
+		assertThat(limit.getLimit()).isEqualTo(10);
+		assertThat(limit.getDecreaseCount()).isEqualTo(1);
+	}
+
+	@Test
+	void limitBacksOffWhenLatencyRises() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+		call(limit, 100, false, 20);
+
+		call(limit, 150, false, 20);
+		assertThat(limit.getLimit()).isEqualTo(20);
+
+		call(limit, 300, false, 20);
+		assertThat(limit.getLimit()).isEqualTo(10);
+		assertThat(limit.getBaselineLatency(DeployerOperation.DEPLOY)).isEqualTo(Duration.ofMillis(100));
+	}
+
+	@Test
+	void latencyIsComparedToTheBaselineOfTheSameOperationType() {
+		AdaptiveConcurrencyLimit limit = limit(20);
+		call(limit, DeployerOperation.STOP, 100, false, 20);
+
+		call(limit, DeployerOperation.DEPLOY, 10_000, false, 20);
+		call(limit, DeployerOperation.STOP, 150, false, 20);
+		assertThat(limit.getLimit()).isEqualTo(20);
+		assertThat(limit.getBaselineLatency(DeployerOperation.STOP)).isEqualTo(Duration.ofMillis(100));
+		assertThat(limit.getBaselineLatency(DeployerOperation.DEPLOY)).isEqualTo(Duration.ofSeconds(10));
+
+		call(limit, DeployerOperation.DEPLOY, 30_000, false, 20);
+		assertThat(limit.getLimit()).isEqualTo(10);
+	}
+
+	@Test
+	void limitBacksOffOnceForCallsThatStartedBeforeTheLastDecrease() {
+		AdaptiveConcurrencyLimit limit = limit(40);
+		long start = now;
+		now += 300 * MILLIS;
+
+		limit.onSample(DeployerOperation.DEPLOY, start, now, true, 40);
+		limit.onSample(DeployerOperation.DEPLOY, start, now + MILLIS, true, 39);
+		limit.onSample(DeployerOperation.DEPLOY, start, now + 2 * MILLIS, true, 38);
+
+		assertThat(limit.getLimit()).isEqualTo(20);
+
+		now += 10 * MILLIS;
+		call(limit, 10, true, 20);
+
+		assertThat(limit.getLimit()).isEqualTo(10);
+	}
+
+	@Test
+	void limitStaysWithinItsBounds() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 5, 0.5, 2.0, Duration.ofMinutes(10));
+
+		for (int i = 0; i < 10; i++) {
+			call(limit, 10, true, 5);
+		}
+		assertThat(limit.getLimit()).isEqualTo(2);
+
+		for (int i = 0; i < 1000; i++) {
+			call(limit, 10, false, 5);
+		}
+		assertThat(limit.getLimit()).isEqualTo(5);
+	}
+
+	@Test
+	void baselineLatencyFollowsAPlatformThatBecameSlower() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10, 0.5, 2.0, Duration.ofSeconds(10));
+		call(limit, 100, false, 1);
+
+		for (int i = 0; i < 100; i++) {
+			call(limit, 300, false, 1);
+		}
+
+		assertThat(limit.getBaselineLatency(DeployerOperation.DEPLOY)).isEqualTo(Duration.ofMillis(300));
+	}
+
+	@Test
+	void invalidSettingsAreRejected() {
+		Duration window = Duration.ofMinutes(10);
+		assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(1, 0, 10, 0.5, 2.0, window))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(1, 10, 5, 0.5, 2.0, window))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(1, 1, 10, 1.0, 2.0, window))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new AdaptiveConcurrencyLimit(1, 1, 10, 0.5, 1.0, window))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static AdaptiveConcurrencyLimit limit(int initialLimit) {
+		return new AdaptiveConcurrencyLimit(initialLimit, 1, 100, 0.5, 2.0, Duration.ofMinutes(10));
+	}
+
+	private void call(AdaptiveConcurrencyLimit limit, long latencyMillis, boolean overloaded, int inFlight) {
+		call(limit, DeployerOperation.DEPLOY, latencyMillis, overloaded, inFlight);
+	}
+
+	private void call(AdaptiveConcurrencyLimit limit, DeployerOperation operation, long latencyMillis,
+		boolean overloaded, int inFlight) {
+		long start = now;
+		now += latencyMillis * MILLIS;
+		limit.onSample(operation, start, now, overloaded, inFlight);
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a closed loop of {@link DeployerClient} calls against a simulated Cloud Controller in virtual time, and checks
+ * where the adaptive concurrency limit settles.
+ */
+class AdaptiveConcurrencySimulationTest {
+
+	private static final Duration BASE_LATENCY = Duration.ofMillis(100);
+
+	private static final int CLIENTS = 100;
+
+	private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+	@AfterEach
+	void tearDown() {
+		scheduler.dispose();
+	}
+
+	@Test
+	void limitConvergesBelowTheCapacityOfABusyCloudController() {
+		SimulatedCloudController cloudController = new SimulatedCloudController(10, 30);
+		Simulation simulation = new Simulation(cloudController);
+
+		simulation.run(Duration.ofSeconds(60));
+		LimitStatistics settled = simulation.run(Duration.ofSeconds(60));
+		simulation.stop();
+
+		assertThat(settled.getMin()).isGreaterThanOrEqualTo(5);
+		assertThat(settled.getMax()).isLessThanOrEqualTo(25);
+		assertThat(cloudController.getRateLimitedCount()).isZero();
+		assertThat(cloudController.getCompletedCount()).isGreaterThan(5_000);
+	}
+
+	@Test
+	void limitGrowsWhileTheCloudControllerKeepsUp() {
+		SimulatedCloudController cloudController = new SimulatedCloudController(1000, Integer.MAX_VALUE);
+		Simulation simulation = new Simulation(cloudController);
+
+		LimitStatistics warmUp = simulation.run(Duration.ofSeconds(30));
+		simulation.stop();
+
+		assertThat(warmUp.getMin()).isEqualTo(1);
+		assertThat(warmUp.getLast()).isGreaterThanOrEqualTo(CLIENTS);
+		assertThat(cloudController.getPeakInFlight()).isGreaterThan(CLIENTS / 2);
+	}
+
+	@Test
+	void limitBacksOffWhenTheCloudControllerDegrades() {
+		SimulatedCloudController cloudController = new SimulatedCloudController(10, 30);
+		Simulation simulation = new Simulation(cloudController);
+
+		simulation.run(Duration.ofSeconds(30));
+		LimitStatistics healthy = simulation.run(Duration.ofSeconds(30));
+		cloudController.setCapacity(3);
+		simulation.run(Duration.ofSeconds(30));
+		LimitStatistics degraded = simulation.run(Duration.ofSeconds(30));
+		simulation.stop();
+
+		assertThat(degraded.getMax()).isLessThanOrEqualTo(10);
+		assertThat(degraded.getAverage()).isLessThan(healthy.getAverage() / 2);
+	}
+
+	@Test
+	void limitStaysBelowTheCloudControllerRateLimit() {
+		SimulatedCloudController cloudController = new SimulatedCloudController(1000, 15);
+		Simulation simulation = new Simulation(cloudController);
+
+		simulation.run(Duration.ofSeconds(60));
+		int rateLimitedDuringWarmUp = cloudController.getRateLimitedCount();
+		LimitStatistics settled = simulation.run(Duration.ofSeconds(60));
+		simulation.stop();
+
+		assertThat(settled.getMax()).isLessThanOrEqualTo(20);
+		int rateLimited = cloudController.getRateLimitedCount() - rateLimitedDuringWarmUp;
+		assertThat(rateLimited).isLessThan(cloudController.getCompletedCount() / 10);
+	}
+
+	private final class Simulation {
+
+		private final DeployerConcurrencyLimiter limiter;
+
+		private final Disposable load;
+
+		private Simulation(SimulatedCloudController cloudController) {
+			AdaptiveConcurrencyLimit adaptiveLimit = new AdaptiveConcurrencyLimit(1, 1, 200, 0.5, 2.0,
+				Duration.ofMinutes(1));
+			this.limiter = new DeployerConcurrencyLimiter(0, Collections.emptyMap(), adaptiveLimit,
+				exception -> exception instanceof RateLimitedException, () -> scheduler.now(TimeUnit.NANOSECONDS));
+			DeployerClient deployerClient = new DeployerClient(cloudController, limiter);
+			BackingApplication application = BackingApplication.builder()
+				.name("app")
+				.path("app.jar")
+				.build();
+			this.load = Flux.range(0, Integer.MAX_VALUE)
+				.flatMap(i -> deployerClient.deploy(application, "instance-id")
+					.onErrorResume(exception -> Mono.empty()), CLIENTS)
+				.subscribe();
+		}
+
+		private LimitStatistics run(Duration duration) {
+			LimitStatistics statistics = new LimitStatistics();
+			for (long elapsed = 0; elapsed < duration.toMillis(); elapsed += 10) {
+				scheduler.advanceTimeBy(Duration.ofMillis(10));
+				statistics.add(limiter.getCurrentLimit());
+			}
+			return statistics;
+		}
+
+		private void stop() {
+			load.dispose();
+		}
+
+	}
+
+	/**
+	 * Serves {@code capacity} concurrent deployments at the base latency. Beyond that, latency grows with the number
+	 * of deployments in flight, and beyond {@code rateLimit} deployments are rejected quickly.
+	 */
+	private final class SimulatedCloudController implements AppDeployer {
+
+		private final int rateLimit;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicInteger peakInFlight = new AtomicInteger();
+
+		private final AtomicInteger completed = new AtomicInteger();
+
+		private final AtomicInteger rateLimited = new AtomicInteger();
+
+		private int capacity;
+
+		private SimulatedCloudController(int capacity, int rateLimit) {
+			this.capacity = capacity;
+			this.rateLimit = rateLimit;
+		}
+
+		@Override
+		public Mono<DeployApplicationResponse> deploy(DeployApplicationRequest request) {
+			return Mono.defer(() -> {
+				int calls = inFlight.incrementAndGet();
+				peakInFlight.accumulateAndGet(calls, Math::max);
+				if (calls > rateLimit) {
+					rateLimited.incrementAndGet();
+					return Mono.delay(Duration.ofMillis(10), scheduler)
+						.then(Mono.<DeployApplicationResponse>error(new RateLimitedException()));
+				}
+				Duration latency = BASE_LATENCY.multipliedBy(Math.max(capacity, calls)).dividedBy(capacity);
+				return Mono.delay(latency, scheduler)
+					.doOnNext(tick -> completed.incrementAndGet())
+					.thenReturn(DeployApplicationResponse.builder()
+						.name(request.getName())
+						.build());
+			})
+				.doFinally(signal -> inFlight.decrementAndGet());
+		}
+
+		private void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		private int getPeakInFlight() {
+			return peakInFlight.get();
+		}
+
+		private int getCompletedCount() {
+			return completed.get();
+		}
+
+		private int getRateLimitedCount() {
+			return rateLimited.get();
+		}
+
+	}
+
+	private static final class LimitStatistics {
+
+		private int min = Integer.MAX_VALUE;
+
+		private int max;
+
+		private long sum;
+
+		private int count;
+
+		private int last;
+
+		private void add(int limit) {
+			min = Math.min(min, limit);
+			max = Math.max(max, limit);
+			sum += limit;
+			count++;
+			last = limit;
+		}
+
+		private int getMin() {
+			return min;
+		}
+
+		private int getMax() {
+			return max;
+		}
+
+		private double getAverage() {
+			return (double) sum / count;
+		}
+
+		private int getLast() {
+			return last;
+		}
+
+	}
+
+	private static final class RateLimitedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private RateLimitedException() {
+			super("429 Too Many Requests", null, false, false);
+		}
+
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BackingApplicationFingerprintsTest {
+
+	@Test
+	void equalApplicationsHaveEqualFingerprints() {
+		Map<String, Object> environment = new LinkedHashMap<>();
+		environment.put("A", "1");
+		environment.put("B", "2");
+		Map<String, Object> reversedEnvironment = new LinkedHashMap<>();
+		reversedEnvironment.put("B", "2");
+		reversedEnvironment.put("A", "1");
+
+		String fingerprint = BackingApplicationFingerprints.fingerprint(application()
+			.environment(environment)
+			.build());
+
+		assertThat(fingerprint).hasSize(64);
+		assertThat(BackingApplicationFingerprints.fingerprint(application()
+			.environment(reversedEnvironment)
+			.build()))
+			.isEqualTo(fingerprint);
+	}
+
+	@Test
+	void changedManifestChangesFingerprint() {
+		String fingerprint = BackingApplicationFingerprints.fingerprint(application().build());
+
+		assertThat(BackingApplicationFingerprints.fingerprint(application().path("https://myfiles/app2.jar").build()))
+			.isNotEqualTo(fingerprint);
+		assertThat(BackingApplicationFingerprints.fingerprint(application().property("memory", "2G").build()))
+			.isNotEqualTo(fingerprint);
+		assertThat(BackingApplicationFingerprints.fingerprint(application().environment("A", "2").build()))
+			.isNotEqualTo(fingerprint);
+		assertThat(BackingApplicationFingerprints.fingerprint(application()
+			.services(ServicesSpec.builder().serviceInstanceName("db").build())
+			.build()))
+			.isNotEqualTo(fingerprint);
+	}
+
+	@Test
+	void valuesAreNotConfusedAcrossEntries() {
+		assertThat(BackingApplicationFingerprints.fingerprint(application()
+			.environment("A", "1B")
+			.build()))
+			.isNotEqualTo(BackingApplicationFingerprints.fingerprint(application()
+				.environment("A1", "B")
+				.build()));
+	}
+
+	private static BackingApplication.BackingApplicationBuilder application() {
+		return BackingApplication.builder()
+			.name("app1")
+			.path("https://myfiles/app1.jar")
+			.property("memory", "1G")
+			.environment("A", "1");
+	}
+
+}
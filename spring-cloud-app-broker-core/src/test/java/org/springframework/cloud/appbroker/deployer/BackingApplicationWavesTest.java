@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BackingApplicationWavesTest {
+
+	@Test
+	void applicationsWithoutDependenciesFormOneWave() {
+		BackingApplications apps = BackingApplications.builder()
+			.backingApplication(app("app1"))
+			.backingApplication(app("app2"))
+			.build();
+
+		assertThat(BackingApplicationWaves.of(apps)).containsExactly(apps);
+	}
+
+	@Test
+	void dependenciesAreOrderedIntoWaves() {
+		BackingApplication migrator = app("migrator");
+		BackingApplication worker = app("worker", "migrator");
+		BackingApplication web = app("web", "migrator");
+		BackingApplication gateway = app("gateway", "web", "worker");
+
+		List<List<BackingApplication>> waves = BackingApplicationWaves.of(BackingApplications.builder()
+			.backingApplication(gateway)
+			.backingApplication(web)
+			.backingApplication(worker)
+			.backingApplication(migrator)
+			.build());
+
+		assertThat(waves).hasSize(3);
+		assertThat(waves.get(0)).containsExactly(migrator);
+		assertThat(waves.get(1)).containsExactly(web, worker);
+		assertThat(waves.get(2)).containsExactly(gateway);
+	}
+
+	@Test
+	void dependenciesOnUnknownApplicationsAreIgnored() {
+		BackingApplication app = app("app1", "external-app");
+
+		assertThat(BackingApplicationWaves.of(BackingApplications.builder()
+			.backingApplication(app)
+			.build()))
+			.containsExactly(BackingApplications.builder().backingApplication(app).build());
+	}
+
+	@Test
+	void circularDependenciesAreRejected() {
+		assertThatThrownBy(() -> BackingApplicationWaves.of(BackingApplications.builder()
+			.backingApplication(app("app1", "app3"))
+			.backingApplication(app("app2", "app1"))
+			.backingApplication(app("app3", "app2"))
+			.build()))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("circular");
+	}
+
+	private static BackingApplication app(String name, String... dependsOn) {
+		return BackingApplication.builder()
+			.name(name)
+			.dependsOn(dependsOn)
+			.build();
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BrokeredServicesCatalogTest {
+
+	@Test
+	void reloadSwapsSnapshot() {
+		BrokeredServicesCatalog catalog = new BrokeredServicesCatalog(catalogWith("service1"));
+		BrokeredServicesIndex initial = catalog.getSnapshot();
+
+		catalog.reload(catalogWith("service2"));
+
+		assertThat(catalog.getReloadCount()).isEqualTo(1);
+		assertThat(catalog.getSnapshot().get("service2", "plan1")).isNotNull();
+		assertThat(catalog.getSnapshot().get("service1", "plan1")).isNull();
+		assertThat(initial.get("service1", "plan1")).isNotNull();
+	}
+
+	@Test
+	void unpinnedOperationSeesCurrentSnapshot() {
+		BrokeredServicesCatalog catalog = new BrokeredServicesCatalog(catalogWith("service1"));
+
+		catalog.reload(catalogWith("service2"));
+
+		StepVerifier.create(catalog.snapshot())
+			.assertNext(snapshot -> assertThat(snapshot.get("service2", "plan1")).isNotNull())
+			.verifyComplete();
+	}
+
+	@Test
+	void pinnedOperationKeepsSnapshotAcrossReload() {
+		BrokeredServicesCatalog catalog = new BrokeredServicesCatalog(catalogWith("service1"));
+
+		Mono<Boolean> operation = catalog.snapshot()
+			.doOnNext(snapshot -> catalog.reload(catalogWith("service2")))
+			.then(catalog.snapshot())
+			.map(snapshot -> snapshot.get("service1", "plan1") != null);
+
+		StepVerifier.create(catalog.pin(operation))
+			.expectNext(true)
+			.verifyComplete();
+
+		assertThat(catalog.getSnapshot().get("service1", "plan1")).isNull();
+	}
+
+	private BrokeredServices catalogWith(String serviceName) {
+		return BrokeredServices.builder()
+			.service(BrokeredService.builder()
+				.serviceName(serviceName)
+				.planName("plan1")
+				.build())
+			.build();
+	}
+
+}
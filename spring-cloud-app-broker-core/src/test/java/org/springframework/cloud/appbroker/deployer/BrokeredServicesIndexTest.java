@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BrokeredServicesIndexTest {
+
+	@Test
+	void findsServiceByServiceAndPlanName() {
+		BrokeredService service1Plan1 = brokeredService("service1", "plan1");
+		BrokeredService service1Plan2 = brokeredService("service1", "plan2");
+		BrokeredService service2Plan1 = brokeredService("service2", "plan1");
+
+		BrokeredServicesIndex index = new BrokeredServicesIndex(BrokeredServices.builder()
+			.service(service1Plan1)
+			.service(service1Plan2)
+			.service(service2Plan1)
+			.build());
+
+		assertThat(index.get("service1", "plan1")).isSameAs(service1Plan1);
+		assertThat(index.get("service1", "plan2")).isSameAs(service1Plan2);
+		assertThat(index.get("service2", "plan1")).isSameAs(service2Plan1);
+		assertThat(index.size()).isEqualTo(3);
+	}
+
+	@Test
+	void unknownServiceOrPlanIsNotFound() {
+		BrokeredServicesIndex index = new BrokeredServicesIndex(BrokeredServices.builder()
+			.service(brokeredService("service1", "plan1"))
+			.build());
+
+		assertThat(index.get("unknown-service", "plan1")).isNull();
+		assertThat(index.get("service1", "unknown-plan")).isNull();
+	}
+
+	@Test
+	void firstOccurrenceOfDuplicateServiceAndPlanWins() {
+		BrokeredService first = brokeredService("service1", "plan1");
+
+		BrokeredServicesIndex index = new BrokeredServicesIndex(BrokeredServices.builder()
+			.service(first)
+			.service(brokeredService("service1", "plan1"))
+			.build());
+
+		assertThat(index.get("service1", "plan1")).isSameAs(first);
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	void emptyIndex() {
+		BrokeredServicesIndex index = new BrokeredServicesIndex(Collections.emptyList());
+
+		assertThat(index.get("service1", "plan1")).isNull();
+		assertThat(index.size()).isZero();
+	}
+
+	private BrokeredService brokeredService(String serviceName, String planName) {
+		return BrokeredService.builder()
+			.serviceName(serviceName)
+			.planName(planName)
+			.build();
+	}
+
+}
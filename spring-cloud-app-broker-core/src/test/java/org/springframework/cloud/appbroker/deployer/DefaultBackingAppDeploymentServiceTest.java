@@ -94,4 +94,68 @@ class DefaultBackingAppDeploymentServiceTest {
 			.verifyComplete();
 	}
 
+	@Test
+	@SuppressWarnings("UnassignedFluxMonoInstance")
+	void shouldDeployDependentApplicationsAfterTheirDependencies() {
+		BackingApplications apps = BackingApplications.builder()
+			.backingApplication(BackingApplication.builder()
+				.name("web")
+				.dependsOn("migrator")
+				.build())
+			.backingApplication(BackingApplication.builder()
+				.name("migrator")
+				.build())
+			.build();
+		doReturn(Mono.just("migrator"))
+			.when(deployerClient).deploy(apps.get(1), "instance-id");
+		doReturn(Mono.just("web"))
+			.when(deployerClient).deploy(apps.get(0), "instance-id");
+
+		StepVerifier.create(backingAppDeploymentService.deploy(apps, "instance-id"))
+			.expectNext("migrator")
+			.expectNext("web")
+			.verifyComplete();
+	}
+
+	@Test
+	@SuppressWarnings("UnassignedFluxMonoInstance")
+	void shouldUndeployDependentApplicationsBeforeTheirDependencies() {
+		BackingApplications apps = BackingApplications.builder()
+			.backingApplication(BackingApplication.builder()
+				.name("web")
+				.dependsOn("migrator")
+				.build())
+			.backingApplication(BackingApplication.builder()
+				.name("migrator")
+				.build())
+			.build();
+		doReturn(Mono.just("deleted-migrator"))
+			.when(deployerClient).undeploy(apps.get(1));
+		doReturn(Mono.just("deleted-web"))
+			.when(deployerClient).undeploy(apps.get(0));
+
+		StepVerifier.create(backingAppDeploymentService.undeploy(apps))
+			.expectNext("deleted-web")
+			.expectNext("deleted-migrator")
+			.verifyComplete();
+	}
+
+	@Test
+	void shouldFailDeploymentWithCircularDependencies() {
+		BackingApplications apps = BackingApplications.builder()
+			.backingApplication(BackingApplication.builder()
+				.name("app1")
+				.dependsOn("app2")
+				.build())
+			.backingApplication(BackingApplication.builder()
+				.name("app2")
+				.dependsOn("app1")
+				.build())
+			.build();
+
+		StepVerifier.create(backingAppDeploymentService.deploy(apps, "instance-id"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+	}
+
 }
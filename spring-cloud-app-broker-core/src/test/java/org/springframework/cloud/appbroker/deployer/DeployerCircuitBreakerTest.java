@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.servicebroker.exception.ServiceBrokerUnavailableException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeployerCircuitBreakerTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final DeployerCircuitBreaker circuitBreaker = circuitBreaker(true);
+
+	@Test
+	void circuitOpensAfterConsecutiveTransientFailuresAndFailsFast() {
+		failTransiently(3);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(DeployerCircuitBreaker.State.OPEN);
+		assertThat(circuitBreaker.getOpenedCount()).isEqualTo(1);
+
+		StepVerifier.create(circuitBreaker.protect(this::succeed))
+			.expectError(ServiceBrokerUnavailableException.class)
+			.verify();
+
+		assertThat(calls).hasValue(3);
+		assertThat(circuitBreaker.getRejectedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void successResetsTheConsecutiveFailures() {
+		failTransiently(2);
+		StepVerifier.create(circuitBreaker.protect(this::succeed))
+			.expectNext("deployed")
+			.verifyComplete();
+		failTransiently(2);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(DeployerCircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void errorsThatAreNotTransientDoNotOpenTheCircuit() {
+		for (int i = 0; i < 5; i++) {
+			StepVerifier.create(circuitBreaker.protect(() -> fail(new IllegalStateException("app does not exist"))))
+				.expectError(IllegalStateException.class)
+				.verify();
+		}
+
+		assertThat(circuitBreaker.getState()).isEqualTo(DeployerCircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void successfulTrialCallClosesTheCircuit() {
+		failTransiently(3);
+		clock.advance(Duration.ofSeconds(30));
+
+		StepVerifier.create(circuitBreaker.protect(this::succeed))
+			.expectNext("deployed")
+			.verifyComplete();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(DeployerCircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void failedTrialCallOpensTheCircuitAgain() {
+		failTransiently(3);
+		clock.advance(Duration.ofSeconds(30));
+
+		failTransiently(1);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(DeployerCircuitBreaker.State.OPEN);
+		assertThat(circuitBreaker.getOpenedCount()).isEqualTo(2);
+		StepVerifier.create(circuitBreaker.protect(this::succeed))
+			.expectError(ServiceBrokerUnavailableException.class)
+			.verify();
+	}
+
+	@Test
+	void onlyOneTrialCallIsLetThrough() {
+		failTransiently(3);
+		clock.advance(Duration.ofSeconds(30));
+
+		circuitBreaker.protect(Mono::never).subscribe();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(DeployerCircuitBreaker.State.HALF_OPEN);
+		StepVerifier.create(circuitBreaker.protect(this::succeed))
+			.expectError(ServiceBrokerUnavailableException.class)
+			.verify();
+	}
+
+	@Test
+	void disabledCircuitNeverOpens() {
+		DeployerCircuitBreaker disabled = circuitBreaker(false);
+
+		for (int i = 0; i < 5; i++) {
+			StepVerifier.create(disabled.protect(() -> fail(new IOException("connection refused"))))
+				.expectError(IOException.class)
+				.verify();
+		}
+
+		assertThat(disabled.getState()).isEqualTo(DeployerCircuitBreaker.State.CLOSED);
+		assertThat(calls).hasValue(5);
+	}
+
+	private DeployerCircuitBreaker circuitBreaker(boolean enabled) {
+		DeployerCircuitBreakerProperties properties = new DeployerCircuitBreakerProperties();
+		properties.setEnabled(enabled);
+		properties.setFailureThreshold(3);
+		properties.setOpenDuration(Duration.ofSeconds(30));
+		return new DeployerCircuitBreaker(properties, new TransientErrorClassifier() {
+		}, clock);
+	}
+
+	private void failTransiently(int times) {
+		for (int i = 0; i < times; i++) {
+			StepVerifier.create(circuitBreaker.protect(() -> fail(new IOException("connection refused"))))
+				.expectError(IOException.class)
+				.verify();
+		}
+	}
+
+	private Mono<String> succeed() {
+		return Mono.fromCallable(() -> {
+			calls.incrementAndGet();
+			return "deployed";
+		});
+	}
+
+	private Mono<String> fail(Throwable exception) {
+		return Mono.defer(() -> {
+			calls.incrementAndGet();
+			return Mono.error(exception);
+		});
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant = Instant.parse("2019-01-01T00:00:00Z");
+
+		public void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+
+	}
+
+}
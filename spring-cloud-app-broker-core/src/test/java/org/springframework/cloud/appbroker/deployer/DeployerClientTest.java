@@ -16,10 +16,13 @@
 
 package org.springframework.cloud.appbroker.deployer;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,6 +33,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
@@ -293,6 +297,80 @@ class DeployerClientTest {
 			SERVICE_INSTANCE_NAME.equals(request.getServiceInstanceName())));
 	}
 
+	@Test
+	void shouldReturnErrorWhenUndeployingAppFailsWithTransientError() {
+		given(appDeployer.undeploy(any()))
+			.willReturn(Mono.error(new IOException("connection refused")));
+
+		BackingApplication application = BackingApplication.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.build();
+
+		// when
+		StepVerifier.create(deployerClient.undeploy(application))
+			// then
+			.expectError(IOException.class)
+			.verify();
+	}
+
+	@Test
+	void shouldRetryDeployingAppAfterThePlatformRejectedIt() {
+		AtomicInteger attempts = new AtomicInteger();
+		givenDeployFailsOnce(attempts, new IOException("rejected"));
+
+		BackingApplication application = BackingApplication.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.build();
+
+		// when
+		StepVerifier.create(deployerClient.deploy(application, "instance-id"))
+			// then
+			.expectNext(APP_NAME)
+			.verifyComplete();
+
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	void shouldNotRetryDeployingAppAfterOtherTransientErrors() {
+		AtomicInteger attempts = new AtomicInteger();
+		givenDeployFailsOnce(attempts, new IOException("connection reset"));
+
+		BackingApplication application = BackingApplication.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.build();
+
+		// when
+		StepVerifier.create(deployerClient.deploy(application, "instance-id"))
+			// then
+			.expectError(IOException.class)
+			.verify();
+
+		assertThat(attempts).hasValue(1);
+	}
+
+	private void givenDeployFailsOnce(AtomicInteger attempts, Throwable exception) {
+		DeployerRetryProperties retryProperties = new DeployerRetryProperties();
+		retryProperties.setInitialBackoff(Duration.ZERO);
+		retryProperties.setMaxBackoff(Duration.ZERO);
+		deployerClient = new DeployerClient(appDeployer, DeployerConcurrencyLimiter.unlimited(),
+			new DeployerRetry(retryProperties, new TransientErrorClassifier() {
+				@Override
+				public boolean isRejected(Throwable e) {
+					return "rejected".equals(e.getMessage());
+				}
+			}), DeployerCircuitBreaker.disabled());
+		given(appDeployer.deploy(any()))
+			.willReturn(Mono.defer(() -> attempts.incrementAndGet() == 1 ?
+				Mono.error(exception) :
+				Mono.just(DeployApplicationResponse.builder()
+					.name(APP_NAME)
+					.build())));
+	}
+
 	private ArgumentMatcher<DeployApplicationRequest> matchesRequest(String appName, String appArchive,
 		Map<String, String> properties,
 		Map<String, Object> environment,
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeployerConcurrencyLimiterTest {
+
+	@Test
+	void callsBeyondTheOperationLimitWaitForAPermit() {
+		DeployerConcurrencyLimiter limiter = limiter(0, DeployerOperation.DEPLOY, 1);
+		TestPublisher<String> first = TestPublisher.create();
+		TestPublisher<String> second = TestPublisher.create();
+
+		limiter.limit(DeployerOperation.DEPLOY, first::mono).subscribe();
+		limiter.limit(DeployerOperation.DEPLOY, second::mono).subscribe();
+
+		first.assertWasSubscribed();
+		second.assertWasNotSubscribed();
+		assertThat(limiter.getPermitsInUse(DeployerOperation.DEPLOY)).isEqualTo(1);
+		assertThat(limiter.getWaitingCount(DeployerOperation.DEPLOY)).isEqualTo(1);
+
+		first.emit("app1");
+
+		second.assertWasSubscribed();
+		assertThat(limiter.getPermitsInUse(DeployerOperation.DEPLOY)).isEqualTo(1);
+		assertThat(limiter.getWaitingCount()).isZero();
+
+		second.emit("app2");
+
+		assertThat(limiter.getPermitsInUse()).isZero();
+		assertThat(limiter.getAcquiredCount(DeployerOperation.DEPLOY)).isEqualTo(2);
+		assertThat(limiter.getTotalWaitTime(DeployerOperation.DEPLOY))
+			.isGreaterThanOrEqualTo(limiter.getMaxWaitTime(DeployerOperation.DEPLOY));
+	}
+
+	@Test
+	void operationAtItsLimitDoesNotHoldUpOtherOperations() {
+		DeployerConcurrencyLimiter limiter = limiter(0, DeployerOperation.DEPLOY, 1);
+		TestPublisher<String> deploy = TestPublisher.create();
+		TestPublisher<String> queuedDeploy = TestPublisher.create();
+		TestPublisher<String> createService = TestPublisher.create();
+
+		limiter.limit(DeployerOperation.DEPLOY, deploy::mono).subscribe();
+		limiter.limit(DeployerOperation.DEPLOY, queuedDeploy::mono).subscribe();
+		limiter.limit(DeployerOperation.CREATE_SERVICE_INSTANCE, createService::mono).subscribe();
+
+		queuedDeploy.assertWasNotSubscribed();
+		createService.assertWasSubscribed();
+		assertThat(limiter.getPermitsInUse()).isEqualTo(2);
+	}
+
+	@Test
+	void totalLimitAppliesAcrossOperations() {
+		DeployerConcurrencyLimiter limiter = new DeployerConcurrencyLimiter(1, Collections.emptyMap());
+		TestPublisher<String> deploy = TestPublisher.create();
+		TestPublisher<String> createService = TestPublisher.create();
+
+		limiter.limit(DeployerOperation.DEPLOY, deploy::mono).subscribe();
+		limiter.limit(DeployerOperation.CREATE_SERVICE_INSTANCE, createService::mono).subscribe();
+
+		createService.assertWasNotSubscribed();
+		assertThat(limiter.getWaitingCount(DeployerOperation.CREATE_SERVICE_INSTANCE)).isEqualTo(1);
+
+		deploy.emit("app1");
+
+		createService.assertWasSubscribed();
+	}
+
+	@Test
+	void waitingCallsStartInArrivalOrder() {
+		DeployerConcurrencyLimiter limiter = new DeployerConcurrencyLimiter(1, Collections.emptyMap());
+		TestPublisher<String> running = TestPublisher.create();
+		List<String> started = new ArrayList<>();
+
+		limiter.limit(DeployerOperation.DEPLOY, running::mono).subscribe();
+		for (String name : new String[] {"app1", "app2", "app3"}) {
+			limiter.limit(DeployerOperation.UPDATE, () -> {
+				started.add(name);
+				return Mono.<String>empty();
+			}).subscribe();
+		}
+
+		assertThat(started).isEmpty();
+
+		running.emit("app");
+
+		assertThat(started).containsExactly("app1", "app2", "app3");
+	}
+
+	@Test
+	void cancelledWaitingCallIsRemovedFromTheQueue() {
+		DeployerConcurrencyLimiter limiter = limiter(0, DeployerOperation.UNDEPLOY, 1);
+		TestPublisher<String> running = TestPublisher.create();
+		TestPublisher<String> cancelled = TestPublisher.create();
+
+		limiter.limit(DeployerOperation.UNDEPLOY, running::mono).subscribe();
+		Disposable waiting = limiter.limit(DeployerOperation.UNDEPLOY, cancelled::mono).subscribe();
+
+		waiting.dispose();
+
+		assertThat(limiter.getWaitingCount(DeployerOperation.UNDEPLOY)).isZero();
+
+		running.emit("app");
+
+		cancelled.assertWasNotSubscribed();
+		assertThat(limiter.getPermitsInUse()).isZero();
+	}
+
+	@Test
+	void failedCallReleasesItsPermit() {
+		DeployerConcurrencyLimiter limiter = limiter(0, DeployerOperation.DELETE_SERVICE_INSTANCE, 1);
+		TestPublisher<String> failing = TestPublisher.create();
+
+		StepVerifier.create(limiter.limit(DeployerOperation.DELETE_SERVICE_INSTANCE, failing::mono))
+			.then(() -> failing.error(new IllegalStateException("rate limited")))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		assertThat(limiter.getPermitsInUse(DeployerOperation.DELETE_SERVICE_INSTANCE)).isZero();
+	}
+
+	@Test
+	void limitsOfZeroOrLessAreUnlimited() {
+		DeployerConcurrencyLimiter limiter = limiter(0, DeployerOperation.DEPLOY, 0);
+
+		assertThat(limiter.getMaxConcurrent()).isEqualTo(Integer.MAX_VALUE);
+		assertThat(limiter.getMaxConcurrent(DeployerOperation.DEPLOY)).isEqualTo(Integer.MAX_VALUE);
+	}
+
+	private static DeployerConcurrencyLimiter limiter(int maxConcurrent, DeployerOperation operation, int limit) {
+		Map<DeployerOperation, Integer> limits = new EnumMap<>(DeployerOperation.class);
+		limits.put(operation, limit);
+		return new DeployerConcurrencyLimiter(maxConcurrent, limits);
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeployerRetryTest {
+
+	private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	@AfterEach
+	void tearDown() {
+		scheduler.dispose();
+	}
+
+	@Test
+	void idempotentCallIsRetriedAfterTransientErrors() {
+		DeployerRetry retry = retry(new DeployerRetryProperties());
+
+		StepVerifier.withVirtualTime(() -> retry.retry(DeployerOperation.UNDEPLOY,
+			() -> failTimes(2, new IOException("connection reset"))), () -> scheduler, Long.MAX_VALUE)
+			.thenAwait(Duration.ofMinutes(1))
+			.expectNext("deployed")
+			.verifyComplete();
+
+		assertThat(attempts).hasValue(3);
+		assertThat(retry.getRetryCount(DeployerOperation.UNDEPLOY)).isEqualTo(2);
+		assertThat(retry.getExhaustedCount(DeployerOperation.UNDEPLOY)).isZero();
+	}
+
+	@Test
+	void callFailsWithTheLastErrorOnceAttemptsAreExhausted() {
+		DeployerRetry retry = retry(new DeployerRetryProperties());
+
+		StepVerifier.withVirtualTime(() -> retry.retry(DeployerOperation.UNDEPLOY,
+			() -> failTimes(5, new IOException("connection reset"))), () -> scheduler, Long.MAX_VALUE)
+			.thenAwait(Duration.ofMinutes(1))
+			.expectError(IOException.class)
+			.verify();
+
+		assertThat(attempts).hasValue(3);
+		assertThat(retry.getExhaustedCount(DeployerOperation.UNDEPLOY)).isEqualTo(1);
+	}
+
+	@Test
+	void errorsThatAreNotTransientAreNotRetried() {
+		DeployerRetry retry = retry(new DeployerRetryProperties());
+
+		StepVerifier.create(retry.retry(DeployerOperation.DEPLOY,
+			() -> failTimes(1, new IllegalStateException("invalid manifest"))))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		assertThat(attempts).hasValue(1);
+		assertThat(retry.getRetryCount(DeployerOperation.DEPLOY)).isZero();
+	}
+
+	@Test
+	void callThatIsNotIdempotentIsOnlyRetriedWhenItWasRejected() {
+		DeployerRetry retry = retry(new DeployerRetryProperties());
+
+		StepVerifier.create(retry.retry(DeployerOperation.CREATE_SERVICE_INSTANCE,
+			() -> failTimes(1, new IOException("connection reset"))))
+			.expectError(IOException.class)
+			.verify();
+		assertThat(attempts).hasValue(1);
+
+		attempts.set(0);
+		StepVerifier.withVirtualTime(() -> retry.retry(DeployerOperation.CREATE_SERVICE_INSTANCE,
+			() -> failTimes(1, new RejectedException())), () -> scheduler, Long.MAX_VALUE)
+			.thenAwait(Duration.ofMinutes(1))
+			.expectNext("deployed")
+			.verifyComplete();
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	void deployingAndUpdatingApplicationsAreOnlyRetriedWhenRejected() {
+		DeployerRetry retry = retry(new DeployerRetryProperties());
+
+		StepVerifier.create(retry.retry(DeployerOperation.DEPLOY,
+			() -> failTimes(1, new IOException("connection reset"))))
+			.expectError(IOException.class)
+			.verify();
+		StepVerifier.create(retry.retry(DeployerOperation.UPDATE,
+			() -> failTimes(2, new IOException("connection reset"))))
+			.expectError(IOException.class)
+			.verify();
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	void backoffIsARandomDelayUpToAnExponentiallyGrowingBound() {
+		DeployerRetryProperties properties = new DeployerRetryProperties();
+		properties.setMaxAttempts(5);
+		properties.setInitialBackoff(Duration.ofSeconds(1));
+		properties.setMaxBackoff(Duration.ofSeconds(3));
+		DeployerRetry retry = new DeployerRetry(properties, new TestErrorClassifier(), scheduler,
+			new FixedRandom(0.5));
+
+		StepVerifier.withVirtualTime(() -> retry.retry(DeployerOperation.RESTART,
+			() -> failTimes(4, new IOException("connection reset"))), () -> scheduler, Long.MAX_VALUE)
+			.expectSubscription()
+			.then(() -> assertThat(attempts).hasValue(1))
+			.thenAwait(Duration.ofMillis(500))
+			.then(() -> assertThat(attempts).hasValue(2))
+			.thenAwait(Duration.ofMillis(1000))
+			.then(() -> assertThat(attempts).hasValue(3))
+			.thenAwait(Duration.ofMillis(1499))
+			.then(() -> assertThat(attempts).hasValue(3))
+			.thenAwait(Duration.ofMillis(1))
+			.then(() -> assertThat(attempts).hasValue(4))
+			.thenAwait(Duration.ofMillis(1500))
+			.expectNext("deployed")
+			.verifyComplete();
+	}
+
+	@Test
+	void operationsCanOverrideTheRetrySettings() {
+		DeployerRetryProperties properties = new DeployerRetryProperties();
+		DeployerRetryProperties.Policy policy = new DeployerRetryProperties.Policy();
+		policy.setMaxAttempts(1);
+		properties.getOperations().put(DeployerOperation.DEPLOY, policy);
+		DeployerRetry retry = retry(properties);
+
+		assertThat(retry.getMaxAttempts(DeployerOperation.DEPLOY)).isEqualTo(1);
+		assertThat(retry.getMaxAttempts(DeployerOperation.UPDATE)).isEqualTo(3);
+
+		StepVerifier.create(retry.retry(DeployerOperation.DEPLOY,
+			() -> failTimes(1, new IOException("connection reset"))))
+			.expectError(IOException.class)
+			.verify();
+		assertThat(attempts).hasValue(1);
+	}
+
+	private DeployerRetry retry(DeployerRetryProperties properties) {
+		return new DeployerRetry(properties, new TestErrorClassifier(), scheduler, new Random());
+	}
+
+	private Mono<String> failTimes(int failures, Throwable exception) {
+		return Mono.defer(() -> attempts.incrementAndGet() <= failures ? Mono.error(exception) : Mono.just("deployed"));
+	}
+
+	private static final class TestErrorClassifier implements TransientErrorClassifier {
+
+		@Override
+		public boolean isRejected(Throwable exception) {
+			return exception instanceof RejectedException;
+		}
+
+	}
+
+	private static final class RejectedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private RejectedException() {
+			super("429 Too Many Requests");
+		}
+
+	}
+
+	private static final class FixedRandom extends Random {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double value;
+
+		private FixedRandom(double value) {
+			this.value = value;
+		}
+
+		@Override
+		public double nextDouble() {
+			return value;
+		}
+
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.publisher.TestPublisher;
+
+import org.springframework.cloud.appbroker.deployer.AppDeployer;
+import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
+import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.BrokeredService;
+import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
+import org.springframework.cloud.appbroker.deployer.ListServiceInstancesRequest;
+import org.springframework.cloud.appbroker.deployer.ListServiceInstancesResponse;
+import org.springframework.cloud.appbroker.extensions.targets.TargetService;
+import org.springframework.cloud.appbroker.manager.FleetUpgradeProgress.State;
+import org.springframework.cloud.appbroker.service.OperationExecutor;
+import org.springframework.cloud.appbroker.service.WorkflowServiceInstanceService;
+import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class FleetUpgradeServiceTest {
+
+	@Mock
+	private AppDeployer appDeployer;
+
+	@Mock
+	private BackingAppDeploymentService deploymentService;
+
+	@Mock
+	private TargetService targetService;
+
+	private BrokeredServicesCatalog brokeredServicesCatalog;
+
+	private final FleetUpgradeProperties properties = new FleetUpgradeProperties();
+
+	private final OperationExecutor operationExecutor = new OperationExecutor(10, 10);
+
+	private final ServiceInstanceStateRepository stateRepository = new InMemoryServiceInstanceStateRepository();
+
+	private final Map<String, TestPublisher<String>> upgrades = new HashMap<>();
+
+	private final List<List<BackingApplication>> upgradedApps = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		brokeredServicesCatalog = new BrokeredServicesCatalog(BrokeredServices.builder()
+			.service(BrokeredService.builder()
+				.serviceName("service1")
+				.planName("plan1")
+				.apps(BackingApplication.builder()
+					.name("app1")
+					.path("https://myfiles/app1.jar")
+					.build())
+				.build())
+			.build());
+		properties.setMaxInFlight(2);
+	}
+
+	@Test
+	void upgradesFirstInstanceAloneThenUpToMaxInFlight() {
+		givenServiceInstances("instance-1", "instance-2", "instance-3", "instance-4");
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+
+		assertUpgradesStarted("instance-1");
+		assertThat(upgradedApps.get(0).get(0).getProperties()).containsEntry("upgrade", "true");
+
+		upgrades.get("instance-1").complete();
+
+		assertUpgradesStarted("instance-1", "instance-2", "instance-3");
+		FleetUpgradeProgress progress = service.getProgress("service1", "plan1");
+		assertThat(progress.getState()).isEqualTo(State.RUNNING);
+		assertThat(progress.getTotal()).isEqualTo(4);
+		assertThat(progress.getSucceeded()).isEqualTo(1);
+		assertThat(progress.getInFlight()).isEqualTo(2);
+		assertThat(progress.getPending()).isEqualTo(1);
+
+		upgrades.get("instance-2").complete();
+		assertUpgradesStarted("instance-1", "instance-2", "instance-3", "instance-4");
+		upgrades.get("instance-3").complete();
+		upgrades.get("instance-4").complete();
+
+		progress = service.getProgress("service1", "plan1");
+		assertThat(progress.getState()).isEqualTo(State.COMPLETED);
+		assertThat(progress.getSucceeded()).isEqualTo(4);
+		assertThat(progress.getFailed()).isZero();
+	}
+
+	@Test
+	void haltsWhenMoreInstancesFailThanToleratedAndContinuesWhenResumed() {
+		givenServiceInstances("instance-1", "instance-2", "instance-3");
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+		upgrades.get("instance-1").error(new IllegalStateException("staging failed"));
+
+		FleetUpgradeProgress progress = service.getProgress("service1", "plan1");
+		assertThat(progress.getState()).isEqualTo(State.HALTED);
+		assertThat(progress.getFailures()).containsEntry("instance-1", "staging failed");
+		assertUpgradesStarted("instance-1");
+
+		service.resume("service1", "plan1");
+
+		assertUpgradesStarted("instance-1", "instance-2");
+		upgrades.get("instance-2").complete();
+		upgrades.get("instance-3").complete();
+
+		progress = service.getProgress("service1", "plan1");
+		assertThat(progress.getState()).isEqualTo(State.COMPLETED);
+		assertThat(progress.getSucceeded()).isEqualTo(2);
+		assertThat(progress.getFailed()).isEqualTo(1);
+	}
+
+	@Test
+	void continuesWhileFailuresAreTolerated() {
+		properties.setMaxFailures(1);
+		givenServiceInstances("instance-1", "instance-2");
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+		upgrades.get("instance-1").error(new IllegalStateException("staging failed"));
+
+		assertUpgradesStarted("instance-1", "instance-2");
+		assertThat(service.getProgress("service1", "plan1").getState()).isEqualTo(State.RUNNING);
+	}
+
+	@Test
+	void pausedUpgradeLetsInstancesInFlightFinishButStartsNoOthers() {
+		givenServiceInstances("instance-1", "instance-2", "instance-3");
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+		service.pause("service1", "plan1");
+		upgrades.get("instance-1").complete();
+
+		FleetUpgradeProgress progress = service.getProgress("service1", "plan1");
+		assertThat(progress.getState()).isEqualTo(State.PAUSED);
+		assertThat(progress.getSucceeded()).isEqualTo(1);
+		assertThat(progress.getPending()).isEqualTo(2);
+		assertUpgradesStarted("instance-1");
+
+		service.resume("service1", "plan1");
+
+		assertUpgradesStarted("instance-1", "instance-2", "instance-3");
+	}
+
+	@Test
+	void upgradeWaitsForDeleteOfTheSameInstanceAndSkipsItOnceDeleted() {
+		givenServiceInstances("instance-1", "instance-2");
+		TestPublisher<Void> delete = TestPublisher.create();
+		operationExecutor.submit("instance-1", delete.mono(), Mono.empty()).block();
+		stateRepository.saveState("instance-1", OperationState.IN_PROGRESS, "delete service instance started")
+			.block();
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+
+		assertUpgradesStarted();
+		assertThat(service.getProgress("service1", "plan1").getInFlight()).isEqualTo(1);
+
+		stateRepository.saveState("instance-1", OperationState.SUCCEEDED,
+			WorkflowServiceInstanceService.DELETE_COMPLETED_DESCRIPTION).block();
+		delete.complete();
+
+		then(deploymentService).should(never()).update(anyList(), eq("instance-1"));
+		assertUpgradesStarted("instance-2");
+		upgrades.get("instance-2").complete();
+
+		FleetUpgradeProgress progress = service.getProgress("service1", "plan1");
+		assertThat(progress.getState()).isEqualTo(State.COMPLETED);
+		assertThat(progress.getSkipped()).isEqualTo(1);
+		assertThat(progress.getSucceeded()).isEqualTo(1);
+	}
+
+	@Test
+	void instanceWithOperationInProgressIsSkipped() {
+		givenServiceInstances("instance-1", "instance-2");
+		stateRepository.saveState("instance-1", OperationState.IN_PROGRESS, "update service instance started")
+			.block();
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+
+		assertUpgradesStarted("instance-2");
+		assertThat(service.getProgress("service1", "plan1").getSkipped()).isEqualTo(1);
+	}
+
+	@Test
+	void upgradeOfPlanWithoutInstancesCompletes() {
+		given(appDeployer.listServiceInstances(any(ListServiceInstancesRequest.class)))
+			.willReturn(Mono.just(ListServiceInstancesResponse.builder().build()));
+		FleetUpgradeService service = createService();
+
+		FleetUpgradeProgress progress = service.start("service1", "plan1");
+
+		assertThat(progress.getState()).isEqualTo(State.COMPLETED);
+		assertThat(progress.getTotal()).isZero();
+	}
+
+	@Test
+	void upgradeFailsWhenInstancesCannotBeListed() {
+		given(appDeployer.listServiceInstances(any(ListServiceInstancesRequest.class)))
+			.willReturn(Mono.error(new IllegalStateException("unavailable")));
+		FleetUpgradeService service = createService();
+
+		FleetUpgradeProgress progress = service.start("service1", "plan1");
+
+		assertThat(progress.getState()).isEqualTo(State.FAILED);
+		assertThat(service.getProgress()).hasSize(1);
+	}
+
+	@Test
+	void upgradeOfPlanCannotStartTwice() {
+		given(appDeployer.listServiceInstances(any(ListServiceInstancesRequest.class)))
+			.willReturn(Mono.never());
+		FleetUpgradeService service = createService();
+
+		service.start("service1", "plan1");
+
+		assertThatThrownBy(() -> service.start("service1", "plan1"))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void unknownPlansAreRejected() {
+		FleetUpgradeService service = createService();
+
+		assertThatThrownBy(() -> service.start("service1", "unknown"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> service.pause("service1", "plan1"))
+			.isInstanceOf(IllegalStateException.class);
+		assertThat(service.getProgress("service1", "plan1")).isNull();
+	}
+
+	private FleetUpgradeService createService() {
+		return new FleetUpgradeService(appDeployer, deploymentService, brokeredServicesCatalog, targetService,
+			properties, operationExecutor, stateRepository);
+	}
+
+	private void givenServiceInstances(String... serviceInstanceIds) {
+		Arrays.stream(serviceInstanceIds).forEach(id -> upgrades.put(id, TestPublisher.create()));
+		given(appDeployer.listServiceInstances(any(ListServiceInstancesRequest.class)))
+			.willReturn(Mono.just(ListServiceInstancesResponse.builder()
+				.serviceInstanceIds(Arrays.asList(serviceInstanceIds))
+				.build()));
+		given(targetService.addToBackingApplications(anyList(), any(), anyString()))
+			.willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+		given(deploymentService.update(anyList(), anyString()))
+			.willAnswer(invocation -> {
+				upgradedApps.add(invocation.getArgument(0));
+				return upgrades.get(invocation.<String>getArgument(1)).flux();
+			});
+	}
+
+	private void assertUpgradesStarted(String... serviceInstanceIds) {
+		upgrades.forEach((id, upgrade) -> {
+			if (Arrays.asList(serviceInstanceIds).contains(id)) {
+				upgrade.assertWasSubscribed();
+			}
+			else {
+				upgrade.assertWasNotSubscribed();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import org.springframework.cloud.servicebroker.exception.ServiceBrokerConcurrencyException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OperationExecutorTest {
+
+	@Test
+	void startsOperationImmediatelyWhenBelowLimit() {
+		OperationExecutor executor = new OperationExecutor(1, 1);
+		TestPublisher<Void> operation = TestPublisher.create();
+		AtomicBoolean queued = new AtomicBoolean();
+
+		StepVerifier.create(executor.submit(operation.mono(), Mono.fromRunnable(() -> queued.set(true))))
+			.verifyComplete();
+
+		operation.assertWasSubscribed();
+		assertThat(queued).isFalse();
+		assertThat(executor.getInFlightCount()).isEqualTo(1);
+		assertThat(executor.getPendingCount()).isZero();
+
+		operation.complete();
+
+		assertThat(executor.getInFlightCount()).isZero();
+	}
+
+	@Test
+	void queuesOperationWhenLimitReachedAndStartsItWhenSlotFrees() {
+		OperationExecutor executor = new OperationExecutor(1, 1);
+		TestPublisher<Void> first = TestPublisher.create();
+		TestPublisher<Void> second = TestPublisher.create();
+		AtomicBoolean queued = new AtomicBoolean();
+
+		StepVerifier.create(executor.submit(first.mono(), Mono.empty()))
+			.verifyComplete();
+		StepVerifier.create(executor.submit(second.mono(), Mono.fromRunnable(() -> queued.set(true))))
+			.verifyComplete();
+
+		assertThat(queued).isTrue();
+		second.assertWasNotSubscribed();
+		assertThat(executor.getInFlightCount()).isEqualTo(1);
+		assertThat(executor.getPendingCount()).isEqualTo(1);
+
+		first.complete();
+
+		second.assertWasSubscribed();
+		assertThat(executor.getInFlightCount()).isEqualTo(1);
+		assertThat(executor.getPendingCount()).isZero();
+
+		second.complete();
+
+		assertThat(executor.getInFlightCount()).isZero();
+	}
+
+	@Test
+	void queuedOperationStartsWhenRunningOperationFails() {
+		OperationExecutor executor = new OperationExecutor(1, 1);
+		TestPublisher<Void> first = TestPublisher.create();
+		TestPublisher<Void> second = TestPublisher.create();
+
+		executor.submit(first.mono().onErrorResume(e -> Mono.empty()), Mono.empty()).block();
+		executor.submit(second.mono(), Mono.empty()).block();
+
+		first.error(new IllegalStateException("failed"));
+
+		second.assertWasSubscribed();
+	}
+
+	@Test
+	void rejectsOperationWhenQueueIsFull() {
+		OperationExecutor executor = new OperationExecutor(1, 1);
+		TestPublisher<Void> first = TestPublisher.create();
+		TestPublisher<Void> second = TestPublisher.create();
+		TestPublisher<Void> third = TestPublisher.create();
+
+		executor.submit(first.mono(), Mono.empty()).block();
+		executor.submit(second.mono(), Mono.empty()).block();
+
+		StepVerifier.create(executor.submit(third.mono(), Mono.empty()))
+			.expectErrorSatisfies(exception -> assertThat(exception)
+				.isInstanceOf(ServiceBrokerConcurrencyException.class)
+				.hasMessageContaining("in flight: 1, pending: 1 of 1"))
+			.verify();
+
+		third.assertWasNotSubscribed();
+		assertThat(executor.getRejectedCount()).isEqualTo(1);
+		assertThat(executor.getPendingCount()).isEqualTo(1);
+	}
+
+	@Test
+	void unboundedExecutorNeverQueues() {
+		OperationExecutor executor = OperationExecutor.unbounded();
+
+		for (int i = 0; i < 1000; i++) {
+			executor.submit(Mono.never(), Mono.error(new IllegalStateException("should not queue"))).block();
+		}
+
+		assertThat(executor.getInFlightCount()).isEqualTo(1000);
+		assertThat(executor.getPendingCount()).isZero();
+	}
+
+	@Test
+	void operationsForSameKeyRunOneAfterTheOther() {
+		OperationExecutor executor = new OperationExecutor(10, 10);
+		TestPublisher<Void> first = TestPublisher.create();
+		TestPublisher<Void> second = TestPublisher.create();
+		AtomicBoolean queued = new AtomicBoolean();
+
+		StepVerifier.create(executor.submit("instance", first.mono(), Mono.empty()))
+			.verifyComplete();
+		StepVerifier.create(executor.submit("instance", second.mono(), Mono.fromRunnable(() -> queued.set(true))))
+			.verifyComplete();
+
+		assertThat(queued).isTrue();
+		first.assertWasSubscribed();
+		second.assertWasNotSubscribed();
+		assertThat(executor.getInFlightCount()).isEqualTo(1);
+		assertThat(executor.getPendingCount()).isEqualTo(1);
+
+		first.complete();
+
+		second.assertWasSubscribed();
+		assertThat(executor.getPendingCount()).isZero();
+
+		second.complete();
+
+		assertThat(executor.getInFlightCount()).isZero();
+		assertThat(executor.getActiveKeyCount()).isZero();
+	}
+
+	@Test
+	void keyedOperationIsSkippedWhenOnQueuedFails() {
+		OperationExecutor executor = new OperationExecutor(10, 10);
+		TestPublisher<Void> first = TestPublisher.create();
+		TestPublisher<Void> second = TestPublisher.create();
+		TestPublisher<Void> third = TestPublisher.create();
+
+		executor.submit("instance", first.mono(), Mono.empty()).block();
+		StepVerifier.create(executor.submit("instance", second.mono(),
+			Mono.error(new IllegalStateException("state store unavailable"))))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		assertThat(executor.getPendingCount()).isZero();
+
+		executor.submit("instance", third.mono(), Mono.empty()).block();
+		first.complete();
+
+		second.assertWasNotSubscribed();
+		third.assertWasSubscribed();
+		third.complete();
+
+		assertThat(executor.getInFlightCount()).isZero();
+		assertThat(executor.getPendingCount()).isZero();
+		assertThat(executor.getActiveKeyCount()).isZero();
+	}
+
+	@Test
+	void operationsForDifferentKeysRunInParallel() {
+		OperationExecutor executor = new OperationExecutor(10, 10);
+		TestPublisher<Void> first = TestPublisher.create();
+		TestPublisher<Void> second = TestPublisher.create();
+
+		executor.submit("instance-1", first.mono(), Mono.empty()).block();
+		executor.submit("instance-2", second.mono(), Mono.empty()).block();
+
+		first.assertWasSubscribed();
+		second.assertWasSubscribed();
+		assertThat(executor.getInFlightCount()).isEqualTo(2);
+		assertThat(executor.getActiveKeyCount()).isEqualTo(2);
+	}
+
+	@Test
+	void queuedCoalescingOperationIsReplacedByLaterOne() {
+		OperationExecutor executor = new OperationExecutor(10, 10);
+		TestPublisher<Void> running = TestPublisher.create();
+		TestPublisher<Void> superseded = TestPublisher.create();
+		TestPublisher<Void> latest = TestPublisher.create();
+
+		executor.submitCoalescing("instance", running.mono(), Mono.empty()).block();
+		executor.submitCoalescing("instance", superseded.mono(), Mono.empty()).block();
+		executor.submitCoalescing("instance", latest.mono(), Mono.empty()).block();
+
+		assertThat(executor.getPendingCount()).isEqualTo(1);
+		assertThat(executor.getCoalescedCount()).isEqualTo(1);
+
+		running.complete();
+
+		superseded.assertWasNotSubscribed();
+		latest.assertWasSubscribed();
+	}
+
+	@Test
+	void coalescingOperationIsNotMergedAcrossOtherOperations() {
+		OperationExecutor executor = new OperationExecutor(10, 10);
+		TestPublisher<Void> running = TestPublisher.create();
+		TestPublisher<Void> update = TestPublisher.create();
+		TestPublisher<Void> delete = TestPublisher.create();
+		TestPublisher<Void> laterUpdate = TestPublisher.create();
+
+		executor.submit("instance", running.mono(), Mono.empty()).block();
+		executor.submitCoalescing("instance", update.mono(), Mono.empty()).block();
+		executor.submit("instance", delete.mono(), Mono.empty()).block();
+		executor.submitCoalescing("instance", laterUpdate.mono(), Mono.empty()).block();
+
+		assertThat(executor.getPendingCount()).isEqualTo(3);
+		assertThat(executor.getCoalescedCount()).isZero();
+
+		running.complete();
+		update.assertWasSubscribed();
+		update.complete();
+		delete.assertWasSubscribed();
+		delete.complete();
+		laterUpdate.assertWasSubscribed();
+	}
+
+	@Test
+	void keyedOperationsCountTowardsPendingLimit() {
+		OperationExecutor executor = new OperationExecutor(10, 1);
+		TestPublisher<Void> third = TestPublisher.create();
+
+		executor.submit("instance", Mono.never(), Mono.empty()).block();
+		executor.submit("instance", Mono.never(), Mono.empty()).block();
+
+		StepVerifier.create(executor.submit("instance", third.mono(), Mono.empty()))
+			.expectError(ServiceBrokerConcurrencyException.class)
+			.verify();
+
+		third.assertWasNotSubscribed();
+		assertThat(executor.getRejectedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void invalidLimitsAreRejected() {
+		assertThatThrownBy(() -> new OperationExecutor(0, 1))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new OperationExecutor(1, -1))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
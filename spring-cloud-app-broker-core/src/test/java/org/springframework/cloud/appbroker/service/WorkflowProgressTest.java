@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowProgressTest {
+
+	private final List<String> descriptions = new CopyOnWriteArrayList<>();
+
+	private final WorkflowProgress progress = new WorkflowProgress("create service instance",
+		description -> Mono.fromRunnable(() -> descriptions.add(description)));
+
+	@Test
+	void stepsAreRecordedWhenProgressIsInContext() {
+		Flux<String> workflow = WorkflowProgress.expectSteps(2)
+			.thenMany(WorkflowProgress.step("creating backing services", Flux.just("service")))
+			.concatWith(WorkflowProgress.step("deploying backing applications", Mono.just("app")));
+
+		StepVerifier.create(workflow.subscriberContext(progress::addTo))
+			.expectNext("service", "app")
+			.verifyComplete();
+
+		assertThat(descriptions).containsExactly(
+			"create service instance: creating backing services (0%)",
+			"create service instance: creating backing services completed (50%)",
+			"create service instance: deploying backing applications (50%)",
+			"create service instance: deploying backing applications completed (100%)");
+		assertThat(progress.getSteps())
+			.extracting(WorkflowProgress.Step::getName)
+			.containsExactly("creating backing services", "deploying backing applications");
+		assertThat(progress.getSteps()).allSatisfy(step -> {
+			assertThat(step.getEndedAt()).isGreaterThanOrEqualTo(step.getStartedAt());
+			assertThat(step.isFailed()).isFalse();
+		});
+		assertThat(progress.getPercentComplete()).isEqualTo(100);
+	}
+
+	@Test
+	void failedStepIsRecorded() {
+		Mono<String> workflow = WorkflowProgress.step("deploying backing applications",
+			Mono.error(new IllegalStateException("push failed")));
+
+		StepVerifier.create(workflow.subscriberContext(progress::addTo))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		assertThat(progress.getSteps()).hasSize(1);
+		assertThat(progress.getSteps().get(0).isFailed()).isTrue();
+		assertThat(progress.getPercentComplete()).isZero();
+		assertThat(progress.summary()).startsWith("deploying backing applications ").endsWith("ms (failed)");
+	}
+
+	@Test
+	void stepsAreNotRecordedWithoutProgressInContext() {
+		StepVerifier.create(WorkflowProgress.expectSteps(1)
+			.then(WorkflowProgress.step("creating backing services", Mono.just("service"))))
+			.expectNext("service")
+			.verifyComplete();
+
+		assertThat(descriptions).isEmpty();
+	}
+
+	@Test
+	void emptyStepCompletes() {
+		StepVerifier.create(WorkflowProgress.step("creating backing services", Mono.empty())
+			.subscriberContext(progress::addTo))
+			.verifyComplete();
+
+		assertThat(progress.getSteps()).hasSize(1);
+		assertThat(progress.getSteps().get(0).getEndedAt()).isNotEqualTo(-1);
+	}
+
+}
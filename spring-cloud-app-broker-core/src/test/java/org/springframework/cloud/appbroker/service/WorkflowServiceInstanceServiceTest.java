@@ -19,6 +19,7 @@ package org.springframework.cloud.appbroker.service;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,6 +31,8 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import reactor.test.publisher.TestPublisher;
 
+import org.springframework.cloud.appbroker.state.InMemoryServiceInstanceStateRepository;
+import org.springframework.cloud.appbroker.state.ServiceInstanceBindingStateRepository;
 import org.springframework.cloud.appbroker.state.ServiceInstanceState;
 import org.springframework.cloud.appbroker.state.ServiceInstanceStateRepository;
 import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
@@ -60,6 +63,9 @@ class WorkflowServiceInstanceServiceTest {
 	@Mock
 	private ServiceInstanceStateRepository serviceInstanceStateRepository;
 
+	@Mock
+	private ServiceInstanceBindingStateRepository serviceInstanceBindingStateRepository;
+
 	@Mock
 	private LowOrderCreateServiceInstanceWorkflow createServiceInstanceWorkflow1;
 
@@ -504,6 +510,152 @@ class WorkflowServiceInstanceServiceTest {
 				.verifyComplete();
 	}
 
+	@Test
+	void deleteServiceInstanceRemovesBindingStates() {
+		WorkflowServiceInstanceService service = new WorkflowServiceInstanceService(serviceInstanceStateRepository,
+				Arrays.asList(createServiceInstanceWorkflow1, createServiceInstanceWorkflow2),
+				Arrays.asList(deleteServiceInstanceWorkflow1, deleteServiceInstanceWorkflow2),
+				Arrays.asList(updateServiceInstanceWorkflow1, updateServiceInstanceWorkflow2),
+				OperationExecutor.unbounded(), serviceInstanceBindingStateRepository);
+
+		given(serviceInstanceStateRepository.saveState(anyString(), any(OperationState.class), anyString()))
+				.willReturn(
+						Mono.just(
+								new ServiceInstanceState(OperationState.IN_PROGRESS, "delete service instance started",
+										new Timestamp(Instant.now().minusSeconds(60).toEpochMilli()))))
+				.willReturn(
+						Mono.just(
+								new ServiceInstanceState(OperationState.SUCCEEDED, "delete service instance completed",
+										new Timestamp(Instant.now().minusSeconds(30).toEpochMilli()))));
+		given(serviceInstanceBindingStateRepository.removeStates("foo"))
+				.willReturn(Mono.just(Collections.singletonMap("bar",
+						new ServiceInstanceState(OperationState.SUCCEEDED, "create service instance binding completed",
+								new Timestamp(Instant.now().minusSeconds(300).toEpochMilli())))));
+
+		DeleteServiceInstanceRequest request = DeleteServiceInstanceRequest.builder()
+				.serviceInstanceId("foo")
+				.build();
+
+		given(deleteServiceInstanceWorkflow1.accept(request))
+				.willReturn(Mono.just(false));
+
+		given(deleteServiceInstanceWorkflow2.accept(request))
+				.willReturn(Mono.just(false));
+
+		StepVerifier.create(service.deleteServiceInstance(request))
+				.assertNext(response -> {
+					InOrder repoOrder = inOrder(serviceInstanceStateRepository, serviceInstanceBindingStateRepository);
+					repoOrder.verify(serviceInstanceStateRepository)
+							.saveState(eq("foo"), eq(OperationState.IN_PROGRESS),
+									eq("delete service instance started"));
+					repoOrder.verify(serviceInstanceBindingStateRepository).removeStates("foo");
+					repoOrder.verify(serviceInstanceStateRepository)
+							.saveState(eq("foo"), eq(OperationState.SUCCEEDED),
+									eq("delete service instance completed"));
+					repoOrder.verifyNoMoreInteractions();
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	void deleteServiceInstanceSucceedsWhenBindingStatesCannotBeRemoved() {
+		WorkflowServiceInstanceService service = new WorkflowServiceInstanceService(serviceInstanceStateRepository,
+				Arrays.asList(createServiceInstanceWorkflow1, createServiceInstanceWorkflow2),
+				Arrays.asList(deleteServiceInstanceWorkflow1, deleteServiceInstanceWorkflow2),
+				Arrays.asList(updateServiceInstanceWorkflow1, updateServiceInstanceWorkflow2),
+				OperationExecutor.unbounded(), new ServiceInstanceBindingStateRepository() {
+				});
+
+		given(serviceInstanceStateRepository.saveState(anyString(), any(OperationState.class), anyString()))
+				.willReturn(
+						Mono.just(
+								new ServiceInstanceState(OperationState.IN_PROGRESS, "delete service instance started",
+										new Timestamp(Instant.now().minusSeconds(60).toEpochMilli()))))
+				.willReturn(
+						Mono.just(
+								new ServiceInstanceState(OperationState.SUCCEEDED, "delete service instance completed",
+										new Timestamp(Instant.now().minusSeconds(30).toEpochMilli()))));
+
+		DeleteServiceInstanceRequest request = DeleteServiceInstanceRequest.builder()
+				.serviceInstanceId("foo")
+				.build();
+
+		given(deleteServiceInstanceWorkflow1.accept(request))
+				.willReturn(Mono.just(false));
+
+		given(deleteServiceInstanceWorkflow2.accept(request))
+				.willReturn(Mono.just(false));
+
+		StepVerifier.create(service.deleteServiceInstance(request))
+				.assertNext(response -> then(serviceInstanceStateRepository).should()
+						.saveState(eq("foo"), eq(OperationState.SUCCEEDED), eq("delete service instance completed")))
+				.verifyComplete();
+	}
+
+	@Test
+	void deleteQueuedBehindRunningCreateKeepsItsOwnState() {
+		InMemoryServiceInstanceStateRepository stateRepository = new InMemoryServiceInstanceStateRepository();
+		WorkflowServiceInstanceService service = new WorkflowServiceInstanceService(stateRepository,
+				Arrays.asList(createServiceInstanceWorkflow1, createServiceInstanceWorkflow2),
+				Arrays.asList(deleteServiceInstanceWorkflow1, deleteServiceInstanceWorkflow2),
+				Arrays.asList(updateServiceInstanceWorkflow1, updateServiceInstanceWorkflow2),
+				OperationExecutor.unbounded());
+
+		CreateServiceInstanceRequest createRequest = CreateServiceInstanceRequest.builder()
+				.serviceInstanceId("foo")
+				.build();
+		CreateServiceInstanceResponseBuilder createResponseBuilder = CreateServiceInstanceResponse.builder();
+		TestPublisher<Void> createFlow = TestPublisher.create();
+
+		given(createServiceInstanceWorkflow1.accept(createRequest))
+				.willReturn(Mono.just(true));
+		given(createServiceInstanceWorkflow1
+				.buildResponse(eq(createRequest), any(CreateServiceInstanceResponseBuilder.class)))
+				.willReturn(Mono.just(createResponseBuilder));
+		given(createServiceInstanceWorkflow1.create(createRequest, createResponseBuilder.build()))
+				.willReturn(createFlow.mono());
+		given(createServiceInstanceWorkflow2.accept(createRequest))
+				.willReturn(Mono.just(false));
+
+		DeleteServiceInstanceRequest deleteRequest = DeleteServiceInstanceRequest.builder()
+				.serviceInstanceId("foo")
+				.build();
+		DeleteServiceInstanceResponseBuilder deleteResponseBuilder = DeleteServiceInstanceResponse.builder();
+		TestPublisher<Void> deleteFlow = TestPublisher.create();
+
+		given(deleteServiceInstanceWorkflow1.accept(deleteRequest))
+				.willReturn(Mono.just(true));
+		given(deleteServiceInstanceWorkflow1
+				.buildResponse(eq(deleteRequest), any(DeleteServiceInstanceResponseBuilder.class)))
+				.willReturn(Mono.just(deleteResponseBuilder));
+		given(deleteServiceInstanceWorkflow1.delete(deleteRequest, deleteResponseBuilder.build()))
+				.willReturn(deleteFlow.mono());
+		given(deleteServiceInstanceWorkflow2.accept(deleteRequest))
+				.willReturn(Mono.just(false));
+
+		StepVerifier.create(service.createServiceInstance(createRequest))
+				.expectNextCount(1)
+				.verifyComplete();
+		StepVerifier.create(service.deleteServiceInstance(deleteRequest))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(stateRepository.getState("foo").block().getDescription())
+				.isEqualTo("delete service instance queued");
+
+		createFlow.complete();
+
+		ServiceInstanceState state = stateRepository.getState("foo").block();
+		assertThat(state.getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+		assertThat(state.getDescription()).isEqualTo("delete service instance started");
+
+		deleteFlow.complete();
+
+		state = stateRepository.getState("foo").block();
+		assertThat(state.getOperationState()).isEqualTo(OperationState.SUCCEEDED);
+		assertThat(state.getDescription()).isEqualTo(WorkflowServiceInstanceService.DELETE_COMPLETED_DESCRIPTION);
+	}
+
 	@Test
 	void updateServiceInstance() {
 		given(serviceInstanceStateRepository.saveState(anyString(), any(OperationState.class), anyString()))
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileProvisioningCheckpointRepositoryTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void unknownServiceInstanceHasEmptyCheckpoint() {
+		FileProvisioningCheckpointRepository repository = open();
+
+		StepVerifier.create(repository.getCheckpoint("unknown"))
+			.assertNext(checkpoint -> assertThat(checkpoint.isEmpty()).isTrue())
+			.verifyComplete();
+	}
+
+	@Test
+	void checkpointsAreRecoveredAfterRestart() {
+		Map<String, Object> credentials = new HashMap<>();
+		credentials.put("spring.security.user.name", "user");
+		credentials.put("spring.security.user.password", "p@ss=word:\n#!");
+
+		FileProvisioningCheckpointRepository repository = open();
+		repository.saveCreatedService("foo-service", "my-db").block();
+		repository.saveCredentials("foo-service", "app1", credentials).block();
+		repository.saveCredentials("foo-service", "app2", new HashMap<>()).block();
+		repository.saveDeployedApplication("foo-service", "app1").block();
+		repository.saveDeployedApplication("bar/service", "app1").block();
+
+		repository = open();
+
+		assertThat(repository.getCheckpointCount()).isEqualTo(2);
+		StepVerifier.create(repository.getCheckpoint("foo-service"))
+			.assertNext(checkpoint -> {
+				assertThat(checkpoint.getCreatedServices()).containsExactly("my-db");
+				assertThat(checkpoint.getDeployedApplications()).containsExactly("app1");
+				assertThat(checkpoint.getCredentials("app1")).isEqualTo(credentials);
+				assertThat(checkpoint.hasCredentials("app2")).isTrue();
+				assertThat(checkpoint.getCredentials("app2")).isEmpty();
+			})
+			.verifyComplete();
+		StepVerifier.create(repository.getCheckpoint("bar/service"))
+			.assertNext(checkpoint -> assertThat(checkpoint.isApplicationDeployed("app1")).isTrue())
+			.verifyComplete();
+	}
+
+	@Test
+	void removedCheckpointIsNotRecovered() throws IOException {
+		FileProvisioningCheckpointRepository repository = open();
+		repository.saveCreatedService("foo-service", "my-db").block();
+
+		StepVerifier.create(repository.removeCheckpoint("foo-service"))
+			.assertNext(checkpoint -> assertThat(checkpoint.isServiceCreated("my-db")).isTrue())
+			.verifyComplete();
+
+		assertThat(checkpointFiles()).isZero();
+		assertThat(open().getCheckpointCount()).isZero();
+	}
+
+	@Test
+	void unreadableCheckpointIsIgnored() throws IOException {
+		Files.write(directory.resolve("broken.checkpoint"), "service.0=my-db\n".getBytes());
+
+		FileProvisioningCheckpointRepository repository = open();
+
+		assertThat(repository.getCheckpointCount()).isZero();
+	}
+
+	private FileProvisioningCheckpointRepository open() {
+		return new FileProvisioningCheckpointRepository(directory, Schedulers.immediate());
+	}
+
+	private long checkpointFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryBackingApplicationFingerprintRepositoryTest {
+
+	private final InMemoryBackingApplicationFingerprintRepository repository =
+		new InMemoryBackingApplicationFingerprintRepository();
+
+	@Test
+	void savedFingerprintsAreMerged() {
+		repository.saveFingerprints("foo-service", singletonMap("app1", "fingerprint-1")).block();
+		repository.saveFingerprints("foo-service", singletonMap("app2", "fingerprint-2")).block();
+		repository.saveFingerprints("foo-service", singletonMap("app1", "fingerprint-3")).block();
+
+		StepVerifier.create(repository.getFingerprints("foo-service"))
+			.assertNext(fingerprints -> assertThat(fingerprints)
+				.hasSize(2)
+				.containsEntry("app1", "fingerprint-3")
+				.containsEntry("app2", "fingerprint-2"))
+			.verifyComplete();
+	}
+
+	@Test
+	void removedFingerprintsAreEmpty() {
+		repository.saveFingerprints("foo-service", singletonMap("app1", "fingerprint-1")).block();
+		repository.removeFingerprints("foo-service").block();
+
+		assertThat(repository.getServiceInstanceCount()).isZero();
+		StepVerifier.create(repository.getFingerprints("foo-service"))
+			.assertNext(fingerprints -> assertThat(fingerprints).isEmpty())
+			.verifyComplete();
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryProvisioningCheckpointRepositoryTest {
+
+	private final InMemoryProvisioningCheckpointRepository repository = new InMemoryProvisioningCheckpointRepository();
+
+	@Test
+	void completedStepsAreAccumulated() {
+		repository.saveCreatedService("foo-service", "my-db").block();
+		repository.saveDeployedApplication("foo-service", "app1").block();
+		repository.saveCredentials("foo-service", "app1", Collections.singletonMap("password", "secret")).block();
+
+		StepVerifier.create(repository.getCheckpoint("foo-service"))
+			.assertNext(checkpoint -> {
+				assertThat(checkpoint.isServiceCreated("my-db")).isTrue();
+				assertThat(checkpoint.isApplicationDeployed("app1")).isTrue();
+				assertThat(checkpoint.isApplicationDeployed("app2")).isFalse();
+				assertThat(checkpoint.getCredentials("app1")).containsEntry("password", "secret");
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	void concurrentStepsAreAllRecorded() {
+		Flux.range(0, 100)
+			.parallel()
+			.runOn(Schedulers.parallel())
+			.flatMap(i -> repository.saveDeployedApplication("foo-service", "app" + i))
+			.sequential()
+			.blockLast();
+
+		StepVerifier.create(repository.getCheckpoint("foo-service"))
+			.assertNext(checkpoint -> assertThat(checkpoint.getDeployedApplications()).hasSize(100))
+			.verifyComplete();
+	}
+
+	@Test
+	void removedCheckpointIsEmpty() {
+		repository.saveCreatedService("foo-service", "my-db").block();
+		repository.removeCheckpoint("foo-service").block();
+
+		assertThat(repository.getCheckpointCount()).isZero();
+		StepVerifier.create(repository.getCheckpoint("foo-service"))
+			.assertNext(checkpoint -> assertThat(checkpoint.isEmpty()).isTrue())
+			.verifyComplete();
+		StepVerifier.create(repository.removeCheckpoint("unknown"))
+			.verifyComplete();
+	}
+
+}
@@ -169,4 +169,63 @@ class InMemoryServiceInstanceBindingStateRepositoryTest {
 			.verifyComplete();
 	}
 
+	@Test
+	void getAndRemoveStatesOfServiceInstance() {
+		stateRepository.saveState("foo-service", "foo-binding", OperationState.SUCCEEDED, "foo").block();
+		stateRepository.saveState("foo-service", "bar-binding", OperationState.IN_PROGRESS, "bar").block();
+		stateRepository.saveState("other-service", "foo-binding", OperationState.SUCCEEDED, "other").block();
+
+		StepVerifier.create(stateRepository.getStates("foo-service"))
+			.assertNext(states -> {
+				assertThat(states).containsOnlyKeys("foo-binding", "bar-binding");
+				assertThat(states.get("bar-binding").getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.removeStates("foo-service"))
+			.assertNext(states -> assertThat(states).containsOnlyKeys("foo-binding", "bar-binding"))
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.getStates("foo-service"))
+			.assertNext(states -> assertThat(states).isEmpty())
+			.verifyComplete();
+		StepVerifier.create(stateRepository.getState("other-service", "foo-binding"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("other"))
+			.verifyComplete();
+	}
+
+	@Test
+	void removedBindingIsNotReturnedForServiceInstance() {
+		stateRepository.saveState("foo-service", "foo-binding", OperationState.SUCCEEDED, "foo").block();
+		stateRepository.saveState("foo-service", "bar-binding", OperationState.SUCCEEDED, "bar").block();
+		stateRepository.removeState("foo-service", "foo-binding").block();
+
+		StepVerifier.create(stateRepository.getStates("foo-service"))
+			.assertNext(states -> assertThat(states).containsOnlyKeys("bar-binding"))
+			.verifyComplete();
+	}
+
+	@Test
+	void evictedBindingIsNotReturnedForServiceInstance() {
+		InMemoryStateRepositoryProperties properties = new InMemoryStateRepositoryProperties();
+		properties.setMaxTerminalStates(1);
+		InMemoryServiceInstanceBindingStateRepository repository =
+			new InMemoryServiceInstanceBindingStateRepository(properties);
+
+		repository.saveState("foo-service", "foo-binding", OperationState.SUCCEEDED, "foo").block();
+		repository.saveState("foo-service", "bar-binding", OperationState.SUCCEEDED, "bar").block();
+
+		StepVerifier.create(repository.getStates("foo-service"))
+			.assertNext(states -> assertThat(states).containsOnlyKeys("bar-binding"))
+			.verifyComplete();
+		assertThat(repository.getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void statesOfUnknownServiceInstanceAreEmpty() {
+		StepVerifier.create(stateRepository.removeStates("unknown"))
+			.assertNext(states -> assertThat(states).isEmpty())
+			.verifyComplete();
+	}
+
 }
@@ -21,6 +21,7 @@ import java.util.Calendar;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
@@ -152,4 +153,27 @@ class InMemoryServiceInstanceStateRepositoryTest {
 			.verifyComplete();
 	}
 
+	@Test
+	void getReturnsTheSavedState() {
+		ServiceInstanceState saved = stateRepository.saveState("foo-service", OperationState.IN_PROGRESS, "bar").block();
+
+		StepVerifier.create(stateRepository.getState("foo-service"))
+			.assertNext(serviceInstanceState -> assertThat(serviceInstanceState).isSameAs(saved))
+			.verifyComplete();
+	}
+
+	@Test
+	void concurrentRemoveSucceedsOnce() {
+		stateRepository.saveState("foo-service", OperationState.SUCCEEDED, "bar").block();
+
+		StepVerifier.create(
+			Flux.range(0, 100)
+				.parallel(25)
+				.runOn(Schedulers.newParallel("parallel-test", 25))
+				.flatMap(value -> stateRepository.removeState("foo-service")
+					.onErrorResume(IllegalArgumentException.class, e -> Mono.empty())))
+			.expectNextCount(1)
+			.verifyComplete();
+	}
+
 }
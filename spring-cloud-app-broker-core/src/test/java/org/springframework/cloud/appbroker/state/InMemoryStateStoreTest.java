@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryStateStoreTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	@Test
+	void completedStatesExpire() {
+		InMemoryStateStore<String> store = new InMemoryStateStore<>(Duration.ofMinutes(10), 0, clock);
+		store.save("succeeded", OperationState.SUCCEEDED, null);
+		store.save("failed", OperationState.FAILED, null);
+		store.save("in-progress", OperationState.IN_PROGRESS, null);
+
+		clock.advance(Duration.ofMinutes(11));
+		store.evict();
+
+		assertThat(store.get("succeeded")).isNull();
+		assertThat(store.get("failed")).isNull();
+		assertThat(store.get("in-progress")).isNotNull();
+		assertThat(store.getEvictionCount()).isEqualTo(2);
+		assertThat(store.getResidentCount()).isEqualTo(1);
+		assertThat(store.getTerminalCount()).isZero();
+	}
+
+	@Test
+	void leastRecentlyUsedCompletedStatesAreEvictedAboveMaximum() {
+		InMemoryStateStore<String> store = new InMemoryStateStore<>(null, 2, clock);
+		store.save("first", OperationState.SUCCEEDED, null);
+		store.save("second", OperationState.SUCCEEDED, null);
+		store.save("first", OperationState.SUCCEEDED, "saved again");
+		store.save("third", OperationState.SUCCEEDED, null);
+
+		assertThat(store.get("second")).isNull();
+		assertThat(store.get("first")).isNotNull();
+		assertThat(store.get("third")).isNotNull();
+		assertThat(store.getEvictionCount()).isEqualTo(1);
+		assertThat(store.getTerminalCount()).isEqualTo(2);
+	}
+
+	@Test
+	void readingCompletedStateKeepsItFromEviction() {
+		InMemoryStateStore<String> store = new InMemoryStateStore<>(null, 2, clock);
+		store.save("polled", OperationState.SUCCEEDED, null);
+		store.save("untouched", OperationState.SUCCEEDED, null);
+		store.get("polled");
+		store.save("new", OperationState.SUCCEEDED, null);
+
+		assertThat(store.get("untouched")).isNull();
+		assertThat(store.get("polled")).isNotNull();
+		assertThat(store.get("new")).isNotNull();
+		assertThat(store.getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void stateThatIsInProgressAgainIsNotEvicted() {
+		InMemoryStateStore<String> store = new InMemoryStateStore<>(Duration.ofMinutes(10), 0, clock);
+		store.save("instance", OperationState.SUCCEEDED, null);
+		store.save("instance", OperationState.IN_PROGRESS, "updating");
+
+		clock.advance(Duration.ofMinutes(11));
+		store.evict();
+
+		assertThat(store.get("instance").getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+		assertThat(store.getEvictionCount()).isZero();
+	}
+
+	@Test
+	void removedStatesAreNotCountedTowardsMaximum() {
+		InMemoryStateStore<String> store = new InMemoryStateStore<>(null, 1, clock);
+		for (int i = 0; i < 100; i++) {
+			store.save("instance-" + i, OperationState.SUCCEEDED, null);
+			store.remove("instance-" + i);
+		}
+		store.save("kept", OperationState.SUCCEEDED, null);
+
+		assertThat(store.get("kept")).isNotNull();
+		assertThat(store.getEvictionCount()).isZero();
+		assertThat(store.getTerminalCount()).isEqualTo(1);
+	}
+
+	@Test
+	void unboundedStoreNeverEvicts() {
+		InMemoryStateStore<String> store = InMemoryStateStore.unbounded();
+		for (int i = 0; i < 1000; i++) {
+			store.save("instance-" + i, OperationState.SUCCEEDED, null);
+		}
+
+		assertThat(store.getResidentCount()).isEqualTo(1000);
+		assertThat(store.getEvictionCount()).isZero();
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant = Instant.parse("2019-01-01T00:00:00Z");
+
+		public void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalServiceInstanceStateRepositoryTest {
+
+	private static final int INITIAL_SIZE = 256;
+
+	@TempDir
+	Path directory;
+
+	private JournalServiceInstanceStateRepository repository;
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (repository != null) {
+			repository.close();
+		}
+	}
+
+	@Test
+	void saveAndGet() {
+		repository = open(Long.MAX_VALUE);
+
+		StepVerifier.create(repository.saveState("foo-service", OperationState.IN_PROGRESS, "bar"))
+			.assertNext(state -> {
+				assertThat(state.getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+				assertThat(state.getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+
+		StepVerifier.create(repository.getState("foo-service"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("bar"))
+			.verifyComplete();
+	}
+
+	@Test
+	void unknownServiceInstance() {
+		repository = open(Long.MAX_VALUE);
+
+		StepVerifier.create(repository.getState("unknown"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+		StepVerifier.create(repository.removeState("unknown"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+	}
+
+	@Test
+	void journalIsWrittenOnTheScheduler() {
+		Scheduler scheduler = Schedulers.newSingle("journal-test");
+		try {
+			repository = new JournalServiceInstanceStateRepository(
+				new ServiceInstanceStateJournal(directory, INITIAL_SIZE), Long.MAX_VALUE, scheduler);
+
+			StepVerifier.create(repository.saveState("foo-service", OperationState.IN_PROGRESS, "bar")
+				.map(state -> Thread.currentThread().getName()))
+				.assertNext(thread -> assertThat(thread).startsWith("journal-test"))
+				.verifyComplete();
+			StepVerifier.create(repository.removeState("foo-service")
+				.map(state -> Thread.currentThread().getName()))
+				.assertNext(thread -> assertThat(thread).startsWith("journal-test"))
+				.verifyComplete();
+		}
+		finally {
+			scheduler.dispose();
+		}
+	}
+
+	@Test
+	void statesAreRecoveredAfterRestart() throws IOException {
+		repository = open(Long.MAX_VALUE);
+		repository.saveState("foo-service", OperationState.IN_PROGRESS, "creating").block();
+		repository.saveState("foo-service", OperationState.SUCCEEDED, null).block();
+		repository.saveState("bar-service", OperationState.FAILED, "failed").block();
+		repository.saveState("baz-service", OperationState.SUCCEEDED, "removed").block();
+		repository.removeState("baz-service").block();
+		repository.close();
+
+		repository = open(Long.MAX_VALUE);
+
+		assertThat(repository.getRecoveredCount()).isEqualTo(5);
+		StepVerifier.create(repository.getState("foo-service"))
+			.assertNext(state -> {
+				assertThat(state.getOperationState()).isEqualTo(OperationState.SUCCEEDED);
+				assertThat(state.getDescription()).isNull();
+			})
+			.verifyComplete();
+		StepVerifier.create(repository.getState("bar-service"))
+			.assertNext(state -> assertThat(state.getOperationState()).isEqualTo(OperationState.FAILED))
+			.verifyComplete();
+		StepVerifier.create(repository.getState("baz-service"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+	}
+
+	@Test
+	void journalGrowsBeyondInitialSize() throws IOException {
+		repository = open(Long.MAX_VALUE);
+		for (int i = 0; i < 100; i++) {
+			repository.saveState("service-" + i, OperationState.SUCCEEDED, "description " + i).block();
+		}
+		assertThat(repository.getJournalSize()).isGreaterThan(INITIAL_SIZE);
+		repository.close();
+
+		repository = open(Long.MAX_VALUE);
+
+		StepVerifier.create(repository.getState("service-99"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("description 99"))
+			.verifyComplete();
+	}
+
+	@Test
+	void journalIsCompactedIntoSnapshot() throws IOException {
+		repository = open(INITIAL_SIZE);
+		for (int i = 0; i < 100; i++) {
+			repository.saveState("foo-service", OperationState.IN_PROGRESS, "step " + i).block();
+		}
+
+		assertThat(repository.getCompactionCount()).isPositive();
+		assertThat(repository.getJournalSize()).isLessThan(INITIAL_SIZE);
+		repository.close();
+
+		repository = open(Long.MAX_VALUE);
+
+		assertThat(repository.getRecoveredCount()).isLessThan(100);
+		StepVerifier.create(repository.getState("foo-service"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("step 99"))
+			.verifyComplete();
+	}
+
+	@Test
+	void truncatedRecordIsIgnoredOnRecovery() throws IOException {
+		repository = open(Long.MAX_VALUE);
+		repository.saveState("foo-service", OperationState.IN_PROGRESS, "first").block();
+		repository.saveState("foo-service", OperationState.SUCCEEDED, "second").block();
+		repository.close();
+		repository = null;
+
+		Path journal = latestJournal();
+		try (RandomAccessFile file = new RandomAccessFile(journal.toFile(), "rw")) {
+			file.setLength(file.length() - 1);
+		}
+
+		repository = open(Long.MAX_VALUE);
+
+		StepVerifier.create(repository.getState("foo-service"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("first"))
+			.verifyComplete();
+	}
+
+	private JournalServiceInstanceStateRepository open(long compactionThreshold) {
+		return new JournalServiceInstanceStateRepository(new ServiceInstanceStateJournal(directory, INITIAL_SIZE),
+			compactionThreshold, Schedulers.immediate());
+	}
+
+	private Path latestJournal() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+				.filter(path -> path.getFileName().toString().startsWith("journal-"))
+				.max(Path::compareTo)
+				.orElseThrow(IllegalStateException::new);
+		}
+	}
+
+}
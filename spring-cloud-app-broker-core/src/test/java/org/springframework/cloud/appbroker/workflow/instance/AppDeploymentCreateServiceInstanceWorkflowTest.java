@@ -22,34 +22,46 @@ import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
 
 import org.springframework.cloud.appbroker.deployer.BackingAppDeploymentService;
 import org.springframework.cloud.appbroker.deployer.BackingApplication;
+import org.springframework.cloud.appbroker.deployer.BackingApplicationFingerprints;
 import org.springframework.cloud.appbroker.deployer.BackingApplications;
 import org.springframework.cloud.appbroker.deployer.BackingService;
 import org.springframework.cloud.appbroker.deployer.BackingServices;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
+import org.springframework.cloud.appbroker.deployer.ServicesSpec;
 import org.springframework.cloud.appbroker.deployer.TargetSpec;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderService;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingApplicationsParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingServicesParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.service.CreateServiceInstanceWorkflow;
+import org.springframework.cloud.appbroker.state.InMemoryBackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.InMemoryProvisioningCheckpointRepository;
 import org.springframework.cloud.servicebroker.model.catalog.Plan;
 import org.springframework.cloud.servicebroker.model.catalog.ServiceDefinition;
 import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceRequest;
 import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceResponse;
 
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -80,6 +92,8 @@ class AppDeploymentCreateServiceInstanceWorkflowTest {
 
 	private TargetSpec targetSpec;
 
+	private BrokeredServices brokeredServices;
+
 	private CreateServiceInstanceWorkflow createServiceInstanceWorkflow;
 
 	@BeforeEach
@@ -112,7 +126,7 @@ class AppDeploymentCreateServiceInstanceWorkflowTest {
 			.name("TargetSpace")
 			.build();
 
-		BrokeredServices brokeredServices = BrokeredServices
+		brokeredServices = BrokeredServices
 			.builder()
 			.service(BrokeredService
 				.builder()
@@ -198,6 +212,251 @@ class AppDeploymentCreateServiceInstanceWorkflowTest {
 		verifyNoMoreInteractionsWithServices();
 	}
 
+	@Test
+	void backingApplicationIsDeployedOnceTheBackingServicesItBindsAreCreated() {
+		BackingApplication standaloneApp = BackingApplication.builder()
+			.name("app1")
+			.path("https://myfiles/app1.jar")
+			.build();
+		BackingApplication boundApp = BackingApplication.builder()
+			.name("app2")
+			.path("https://myfiles/app2.jar")
+			.services(ServicesSpec.builder()
+				.serviceInstanceName("my-service-instance")
+				.build())
+			.build();
+		BackingApplications apps = BackingApplications.builder()
+			.backingApplication(standaloneApp)
+			.backingApplication(boundApp)
+			.build();
+		CreateServiceInstanceWorkflow workflow = new AppDeploymentCreateServiceInstanceWorkflow(
+			BrokeredServices.builder()
+				.service(BrokeredService.builder()
+					.serviceName("service1")
+					.planName("plan1")
+					.apps(apps)
+					.services(backingServices)
+					.target(targetSpec)
+					.build())
+				.build(),
+			appDeploymentService,
+			servicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService);
+
+		CreateServiceInstanceRequest request = buildRequest("service1", "plan1");
+		TestPublisher<String> createdServices = TestPublisher.create();
+		given(this.targetService.addToBackingApplications(eq(apps), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(apps));
+		given(this.appsParametersTransformationService.transformParameters(eq(apps), eq(request.getParameters())))
+			.willReturn(Mono.just(apps));
+		given(this.credentialProviderService.addCredentials(eq(apps), eq("service-instance-id")))
+			.willReturn(Mono.just(apps));
+		given(this.targetService.addToBackingServices(eq(backingServices), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(backingServices));
+		given(this.servicesParametersTransformationService
+			.transformParameters(eq(backingServices), eq(request.getParameters())))
+			.willReturn(Mono.just(backingServices));
+		given(this.servicesProvisionService.createServiceInstance(eq(backingServices)))
+			.willReturn(createdServices.flux());
+		given(this.appDeploymentService.deploy(eq(singletonList(standaloneApp)), eq("service-instance-id")))
+			.willReturn(Flux.just("app1"));
+		given(this.appDeploymentService.deploy(eq(singletonList(boundApp)), eq("service-instance-id")))
+			.willReturn(Flux.just("app2"));
+
+		StepVerifier
+			.create(workflow.create(request, CreateServiceInstanceResponse.builder().build()))
+			.then(() -> {
+				verify(appDeploymentService).deploy(singletonList(standaloneApp), "service-instance-id");
+				verifyNoMoreInteractions(appDeploymentService);
+				createdServices.emit("my-service-instance");
+			})
+			.verifyComplete();
+
+		verify(appDeploymentService).deploy(singletonList(boundApp), "service-instance-id");
+	}
+
+	@Test
+	void backingApplicationWaitsForApplicationItDependsOnThatBindsOtherServices() {
+		BackingApplication migrator = BackingApplication.builder()
+			.name("migrator")
+			.path("https://myfiles/migrator.jar")
+			.services(ServicesSpec.builder()
+				.serviceInstanceName("my-service-instance")
+				.build())
+			.build();
+		BackingApplication web = BackingApplication.builder()
+			.name("web")
+			.path("https://myfiles/web.jar")
+			.dependsOn("migrator")
+			.build();
+		BackingApplications apps = BackingApplications.builder()
+			.backingApplication(web)
+			.backingApplication(migrator)
+			.build();
+		CreateServiceInstanceWorkflow workflow = new AppDeploymentCreateServiceInstanceWorkflow(
+			BrokeredServices.builder()
+				.service(BrokeredService.builder()
+					.serviceName("service1")
+					.planName("plan1")
+					.apps(apps)
+					.services(backingServices)
+					.target(targetSpec)
+					.build())
+				.build(),
+			appDeploymentService,
+			servicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService);
+
+		CreateServiceInstanceRequest request = buildRequest("service1", "plan1");
+		TestPublisher<String> createdServices = TestPublisher.create();
+		given(this.targetService.addToBackingApplications(eq(apps), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(apps));
+		given(this.appsParametersTransformationService.transformParameters(eq(apps), eq(request.getParameters())))
+			.willReturn(Mono.just(apps));
+		given(this.credentialProviderService.addCredentials(eq(apps), eq("service-instance-id")))
+			.willReturn(Mono.just(apps));
+		given(this.targetService.addToBackingServices(eq(backingServices), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(backingServices));
+		given(this.servicesParametersTransformationService
+			.transformParameters(eq(backingServices), eq(request.getParameters())))
+			.willReturn(Mono.just(backingServices));
+		given(this.servicesProvisionService.createServiceInstance(eq(backingServices)))
+			.willReturn(createdServices.flux());
+		given(this.appDeploymentService.deploy(eq(singletonList(migrator)), eq("service-instance-id")))
+			.willReturn(Flux.just("migrator"));
+		given(this.appDeploymentService.deploy(eq(singletonList(web)), eq("service-instance-id")))
+			.willReturn(Flux.just("web"));
+
+		StepVerifier
+			.create(workflow.create(request, CreateServiceInstanceResponse.builder().build()))
+			.then(() -> {
+				verifyNoMoreInteractions(appDeploymentService);
+				createdServices.emit("my-service-instance");
+			})
+			.verifyComplete();
+
+		InOrder inOrder = inOrder(appDeploymentService);
+		inOrder.verify(appDeploymentService).deploy(singletonList(migrator), "service-instance-id");
+		inOrder.verify(appDeploymentService).deploy(singletonList(web), "service-instance-id");
+	}
+
+	@Test
+	void createServiceInstanceRecordsCompletedStepsWhenItFails() {
+		InMemoryProvisioningCheckpointRepository checkpointRepository = new InMemoryProvisioningCheckpointRepository();
+		CreateServiceInstanceWorkflow workflow = workflowWithCheckpoints(checkpointRepository);
+		CreateServiceInstanceRequest request = buildRequest("service1", "plan1");
+
+		setupMocks(request);
+		given(this.appDeploymentService.deploy(eq(backingApps), eq(request.getServiceInstanceId())))
+			.willReturn(Flux.just("app1").concatWith(Flux.error(new IllegalStateException("app2 failed to start"))));
+
+		StepVerifier
+			.create(workflow.create(request, CreateServiceInstanceResponse.builder().build()))
+			.expectErrorMessage("app2 failed to start")
+			.verify();
+
+		StepVerifier.create(checkpointRepository.getCheckpoint(request.getServiceInstanceId()))
+			.assertNext(checkpoint -> {
+				assertThat(checkpoint.getCreatedServices()).containsExactly("my-service-instance");
+				assertThat(checkpoint.getDeployedApplications()).containsExactly("app1");
+				assertThat(checkpoint.getCredentials().keySet()).containsExactlyInAnyOrder("app1", "app2");
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	void createServiceInstanceSkipsStepsCompletedByEarlierAttempt() {
+		InMemoryProvisioningCheckpointRepository checkpointRepository = new InMemoryProvisioningCheckpointRepository();
+		checkpointRepository.saveCreatedService("service-instance-id", "my-service-instance").block();
+		checkpointRepository.saveCredentials("service-instance-id", "app1",
+			singletonMap("spring.security.user.password", "secret")).block();
+		checkpointRepository.saveDeployedApplication("service-instance-id", "app1").block();
+		CreateServiceInstanceWorkflow workflow = workflowWithCheckpoints(checkpointRepository);
+		CreateServiceInstanceRequest request = buildRequest("service1", "plan1");
+		BackingApplication app1 = backingApps.get(0);
+		BackingApplication app2 = backingApps.get(1);
+
+		given(this.targetService.addToBackingApplications(eq(backingApps), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(backingApps));
+		given(this.appsParametersTransformationService.transformParameters(eq(backingApps), any()))
+			.willReturn(Mono.just(backingApps));
+		given(this.credentialProviderService.addCredentials(eq(singletonList(app2)), eq("service-instance-id")))
+			.willAnswer(invocation -> {
+				app2.addEnvironment("spring.security.user.password", "generated");
+				return Mono.just(singletonList(app2));
+			});
+		given(this.targetService.addToBackingServices(eq(backingServices), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(backingServices));
+		given(this.servicesParametersTransformationService.transformParameters(eq(backingServices), any()))
+			.willReturn(Mono.just(backingServices));
+		given(this.appDeploymentService.deploy(eq(singletonList(app2)), eq("service-instance-id")))
+			.willReturn(Flux.just("app2"));
+
+		StepVerifier
+			.create(workflow.create(request, CreateServiceInstanceResponse.builder().build()))
+			.verifyComplete();
+
+		verify(servicesProvisionService, never()).createServiceInstance(any());
+		verify(appDeploymentService).deploy(singletonList(app2), "service-instance-id");
+		verifyNoMoreInteractions(appDeploymentService);
+		assertThat(app1.getEnvironment()).containsEntry("spring.security.user.password", "secret");
+		assertThat(app2.getEnvironment()).containsEntry("spring.security.user.password", "generated");
+		assertThat(checkpointRepository.getCheckpointCount()).isZero();
+	}
+
+	@Test
+	void createServiceInstanceRecordsFingerprintsWithoutCredentials() {
+		InMemoryBackingApplicationFingerprintRepository fingerprintRepository =
+			new InMemoryBackingApplicationFingerprintRepository();
+		CreateServiceInstanceWorkflow workflow = new AppDeploymentCreateServiceInstanceWorkflow(
+			new BrokeredServicesCatalog(brokeredServices),
+			appDeploymentService,
+			servicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService,
+			new InMemoryProvisioningCheckpointRepository(),
+			fingerprintRepository);
+		CreateServiceInstanceRequest request = buildRequest("service1", "plan1");
+		Map<String, String> expectedFingerprints = BackingApplicationFingerprints.fingerprints(backingApps);
+
+		setupMocks(request);
+		given(this.credentialProviderService.addCredentials(eq(backingApps), eq(request.getServiceInstanceId())))
+			.willAnswer(invocation -> {
+				backingApps.forEach(backingApp -> backingApp.addEnvironment("spring.security.user.password",
+					"generated"));
+				return Mono.just(backingApps);
+			});
+
+		StepVerifier
+			.create(workflow.create(request, CreateServiceInstanceResponse.builder().build()))
+			.verifyComplete();
+
+		StepVerifier.create(fingerprintRepository.getFingerprints(request.getServiceInstanceId()))
+			.assertNext(fingerprints -> assertThat(fingerprints).isEqualTo(expectedFingerprints))
+			.verifyComplete();
+	}
+
+	private CreateServiceInstanceWorkflow workflowWithCheckpoints(
+		InMemoryProvisioningCheckpointRepository checkpointRepository) {
+		return new AppDeploymentCreateServiceInstanceWorkflow(
+			new BrokeredServicesCatalog(brokeredServices),
+			appDeploymentService,
+			servicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			credentialProviderService,
+			targetService,
+			checkpointRepository);
+	}
+
 	private void setupMocks(CreateServiceInstanceRequest request) {
 		given(this.appDeploymentService.deploy(eq(backingApps), eq(request.getServiceInstanceId())))
 			.willReturn(Flux.just("app1", "app2"));
@@ -33,15 +33,20 @@ import org.springframework.cloud.appbroker.deployer.BackingServices;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.deployer.TargetSpec;
 import org.springframework.cloud.appbroker.extensions.credentials.CredentialProviderService;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
 import org.springframework.cloud.appbroker.service.DeleteServiceInstanceWorkflow;
+import org.springframework.cloud.appbroker.state.InMemoryBackingApplicationFingerprintRepository;
+import org.springframework.cloud.appbroker.state.InMemoryProvisioningCheckpointRepository;
 import org.springframework.cloud.servicebroker.model.catalog.Plan;
 import org.springframework.cloud.servicebroker.model.catalog.ServiceDefinition;
 import org.springframework.cloud.servicebroker.model.instance.DeleteServiceInstanceRequest;
 import org.springframework.cloud.servicebroker.model.instance.DeleteServiceInstanceResponse;
 
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -67,6 +72,8 @@ class AppDeploymentDeleteServiceInstanceWorkflowTest {
 
 	private TargetSpec targetSpec;
 
+	private BrokeredServices brokeredServices;
+
 	private DeleteServiceInstanceWorkflow deleteServiceInstanceWorkflow;
 
 	@BeforeEach
@@ -96,7 +103,7 @@ class AppDeploymentDeleteServiceInstanceWorkflowTest {
 			.build();
 
 		targetSpec = TargetSpec.builder().name("TargetSpace").build();
-		BrokeredServices brokeredServices = BrokeredServices
+		brokeredServices = BrokeredServices
 			.builder()
 			.service(BrokeredService
 				.builder()
@@ -143,6 +150,42 @@ class AppDeploymentDeleteServiceInstanceWorkflowTest {
 		verifyNoMoreInteractionsWithServices();
 	}
 
+	@Test
+	void deleteServiceInstanceRemovesProvisioningCheckpointAndFingerprints() {
+		InMemoryProvisioningCheckpointRepository checkpointRepository = new InMemoryProvisioningCheckpointRepository();
+		checkpointRepository.saveDeployedApplication("service-instance-id", "app1").block();
+		InMemoryBackingApplicationFingerprintRepository fingerprintRepository =
+			new InMemoryBackingApplicationFingerprintRepository();
+		fingerprintRepository.saveFingerprints("service-instance-id", singletonMap("app1", "fingerprint")).block();
+		DeleteServiceInstanceWorkflow workflow = new AppDeploymentDeleteServiceInstanceWorkflow(
+			new BrokeredServicesCatalog(brokeredServices),
+			backingAppDeploymentService,
+			backingServicesProvisionService,
+			credentialProviderService,
+			targetService,
+			checkpointRepository,
+			fingerprintRepository);
+		DeleteServiceInstanceRequest request = buildRequest("service1", "plan1");
+
+		given(this.backingAppDeploymentService.undeploy(eq(backingApps)))
+			.willReturn(Flux.just("undeployed1", "undeployed2"));
+		given(this.credentialProviderService.deleteCredentials(eq(backingApps), eq(request.getServiceInstanceId())))
+			.willReturn(Mono.just(backingApps));
+		given(this.targetService.addToBackingApplications(eq(backingApps), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(backingApps));
+		given(this.targetService.addToBackingServices(eq(backingServices), eq(targetSpec), eq("service-instance-id")))
+			.willReturn(Mono.just(backingServices));
+		given(this.backingServicesProvisionService.deleteServiceInstance(eq(backingServices)))
+			.willReturn(Flux.just("my-service-instance"));
+
+		StepVerifier
+			.create(workflow.delete(request, DeleteServiceInstanceResponse.builder().build()))
+			.verifyComplete();
+
+		assertThat(checkpointRepository.getCheckpointCount()).isZero();
+		assertThat(fingerprintRepository.getServiceInstanceCount()).isZero();
+	}
+
 	@Test
 	void deleteServiceInstanceWithWithNoAppsDoesNothing() {
 		DeleteServiceInstanceRequest request = buildRequest("unsupported-service", "plan1");
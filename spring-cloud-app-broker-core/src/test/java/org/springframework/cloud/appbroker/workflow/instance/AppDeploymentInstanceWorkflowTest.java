@@ -24,6 +24,7 @@ import org.springframework.cloud.appbroker.deployer.BackingApplication;
 import org.springframework.cloud.appbroker.deployer.BackingApplications;
 import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.TargetSpec;
 import org.springframework.cloud.servicebroker.model.catalog.Plan;
 import org.springframework.cloud.servicebroker.model.catalog.ServiceDefinition;
 
@@ -49,6 +50,9 @@ class AppDeploymentInstanceWorkflowTest {
 				.serviceName("service1")
 				.planName("plan1")
 				.apps(backingApps)
+				.target(TargetSpec.builder()
+					.name("SpacePerServiceInstance")
+					.build())
 				.build())
 			.build();
 
@@ -112,6 +116,21 @@ class AppDeploymentInstanceWorkflowTest {
 			.verifyComplete();
 	}
 
+	@Test
+	@SuppressWarnings("deprecation")
+	void getTargetForServiceSucceeds() {
+		ServiceDefinition serviceDefinition = buildServiceDefinition("service1", "plan1");
+		assertThat(workflow.getTargetForService(serviceDefinition, serviceDefinition.getPlans().get(0)).getName())
+			.isEqualTo("SpacePerServiceInstance");
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	void getTargetForServiceWithUnknownPlanIsNull() {
+		ServiceDefinition serviceDefinition = buildServiceDefinition("service1", "unknown-plan");
+		assertThat(workflow.getTargetForService(serviceDefinition, serviceDefinition.getPlans().get(0))).isNull();
+	}
+
 	private ServiceDefinition buildServiceDefinition(String serviceName, String planName) {
 		return ServiceDefinition.builder()
 			.id(serviceName + "-id")
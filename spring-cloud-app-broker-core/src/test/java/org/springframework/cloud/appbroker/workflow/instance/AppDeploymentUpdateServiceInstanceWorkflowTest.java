@@ -16,8 +16,11 @@
 
 package org.springframework.cloud.appbroker.workflow.instance;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -36,16 +39,23 @@ import org.springframework.cloud.appbroker.deployer.BackingServices;
 import org.springframework.cloud.appbroker.deployer.BackingServicesProvisionService;
 import org.springframework.cloud.appbroker.deployer.BrokeredService;
 import org.springframework.cloud.appbroker.deployer.BrokeredServices;
+import org.springframework.cloud.appbroker.deployer.BrokeredServicesCatalog;
 import org.springframework.cloud.appbroker.deployer.TargetSpec;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingApplicationsParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.parameters.BackingServicesParametersTransformationService;
 import org.springframework.cloud.appbroker.extensions.targets.TargetService;
+import org.springframework.cloud.appbroker.state.InMemoryBackingApplicationFingerprintRepository;
 import org.springframework.cloud.servicebroker.model.catalog.Plan;
 import org.springframework.cloud.servicebroker.model.catalog.ServiceDefinition;
 import org.springframework.cloud.servicebroker.model.instance.UpdateServiceInstanceRequest;
 import org.springframework.cloud.servicebroker.model.instance.UpdateServiceInstanceResponse;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
@@ -75,6 +85,8 @@ class AppDeploymentUpdateServiceInstanceWorkflowTest {
 
 	private TargetSpec targetSpec;
 
+	private BrokeredServices brokeredServices;
+
 	private AppDeploymentUpdateServiceInstanceWorkflow updateServiceInstanceWorkflow;
 
 	@BeforeEach
@@ -105,7 +117,7 @@ class AppDeploymentUpdateServiceInstanceWorkflowTest {
 			.name("TargetSpace")
 			.build();
 
-		BrokeredServices brokeredServices = BrokeredServices.builder()
+		brokeredServices = BrokeredServices.builder()
 			.service(BrokeredService.builder()
 				.serviceName("service1")
 				.planName("plan1")
@@ -177,6 +189,55 @@ class AppDeploymentUpdateServiceInstanceWorkflowTest {
 		verifyNoMoreInteractionsWithServices();
 	}
 
+	@Test
+	void updateServiceInstanceSkipsBackingApplicationsThatDidNotChange() {
+		AppDeploymentUpdateServiceInstanceWorkflow workflow = new AppDeploymentUpdateServiceInstanceWorkflow(
+			new BrokeredServicesCatalog(brokeredServices),
+			appDeploymentService,
+			servicesProvisionService,
+			appsParametersTransformationService,
+			servicesParametersTransformationService,
+			targetService,
+			new InMemoryBackingApplicationFingerprintRepository());
+		List<List<String>> updatedApps = new ArrayList<>();
+
+		given(this.targetService.addToBackingApplications(anyList(), eq(targetSpec), eq("service-instance-id")))
+			.willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+		given(this.appsParametersTransformationService.transformParameters(anyList(), anyMap()))
+			.willAnswer(invocation -> {
+				// only app1 is customized by the parameters
+				List<BackingApplication> apps = invocation.getArgument(0);
+				Map<String, Object> parameters = invocation.getArgument(1);
+				parameters.forEach((key, value) -> apps.get(0).addEnvironment(key, value));
+				return Mono.just(apps);
+			});
+		given(this.appDeploymentService.update(anyList(), eq("service-instance-id")))
+			.willAnswer(invocation -> {
+				List<String> names = invocation.<List<BackingApplication>>getArgument(0).stream()
+					.map(BackingApplication::getName)
+					.collect(Collectors.toList());
+				updatedApps.add(names);
+				return Flux.fromIterable(names);
+			});
+		given(this.targetService.addToBackingServices(anyList(), eq(targetSpec), eq("service-instance-id")))
+			.willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+		given(this.servicesParametersTransformationService.transformParameters(anyList(), anyMap()))
+			.willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+		given(this.servicesProvisionService.updateServiceInstance(anyList()))
+			.willReturn(Flux.just("my-service-instance"));
+		UpdateServiceInstanceResponse response = UpdateServiceInstanceResponse.builder().build();
+
+		StepVerifier.create(workflow.update(buildRequest("service1", "plan1"), response))
+			.verifyComplete();
+		StepVerifier.create(workflow.update(buildRequest("service1", "plan1"), response))
+			.verifyComplete();
+		StepVerifier.create(workflow.update(buildRequest("service1", "plan1",
+			singletonMap("ENV_VAR_1", "value from parameters")), response))
+			.verifyComplete();
+
+		assertThat(updatedApps).containsExactly(asList("app1", "app2"), singletonList("app1"));
+	}
+
 	private void setupMocks(UpdateServiceInstanceRequest request) {
 		given(this.appDeploymentService.update(eq(backingApps), eq(request.getServiceInstanceId())))
 			.willReturn(Flux.just("app1", "app2"));
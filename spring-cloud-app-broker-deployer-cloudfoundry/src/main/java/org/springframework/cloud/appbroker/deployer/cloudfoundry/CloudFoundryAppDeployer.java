@@ -17,16 +17,21 @@
 package org.springframework.cloud.appbroker.deployer.cloudfoundry;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -39,19 +44,31 @@ import org.cloudfoundry.AbstractCloudFoundryException;
 import org.cloudfoundry.UnknownCloudFoundryException;
 import org.cloudfoundry.client.CloudFoundryClient;
 import org.cloudfoundry.client.v2.applications.AssociateApplicationRouteRequest;
+import org.cloudfoundry.client.v2.applications.UploadApplicationRequest;
+import org.cloudfoundry.client.v2.jobs.GetJobRequest;
+import org.cloudfoundry.client.v2.jobs.GetJobResponse;
+import org.cloudfoundry.client.v2.jobs.JobEntity;
 import org.cloudfoundry.client.v2.organizations.GetOrganizationRequest;
 import org.cloudfoundry.client.v2.organizations.GetOrganizationResponse;
 import org.cloudfoundry.client.v2.organizations.ListOrganizationSpacesRequest;
 import org.cloudfoundry.client.v2.organizations.OrganizationEntity;
+import org.cloudfoundry.client.v2.resourcematch.ListMatchingResourcesRequest;
+import org.cloudfoundry.client.v2.resourcematch.ListMatchingResourcesResponse;
 import org.cloudfoundry.client.v2.serviceinstances.ServiceInstanceEntity;
+import org.cloudfoundry.client.v2.serviceplans.ListServicePlansRequest;
+import org.cloudfoundry.client.v2.services.ListServicesRequest;
 import org.cloudfoundry.client.v2.spaces.AssociateSpaceDeveloperRequest;
 import org.cloudfoundry.client.v2.spaces.CreateSpaceRequest;
 import org.cloudfoundry.client.v2.spaces.DeleteSpaceRequest;
 import org.cloudfoundry.client.v2.spaces.SpaceEntity;
+import org.cloudfoundry.client.v2.spaces.UpdateSpaceRequest;
 import org.cloudfoundry.client.v3.Relationship;
 import org.cloudfoundry.client.v3.ToOneRelationship;
+import org.cloudfoundry.client.v3.applications.GetApplicationCurrentDropletRequest;
 import org.cloudfoundry.client.v3.applications.ListApplicationPackagesRequest;
 import org.cloudfoundry.client.v3.applications.ListApplicationPackagesResponse;
+import org.cloudfoundry.client.v3.applications.SetApplicationCurrentDropletRequest;
+import org.cloudfoundry.client.v3.applications.StartApplicationRequest;
 import org.cloudfoundry.client.v3.builds.BuildState;
 import org.cloudfoundry.client.v3.builds.CreateBuildRequest;
 import org.cloudfoundry.client.v3.builds.CreateBuildResponse;
@@ -63,25 +80,27 @@ import org.cloudfoundry.client.v3.deployments.DeploymentRelationships;
 import org.cloudfoundry.client.v3.deployments.DeploymentState;
 import org.cloudfoundry.client.v3.deployments.GetDeploymentRequest;
 import org.cloudfoundry.client.v3.deployments.GetDeploymentResponse;
-import org.cloudfoundry.client.v3.packages.CreatePackageRequest;
-import org.cloudfoundry.client.v3.packages.CreatePackageResponse;
+import org.cloudfoundry.client.v3.droplets.CopyDropletRequest;
+import org.cloudfoundry.client.v3.droplets.CopyDropletResponse;
+import org.cloudfoundry.client.v3.droplets.DropletRelationships;
+import org.cloudfoundry.client.v3.droplets.DropletState;
+import org.cloudfoundry.client.v3.droplets.GetDropletRequest;
+import org.cloudfoundry.client.v3.droplets.GetDropletResponse;
 import org.cloudfoundry.client.v3.packages.GetPackageRequest;
 import org.cloudfoundry.client.v3.packages.GetPackageResponse;
 import org.cloudfoundry.client.v3.packages.Package;
-import org.cloudfoundry.client.v3.packages.PackageRelationships;
 import org.cloudfoundry.client.v3.packages.PackageResource;
 import org.cloudfoundry.client.v3.packages.PackageState;
-import org.cloudfoundry.client.v3.packages.PackageType;
-import org.cloudfoundry.client.v3.packages.UploadPackageRequest;
-import org.cloudfoundry.client.v3.packages.UploadPackageResponse;
 import org.cloudfoundry.operations.CloudFoundryOperations;
 import org.cloudfoundry.operations.applications.ApplicationDetail;
 import org.cloudfoundry.operations.applications.ApplicationHealthCheck;
 import org.cloudfoundry.operations.applications.ApplicationManifest;
+import org.cloudfoundry.operations.applications.ApplicationSummary;
 import org.cloudfoundry.operations.applications.DeleteApplicationRequest;
 import org.cloudfoundry.operations.applications.Docker;
 import org.cloudfoundry.operations.applications.GetApplicationRequest;
 import org.cloudfoundry.operations.applications.PushApplicationManifestRequest;
+import org.cloudfoundry.operations.applications.RenameApplicationRequest;
 import org.cloudfoundry.operations.applications.Route;
 import org.cloudfoundry.operations.domains.Domain;
 import org.cloudfoundry.operations.organizations.OrganizationDetail;
@@ -93,10 +112,8 @@ import org.cloudfoundry.operations.spaces.GetSpaceRequest;
 import org.cloudfoundry.operations.spaces.SpaceDetail;
 import org.cloudfoundry.operations.useradmin.SetSpaceRoleRequest;
 import org.cloudfoundry.operations.useradmin.SpaceRole;
-import org.cloudfoundry.util.DelayUtils;
 import org.cloudfoundry.util.PaginationUtils;
 import org.cloudfoundry.util.ResourceUtils;
-import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Exceptions;
@@ -113,12 +130,15 @@ import org.springframework.cloud.appbroker.deployer.DeployApplicationResponse;
 import org.springframework.cloud.appbroker.deployer.DeploymentProperties;
 import org.springframework.cloud.appbroker.deployer.GetServiceInstanceRequest;
 import org.springframework.cloud.appbroker.deployer.GetServiceInstanceResponse;
+import org.springframework.cloud.appbroker.deployer.ListServiceInstancesRequest;
+import org.springframework.cloud.appbroker.deployer.ListServiceInstancesResponse;
 import org.springframework.cloud.appbroker.deployer.UndeployApplicationRequest;
 import org.springframework.cloud.appbroker.deployer.UndeployApplicationResponse;
 import org.springframework.cloud.appbroker.deployer.UpdateApplicationRequest;
 import org.springframework.cloud.appbroker.deployer.UpdateApplicationResponse;
 import org.springframework.cloud.appbroker.deployer.UpdateServiceInstanceRequest;
 import org.springframework.cloud.appbroker.deployer.UpdateServiceInstanceResponse;
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactFingerprints.Fingerprint;
 import org.springframework.cloud.appbroker.deployer.util.ByteSizeUtils;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.Resource;
@@ -134,6 +154,32 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 
 	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+	private static final String ORGANIZATION_ID = "organization-id";
+
+	private static final String SPACE_ID = "space-id";
+
+	private static final String DOMAINS = "domains";
+
+	private static final String SERVICE_INSTANCE = "service-instance";
+
+	private static final String SPACE = "space";
+
+	private static final String ORGANIZATION = "organization";
+
+	private static final String WARM_APPLICATION_PREFIX = "warm-";
+
+	private static final String UPGRADE_PROPERTY_KEY = "upgrade";
+
+	private static final String JOB_FINISHED = "finished";
+
+	private static final String JOB_FAILED = "failed";
+
+	private static final int RESOURCE_MATCH_BATCH_SIZE = 1000;
+
+	private static final List<String> STAGING_VARIABLE_PREFIXES = Arrays.asList("JBP_", "BP_");
+
+	private static final Set<String> STAGING_VARIABLES = Collections.singleton("JAVA_OPTS");
+
 	private final CloudFoundryDeploymentProperties defaultDeploymentProperties;
 
 	private final CloudFoundryOperations operations;
@@ -144,6 +190,29 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 
 	private final CloudFoundryTargetProperties targetProperties;
 
+	private final CloudFoundryLookupCache lookupCache;
+
+	private final CloudFoundryStatusPoller<GetBuildResponse> buildPoller;
+
+	private final CloudFoundryStatusPoller<GetPackageResponse> packagePoller;
+
+	private final CloudFoundryStatusPoller<GetDeploymentResponse> deploymentPoller;
+
+	private final CloudFoundryStatusPoller<GetDropletResponse> dropletPoller;
+
+	private final CloudFoundryStatusPoller<GetJobResponse> jobPoller;
+
+	private final CloudFoundryDropletRegistry dropletRegistry;
+
+	private final CloudFoundryWarmPool warmPool;
+
+	private final CloudFoundryArtifactCache artifactCache;
+
+	private final CloudFoundryArtifactChecksums artifactChecksums = new CloudFoundryArtifactChecksums();
+
+	private final CloudFoundryArtifactFingerprints artifactFingerprints =
+		new CloudFoundryArtifactFingerprints(artifactChecksums);
+
 	private ResourceLoader resourceLoader;
 
 	public CloudFoundryAppDeployer(CloudFoundryDeploymentProperties deploymentProperties,
@@ -152,12 +221,98 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 		CloudFoundryOperationsUtils operationsUtils,
 		CloudFoundryTargetProperties targetProperties,
 		ResourceLoader resourceLoader) {
+		this(deploymentProperties, operations, client, operationsUtils, targetProperties, resourceLoader,
+			CloudFoundryLookupCache.disabled());
+	}
+
+	public CloudFoundryAppDeployer(CloudFoundryDeploymentProperties deploymentProperties,
+		CloudFoundryOperations operations,
+		CloudFoundryClient client,
+		CloudFoundryOperationsUtils operationsUtils,
+		CloudFoundryTargetProperties targetProperties,
+		ResourceLoader resourceLoader,
+		CloudFoundryLookupCache lookupCache) {
+		this(deploymentProperties, operations, client, operationsUtils, targetProperties, resourceLoader,
+			lookupCache, new CloudFoundryStatusPollerProperties(), new CloudFoundryDropletRegistry());
+	}
+
+	public CloudFoundryAppDeployer(CloudFoundryDeploymentProperties deploymentProperties,
+		CloudFoundryOperations operations,
+		CloudFoundryClient client,
+		CloudFoundryOperationsUtils operationsUtils,
+		CloudFoundryTargetProperties targetProperties,
+		ResourceLoader resourceLoader,
+		CloudFoundryLookupCache lookupCache,
+		CloudFoundryStatusPollerProperties statusPollerProperties,
+		CloudFoundryDropletRegistry dropletRegistry) {
+		this(deploymentProperties, operations, client, operationsUtils, targetProperties, resourceLoader,
+			lookupCache, statusPollerProperties, dropletRegistry, new CloudFoundryWarmPool());
+	}
+
+	public CloudFoundryAppDeployer(CloudFoundryDeploymentProperties deploymentProperties,
+		CloudFoundryOperations operations,
+		CloudFoundryClient client,
+		CloudFoundryOperationsUtils operationsUtils,
+		CloudFoundryTargetProperties targetProperties,
+		ResourceLoader resourceLoader,
+		CloudFoundryLookupCache lookupCache,
+		CloudFoundryStatusPollerProperties statusPollerProperties,
+		CloudFoundryDropletRegistry dropletRegistry,
+		CloudFoundryWarmPool warmPool) {
+		this(deploymentProperties, operations, client, operationsUtils, targetProperties, resourceLoader,
+			lookupCache, statusPollerProperties, dropletRegistry, warmPool, CloudFoundryArtifactCache.disabled());
+	}
+
+	public CloudFoundryAppDeployer(CloudFoundryDeploymentProperties deploymentProperties,
+		CloudFoundryOperations operations,
+		CloudFoundryClient client,
+		CloudFoundryOperationsUtils operationsUtils,
+		CloudFoundryTargetProperties targetProperties,
+		ResourceLoader resourceLoader,
+		CloudFoundryLookupCache lookupCache,
+		CloudFoundryStatusPollerProperties statusPollerProperties,
+		CloudFoundryDropletRegistry dropletRegistry,
+		CloudFoundryWarmPool warmPool,
+		CloudFoundryArtifactCache artifactCache) {
 		this.defaultDeploymentProperties = deploymentProperties;
 		this.operations = operations;
 		this.client = client;
 		this.operationsUtils = operationsUtils;
 		this.targetProperties = targetProperties;
 		this.resourceLoader = resourceLoader;
+		this.lookupCache = lookupCache;
+		this.buildPoller = new CloudFoundryStatusPoller<>("build",
+			buildId -> client.builds().get(GetBuildRequest.builder().buildId(buildId).build()),
+			build -> build.getState().equals(BuildState.STAGED),
+			build -> build.getState().equals(BuildState.FAILED),
+			statusPollerProperties);
+		this.packagePoller = new CloudFoundryStatusPoller<>("package",
+			packageId -> client.packages().get(GetPackageRequest.builder().packageId(packageId).build()),
+			appPackage -> appPackage.getState().equals(PackageState.READY),
+			appPackage -> appPackage.getState().equals(PackageState.FAILED)
+				|| appPackage.getState().equals(PackageState.EXPIRED),
+			statusPollerProperties);
+		this.deploymentPoller = new CloudFoundryStatusPoller<>("deployment",
+			deploymentId -> client.deploymentsV3().get(GetDeploymentRequest.builder()
+				.deploymentId(deploymentId)
+				.build()),
+			deployment -> deployment.getState().equals(DeploymentState.DEPLOYED),
+			deployment -> deployment.getState().equals(DeploymentState.CANCELED),
+			statusPollerProperties);
+		this.dropletPoller = new CloudFoundryStatusPoller<>("droplet",
+			dropletId -> client.droplets().get(GetDropletRequest.builder().dropletId(dropletId).build()),
+			droplet -> droplet.getState().equals(DropletState.STAGED),
+			droplet -> droplet.getState().equals(DropletState.FAILED)
+				|| droplet.getState().equals(DropletState.EXPIRED),
+			statusPollerProperties);
+		this.jobPoller = new CloudFoundryStatusPoller<>("job",
+			jobId -> client.jobs().get(GetJobRequest.builder().jobId(jobId).build()),
+			job -> isJobFinished(job.getEntity()),
+			job -> JOB_FAILED.equals(job.getEntity().getStatus()),
+			statusPollerProperties);
+		this.dropletRegistry = dropletRegistry;
+		this.warmPool = warmPool;
+		this.artifactCache = artifactCache;
 	}
 
 	@Override
@@ -168,16 +323,16 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 	@Override
 	public Mono<DeployApplicationResponse> deploy(DeployApplicationRequest request) {
 		String appName = request.getName();
-		Resource appResource = getAppResource(request.getPath());
 		Map<String, String> deploymentProperties = request.getProperties();
 
-		if (LOG.isTraceEnabled()) {
-			LOG.trace("Deploying application: request={}, resource={}",
-				appName, appResource);
-		}
-
-		return pushApplication(request, deploymentProperties, appResource)
-			.timeout(Duration.ofSeconds(this.defaultDeploymentProperties.getApiTimeout()))
+		return useAppResource(request.getPath(), appResource -> {
+			if (LOG.isTraceEnabled()) {
+				LOG.trace("Deploying application: request={}, resource={}",
+					appName, appResource);
+			}
+			return pushApplication(request, deploymentProperties, appResource)
+				.timeout(Duration.ofSeconds(this.defaultDeploymentProperties.getApiTimeout()));
+		})
 			.doOnSuccess(item -> LOG.info("Successfully deployed {}", appName))
 			.doOnError(error -> {
 				if (httpStatusNotFoundPredicate().test(error)) {
@@ -208,23 +363,8 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 				.doOnError(e -> LOG.warn(String.format("Error getting application %s: %s", name, e.getMessage())))
 				.map(ApplicationDetail::getId)
 				.flatMap(applicationId -> associateHostName(applicationId, request.getProperties()))
-				.flatMap(applicationId -> Mono.zip(Mono.just(applicationId),
-					upgradeApplication(request, applicationId)))
-				.flatMap(tuple2 -> {
-					String packageId = tuple2.getT2();
-					return Mono.zip(Mono.just(tuple2.getT1()), createBuildForPackage(packageId));
-				})
-				.flatMap(tuple2 -> {
-						String buildId = tuple2.getT2();
-						return Mono.zip(Mono.just(tuple2.getT1()), waitForBuildStaged(buildId));
-					}
-				)
-				.map(tuple2 -> tuple2.mapT2((t2) -> t2.getDroplet().getId()))
-				.flatMap(tuple2 -> {
-					String dropletId = tuple2.getT2();
-					String applicationId = tuple2.getT1();
-					return createDeployment(dropletId, applicationId);
-				})
+				.flatMap(applicationId -> stageApplication(request, applicationId)
+					.flatMap(dropletId -> createDeployment(dropletId, applicationId)))
 				.map(CreateDeploymentResponse::getId)
 				.flatMap(this::waitForDeploymentDeployed)
 				.doOnRequest(l -> LOG.debug("Updating application {}", name))
@@ -233,6 +373,47 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 				.thenReturn(UpdateApplicationResponse.builder().name(name).build()));
 	}
 
+	/**
+	 * Stage the application for an update. An upgrade with droplet reuse enabled copies the droplet already staged
+	 * from the same artifact, buildpack and stack, so that upgrading many applications to the same artifact uploads
+	 * and stages it only once.
+	 *
+	 * @return the ID of the droplet to deploy
+	 */
+	private Mono<String> stageApplication(UpdateApplicationRequest request, String applicationId) {
+		if (isUpgrade(request.getProperties()) && dropletReuse(request.getProperties())) {
+			return upgradeApplicationReusingDroplet(request, applicationId);
+		}
+		return stageNewDroplet(request, applicationId);
+	}
+
+	private Mono<String> stageNewDroplet(UpdateApplicationRequest request, String applicationId) {
+		return upgradeApplication(request, applicationId)
+			.flatMap(this::createBuildForPackage)
+			.flatMap(this::waitForBuildStaged)
+			.map(build -> build.getDroplet().getId());
+	}
+
+	private Mono<String> upgradeApplicationReusingDroplet(UpdateApplicationRequest request, String applicationId) {
+		String buildpack = buildpack(request.getProperties());
+		String stack = stack(request.getProperties());
+		String environment = stagingEnvironment(request.getProperties(), request.getEnvironment(),
+			request.getServiceInstanceId());
+		return useAppResource(request.getPath(),
+			appResource -> artifactChecksums.checksum(getApplication(appResource)))
+			.flatMap(checksum -> Mono.justOrEmpty(dropletRegistry.getDroplet(checksum, buildpack, stack, environment))
+				.flatMap(dropletId -> copyDroplet(dropletId, applicationId)
+					.onErrorResume(e -> {
+						LOG.warn(String.format("Unable to reuse droplet %s for application %s, staging it instead: %s",
+							dropletId, request.getName(), e.getMessage()));
+						dropletRegistry.removeDroplet(checksum, buildpack, stack, environment, dropletId);
+						return Mono.empty();
+					}))
+				.switchIfEmpty(Mono.defer(() -> stageNewDroplet(request, applicationId)
+					.doOnNext(dropletId -> dropletRegistry.putDroplet(checksum, buildpack, stack, environment,
+						dropletId)))));
+	}
+
 	private Mono<String> associateHostName(String applicationId, Map<String, String> properties) {
 		String domain = domain(properties);
 		Set<String> domains = domains(properties);
@@ -241,8 +422,10 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 			return Mono.just(applicationId);
 		}
 
-		return operationsUtils.getOperations(properties).map(cfOperations -> cfOperations.domains().list())
-			.flatMap(Flux::collectList)
+		// domains are shared by all spaces of the default organization
+		return lookupCache.get(DOMAINS, targetProperties.getDefaultOrg(),
+			() -> operationsUtils.getOperations(properties).map(cfOperations -> cfOperations.domains().list())
+				.flatMap(Flux::collectList))
 			.map(allDomains -> Stream.concat(Stream.of(domain), domains.stream())
 				.map(d -> getDomainId(d, allDomains))
 				.collect(Collectors.toSet()))
@@ -281,13 +464,13 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 		else {
 			space = targetProperties.getDefaultSpace();
 		}
-		return operations
+		return lookupCache.get(SPACE_ID, space, () -> operations
 			.spaces()
 			.get(GetSpaceRequest
 				.builder()
 				.name(space)
 				.build())
-			.map(SpaceDetail::getId);
+			.map(SpaceDetail::getId));
 	}
 
 	private String getDomainId(String domain, List<Domain> domains) {
@@ -310,14 +493,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 	}
 
 	private Mono<GetDeploymentResponse> waitForDeploymentDeployed(String deploymentId) {
-		return this.client
-			.deploymentsV3()
-			.get(GetDeploymentRequest
-				.builder()
-				.deploymentId(deploymentId)
-				.build())
-			.filter(p -> p.getState().equals(DeploymentState.DEPLOYED))
-			.repeatWhenEmpty(getExponentialBackOff())
+		return deploymentPoller.waitFor(deploymentId)
 			.doOnRequest(l -> LOG.debug("Waiting for deployment deployed {}", deploymentId))
 			.doOnSuccess(response -> LOG.info("Deployment deployed {}", deploymentId))
 			.doOnError(e -> LOG
@@ -346,10 +522,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 	}
 
 	private Mono<GetBuildResponse> waitForBuildStaged(String buildId) {
-		return this.client
-			.builds().get(GetBuildRequest.builder().buildId(buildId).build())
-			.filter(p -> p.getState().equals(BuildState.STAGED))
-			.repeatWhenEmpty(getExponentialBackOff())
+		return buildPoller.waitFor(buildId)
 			.doOnRequest(l -> LOG.debug("Waiting for build staged {}", buildId))
 			.doOnSuccess(response -> LOG.info("Build staged {}", buildId))
 			.doOnError(
@@ -371,42 +544,107 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 	}
 
 	private Mono<GetPackageResponse> waitForPackageReady(String packageId) {
-		return this.client
-			.packages()
-			.get(GetPackageRequest.builder().packageId(packageId).build())
-			.filter(p -> p.getState().equals(PackageState.READY))
-			.repeatWhenEmpty(getExponentialBackOff())
+		return packagePoller.waitFor(packageId)
 			.doOnRequest(l -> LOG.debug("Waiting for package ready {}", packageId))
 			.doOnSuccess(response -> LOG.info("Package ready {}", packageId))
 			.doOnError(
 				e -> LOG.warn(String.format("Error waiting for package ready %s: %s", packageId, e.getMessage())));
 	}
 
-	private Mono<UploadPackageResponse> uploadPackage(UpdateApplicationRequest request, String packageId) {
-		try {
-			return this.client
-				.packages()
-				.upload(UploadPackageRequest
-					.builder()
-					.packageId(packageId)
-					.bits(Paths.get(getAppResource(request.getPath()).getURI()))
-					.build())
-				.doOnRequest(l -> LOG.debug("Uploading package {}", packageId))
-				.doOnSuccess(response -> LOG.info("Package uploaded {}", packageId))
-				.doOnError(
-					e -> LOG.warn(String.format("Error uploading package %s: %s", packageId, e.getMessage())));
-		}
-		catch (IOException e) {
-			throw Exceptions.propagate(e);
+	/**
+	 * Upload the application bits into a new package of the application. Only the files that are not in the Cloud
+	 * Controller resource cache yet are sent; the others are referenced by their fingerprints.
+	 *
+	 * @return the ID of the new package
+	 */
+	private Mono<String> uploadApplicationBits(UpdateApplicationRequest request, String applicationId) {
+		return useAppResource(request.getPath(), appResource -> Mono.just(appResource)
+			.map(this::getApplication)
+			.flatMap(application -> artifactFingerprints.fingerprints(application)
+				.flatMap(fingerprints -> matchResources(fingerprints)
+					.flatMap(matched -> uploadUnmatchedResources(applicationId, application, fingerprints, matched)))))
+			.then(Mono.defer(() -> getPackageForApplication(applicationId)));
+	}
+
+	/**
+	 * Ask the Cloud Controller which of the files it already has in its resource cache.
+	 *
+	 * @return the fingerprint hashes of the files the Cloud Controller has
+	 */
+	private Mono<Set<String>> matchResources(List<Fingerprint> fingerprints) {
+		return Flux.fromIterable(fingerprints)
+			.filter(fingerprint -> fingerprint.getSize() > 0)
+			.map(fingerprint -> org.cloudfoundry.client.v2.resourcematch.Resource.builder()
+				.hash(fingerprint.getHash())
+				.size(Math.toIntExact(fingerprint.getSize()))
+				.build())
+			.distinct(org.cloudfoundry.client.v2.resourcematch.Resource::getHash)
+			.buffer(RESOURCE_MATCH_BATCH_SIZE)
+			.concatMap(resources -> this.client
+				.resourceMatch()
+				.list(ListMatchingResourcesRequest.builder()
+					.resources(resources)
+					.build()))
+			.flatMapIterable(ListMatchingResourcesResponse::getResources)
+			.map(org.cloudfoundry.client.v2.resourcematch.Resource::getHash)
+			.collect(Collectors.toSet())
+			.doOnSuccess(matched -> LOG.debug("Cloud Controller has {} of {} application files",
+				fingerprints.stream().filter(fingerprint -> matched.contains(fingerprint.getHash())).count(),
+				fingerprints.size()))
+			.doOnError(e -> LOG.warn(String.format("Error matching application files: %s", e.getMessage())));
+	}
+
+	private Mono<Void> uploadUnmatchedResources(String applicationId, Path application,
+		List<Fingerprint> fingerprints, Set<String> matched) {
+		List<Fingerprint> unmatched = fingerprints.stream()
+			.filter(fingerprint -> !matched.contains(fingerprint.getHash()))
+			.collect(Collectors.toList());
+		List<Fingerprint> resources = fingerprints.stream()
+			.filter(fingerprint -> matched.contains(fingerprint.getHash()))
+			.collect(Collectors.toList());
+		if (unmatched.isEmpty() && !resources.isEmpty()) {
+			// an archive can not be empty, so send one of the matched files along
+			unmatched.add(resources.remove(resources.size() - 1));
 		}
+		return artifactFingerprints.createArchive(application, unmatched)
+			.flatMap(archive -> uploadApplication(applicationId, archive, resources)
+				.then(artifactFingerprints.deleteArchive(archive))
+				.onErrorResume(e -> artifactFingerprints.deleteArchive(archive)
+					.then(Mono.error(e))));
+	}
+
+	private Mono<Void> uploadApplication(String applicationId, Path archive, List<Fingerprint> resources) {
+		return this.client
+			.applicationsV2()
+			.upload(UploadApplicationRequest.builder()
+				.applicationId(applicationId)
+				.application(archive)
+				.resources(resources.stream()
+					.map(fingerprint -> org.cloudfoundry.client.v2.applications.Resource.builder()
+						.hash(fingerprint.getHash())
+						.mode(fingerprint.getMode())
+						.path(fingerprint.getPath())
+						.size(Math.toIntExact(fingerprint.getSize()))
+						.build())
+					.collect(Collectors.toList()))
+				.async(true)
+				.build())
+			.doOnRequest(l -> LOG.debug("Uploading application bits for application {}", applicationId))
+			.flatMap(job -> isJobFinished(job.getEntity()) ? Mono.<Void>empty() :
+				jobPoller.waitFor(job.getMetadata().getId()).then())
+			.doOnSuccess(response -> LOG.info("Uploaded application bits for application {} reusing {} files",
+				applicationId, resources.size()))
+			.doOnError(e -> LOG.warn(String.format("Error uploading application bits for application %s: %s",
+				applicationId, e.getMessage())));
+	}
+
+	private static boolean isJobFinished(JobEntity job) {
+		return JOB_FINISHED.equals(job.getStatus());
 	}
 
 	private Mono<String> upgradeApplication(UpdateApplicationRequest request, String applicationId) {
-		if (request.getProperties().containsKey("upgrade")) {
-			return createPackageForApplication(applicationId)
-				.map(CreatePackageResponse::getId)
-				.flatMap(packageId -> uploadPackage(request, packageId))
-				.map(UploadPackageResponse::getId)
+		if (isUpgrade(request.getProperties())) {
+			return uploadApplicationBits(request, applicationId)
 				.flatMap(packageId -> waitForPackageReady(packageId)
 					.map(Package::getId));
 		}
@@ -442,29 +680,6 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 			.getId();
 	}
 
-	private Mono<CreatePackageResponse> createPackageForApplication(String applicationId) {
-		return this.client
-			.packages()
-			.create(CreatePackageRequest
-				.builder()
-				.relationships(PackageRelationships
-					.builder()
-					.application(ToOneRelationship
-						.builder()
-						.data(Relationship
-							.builder()
-							.id(applicationId)
-							.build())
-						.build())
-					.build())
-				.type(PackageType.BITS)
-				.build())
-			.doOnRequest(l -> LOG.debug("Creating package for application {}", applicationId))
-			.doOnSuccess(response -> LOG.info("Created package for application {}", applicationId))
-			.doOnError(e -> LOG
-				.warn(String.format("Error creating package for application %s: %s", applicationId, e.getMessage())));
-	}
-
 	private Mono<org.cloudfoundry.client.v2.applications.UpdateApplicationResponse> updateApplicationEnvironment(
 		String applicationId, Map<String, Object> environmentVariables, Map<String, String> properties) {
 		return this.client
@@ -483,13 +698,28 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 				String.format("Error Updating environment for application %s: %s", applicationId, e.getMessage())));
 	}
 
-	private Function<Flux<Long>, Publisher<?>> getExponentialBackOff() {
-		return DelayUtils.exponentialBackOff(Duration.ofSeconds(2), Duration.ofMinutes(5), Duration.ofMinutes(10));
+	private Mono<Void> pushApplication(DeployApplicationRequest request,
+		Map<String, String> deploymentProperties,
+		Resource appResource) {
+		if (isWarmPoolEligible(deploymentProperties, appResource)) {
+			return pushApplicationFromWarmPool(request, deploymentProperties, appResource);
+		}
+		return pushNewApplication(request, deploymentProperties, appResource);
 	}
 
-	private Mono<Void> pushApplication(DeployApplicationRequest request,
+	private Mono<Void> pushNewApplication(DeployApplicationRequest request,
 		Map<String, String> deploymentProperties,
 		Resource appResource) {
+		if (dropletReuse(deploymentProperties) && getDockerImage(appResource) == null) {
+			return pushApplicationReusingDroplet(request, deploymentProperties, appResource);
+		}
+		return pushApplication(request, deploymentProperties, appResource, start(deploymentProperties));
+	}
+
+	private Mono<Void> pushApplication(DeployApplicationRequest request,
+		Map<String, String> deploymentProperties,
+		Resource appResource,
+		boolean start) {
 		ApplicationManifest manifest = buildAppManifest(request, deploymentProperties, appResource);
 
 		if (LOG.isDebugEnabled()) {
@@ -501,7 +731,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 				.manifest(manifest)
 				.stagingTimeout(this.defaultDeploymentProperties.getStagingTimeout())
 				.startupTimeout(this.defaultDeploymentProperties.getStartupTimeout())
-				.noStart(!start(deploymentProperties))
+				.noStart(!start)
 				.build();
 
 		Mono<Void> requestPushApplication;
@@ -519,6 +749,400 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 				String.format("Error creating app %s.  Exception Message %s", request.getName(), e.getMessage())));
 	}
 
+	/**
+	 * Push an application without staging it if a droplet was already staged from the same artifact, buildpack, stack
+	 * and staging environment, by copying that droplet into the application. Otherwise push and stage the
+	 * application, and record its droplet for the next deployment.
+	 */
+	private Mono<Void> pushApplicationReusingDroplet(DeployApplicationRequest request,
+		Map<String, String> deploymentProperties,
+		Resource appResource) {
+		String buildpack = buildpack(deploymentProperties);
+		String stack = stack(deploymentProperties);
+		String environment = stagingEnvironment(deploymentProperties, request.getEnvironment(),
+			request.getServiceInstanceId());
+		return artifactChecksums.checksum(getApplication(appResource))
+			.flatMap(checksum -> Mono.justOrEmpty(dropletRegistry.getDroplet(checksum, buildpack, stack, environment))
+				.flatMap(dropletId -> pushApplicationWithDroplet(request, deploymentProperties, appResource, dropletId)
+					.onErrorResume(DropletReuseException.class, e -> {
+						LOG.warn(String.format("Unable to reuse droplet %s for application %s, staging it instead: %s",
+							dropletId, request.getName(), e.getMessage()));
+						dropletRegistry.removeDroplet(checksum, buildpack, stack, environment, dropletId);
+						return pushApplicationAndRecordDroplet(request, deploymentProperties, appResource, checksum,
+							environment);
+					})
+					.thenReturn(checksum))
+				.switchIfEmpty(Mono.defer(() ->
+					pushApplicationAndRecordDroplet(request, deploymentProperties, appResource, checksum, environment)
+						.thenReturn(checksum))))
+			.then();
+	}
+
+	private Mono<Void> pushApplicationWithDroplet(DeployApplicationRequest request,
+		Map<String, String> deploymentProperties,
+		Resource appResource,
+		String dropletId) {
+		return pushApplication(request, deploymentProperties, appResource, false)
+			.then(getApplicationId(request.getName(), deploymentProperties))
+			.flatMap(applicationId -> copyDroplet(dropletId, applicationId)
+				.flatMap(copiedDropletId -> setCurrentDroplet(applicationId, copiedDropletId))
+				.onErrorMap(DropletReuseException::new)
+				.then(Mono.defer(() -> start(deploymentProperties) ? startApplication(applicationId) : Mono.empty())))
+			.doOnSuccess(v -> LOG.info("Deployed application {} with a copy of droplet {}", request.getName(),
+				dropletId));
+	}
+
+	private Mono<Void> pushApplicationAndRecordDroplet(DeployApplicationRequest request,
+		Map<String, String> deploymentProperties,
+		Resource appResource,
+		String checksum,
+		String environment) {
+		boolean start = start(deploymentProperties);
+		return pushApplication(request, deploymentProperties, appResource, start)
+			.then(Mono.defer(() -> start
+				? recordDroplet(request.getName(), deploymentProperties, checksum, environment)
+				: Mono.empty()));
+	}
+
+	private Mono<Void> recordDroplet(String name, Map<String, String> deploymentProperties, String checksum,
+		String environment) {
+		return getApplicationId(name, deploymentProperties)
+			.flatMap(applicationId -> this.client
+				.applicationsV3()
+				.getCurrentDroplet(GetApplicationCurrentDropletRequest
+					.builder()
+					.applicationId(applicationId)
+					.build()))
+			.doOnNext(droplet -> dropletRegistry.putDroplet(checksum, buildpack(deploymentProperties),
+				stack(deploymentProperties), environment, droplet.getId()))
+			.doOnError(e -> LOG.warn(
+				String.format("Unable to record droplet of application %s: %s", name, e.getMessage())))
+			.onErrorResume(e -> Mono.empty())
+			.then();
+	}
+
+	/**
+	 * Start filling the warm pool for applications deployed like the given template, so that the first deployment
+	 * can already claim a warm application. Does nothing unless the template enables a warm pool.
+	 *
+	 * @param template a request describing the applications to keep in the warm pool
+	 * @return completes when the warm pool is registered; the pool is filled in the background
+	 */
+	public Mono<Void> prepareWarmPool(DeployApplicationRequest template) {
+		Map<String, String> deploymentProperties = template.getProperties();
+		return useAppResource(template.getPath(), appResource -> Mono.just(appResource)
+			.filter(resource -> isWarmPoolEligible(deploymentProperties, resource))
+			.flatMap(resource -> warmPoolKey(template, deploymentProperties, resource)))
+			.doOnNext(key -> registerWarmPool(key, template, deploymentProperties))
+			.then();
+	}
+
+	/**
+	 * Deploy an application by claiming a stopped, staged application from the warm pool, renaming it and applying
+	 * the requested environment, services and routes. Falls back to pushing a new application if the pool is empty or
+	 * the claimed application can not be used.
+	 */
+	private Mono<Void> pushApplicationFromWarmPool(DeployApplicationRequest request,
+		Map<String, String> deploymentProperties,
+		Resource appResource) {
+		return warmPoolKey(request, deploymentProperties, appResource)
+			.doOnNext(key -> registerWarmPool(key, request, deploymentProperties))
+			.filterWhen(key -> isTargetSpaceAvailable(deploymentProperties))
+			.flatMap(key -> Mono.justOrEmpty(warmPool.claim(key)))
+			.flatMap(warmName -> claimWarmApplication(warmName, request, deploymentProperties)
+				.onErrorResume(e -> {
+					LOG.warn(String.format("Unable to deploy application %s from warm pool application %s, " +
+						"pushing it instead: %s", request.getName(), warmName, e.getMessage()));
+					return pushNewApplication(request, deploymentProperties, appResource);
+				})
+				.thenReturn(warmName))
+			.switchIfEmpty(Mono.defer(() -> pushNewApplication(request, deploymentProperties, appResource)
+				.then(Mono.<String>empty())))
+			.then();
+	}
+
+	private void registerWarmPool(String key, DeployApplicationRequest template,
+		Map<String, String> deploymentProperties) {
+		if (!warmPool.isRegistered(key)) {
+			boolean spacePerApplication = deploymentProperties.containsKey(DeploymentProperties.TARGET_PROPERTY_KEY);
+			warmPool.register(key, warmPoolGroup(template, deploymentProperties),
+				warmPoolSize(deploymentProperties),
+				findWarmApplications(key, spacePerApplication),
+				() -> createWarmApplication(key, template, deploymentProperties),
+				name -> deleteWarmApplication(name, spacePerApplication));
+		}
+	}
+
+	/**
+	 * A warm application pushed into its own space can only be claimed by renaming that space, which is not possible
+	 * if the target space already exists.
+	 */
+	private Mono<Boolean> isTargetSpaceAvailable(Map<String, String> deploymentProperties) {
+		String space = deploymentProperties.get(DeploymentProperties.TARGET_PROPERTY_KEY);
+		if (space == null) {
+			return Mono.just(true);
+		}
+		return getSpaceId(space)
+			.map(spaceId -> false)
+			.defaultIfEmpty(true);
+	}
+
+	private Mono<String> createWarmApplication(String key, DeployApplicationRequest template,
+		Map<String, String> deploymentProperties) {
+		String name = WARM_APPLICATION_PREFIX + key + "-" + UUID.randomUUID().toString().substring(0, 8);
+		boolean spacePerApplication = deploymentProperties.containsKey(DeploymentProperties.TARGET_PROPERTY_KEY);
+
+		Map<String, String> warmProperties = new HashMap<>(deploymentProperties);
+		warmProperties.remove(DeploymentProperties.HOST_PROPERTY_KEY);
+		warmProperties.remove(CloudFoundryDeploymentProperties.DOMAIN_PROPERTY);
+		warmProperties.remove(CloudFoundryDeploymentProperties.DOMAINS_PROPERTY);
+		warmProperties.put(CloudFoundryDeploymentProperties.NO_ROUTE_PROPERTY, "true");
+		if (spacePerApplication) {
+			warmProperties.put(DeploymentProperties.TARGET_PROPERTY_KEY, name);
+		}
+
+		// stage with the variables buildpacks read, so that the droplet matches what a push of the template stages
+		Map<String, String> stagingVariables = stagingVariables(deploymentProperties, template.getEnvironment(),
+			template.getServiceInstanceId());
+		warmProperties.put(DeploymentProperties.USE_SPRING_APPLICATION_JSON_KEY, "false");
+
+		DeployApplicationRequest warmRequest = DeployApplicationRequest.builder()
+			.name(name)
+			.path(template.getPath())
+			.properties(warmProperties)
+			.environment(new HashMap<>(stagingVariables))
+			.build();
+
+		return useAppResource(template.getPath(),
+			appResource -> pushApplication(warmRequest, warmProperties, appResource, false))
+			.then(getApplicationId(name, warmProperties))
+			.flatMap(applicationId -> getPackageForApplication(applicationId)
+				.flatMap(this::createBuildForPackage)
+				.flatMap(this::waitForBuildStaged)
+				.flatMap(build -> setCurrentDroplet(applicationId, build.getDroplet().getId())))
+			.thenReturn(name)
+			.doOnRequest(l -> LOG.debug("Creating warm pool application {}", name))
+			.doOnSuccess(response -> LOG.info("Created warm pool application {}", name))
+			.onErrorResume(e -> deleteWarmApplication(name, spacePerApplication)
+				.then(Mono.error(e)));
+	}
+
+	private Mono<Void> deleteWarmApplication(String name, boolean spacePerApplication) {
+		if (spacePerApplication) {
+			return deleteApplicationInSpace(name, name).then(deleteSpace(name));
+		}
+		return deleteApplication(name)
+			.doOnError(error -> LOG.warn("Unable to delete warm pool application: {} ", name))
+			.onErrorResume(e -> Mono.empty());
+	}
+
+	/**
+	 * Find warm applications created by an earlier run of the broker, which are stopped and staged but no longer
+	 * tracked by the warm pool.
+	 */
+	private Flux<String> findWarmApplications(String key, boolean spacePerApplication) {
+		String prefix = WARM_APPLICATION_PREFIX + key + "-";
+		Flux<String> names;
+		if (spacePerApplication) {
+			names = Mono.justOrEmpty(targetProperties.getDefaultOrg())
+				.flatMap(this::getOrganizationId)
+				.flatMapMany(orgId -> PaginationUtils.requestClientV2Resources(page -> client.organizations()
+					.listSpaces(ListOrganizationSpacesRequest.builder()
+						.organizationId(orgId)
+						.page(page)
+						.build())))
+				.map(resource -> resource.getEntity().getName());
+		}
+		else {
+			names = operations.applications()
+				.list()
+				.map(ApplicationSummary::getName);
+		}
+		return names
+			.filter(name -> name.startsWith(prefix))
+			.doOnError(e -> LOG.warn(String.format("Error finding existing warm pool applications for %s: %s",
+				key, e.getMessage())))
+			.onErrorResume(e -> Flux.empty());
+	}
+
+	private Mono<Void> claimWarmApplication(String warmName, DeployApplicationRequest request,
+		Map<String, String> deploymentProperties) {
+		String name = request.getName();
+		String space = deploymentProperties.get(DeploymentProperties.TARGET_PROPERTY_KEY);
+		Mono<Void> claimSpace = space == null ? Mono.empty() : renameSpace(warmName, space);
+
+		return claimSpace
+			.then(operationsUtils.getOperations(deploymentProperties))
+			.flatMap(cfOperations -> cfOperations.applications()
+				.rename(RenameApplicationRequest.builder()
+					.name(warmName)
+					.newName(name)
+					.build())
+				.then(getApplicationId(name, deploymentProperties))
+				.flatMap(applicationId -> updateWarmApplication(applicationId, request, deploymentProperties)
+					.then(Flux.fromIterable(request.getServices())
+						.concatMap(serviceInstanceName -> cfOperations.services()
+							.bind(BindServiceInstanceRequest.builder()
+								.applicationName(name)
+								.serviceInstanceName(serviceInstanceName)
+								.build()))
+						.then())
+					.then(mapWarmApplicationRoutes(applicationId, name, deploymentProperties))
+					.then(Mono.defer(() -> start(deploymentProperties) ? startApplication(applicationId)
+						: Mono.empty()))))
+			.doOnRequest(l -> LOG.debug("Claiming warm pool application {} for {}", warmName, name))
+			.doOnSuccess(v -> LOG.info("Deployed application {} from warm pool application {}", name, warmName));
+	}
+
+	private Mono<Void> renameSpace(String spaceName, String newSpaceName) {
+		return getSpaceId(spaceName)
+			.switchIfEmpty(Mono.error(new IllegalStateException(
+				String.format("Warm pool space %s does not exist", spaceName))))
+			.flatMap(spaceId -> client.spaces()
+				.update(UpdateSpaceRequest.builder()
+					.spaceId(spaceId)
+					.name(newSpaceName)
+					.build()))
+			.doOnSuccess(response -> {
+				lookupCache.invalidate(SPACE_ID, spaceName);
+				lookupCache.invalidate(SPACE_ID, newSpaceName);
+				operationsUtils.evictOperationsForSpace(spaceName);
+				operationsUtils.evictOperationsForSpace(newSpaceName);
+			})
+			.then();
+	}
+
+	private Mono<Void> updateWarmApplication(String applicationId, DeployApplicationRequest request,
+		Map<String, String> deploymentProperties) {
+		return this.client
+			.applicationsV2()
+			.update(org.cloudfoundry.client.v2.applications.UpdateApplicationRequest
+				.builder()
+				.applicationId(applicationId)
+				.instances(instances(deploymentProperties))
+				.diskQuota(diskQuota(deploymentProperties))
+				.memory(memory(deploymentProperties))
+				.healthCheckType(Optional.ofNullable(healthCheck(deploymentProperties))
+					.map(ApplicationHealthCheck::getValue)
+					.orElse(null))
+				.healthCheckHttpEndpoint(healthCheckEndpoint(deploymentProperties))
+				.healthCheckTimeout(healthCheckTimeout(deploymentProperties))
+				.putAllEnvironmentJsons(getEnvironmentVariables(deploymentProperties, request.getEnvironment(),
+					request.getServiceInstanceId()))
+				.build())
+			.then();
+	}
+
+	/**
+	 * Warm applications are pushed without routes, so map the route a push would have mapped.
+	 */
+	private Mono<Void> mapWarmApplicationRoutes(String applicationId, String name,
+		Map<String, String> deploymentProperties) {
+		if (Boolean.TRUE.equals(toggleNoRoute(deploymentProperties))) {
+			return Mono.empty();
+		}
+		Map<String, String> routeProperties = new HashMap<>(deploymentProperties);
+		if (host(deploymentProperties) == null) {
+			routeProperties.put(DeploymentProperties.HOST_PROPERTY_KEY, name);
+		}
+		return associateHostName(applicationId, routeProperties).then();
+	}
+
+	/**
+	 * Applications are kept in a warm pool only if they are staged from an artifact and the routes a push would map
+	 * can be mapped when they are claimed.
+	 */
+	private boolean isWarmPoolEligible(Map<String, String> deploymentProperties, Resource appResource) {
+		return warmPoolSize(deploymentProperties) > 0
+			&& getDockerImage(appResource) == null
+			&& route(deploymentProperties) == null
+			&& routes(deploymentProperties).isEmpty()
+			&& routePath(deploymentProperties) == null;
+	}
+
+	/**
+	 * Warm applications can only be claimed by requests that would stage the same droplet, so the key covers the
+	 * artifact and everything that goes into staging it.
+	 */
+	private Mono<String> warmPoolKey(DeployApplicationRequest request, Map<String, String> deploymentProperties,
+		Resource appResource) {
+		boolean spacePerApplication = deploymentProperties.containsKey(DeploymentProperties.TARGET_PROPERTY_KEY);
+		String environment = stagingEnvironment(deploymentProperties, request.getEnvironment(),
+			request.getServiceInstanceId());
+		return artifactChecksums.checksum(getApplication(appResource))
+			.map(checksum -> String.join("|", checksum, String.valueOf(buildpack(deploymentProperties)),
+				String.valueOf(stack(deploymentProperties)), String.valueOf(environment),
+				String.valueOf(spacePerApplication)))
+			.map(key -> UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString()
+				.replace("-", "").substring(0, 16));
+	}
+
+	/**
+	 * The warm pools of an artifact location share a group, so that a pool whose key no longer matches the artifact
+	 * at that location, for example after a new version was published there, is retired.
+	 */
+	private String warmPoolGroup(DeployApplicationRequest template, Map<String, String> deploymentProperties) {
+		boolean spacePerApplication = deploymentProperties.containsKey(DeploymentProperties.TARGET_PROPERTY_KEY);
+		String environment = stagingEnvironment(deploymentProperties, template.getEnvironment(),
+			template.getServiceInstanceId());
+		return String.join("|", template.getPath(), String.valueOf(buildpack(deploymentProperties)),
+			String.valueOf(stack(deploymentProperties)), String.valueOf(environment),
+			String.valueOf(spacePerApplication));
+	}
+
+	private Mono<String> getApplicationId(String name, Map<String, String> deploymentProperties) {
+		return operationsUtils.getOperations(deploymentProperties)
+			.flatMap(cfOperations -> cfOperations.applications()
+				.get(GetApplicationRequest.builder().name(name).build()))
+			.map(ApplicationDetail::getId);
+	}
+
+	private Mono<String> copyDroplet(String dropletId, String applicationId) {
+		return this.client
+			.droplets()
+			.copy(CopyDropletRequest
+				.builder()
+				.sourceDropletId(dropletId)
+				.relationships(DropletRelationships
+					.builder()
+					.application(ToOneRelationship
+						.builder()
+						.data(Relationship.builder().id(applicationId).build())
+						.build())
+					.build())
+				.build())
+			.map(CopyDropletResponse::getId)
+			.flatMap(dropletPoller::waitFor)
+			.map(GetDropletResponse::getId)
+			.doOnRequest(l -> LOG.debug("Copying droplet {} to application {}", dropletId, applicationId))
+			.doOnSuccess(response -> LOG.info("Copied droplet {} to application {}", dropletId, applicationId))
+			.doOnError(e -> LOG.warn(String.format("Error copying droplet %s to application %s: %s",
+				dropletId, applicationId, e.getMessage())));
+	}
+
+	private Mono<Void> setCurrentDroplet(String applicationId, String dropletId) {
+		return this.client
+			.applicationsV3()
+			.setCurrentDroplet(SetApplicationCurrentDropletRequest
+				.builder()
+				.applicationId(applicationId)
+				.data(Relationship.builder().id(dropletId).build())
+				.build())
+			.then();
+	}
+
+	private Mono<Void> startApplication(String applicationId) {
+		return this.client
+			.applicationsV3()
+			.start(StartApplicationRequest
+				.builder()
+				.applicationId(applicationId)
+				.build())
+			.doOnRequest(l -> LOG.debug("Starting application {}", applicationId))
+			.doOnSuccess(response -> LOG.info("Started application {}", applicationId))
+			.then();
+	}
+
 	private ApplicationManifest buildAppManifest(DeployApplicationRequest request,
 		Map<String, String> deploymentProperties,
 		Resource appResource) {
@@ -557,6 +1181,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 
 		if (getDockerImage(appResource) == null) {
 			manifest.buildpack(buildpack(deploymentProperties));
+			Optional.ofNullable(stack(deploymentProperties)).ifPresent(manifest::stack);
 		}
 		else {
 			manifest.docker(Docker.builder().image(getDockerImage(appResource)).build());
@@ -587,6 +1212,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 						.doOnError(
 							e -> LOG.warn(String.format("Error creating space %s: %s", spaceName, e.getMessage())))
 						.map(response -> response.getMetadata().getId())
+						.doOnNext(spaceId -> lookupCache.invalidate(SPACE_ID, spaceName))
 						.flatMap(spaceId -> addSpaceDeveloperRoleForCurrentUser(orgName, spaceName, spaceId)
 							.thenReturn(spaceId)))));
 	}
@@ -619,10 +1245,11 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 	}
 
 	private Mono<String> getOrganizationId(String orgName) {
-		return operations.organizations().get(OrganizationInfoRequest.builder()
-			.name(orgName)
-			.build())
-			.map(OrganizationDetail::getId);
+		return lookupCache.get(ORGANIZATION_ID, orgName, () -> operations.organizations()
+			.get(OrganizationInfoRequest.builder()
+				.name(orgName)
+				.build())
+			.map(OrganizationDetail::getId));
 	}
 
 	@Override
@@ -679,6 +1306,11 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 					.spaceId(spaceId)
 					.recursive(true)
 					.build())
+				.doOnSuccess(response -> {
+					lookupCache.invalidate(SPACE_ID, spaceName);
+					lookupCache.invalidate(SPACE, spaceId);
+					operationsUtils.evictOperationsForSpace(spaceName);
+				})
 				.then())
 			.doOnError(exception -> LOG.debug("Error deleting space {} with error '{}'",
 				spaceName, exception.getMessage()))
@@ -687,7 +1319,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 
 	private Mono<String> getSpaceId(String spaceName) {
 		return Mono.justOrEmpty(targetProperties.getDefaultOrg())
-			.flatMap(orgName -> getOrganizationId(orgName)
+			.flatMap(orgName -> lookupCache.get(SPACE_ID, spaceName, () -> getOrganizationId(orgName)
 				.flatMap(orgId -> PaginationUtils.requestClientV2Resources(page -> client.organizations()
 					.listSpaces(ListOrganizationSpacesRequest.builder()
 						.name(spaceName)
@@ -696,7 +1328,7 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 						.build()))
 					.filter(resource -> resource.getEntity().getName().equals(spaceName))
 					.map(resource -> resource.getMetadata().getId())
-					.next()));
+					.next())));
 	}
 
 	private Map<String, Object> getEnvironmentVariables(Map<String, String> properties,
@@ -712,6 +1344,36 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 		return envVariables;
 	}
 
+	/**
+	 * Digest the environment variables that buildpacks read while staging, such as {@code JBP_CONFIG_*},
+	 * {@code BP_*} and {@code JAVA_OPTS}, so that a droplet is only reused for the same staging configuration.
+	 *
+	 * @return the digest, or {@literal null} if the environment has none of these variables
+	 */
+	private String stagingEnvironment(Map<String, String> properties,
+		Map<String, Object> environment,
+		String serviceInstanceId) {
+		Map<String, String> stagingVariables = stagingVariables(properties, environment, serviceInstanceId);
+		if (stagingVariables.isEmpty()) {
+			return null;
+		}
+		MessageDigest digest = CloudFoundryArtifactChecksums.newDigest();
+		return CloudFoundryArtifactChecksums.toHex(
+			digest.digest(stagingVariables.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private Map<String, String> stagingVariables(Map<String, String> properties,
+		Map<String, Object> environment,
+		String serviceInstanceId) {
+		Map<String, String> stagingVariables = new TreeMap<>();
+		getEnvironmentVariables(properties, environment, serviceInstanceId).forEach((name, value) -> {
+			if (STAGING_VARIABLE_PREFIXES.stream().anyMatch(name::startsWith) || STAGING_VARIABLES.contains(name)) {
+				stagingVariables.put(name, String.valueOf(value));
+			}
+		});
+		return stagingVariables;
+	}
+
 	private Map<String, Object> getApplicationEnvironment(Map<String, String> properties,
 		Map<String, Object> environment,
 		String serviceInstanceId) {
@@ -850,6 +1512,27 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 			.orElse(this.defaultDeploymentProperties.getBuildpack());
 	}
 
+	private String stack(Map<String, String> properties) {
+		return Optional.ofNullable(properties.get(CloudFoundryDeploymentProperties.STACK_PROPERTY_KEY))
+			.orElse(this.defaultDeploymentProperties.getStack());
+	}
+
+	private boolean isUpgrade(Map<String, String> properties) {
+		return properties.containsKey(UPGRADE_PROPERTY_KEY);
+	}
+
+	private boolean dropletReuse(Map<String, String> properties) {
+		return Optional.ofNullable(properties.get(CloudFoundryDeploymentProperties.DROPLET_REUSE_PROPERTY_KEY))
+			.map(Boolean::valueOf)
+			.orElse(this.defaultDeploymentProperties.isDropletReuse());
+	}
+
+	private int warmPoolSize(Map<String, String> properties) {
+		return Optional.ofNullable(properties.get(CloudFoundryDeploymentProperties.WARM_POOL_SIZE_PROPERTY_KEY))
+			.map(Integer::parseInt)
+			.orElse(this.defaultDeploymentProperties.getWarmPoolSize());
+	}
+
 	private String javaOpts(Map<String, String> properties) {
 		return Optional.ofNullable(properties.get(CloudFoundryDeploymentProperties.JAVA_OPTS_PROPERTY_KEY))
 			.orElse(this.defaultDeploymentProperties.getJavaOpts());
@@ -891,6 +1574,18 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 		return resourceLoader.getResource(path);
 	}
 
+	/**
+	 * Resolve the application artifact to a local copy through the artifact cache, so that remote artifacts are not
+	 * downloaded again for every push. The local copy is kept until the function completes.
+	 *
+	 * @param path the location of the application artifact
+	 * @param function the function using the resource to push
+	 * @return the result of the function
+	 */
+	private <T> Mono<T> useAppResource(String path, Function<Resource, Mono<T>> function) {
+		return Mono.defer(() -> artifactCache.use(getAppResource(path), function));
+	}
+
 	/**
 	 * Return a Path to the application Resource or {@literal null} if the request is for a Docker image.
 	 *
@@ -934,6 +1629,39 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 				.build());
 	}
 
+	@Override
+	public Mono<ListServiceInstancesResponse> listServiceInstances(ListServiceInstancesRequest request) {
+		return PaginationUtils.requestClientV2Resources(page -> client.services()
+			.list(ListServicesRequest.builder()
+				.label(request.getServiceName())
+				.page(page)
+				.build()))
+			.map(ResourceUtils::getId)
+			.flatMap(serviceId -> PaginationUtils.requestClientV2Resources(page -> client.servicePlans()
+				.list(ListServicePlansRequest.builder()
+					.serviceId(serviceId)
+					.page(page)
+					.build())))
+			.filter(servicePlan -> request.getPlanName().equals(ResourceUtils.getEntity(servicePlan).getName()))
+			.map(ResourceUtils::getId)
+			.flatMap(servicePlanId -> PaginationUtils.requestClientV2Resources(page -> client.serviceInstances()
+				.list(org.cloudfoundry.client.v2.serviceinstances.ListServiceInstancesRequest.builder()
+					.servicePlanId(servicePlanId)
+					.page(page)
+					.build())))
+			.map(ResourceUtils::getId)
+			.collectList()
+			.doOnRequest(l -> LOG.debug("Listing service instances of {}/{}", request.getServiceName(),
+				request.getPlanName()))
+			.doOnSuccess(ids -> LOG.info("Found {} service instances of {}/{}", ids.size(),
+				request.getServiceName(), request.getPlanName()))
+			.doOnError(e -> LOG.warn(String.format("Error listing service instances of %s/%s: %s",
+				request.getServiceName(), request.getPlanName(), e.getMessage())))
+			.map(ids -> ListServiceInstancesResponse.builder()
+				.serviceInstanceIds(ids)
+				.build());
+	}
+
 	private Mono<ServiceInstance> getServiceInstance(String name, SpaceEntity spaceEntity) {
 		return getOrganization(spaceEntity.getOrganizationId())
 			.flatMap(organizationEntity ->
@@ -944,25 +1672,30 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 							.build())));
 	}
 
+	/**
+	 * Look up the name and space of a service instance. Both only change when the service instance is renamed or
+	 * deleted, in which case the lookup of the service instance by name that follows fails.
+	 */
 	private Mono<ServiceInstanceEntity> getServiceInstance(String serviceInstanceId) {
-		return client.serviceInstances()
+		return lookupCache.get(SERVICE_INSTANCE, serviceInstanceId, () -> client.serviceInstances()
 			.get(org.cloudfoundry.client.v2.serviceinstances.GetServiceInstanceRequest.builder()
 				.serviceInstanceId(serviceInstanceId)
 				.build())
-			.map(ResourceUtils::getEntity);
+			.map(ResourceUtils::getEntity));
 	}
 
 	private Mono<SpaceEntity> getSpace(String spaceId) {
-		return client.spaces().get(org.cloudfoundry.client.v2.spaces.GetSpaceRequest.builder()
-			.spaceId(spaceId)
-			.build())
-			.map(ResourceUtils::getEntity);
+		return lookupCache.get(SPACE, spaceId, () -> client.spaces()
+			.get(org.cloudfoundry.client.v2.spaces.GetSpaceRequest.builder()
+				.spaceId(spaceId)
+				.build())
+			.map(ResourceUtils::getEntity));
 	}
 
 	private Mono<OrganizationEntity> getOrganization(String organizationId) {
-		return client.organizations()
+		return lookupCache.get(ORGANIZATION, organizationId, () -> client.organizations()
 			.get(GetOrganizationRequest.builder().organizationId(organizationId).build())
-			.map(GetOrganizationResponse::getEntity);
+			.map(GetOrganizationResponse::getEntity));
 	}
 
 	@Override
@@ -1134,4 +1867,17 @@ public class CloudFoundryAppDeployer implements AppDeployer, ResourceLoaderAware
 		};
 	}
 
+	/**
+	 * A reference droplet could not be copied into an application
+	 */
+	private static final class DropletReuseException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public DropletReuseException(Throwable cause) {
+			super(cause.getMessage(), cause);
+		}
+
+	}
+
 }
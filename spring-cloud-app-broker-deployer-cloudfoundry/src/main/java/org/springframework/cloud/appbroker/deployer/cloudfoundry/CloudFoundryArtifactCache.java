@@ -0,0 +1,592 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * Keeps local copies of remote application artifacts, so that every push reads the artifact from local disk instead
+ * of downloading it again. Artifacts are stored by their SHA-256 checksum and indexed by their URI, so that several
+ * URIs of the same artifact share one copy. Artifacts downloaded over HTTP are revalidated with their {@code ETag}
+ * and {@code Last-Modified} headers once the revalidate interval has passed. Other remote artifacts, such as Maven
+ * artifacts, are treated as immutable. Local files and Docker images are used as they are.
+ * <p>
+ * The index is kept on disk next to the artifacts, so that cached artifacts survive a restart of the broker. When
+ * the total size of the cached artifacts exceeds the maximum size, the least recently used artifacts are removed.
+ * Artifacts that are in {@link #use(Resource, Function) use} are removed from the index right away, but their local
+ * copy is only deleted once the last user releases it.
+ */
+public class CloudFoundryArtifactCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CloudFoundryArtifactCache.class);
+
+	private static final String OBJECTS_DIRECTORY = "objects";
+
+	private static final String INDEX_DIRECTORY = "index";
+
+	private static final String INDEX_SUFFIX = ".properties";
+
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private static final String DEFAULT_DIRECTORY = "spring-cloud-appbroker-artifacts";
+
+	private static final int MAX_USE_ATTEMPTS = 3;
+
+	private final boolean enabled;
+
+	private final Path objectsDirectory;
+
+	private final Path indexDirectory;
+
+	private final long maxSizeBytes;
+
+	private final long revalidateIntervalMillis;
+
+	private final int connectTimeoutMillis;
+
+	private final int readTimeoutMillis;
+
+	private final Scheduler scheduler;
+
+	private final Clock clock;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<String, Integer> useCounts = new HashMap<>();
+
+	private final Set<String> deferredDeletes = new HashSet<>();
+
+	private final Map<String, Mono<Resource>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong downloadCount = new AtomicLong();
+
+	private final AtomicLong revalidationCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public CloudFoundryArtifactCache(CloudFoundryArtifactCacheProperties properties) {
+		this(properties, Schedulers.boundedElastic(), Clock.systemUTC());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryArtifactCache} and load the index of artifacts cached by an earlier run
+	 *
+	 * @param properties the artifact cache properties
+	 * @param scheduler the scheduler used to download and store artifacts
+	 * @param clock the clock used to decide when to revalidate artifacts
+	 */
+	public CloudFoundryArtifactCache(CloudFoundryArtifactCacheProperties properties, Scheduler scheduler,
+		Clock clock) {
+		this.enabled = properties.isEnabled();
+		Path directory = StringUtils.hasText(properties.getDirectory()) ? Paths.get(properties.getDirectory())
+			: Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY);
+		this.objectsDirectory = directory.resolve(OBJECTS_DIRECTORY);
+		this.indexDirectory = directory.resolve(INDEX_DIRECTORY);
+		this.maxSizeBytes = properties.getMaxSize().toBytes();
+		this.revalidateIntervalMillis = properties.getRevalidateInterval().toMillis();
+		this.connectTimeoutMillis = (int) properties.getConnectTimeout().toMillis();
+		this.readTimeoutMillis = (int) properties.getReadTimeout().toMillis();
+		this.scheduler = scheduler;
+		this.clock = clock;
+		if (enabled) {
+			loadIndex();
+		}
+	}
+
+	/**
+	 * @return an artifact cache that returns all resources as they are
+	 */
+	public static CloudFoundryArtifactCache disabled() {
+		CloudFoundryArtifactCacheProperties properties = new CloudFoundryArtifactCacheProperties();
+		properties.setEnabled(false);
+		return new CloudFoundryArtifactCache(properties);
+	}
+
+	/**
+	 * Get a local copy of an artifact, downloading it if it is not cached or changed since it was cached
+	 *
+	 * @param resource the artifact
+	 * @return the local copy, or the resource itself if it is a local file or a Docker image
+	 */
+	public Mono<Resource> resolve(Resource resource) {
+		if (!enabled) {
+			return Mono.just(resource);
+		}
+		return Mono.defer(() -> {
+			String uri;
+			try {
+				uri = resource.getURI().toString();
+				if (uri.startsWith("docker:") || resource.isFile()) {
+					return Mono.just(resource);
+				}
+			}
+			catch (IOException e) {
+				return Mono.error(e);
+			}
+			return inFlight.computeIfAbsent(uri, key -> Mono.fromCallable(() -> fetch(key, resource))
+				.subscribeOn(scheduler)
+				.doFinally(signal -> inFlight.remove(key))
+				.cache());
+		});
+	}
+
+	/**
+	 * Get a local copy of an artifact like {@link #resolve(Resource)} and use it. The local copy is kept on disk until
+	 * the returned {@link Mono} terminates, even if the artifact is evicted from the cache in the meantime.
+	 *
+	 * @param resource the artifact
+	 * @param function the function using the local copy
+	 * @param <T> the type of the result
+	 * @return the result of the function
+	 */
+	public <T> Mono<T> use(Resource resource, Function<Resource, Mono<T>> function) {
+		return Mono.usingWhen(acquire(resource), function, this::release, (resolved, e) -> release(resolved),
+			this::release);
+	}
+
+	/**
+	 * @return the number of resolved artifacts that were used from the cache without contacting their server
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of artifacts downloaded
+	 */
+	public long getDownloadCount() {
+		return downloadCount.get();
+	}
+
+	/**
+	 * @return the number of cached artifacts that their server reported as unchanged
+	 */
+	public long getRevalidationCount() {
+		return revalidationCount.get();
+	}
+
+	/**
+	 * @return the number of artifacts removed to stay below the maximum size
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return the number of cached artifact URIs
+	 */
+	public int getEntryCount() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the total size in bytes of the cached artifacts
+	 */
+	public long getSize() {
+		synchronized (entries) {
+			return totalSize();
+		}
+	}
+
+	/**
+	 * Resolve the artifact and count the local copy as used. A local copy evicted between resolving and counting it
+	 * may already be deleted, so the artifact is resolved again.
+	 */
+	private Mono<Resource> acquire(Resource resource) {
+		return resolve(resource)
+			.filter(this::markUsed)
+			.repeatWhenEmpty(MAX_USE_ATTEMPTS, attempts -> attempts);
+	}
+
+	private boolean markUsed(Resource resolved) {
+		String file = cachedFile(resolved);
+		if (file == null) {
+			return true;
+		}
+		synchronized (entries) {
+			if (!useCounts.containsKey(file) && !isIndexed(file)) {
+				return false;
+			}
+			useCounts.merge(file, 1, Integer::sum);
+			return true;
+		}
+	}
+
+	private Mono<Void> release(Resource resolved) {
+		String file = cachedFile(resolved);
+		if (file == null) {
+			return Mono.empty();
+		}
+		return Mono.fromCallable(() -> {
+			synchronized (entries) {
+				Integer count = useCounts.computeIfPresent(file, (name, uses) -> uses > 1 ? uses - 1 : null);
+				if (count == null && deferredDeletes.remove(file) && !isIndexed(file)) {
+					Files.deleteIfExists(objectsDirectory.resolve(file));
+				}
+			}
+			return file;
+		})
+			.subscribeOn(scheduler)
+			.doOnError(e -> LOG.warn(String.format("Error deleting evicted artifact %s: %s", file, e.getMessage())))
+			.onErrorResume(e -> Mono.empty())
+			.then();
+	}
+
+	/**
+	 * @return the name of the local copy in the cache, or {@literal null} if the resource is not a cached artifact
+	 */
+	private String cachedFile(Resource resolved) {
+		if (!(resolved instanceof FileSystemResource)) {
+			return null;
+		}
+		Path path = ((FileSystemResource) resolved).getFile().toPath();
+		return objectsDirectory.equals(path.getParent()) ? path.getFileName().toString() : null;
+	}
+
+	private boolean isIndexed(String file) {
+		return entries.values().stream().anyMatch(entry -> entry.getFile().equals(file));
+	}
+
+	private Resource fetch(String uri, Resource resource) throws IOException {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(uri);
+		}
+		if (entry != null && !Files.exists(objectPath(entry))) {
+			entry = null;
+		}
+		boolean http = isHttp(uri);
+		if (entry != null && (!http || clock.millis() - entry.getValidatedAt() < revalidateIntervalMillis)) {
+			hitCount.incrementAndGet();
+			return new FileSystemResource(objectPath(entry));
+		}
+		if (http) {
+			return download(uri, entry);
+		}
+		try (InputStream in = resource.getInputStream()) {
+			return new FileSystemResource(objectPath(store(uri, in, null, null)));
+		}
+	}
+
+	private Resource download(String uri, Entry cached) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+		try {
+			connection.setConnectTimeout(connectTimeoutMillis);
+			connection.setReadTimeout(readTimeoutMillis);
+			if (cached != null && cached.getEtag() != null) {
+				connection.setRequestProperty("If-None-Match", cached.getEtag());
+			}
+			if (cached != null && cached.getLastModified() != null) {
+				connection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+			}
+			int status = connection.getResponseCode();
+			if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+				revalidationCount.incrementAndGet();
+				Entry validated = cached.validatedAt(clock.millis());
+				put(validated);
+				return new FileSystemResource(objectPath(validated));
+			}
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException(String.format("Unexpected status %d downloading %s", status, uri));
+			}
+			try (InputStream in = connection.getInputStream()) {
+				return new FileSystemResource(objectPath(store(uri, in, connection.getHeaderField("ETag"),
+					connection.getHeaderField("Last-Modified"))));
+			}
+		}
+		catch (IOException e) {
+			if (cached == null) {
+				throw e;
+			}
+			LOG.warn(String.format("Error revalidating artifact %s, using the cached copy: %s", uri, e.getMessage()));
+			return new FileSystemResource(objectPath(cached));
+		}
+		finally {
+			connection.disconnect();
+		}
+	}
+
+	private Entry store(String uri, InputStream in, String etag, String lastModified) throws IOException {
+		Files.createDirectories(objectsDirectory);
+		Path temporary = Files.createTempFile(objectsDirectory, "download-", TEMPORARY_SUFFIX);
+		try {
+			MessageDigest digest = CloudFoundryArtifactChecksums.newDigest();
+			long size;
+			try (InputStream input = new DigestInputStream(in, digest)) {
+				size = Files.copy(input, temporary, StandardCopyOption.REPLACE_EXISTING);
+			}
+			String checksum = CloudFoundryArtifactChecksums.toHex(digest.digest());
+			String file = checksum + extension(uri);
+			Path object = objectsDirectory.resolve(file);
+			if (!Files.exists(object)) {
+				Files.move(temporary, object, StandardCopyOption.ATOMIC_MOVE);
+			}
+			downloadCount.incrementAndGet();
+			Entry entry = new Entry(uri, checksum, file, size, etag, lastModified, clock.millis());
+			put(entry);
+			LOG.info("Cached artifact {} as {}", uri, file);
+			return entry;
+		}
+		finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private void put(Entry entry) throws IOException {
+		synchronized (entries) {
+			Entry previous = entries.put(entry.getUri(), entry);
+			writeIndex(entry);
+			List<Entry> removed = new ArrayList<>();
+			if (previous != null) {
+				removed.add(previous);
+			}
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (totalSize() > maxSizeBytes && eldest.hasNext()) {
+				Entry candidate = eldest.next();
+				if (!candidate.getUri().equals(entry.getUri())) {
+					eldest.remove();
+					Files.deleteIfExists(indexPath(candidate.getUri()));
+					removed.add(candidate);
+					evictionCount.incrementAndGet();
+					LOG.info("Removed artifact {} from the cache", candidate.getUri());
+				}
+			}
+			for (Entry removedEntry : removed) {
+				if (isIndexed(removedEntry.getFile())) {
+					continue;
+				}
+				if (useCounts.containsKey(removedEntry.getFile())) {
+					deferredDeletes.add(removedEntry.getFile());
+				}
+				else {
+					Files.deleteIfExists(objectPath(removedEntry));
+				}
+			}
+		}
+	}
+
+	private long totalSize() {
+		return entries.values().stream()
+			.collect(Collectors.toMap(Entry::getFile, Entry::getSize, (size, other) -> size))
+			.values().stream()
+			.mapToLong(Long::longValue)
+			.sum();
+	}
+
+	private void loadIndex() {
+		try {
+			Files.createDirectories(objectsDirectory);
+			Files.createDirectories(indexDirectory);
+			List<Entry> loaded = new ArrayList<>();
+			try (Stream<Path> files = Files.list(indexDirectory)) {
+				for (Path file : files.collect(Collectors.toList())) {
+					Entry entry = readIndex(file);
+					if (entry != null && Files.exists(objectPath(entry))) {
+						loaded.add(entry);
+					}
+					else {
+						Files.deleteIfExists(file);
+					}
+				}
+			}
+			synchronized (entries) {
+				loaded.forEach(entry -> entries.put(entry.getUri(), entry));
+			}
+			try (Stream<Path> objects = Files.list(objectsDirectory)) {
+				for (Path object : objects.collect(Collectors.toList())) {
+					String name = object.getFileName().toString();
+					if (loaded.stream().noneMatch(entry -> entry.getFile().equals(name))) {
+						Files.deleteIfExists(object);
+					}
+				}
+			}
+			LOG.info("Loaded {} cached artifacts from {}", loaded.size(), objectsDirectory);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Error loading the artifact cache index from " + indexDirectory, e);
+		}
+	}
+
+	private Entry readIndex(Path file) {
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			properties.load(in);
+			return new Entry(properties.getProperty("uri"), properties.getProperty("checksum"),
+				properties.getProperty("file"), Long.parseLong(properties.getProperty("size")),
+				properties.getProperty("etag"), properties.getProperty("last-modified"),
+				Long.parseLong(properties.getProperty("validated-at")));
+		}
+		catch (IOException | RuntimeException e) {
+			LOG.warn(String.format("Ignoring unreadable artifact cache index %s: %s", file, e.getMessage()));
+			return null;
+		}
+	}
+
+	private void writeIndex(Entry entry) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("uri", entry.getUri());
+		properties.setProperty("checksum", entry.getChecksum());
+		properties.setProperty("file", entry.getFile());
+		properties.setProperty("size", String.valueOf(entry.getSize()));
+		properties.setProperty("validated-at", String.valueOf(entry.getValidatedAt()));
+		if (entry.getEtag() != null) {
+			properties.setProperty("etag", entry.getEtag());
+		}
+		if (entry.getLastModified() != null) {
+			properties.setProperty("last-modified", entry.getLastModified());
+		}
+		Files.createDirectories(indexDirectory);
+		Path index = indexPath(entry.getUri());
+		Path temporary = Files.createTempFile(indexDirectory, "index-", TEMPORARY_SUFFIX);
+		try {
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				properties.store(out, null);
+			}
+			Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private Path objectPath(Entry entry) {
+		return objectsDirectory.resolve(entry.getFile());
+	}
+
+	private Path indexPath(String uri) {
+		MessageDigest digest = CloudFoundryArtifactChecksums.newDigest();
+		String name = CloudFoundryArtifactChecksums.toHex(digest.digest(uri.getBytes(StandardCharsets.UTF_8)));
+		return indexDirectory.resolve(name + INDEX_SUFFIX);
+	}
+
+	private static boolean isHttp(String uri) {
+		return uri.startsWith("http:") || uri.startsWith("https:");
+	}
+
+	/**
+	 * Keep the extension of the artifact, such as {@code .jar} or {@code .zip}, so that the local copy is recognized
+	 * as the same kind of archive.
+	 */
+	private static String extension(String uri) {
+		String path = URI.create(uri).getPath();
+		String extension = path == null ? null : StringUtils.getFilenameExtension(path);
+		return StringUtils.hasText(extension) && extension.matches("[A-Za-z0-9]{1,8}") ? "." + extension : "";
+	}
+
+	private static final class Entry {
+
+		private final String uri;
+
+		private final String checksum;
+
+		private final String file;
+
+		private final long size;
+
+		private final String etag;
+
+		private final String lastModified;
+
+		private final long validatedAt;
+
+		public Entry(String uri, String checksum, String file, long size, String etag, String lastModified,
+			long validatedAt) {
+			this.uri = uri;
+			this.checksum = checksum;
+			this.file = file;
+			this.size = size;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.validatedAt = validatedAt;
+		}
+
+		public Entry validatedAt(long now) {
+			return new Entry(uri, checksum, file, size, etag, lastModified, now);
+		}
+
+		public String getUri() {
+			return uri;
+		}
+
+		public String getChecksum() {
+			return checksum;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public long getValidatedAt() {
+			return validatedAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+
+public class CloudFoundryArtifactCacheProperties {
+
+	/**
+	 * Whether to download remote application artifacts once into a local cache instead of on every push.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * The directory holding cached artifacts. Defaults to a directory in the system temporary directory.
+	 */
+	private String directory;
+
+	/**
+	 * The maximum total size of cached artifacts. The least recently used artifacts are removed first.
+	 */
+	private DataSize maxSize = DataSize.ofGigabytes(1);
+
+	/**
+	 * How long a cached artifact downloaded over HTTP is used before asking the server whether it changed.
+	 */
+	private Duration revalidateInterval = Duration.ofMinutes(1);
+
+	/**
+	 * How long to wait for a connection to the server hosting an artifact.
+	 */
+	private Duration connectTimeout = Duration.ofSeconds(10);
+
+	/**
+	 * How long to wait for data while downloading an artifact.
+	 */
+	private Duration readTimeout = Duration.ofMinutes(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public DataSize getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(DataSize maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public Duration getRevalidateInterval() {
+		return revalidateInterval;
+	}
+
+	public void setRevalidateInterval(Duration revalidateInterval) {
+		this.revalidateInterval = revalidateInterval;
+	}
+
+	public Duration getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(Duration connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public Duration getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(Duration readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+}
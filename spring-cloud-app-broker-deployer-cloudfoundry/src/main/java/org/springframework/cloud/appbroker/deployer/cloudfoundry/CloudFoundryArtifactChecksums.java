@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Computes SHA-256 checksums of application artifacts. The checksum of an archive is computed again only when its
+ * size or modification time changes. Directories are read every time. The checksums of the most recently used
+ * archives are remembered, up to a maximum number.
+ */
+public class CloudFoundryArtifactChecksums {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private final Map<Path, Checksum> checksums;
+
+	private final Scheduler scheduler;
+
+	public CloudFoundryArtifactChecksums() {
+		this(Schedulers.boundedElastic());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryArtifactChecksums}
+	 *
+	 * @param scheduler the scheduler used to read artifacts
+	 */
+	public CloudFoundryArtifactChecksums(Scheduler scheduler) {
+		this(scheduler, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryArtifactChecksums}
+	 *
+	 * @param scheduler the scheduler used to read artifacts
+	 * @param maxEntries the maximum number of remembered checksums. The least recently used are forgotten first.
+	 */
+	public CloudFoundryArtifactChecksums(Scheduler scheduler, int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1");
+		}
+		this.scheduler = scheduler;
+		this.checksums = new LinkedHashMap<Path, Checksum>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, Checksum> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Get the checksum of an artifact. The checksum of a directory covers the relative paths and contents of all
+	 * files in it.
+	 *
+	 * @param path the path of an archive or a directory
+	 * @return the hex encoded SHA-256 checksum
+	 */
+	public Mono<String> checksum(Path path) {
+		return Mono.fromCallable(() -> {
+			if (Files.isDirectory(path)) {
+				return compute(path);
+			}
+			long size = Files.size(path);
+			long lastModified = Files.getLastModifiedTime(path).toMillis();
+			Checksum cached;
+			synchronized (checksums) {
+				cached = checksums.get(path);
+			}
+			if (cached != null && cached.matches(size, lastModified)) {
+				return cached.getValue();
+			}
+			String value = compute(path);
+			synchronized (checksums) {
+				checksums.put(path, new Checksum(size, lastModified, value));
+			}
+			return value;
+		})
+			.subscribeOn(scheduler);
+	}
+
+	private static String compute(Path path) throws IOException {
+		MessageDigest digest = newDigest();
+		if (Files.isDirectory(path)) {
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(path)) {
+				files = walk.filter(Files::isRegularFile)
+					.sorted()
+					.collect(Collectors.toList());
+			}
+			for (Path file : files) {
+				digest.update(path.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				update(digest, file);
+			}
+		}
+		else {
+			update(digest, path);
+		}
+		return toHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, Path file) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read = in.read(buffer);
+			while (read != -1) {
+				digest.update(buffer, 0, read);
+				read = in.read(buffer);
+			}
+		}
+	}
+
+	protected static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	protected static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+				.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private static final class Checksum {
+
+		private final long size;
+
+		private final long lastModified;
+
+		private final String value;
+
+		public Checksum(long size, long lastModified, String value) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.value = value;
+		}
+
+		public boolean matches(long size, long lastModified) {
+			return this.size == size && this.lastModified == lastModified;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+	}
+
+}
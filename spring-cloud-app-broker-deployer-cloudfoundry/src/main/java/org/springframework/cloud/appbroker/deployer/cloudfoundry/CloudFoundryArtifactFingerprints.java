@@ -0,0 +1,313 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Computes the fingerprints of the files in application artifacts, which the Cloud Controller uses to tell which
+ * files it already has in its resource cache, and writes archives holding only the files it does not have. The
+ * fingerprints of an artifact are computed once per artifact checksum, and the fingerprints of the most recently used
+ * artifacts are remembered, up to a maximum number.
+ */
+public class CloudFoundryArtifactFingerprints {
+
+	private static final String DEFAULT_MODE = "744";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int DEFAULT_MAX_ENTRIES = 20;
+
+	private final Map<String, Mono<List<Fingerprint>>> fingerprints;
+
+	private final CloudFoundryArtifactChecksums checksums;
+
+	private final Scheduler scheduler;
+
+	public CloudFoundryArtifactFingerprints(CloudFoundryArtifactChecksums checksums) {
+		this(checksums, Schedulers.boundedElastic());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryArtifactFingerprints}
+	 *
+	 * @param checksums the checksums used to recognize artifacts that were fingerprinted before
+	 * @param scheduler the scheduler used to read artifacts and write archives
+	 */
+	public CloudFoundryArtifactFingerprints(CloudFoundryArtifactChecksums checksums, Scheduler scheduler) {
+		this(checksums, scheduler, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryArtifactFingerprints}
+	 *
+	 * @param checksums the checksums used to recognize artifacts that were fingerprinted before
+	 * @param scheduler the scheduler used to read artifacts and write archives
+	 * @param maxEntries the maximum number of artifacts whose fingerprints are remembered. The least recently used
+	 * 	are forgotten first.
+	 */
+	public CloudFoundryArtifactFingerprints(CloudFoundryArtifactChecksums checksums, Scheduler scheduler,
+		int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1");
+		}
+		this.checksums = checksums;
+		this.scheduler = scheduler;
+		this.fingerprints = new LinkedHashMap<String, Mono<List<Fingerprint>>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Mono<List<Fingerprint>>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Get the fingerprints of the files in an artifact
+	 *
+	 * @param artifact the path of an archive or a directory
+	 * @return the fingerprints of all files, in the order they appear in the artifact
+	 */
+	public Mono<List<Fingerprint>> fingerprints(Path artifact) {
+		return checksums.checksum(artifact)
+			.flatMap(checksum -> {
+				synchronized (fingerprints) {
+					return fingerprints.computeIfAbsent(checksum, key -> Mono.fromCallable(() -> compute(artifact))
+						.subscribeOn(scheduler)
+						.doOnError(e -> forget(key))
+						.cache());
+				}
+			});
+	}
+
+	/**
+	 * Write a temporary archive holding the given files of an artifact
+	 *
+	 * @param artifact the path of an archive or a directory
+	 * @param entries the files to write, which must not be empty
+	 * @return the path of the archive, to be removed with {@link #deleteArchive(Path)}
+	 */
+	public Mono<Path> createArchive(Path artifact, Collection<Fingerprint> entries) {
+		return Mono.fromCallable(() -> {
+			if (entries.isEmpty()) {
+				throw new IllegalArgumentException("An archive must hold at least one file");
+			}
+			Path archive = Files.createTempFile("app-broker-upload-", ".zip");
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+				if (Files.isDirectory(artifact)) {
+					for (Fingerprint entry : entries) {
+						out.putNextEntry(new ZipEntry(entry.getPath()));
+						Files.copy(artifact.resolve(entry.getPath()), out);
+						out.closeEntry();
+					}
+				}
+				else {
+					try (ZipFile zip = new ZipFile(artifact.toFile())) {
+						for (Fingerprint entry : entries) {
+							out.putNextEntry(new ZipEntry(entry.getPath()));
+							try (InputStream in = zip.getInputStream(zip.getEntry(entry.getPath()))) {
+								copy(in, out);
+							}
+							out.closeEntry();
+						}
+					}
+				}
+			}
+			catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(archive);
+				throw e;
+			}
+			return archive;
+		})
+			.subscribeOn(scheduler);
+	}
+
+	/**
+	 * Remove an archive written by {@link #createArchive(Path, Collection)}
+	 *
+	 * @param archive the path of the archive
+	 * @return completes when the archive is removed
+	 */
+	public Mono<Void> deleteArchive(Path archive) {
+		return Mono.<Void>fromCallable(() -> {
+			Files.deleteIfExists(archive);
+			return null;
+		})
+			.subscribeOn(scheduler);
+	}
+
+	private void forget(String checksum) {
+		synchronized (fingerprints) {
+			fingerprints.remove(checksum);
+		}
+	}
+
+	private static List<Fingerprint> compute(Path artifact) throws IOException {
+		List<Fingerprint> result = new ArrayList<>();
+		if (Files.isDirectory(artifact)) {
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(artifact)) {
+				files = walk.filter(Files::isRegularFile)
+					.sorted()
+					.collect(Collectors.toList());
+			}
+			for (Path file : files) {
+				try (InputStream in = Files.newInputStream(file)) {
+					result.add(fingerprint(artifact.relativize(file).toString().replace('\\', '/'), in, mode(file)));
+				}
+			}
+		}
+		else {
+			try (ZipFile zip = new ZipFile(artifact.toFile())) {
+				Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+					if (!entry.isDirectory()) {
+						try (InputStream in = zip.getInputStream(entry)) {
+							result.add(fingerprint(entry.getName(), in, DEFAULT_MODE));
+						}
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private static Fingerprint fingerprint(String path, InputStream in, String mode) throws IOException {
+		MessageDigest digest = newSha1Digest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long size = 0;
+		int read = in.read(buffer);
+		while (read != -1) {
+			digest.update(buffer, 0, read);
+			size += read;
+			read = in.read(buffer);
+		}
+		return new Fingerprint(path, CloudFoundryArtifactChecksums.toHex(digest.digest()), size, mode);
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read = in.read(buffer);
+		while (read != -1) {
+			out.write(buffer, 0, read);
+			read = in.read(buffer);
+		}
+	}
+
+	private static String mode(Path file) {
+		try {
+			Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+			int mode = 0;
+			for (PosixFilePermission permission : PosixFilePermission.values()) {
+				mode = mode << 1 | (permissions.contains(permission) ? 1 : 0);
+			}
+			return Integer.toOctalString(mode);
+		}
+		catch (IOException | UnsupportedOperationException e) {
+			return DEFAULT_MODE;
+		}
+	}
+
+	/**
+	 * The Cloud Controller resource cache is keyed by SHA-1, so that is what fingerprints use.
+	 */
+	private static MessageDigest newSha1Digest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The fingerprint of a file in an application artifact.
+	 */
+	public static final class Fingerprint {
+
+		private final String path;
+
+		private final String hash;
+
+		private final long size;
+
+		private final String mode;
+
+		public Fingerprint(String path, String hash, long size, String mode) {
+			this.path = path;
+			this.hash = hash;
+			this.size = size;
+			this.mode = mode;
+		}
+
+		/**
+		 * @return the path of the file, relative to the root of the artifact
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the hex encoded SHA-1 checksum of the file
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * @return the size of the file in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the octal file mode
+		 */
+		public String getMode() {
+			return mode;
+		}
+
+	}
+
+}
@@ -90,6 +90,21 @@ public class CloudFoundryDeploymentProperties extends DeploymentProperties {
 	 */
 	protected static final String JAVA_OPTS_PROPERTY_KEY = "javaOpts";
 
+	/**
+	 * Key for storing the stack deployment property
+	 */
+	protected static final String STACK_PROPERTY_KEY = "stack";
+
+	/**
+	 * Key for storing the droplet reuse deployment property
+	 */
+	protected static final String DROPLET_REUSE_PROPERTY_KEY = "droplet-reuse";
+
+	/**
+	 * Key for storing the warm pool size deployment property
+	 */
+	protected static final String WARM_POOL_SIZE_PROPERTY_KEY = "warm-pool-size";
+
 	/**
 	 * The domain to use when mapping routes for applications.
 	 */
@@ -110,6 +125,23 @@ public class CloudFoundryDeploymentProperties extends DeploymentProperties {
 	 */
 	private String buildpack;
 
+	/**
+	 * The stack to use for deploying the application.
+	 */
+	private String stack;
+
+	/**
+	 * Whether to stage each application artifact once and copy the staged droplet into other applications deployed
+	 * from the same artifact, buildpack and stack.
+	 */
+	private boolean dropletReuse;
+
+	/**
+	 * The number of stopped, staged applications to keep ready for each artifact, buildpack and stack, so that
+	 * deployments can claim one instead of staging the artifact. Zero disables the warm pool.
+	 */
+	private int warmPoolSize;
+
 	/**
 	 * The type of health check to perform on deployed application, if not overridden per-app.  Defaults to PORT
 	 */
@@ -165,6 +197,30 @@ public class CloudFoundryDeploymentProperties extends DeploymentProperties {
 		this.buildpack = buildpack;
 	}
 
+	public String getStack() {
+		return stack;
+	}
+
+	public void setStack(String stack) {
+		this.stack = stack;
+	}
+
+	public boolean isDropletReuse() {
+		return dropletReuse;
+	}
+
+	public void setDropletReuse(boolean dropletReuse) {
+		this.dropletReuse = dropletReuse;
+	}
+
+	public int getWarmPoolSize() {
+		return warmPoolSize;
+	}
+
+	public void setWarmPoolSize(int warmPoolSize) {
+		this.warmPoolSize = warmPoolSize;
+	}
+
 	public boolean isEnableRandomAppNamePrefix() {
 		return enableRandomAppNamePrefix;
 	}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers a staged reference droplet for each combination of artifact checksum, buildpack, stack and staging
+ * environment, so that applications deployed from the same artifact can copy the droplet instead of staging the
+ * artifact again.
+ */
+public class CloudFoundryDropletRegistry {
+
+	private static final int DEFAULT_MAX_ENTRIES = 100;
+
+	private final Map<Key, String> droplets;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	public CloudFoundryDropletRegistry() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryDropletRegistry}
+	 *
+	 * @param maxEntries the maximum number of reference droplets. The least recently used are forgotten first.
+	 */
+	public CloudFoundryDropletRegistry(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1");
+		}
+		this.droplets = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Get the reference droplet staged from an artifact
+	 *
+	 * @param checksum the artifact checksum
+	 * @param buildpack the buildpack the artifact was staged with, or {@literal null} for the default
+	 * @param stack the stack the artifact was staged on, or {@literal null} for the default
+	 * @return the droplet ID, or {@literal null} if no droplet was recorded
+	 */
+	public String getDroplet(String checksum, String buildpack, String stack) {
+		return getDroplet(checksum, buildpack, stack, null);
+	}
+
+	/**
+	 * Get the reference droplet staged from an artifact
+	 *
+	 * @param checksum the artifact checksum
+	 * @param buildpack the buildpack the artifact was staged with, or {@literal null} for the default
+	 * @param stack the stack the artifact was staged on, or {@literal null} for the default
+	 * @param environment a digest of the environment variables read while staging, or {@literal null} if there are
+	 * none
+	 * @return the droplet ID, or {@literal null} if no droplet was recorded
+	 */
+	public String getDroplet(String checksum, String buildpack, String stack, String environment) {
+		String dropletId;
+		synchronized (droplets) {
+			dropletId = droplets.get(new Key(checksum, buildpack, stack, environment));
+		}
+		if (dropletId == null) {
+			missCount.incrementAndGet();
+		}
+		else {
+			hitCount.incrementAndGet();
+		}
+		return dropletId;
+	}
+
+	/**
+	 * Record the reference droplet staged from an artifact
+	 *
+	 * @param checksum the artifact checksum
+	 * @param buildpack the buildpack the artifact was staged with
+	 * @param stack the stack the artifact was staged on
+	 * @param dropletId the droplet ID
+	 */
+	public void putDroplet(String checksum, String buildpack, String stack, String dropletId) {
+		putDroplet(checksum, buildpack, stack, null, dropletId);
+	}
+
+	/**
+	 * Record the reference droplet staged from an artifact
+	 *
+	 * @param checksum the artifact checksum
+	 * @param buildpack the buildpack the artifact was staged with
+	 * @param stack the stack the artifact was staged on
+	 * @param environment a digest of the environment variables read while staging, or {@literal null} if there are
+	 * none
+	 * @param dropletId the droplet ID
+	 */
+	public void putDroplet(String checksum, String buildpack, String stack, String environment, String dropletId) {
+		synchronized (droplets) {
+			droplets.put(new Key(checksum, buildpack, stack, environment), dropletId);
+		}
+	}
+
+	/**
+	 * Forget a reference droplet that can no longer be copied, unless another droplet was recorded since
+	 *
+	 * @param checksum the artifact checksum
+	 * @param buildpack the buildpack the artifact was staged with
+	 * @param stack the stack the artifact was staged on
+	 * @param dropletId the droplet ID
+	 */
+	public void removeDroplet(String checksum, String buildpack, String stack, String dropletId) {
+		removeDroplet(checksum, buildpack, stack, null, dropletId);
+	}
+
+	/**
+	 * Forget a reference droplet that can no longer be copied, unless another droplet was recorded since
+	 *
+	 * @param checksum the artifact checksum
+	 * @param buildpack the buildpack the artifact was staged with
+	 * @param stack the stack the artifact was staged on
+	 * @param environment a digest of the environment variables read while staging, or {@literal null} if there are
+	 * none
+	 * @param dropletId the droplet ID
+	 */
+	public void removeDroplet(String checksum, String buildpack, String stack, String environment,
+		String dropletId) {
+		synchronized (droplets) {
+			droplets.remove(new Key(checksum, buildpack, stack, environment), dropletId);
+		}
+	}
+
+	/**
+	 * Forget all reference droplets staged from an artifact
+	 *
+	 * @param checksum the artifact checksum
+	 */
+	public void invalidate(String checksum) {
+		synchronized (droplets) {
+			droplets.keySet().removeIf(key -> key.getChecksum().equals(checksum));
+		}
+	}
+
+	/**
+	 * @return the number of deployments that found a reference droplet
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of deployments that had to stage their artifact
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of recorded reference droplets
+	 */
+	public int getSize() {
+		synchronized (droplets) {
+			return droplets.size();
+		}
+	}
+
+	private static final class Key {
+
+		private final String checksum;
+
+		private final String buildpack;
+
+		private final String stack;
+
+		private final String environment;
+
+		public Key(String checksum, String buildpack, String stack, String environment) {
+			this.checksum = checksum;
+			this.buildpack = buildpack;
+			this.stack = stack;
+			this.environment = environment;
+		}
+
+		public String getChecksum() {
+			return checksum;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return checksum.equals(other.checksum) && Objects.equals(buildpack, other.buildpack)
+				&& Objects.equals(stack, other.stack) && Objects.equals(environment, other.environment);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(checksum, buildpack, stack, environment);
+		}
+
+	}
+
+}
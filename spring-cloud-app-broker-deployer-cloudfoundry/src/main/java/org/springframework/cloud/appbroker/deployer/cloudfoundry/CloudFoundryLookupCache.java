@@ -0,0 +1,237 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches lookups of Cloud Foundry entities that rarely change, such as the ID of an organization or space, for a
+ * time-to-live. The number of cached entities is bounded, and the least recently used are evicted first.
+ * <p>
+ * A lookup that is in progress is shared by all callers asking for the same entity. Lookups that fail or find
+ * nothing are not cached, so that an entity is looked up again once it has been created. Entities that are changed
+ * or deleted through the deployer must be invalidated.
+ */
+public class CloudFoundryLookupCache {
+
+	private final Map<Key, Entry> entries;
+
+	private final long timeToLiveMillis;
+
+	private final Clock clock;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public CloudFoundryLookupCache(CloudFoundryLookupCacheProperties properties) {
+		this(properties.isEnabled() ? properties.getTimeToLive() : Duration.ZERO, properties.getMaxEntries(),
+			Clock.systemUTC());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryLookupCache}
+	 *
+	 * @param timeToLive how long an entity is cached, or {@link Duration#ZERO} to disable caching
+	 * @param maxEntries the maximum number of cached entities
+	 * @param clock the clock used to expire entities
+	 */
+	public CloudFoundryLookupCache(Duration timeToLive, int maxEntries, Clock clock) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1");
+		}
+		this.timeToLiveMillis = timeToLive.toMillis();
+		this.clock = clock;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				if (size() > maxEntries) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Create a cache that looks up every entity each time
+	 *
+	 * @return the cache
+	 */
+	public static CloudFoundryLookupCache disabled() {
+		return new CloudFoundryLookupCache(Duration.ZERO, 1, Clock.systemUTC());
+	}
+
+	/**
+	 * Get a cached entity, or look it up
+	 *
+	 * @param type the type of entity, e.g. {@literal space}
+	 * @param id the name or ID identifying the entity within its type
+	 * @param lookup looks up the entity
+	 * @param <T> the entity type
+	 * @return the entity
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Mono<T> get(String type, String id, Supplier<Mono<T>> lookup) {
+		if (timeToLiveMillis <= 0) {
+			return Mono.defer(lookup);
+		}
+		return Mono.defer(() -> {
+			Key key = new Key(type, id);
+			long now = clock.millis();
+			synchronized (entries) {
+				Entry cached = entries.get(key);
+				if (cached != null && cached.getExpiresAt() > now) {
+					hitCount.incrementAndGet();
+					return (Mono<T>) cached.getValue();
+				}
+				missCount.incrementAndGet();
+				Entry loading = new Entry(now + timeToLiveMillis);
+				loading.setValue(Mono.defer(lookup)
+					.doOnError(e -> remove(key, loading))
+					.switchIfEmpty(Mono.fromRunnable(() -> remove(key, loading)))
+					.cache());
+				entries.put(key, loading);
+				return (Mono<T>) loading.getValue();
+			}
+		});
+	}
+
+	/**
+	 * Remove an entity from the cache
+	 *
+	 * @param type the type of entity
+	 * @param id the name or ID identifying the entity within its type
+	 */
+	public void invalidate(String type, String id) {
+		synchronized (entries) {
+			entries.remove(new Key(type, id));
+		}
+	}
+
+	/**
+	 * Remove all entities from the cache
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups sent to the Cloud Controller
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of entities evicted because the cache was full
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return the number of cached entities, including expired ones that were not evicted yet
+	 */
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private void remove(Key key, Entry entry) {
+		synchronized (entries) {
+			entries.remove(key, entry);
+		}
+	}
+
+	private static final class Key {
+
+		private final String type;
+
+		private final String id;
+
+		public Key(String type, String id) {
+			this.type = type;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return type.equals(other.type) && String.valueOf(id).equals(String.valueOf(other.id));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type.hashCode() + String.valueOf(id).hashCode();
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final long expiresAt;
+
+		private Mono<?> value;
+
+		public Entry(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		public Mono<?> getValue() {
+			return value;
+		}
+
+		public void setValue(Mono<?> value) {
+			this.value = value;
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the {@link CloudFoundryLookupCache}
+ */
+public class CloudFoundryLookupCacheProperties {
+
+	/**
+	 * Whether lookups of organizations, spaces, domains and service instances are cached.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * How long a looked up entity is cached.
+	 */
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	/**
+	 * The maximum number of cached entities. The least recently used are evicted first.
+	 */
+	private int maxEntries = 1000;
+
+	/**
+	 * The maximum number of per-space Cloud Foundry operations kept for reuse, along with the organization and
+	 * space IDs they resolved. The least recently used are evicted first.
+	 */
+	private int maxOperations = 100;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Duration getTimeToLive() {
+		return timeToLive;
+	}
+
+	public void setTimeToLive(Duration timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public int getMaxOperations() {
+		return maxOperations;
+	}
+
+	public void setMaxOperations(int maxOperations) {
+		this.maxOperations = maxOperations;
+	}
+
+}
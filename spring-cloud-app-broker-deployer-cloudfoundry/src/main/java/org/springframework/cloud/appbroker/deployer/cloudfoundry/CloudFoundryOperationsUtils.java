@@ -16,7 +16,11 @@
 
 package org.springframework.cloud.appbroker.deployer.cloudfoundry;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.cloudfoundry.operations.CloudFoundryOperations;
 import org.cloudfoundry.operations.DefaultCloudFoundryOperations;
@@ -29,8 +33,50 @@ public class CloudFoundryOperationsUtils {
 
 	private final CloudFoundryOperations operations;
 
+	/**
+	 * Operations targeting other organizations and spaces. Each keeps the organization and space IDs it resolved
+	 * the first time it was used, so reusing it saves those Cloud Controller requests on later operations.
+	 */
+	private final Map<Target, TargetOperations> targetOperations;
+
+	private final long timeToLiveMillis;
+
+	private final Clock clock;
+
 	public CloudFoundryOperationsUtils(CloudFoundryOperations operations) {
+		this(operations, Duration.ZERO, 1, Clock.systemUTC());
+	}
+
+	public CloudFoundryOperationsUtils(CloudFoundryOperations operations,
+		CloudFoundryLookupCacheProperties properties) {
+		this(operations, properties.isEnabled() ? properties.getTimeToLive() : Duration.ZERO,
+			properties.getMaxOperations(), Clock.systemUTC());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryOperationsUtils}
+	 *
+	 * @param operations the operations targeting the default organization and space
+	 * @param timeToLive how long operations for another space are reused, or {@link Duration#ZERO} to disable reuse
+	 * @param maxEntries the maximum number of reused operations
+	 * @param clock the clock used to expire reused operations
+	 */
+	public CloudFoundryOperationsUtils(CloudFoundryOperations operations, Duration timeToLive, int maxEntries,
+		Clock clock) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1");
+		}
 		this.operations = operations;
+		this.timeToLiveMillis = timeToLive.toMillis();
+		this.clock = clock;
+		this.targetOperations = new LinkedHashMap<Target, TargetOperations>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Target, TargetOperations> eldest) {
+				return size() > maxEntries;
+			}
+		};
 	}
 
 	protected Mono<CloudFoundryOperations> getOperations(Map<String, String> properties) {
@@ -44,22 +90,123 @@ public class CloudFoundryOperationsUtils {
 	}
 
 	protected Mono<CloudFoundryOperations> getOperationsForSpace(String space) {
-		return Mono.just(this.operations)
-			.cast(DefaultCloudFoundryOperations.class)
-			.map(cfOperations -> DefaultCloudFoundryOperations.builder()
-				.from(cfOperations)
-				.space(space)
-				.build());
+		return getOperationsForTarget(new Target(null, space));
 	}
 
 	protected Mono<CloudFoundryOperations> getOperationsForOrgAndSpace(String organization, String space) {
+		return getOperationsForTarget(new Target(organization, space));
+	}
+
+	/**
+	 * Stop reusing operations for a space, e.g. because the space was deleted and the space ID they resolved is no
+	 * longer valid
+	 *
+	 * @param space the space name
+	 */
+	public void evictOperationsForSpace(String space) {
+		synchronized (targetOperations) {
+			targetOperations.keySet().removeIf(target -> Objects.equals(target.getSpace(), space));
+		}
+	}
+
+	/**
+	 * @return the number of operations kept for reuse
+	 */
+	public int getReusableOperationsCount() {
+		synchronized (targetOperations) {
+			return targetOperations.size();
+		}
+	}
+
+	private Mono<CloudFoundryOperations> getOperationsForTarget(Target target) {
 		return Mono.just(this.operations)
 			.cast(DefaultCloudFoundryOperations.class)
-			.map(cfOperations -> DefaultCloudFoundryOperations.builder()
-				.from(cfOperations)
-				.organization(organization)
-				.space(space)
-				.build());
+			.map(cfOperations -> {
+				if (timeToLiveMillis <= 0) {
+					return createOperations(cfOperations, target);
+				}
+				long now = clock.millis();
+				synchronized (targetOperations) {
+					TargetOperations reusable = targetOperations.get(target);
+					if (reusable == null || reusable.getExpiresAt() <= now) {
+						reusable = new TargetOperations(createOperations(cfOperations, target),
+							now + timeToLiveMillis);
+						targetOperations.put(target, reusable);
+					}
+					return reusable.getOperations();
+				}
+			});
+	}
+
+	private static CloudFoundryOperations createOperations(DefaultCloudFoundryOperations cfOperations,
+		Target target) {
+		DefaultCloudFoundryOperations.Builder builder = DefaultCloudFoundryOperations.builder()
+			.from(cfOperations);
+		if (target.getOrganization() != null) {
+			builder.organization(target.getOrganization());
+		}
+		return builder
+			.space(target.getSpace())
+			.build();
+	}
+
+	private static final class Target {
+
+		private final String organization;
+
+		private final String space;
+
+		public Target(String organization, String space) {
+			this.organization = organization;
+			this.space = space;
+		}
+
+		public String getOrganization() {
+			return organization;
+		}
+
+		public String getSpace() {
+			return space;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Target)) {
+				return false;
+			}
+			Target other = (Target) o;
+			return Objects.equals(organization, other.organization) && Objects.equals(space, other.space);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(organization, space);
+		}
+
+	}
+
+	private static final class TargetOperations {
+
+		private final CloudFoundryOperations operations;
+
+		private final long expiresAt;
+
+		public TargetOperations(CloudFoundryOperations operations, long expiresAt) {
+			this.operations = operations;
+			this.expiresAt = expiresAt;
+		}
+
+		public CloudFoundryOperations getOperations() {
+			return operations;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
 	}
 
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import org.cloudfoundry.AbstractCloudFoundryException;
+
+import org.springframework.cloud.appbroker.deployer.OverloadDetector;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Treats rate limited ({@code 429 Too Many Requests}) and server error ({@code 5xx}) responses from the Cloud
+ * Controller as a sign that it is overloaded.
+ */
+public class CloudFoundryOverloadDetector implements OverloadDetector {
+
+	@Override
+	public boolean isOverloaded(Throwable exception) {
+		int statusCode = getStatusCode(exception);
+		return statusCode == HttpStatus.TOO_MANY_REQUESTS.value() ||
+			statusCode >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+	}
+
+	private static int getStatusCode(Throwable exception) {
+		if (!(exception instanceof AbstractCloudFoundryException)) {
+			return -1;
+		}
+		Integer statusCode = ((AbstractCloudFoundryException) exception).getStatusCode();
+		return statusCode == null ? -1 : statusCode;
+	}
+
+}
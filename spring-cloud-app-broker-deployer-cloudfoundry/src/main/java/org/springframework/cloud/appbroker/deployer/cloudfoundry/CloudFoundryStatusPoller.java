@@ -0,0 +1,268 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Waits for Cloud Foundry resources, such as builds, packages or deployments, to reach a terminal state. All
+ * waiters share one polling loop, which looks up every outstanding resource once per poll. The interval between
+ * polls starts short and doubles while no resource reaches a terminal state, so a resource that becomes ready is
+ * noticed quickly without polling idle resources too often.
+ * <p>
+ * Each lookup is bounded by its own timeout, so a lookup that hangs does not hold back the next poll for longer
+ * than that, and each waiter times out on its own timer, regardless of how long a poll takes.
+ *
+ * @param <T> the type of the looked up resource
+ */
+public class CloudFoundryStatusPoller<T> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CloudFoundryStatusPoller.class);
+
+	private final String resourceType;
+
+	private final Function<String, Mono<T>> lookup;
+
+	private final Predicate<T> ready;
+
+	private final Predicate<T> failed;
+
+	private final long minIntervalMillis;
+
+	private final long maxIntervalMillis;
+
+	private final long timeoutMillis;
+
+	private final Duration lookupTimeout;
+
+	private final int maxConcurrency;
+
+	private final Scheduler scheduler;
+
+	private final Map<String, List<Waiter<T>>> waiters = new HashMap<>();
+
+	private final AtomicLong pollCount = new AtomicLong();
+
+	private final AtomicLong lookupCount = new AtomicLong();
+
+	private long intervalMillis;
+
+	private boolean polling;
+
+	public CloudFoundryStatusPoller(String resourceType, Function<String, Mono<T>> lookup, Predicate<T> ready,
+		Predicate<T> failed, CloudFoundryStatusPollerProperties properties) {
+		this(resourceType, lookup, ready, failed, properties, Schedulers.parallel());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryStatusPoller}
+	 *
+	 * @param resourceType the type of resource, used in log and error messages
+	 * @param lookup looks up a resource by ID
+	 * @param ready whether a resource is in its expected terminal state
+	 * @param failed whether a resource is in a terminal state that it will not recover from
+	 * @param properties the polling intervals and timeout
+	 * @param scheduler the scheduler used to schedule polls
+	 */
+	public CloudFoundryStatusPoller(String resourceType, Function<String, Mono<T>> lookup, Predicate<T> ready,
+		Predicate<T> failed, CloudFoundryStatusPollerProperties properties, Scheduler scheduler) {
+		if (properties.getMaxConcurrency() < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be at least 1");
+		}
+		this.resourceType = resourceType;
+		this.lookup = lookup;
+		this.ready = ready;
+		this.failed = failed;
+		this.minIntervalMillis = properties.getMinInterval().toMillis();
+		this.maxIntervalMillis = Math.max(minIntervalMillis, properties.getMaxInterval().toMillis());
+		this.timeoutMillis = properties.getTimeout().toMillis();
+		this.lookupTimeout = properties.getLookupTimeout();
+		this.maxConcurrency = properties.getMaxConcurrency();
+		this.scheduler = scheduler;
+		this.intervalMillis = minIntervalMillis;
+	}
+
+	/**
+	 * Wait for a resource to reach its expected terminal state
+	 *
+	 * @param id the resource ID
+	 * @return the resource in its expected state, or an error if it failed, could not be looked up or timed out
+	 */
+	public Mono<T> waitFor(String id) {
+		return Mono.create(sink -> {
+			Waiter<T> waiter = new Waiter<>(sink);
+			boolean start;
+			synchronized (waiters) {
+				waiters.computeIfAbsent(id, key -> new ArrayList<>()).add(waiter);
+				intervalMillis = minIntervalMillis;
+				start = !polling;
+				polling = true;
+			}
+			Disposable expiry = scheduler.schedule(() -> expire(id, waiter), timeoutMillis, TimeUnit.MILLISECONDS);
+			sink.onDispose(() -> {
+				expiry.dispose();
+				remove(id, waiter);
+			});
+			if (start) {
+				scheduler.schedule(this::poll);
+			}
+		});
+	}
+
+	/**
+	 * @return the number of resources being waited for
+	 */
+	public int getWaitingCount() {
+		synchronized (waiters) {
+			return waiters.size();
+		}
+	}
+
+	/**
+	 * @return the number of polls, each looking up all resources being waited for
+	 */
+	public long getPollCount() {
+		return pollCount.get();
+	}
+
+	/**
+	 * @return the number of resource lookups sent to the Cloud Controller
+	 */
+	public long getLookupCount() {
+		return lookupCount.get();
+	}
+
+	private void poll() {
+		List<String> ids;
+		synchronized (waiters) {
+			ids = new ArrayList<>(waiters.keySet());
+		}
+		pollCount.incrementAndGet();
+		AtomicBoolean progressed = new AtomicBoolean();
+		Flux.fromIterable(ids)
+			.flatMap(id -> Mono.defer(() -> lookup.apply(id))
+				.doOnSubscribe(s -> lookupCount.incrementAndGet())
+				.timeout(lookupTimeout, scheduler)
+				.doOnNext(resource -> {
+					if (ready.test(resource)) {
+						progressed.set(true);
+						complete(id, resource);
+					}
+					else if (failed.test(resource)) {
+						progressed.set(true);
+						fail(id, new IllegalStateException(String.format("%s %s failed", resourceType, id)));
+					}
+				})
+				.onErrorResume(TimeoutException.class, e -> {
+					LOG.warn(String.format("Timed out looking up %s %s, retrying in the next poll", resourceType, id));
+					return Mono.empty();
+				})
+				.onErrorResume(e -> {
+					LOG.warn(String.format("Error waiting for %s %s: %s", resourceType, id, e.getMessage()));
+					fail(id, e);
+					return Mono.empty();
+				}), maxConcurrency)
+			.doFinally(signal -> scheduleNextPoll(progressed.get()))
+			.subscribe();
+	}
+
+	private void scheduleNextPoll(boolean progressed) {
+		long delay;
+		synchronized (waiters) {
+			if (waiters.isEmpty()) {
+				polling = false;
+				return;
+			}
+			if (progressed) {
+				intervalMillis = minIntervalMillis;
+			}
+			delay = intervalMillis;
+			intervalMillis = Math.min(maxIntervalMillis, intervalMillis * 2);
+		}
+		scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void expire(String id, Waiter<T> waiter) {
+		if (remove(id, waiter)) {
+			waiter.getSink().error(
+				new TimeoutException(String.format("Timed out waiting for %s %s", resourceType, id)));
+		}
+	}
+
+	private void complete(String id, T resource) {
+		LOG.debug("{} {} reached its expected state", resourceType, id);
+		remove(id).forEach(waiter -> waiter.getSink().success(resource));
+	}
+
+	private void fail(String id, Throwable error) {
+		remove(id).forEach(waiter -> waiter.getSink().error(error));
+	}
+
+	private List<Waiter<T>> remove(String id) {
+		synchronized (waiters) {
+			List<Waiter<T>> removed = waiters.remove(id);
+			return removed == null ? new ArrayList<>() : removed;
+		}
+	}
+
+	private boolean remove(String id, Waiter<T> waiter) {
+		synchronized (waiters) {
+			List<Waiter<T>> idWaiters = waiters.get(id);
+			if (idWaiters == null || !idWaiters.remove(waiter)) {
+				return false;
+			}
+			if (idWaiters.isEmpty()) {
+				waiters.remove(id);
+			}
+			return true;
+		}
+	}
+
+	private static final class Waiter<T> {
+
+		private final MonoSink<T> sink;
+
+		public Waiter(MonoSink<T> sink) {
+			this.sink = sink;
+		}
+
+		public MonoSink<T> getSink() {
+			return sink;
+		}
+
+	}
+
+}
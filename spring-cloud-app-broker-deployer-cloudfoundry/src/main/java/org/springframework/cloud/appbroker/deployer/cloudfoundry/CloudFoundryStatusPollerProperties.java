@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+
+public class CloudFoundryStatusPollerProperties {
+
+	/**
+	 * How long to wait between polls while a build, package or deployment is expected to change state soon.
+	 */
+	private Duration minInterval = Duration.ofSeconds(1);
+
+	/**
+	 * The longest time to wait between polls. The interval doubles up to this value while no resource reaches
+	 * a terminal state.
+	 */
+	private Duration maxInterval = Duration.ofSeconds(10);
+
+	/**
+	 * How long to wait for a build, package or deployment before failing.
+	 */
+	private Duration timeout = Duration.ofMinutes(10);
+
+	/**
+	 * How long to wait for a single lookup of a build, package or deployment. A lookup that takes longer is
+	 * abandoned, and the resource is looked up again in the next poll.
+	 */
+	private Duration lookupTimeout = Duration.ofSeconds(30);
+
+	/**
+	 * The maximum number of resources looked up at the same time in one poll.
+	 */
+	private int maxConcurrency = 10;
+
+	public Duration getMinInterval() {
+		return minInterval;
+	}
+
+	public void setMinInterval(Duration minInterval) {
+		this.minInterval = minInterval;
+	}
+
+	public Duration getMaxInterval() {
+		return maxInterval;
+	}
+
+	public void setMaxInterval(Duration maxInterval) {
+		this.maxInterval = maxInterval;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	public Duration getLookupTimeout() {
+		return lookupTimeout;
+	}
+
+	public void setLookupTimeout(Duration lookupTimeout) {
+		this.lookupTimeout = lookupTimeout;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+}
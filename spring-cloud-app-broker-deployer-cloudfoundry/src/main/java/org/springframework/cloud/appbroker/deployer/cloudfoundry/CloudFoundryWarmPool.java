@@ -0,0 +1,464 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps pools of stopped, already staged applications that deployments can claim instead of pushing and staging an
+ * application themselves. Each pool is identified by a key describing what its applications were staged from, and
+ * is refilled in the background after a claim. Refills across all pools share a budget of concurrently created
+ * applications, so that refilling does not compete with provisioning for platform capacity.
+ * <p>
+ * Pools registered for the same group describe the same backing application, so registering a pool with a new key
+ * in a group, for example because the artifact of the application changed, retires the other pools of that group and
+ * removes their applications.
+ */
+public class CloudFoundryWarmPool {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CloudFoundryWarmPool.class);
+
+	private final int maxConcurrentRefills;
+
+	private final long refillRetryDelayMillis;
+
+	private final Scheduler scheduler;
+
+	private final Map<String, Pool> pools = new LinkedHashMap<>();
+
+	private int refillsInFlight;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long refillCount;
+
+	private long refillFailureCount;
+
+	private long retiredCount;
+
+	public CloudFoundryWarmPool() {
+		this(new CloudFoundryWarmPoolProperties());
+	}
+
+	public CloudFoundryWarmPool(CloudFoundryWarmPoolProperties properties) {
+		this(properties, Schedulers.parallel());
+	}
+
+	/**
+	 * Construct a new {@link CloudFoundryWarmPool}
+	 *
+	 * @param properties the warm pool properties
+	 * @param scheduler the scheduler used to delay refills after a failure and to measure refill lag
+	 */
+	public CloudFoundryWarmPool(CloudFoundryWarmPoolProperties properties, Scheduler scheduler) {
+		if (properties.getMaxConcurrentRefills() < 1) {
+			throw new IllegalArgumentException("maxConcurrentRefills must be at least 1");
+		}
+		this.maxConcurrentRefills = properties.getMaxConcurrentRefills();
+		this.refillRetryDelayMillis = properties.getRefillRetryDelay().toMillis();
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Register a pool and start filling it, unless a pool with the same key is already registered
+	 *
+	 * @param key the pool key
+	 * @param size the number of applications to keep in the pool
+	 * @param existing the names of applications left over from an earlier run, added to the pool before it is
+	 * 	refilled
+	 * @param provisioner creates a new application for the pool and emits its name
+	 * @return true if the pool was registered by this call
+	 */
+	public boolean register(String key, int size, Flux<String> existing, Supplier<Mono<String>> provisioner) {
+		return register(key, key, size, existing, provisioner, name -> Mono.empty());
+	}
+
+	/**
+	 * Register a pool and start filling it, unless a pool with the same key is already registered. Other pools of the
+	 * same group are retired: they are no longer refilled, and their applications are removed.
+	 *
+	 * @param key the pool key
+	 * @param group the group of the pool
+	 * @param size the number of applications to keep in the pool
+	 * @param existing the names of applications left over from an earlier run, added to the pool before it is
+	 * 	refilled
+	 * @param provisioner creates a new application for the pool and emits its name
+	 * @param remover removes an application of the pool once the pool is retired
+	 * @return true if the pool was registered by this call
+	 */
+	public boolean register(String key, String group, int size, Flux<String> existing,
+		Supplier<Mono<String>> provisioner, Function<String, Mono<Void>> remover) {
+		if (size < 1) {
+			throw new IllegalArgumentException("size must be at least 1");
+		}
+		Pool pool;
+		Map<Pool, List<String>> retired = new LinkedHashMap<>();
+		synchronized (this) {
+			if (pools.containsKey(key)) {
+				return false;
+			}
+			pools.values().removeIf(other -> {
+				if (other.getGroup().equals(group)) {
+					other.setRetired(true);
+					retired.put(other, new ArrayList<>(other.getAvailable()));
+					return true;
+				}
+				return false;
+			});
+			retiredCount += retired.size();
+			pool = new Pool(key, group, size, provisioner, remover);
+			pool.setAdopting(true);
+			pools.put(key, pool);
+			updateLag(pool);
+		}
+		retired.forEach((other, names) -> {
+			LOG.info("Retiring warm pool {}, replaced by warm pool {}", other.getKey(), key);
+			remove(other, names);
+		});
+		existing.take(size)
+			.collectList()
+			.onErrorReturn(new ArrayList<>())
+			.subscribe(names -> adopted(pool, names));
+		return true;
+	}
+
+	/**
+	 * Claim an application from a pool. The claimed application is replaced in the background.
+	 *
+	 * @param key the pool key
+	 * @return the name of the claimed application, or {@literal null} if the pool is not registered or empty
+	 */
+	public String claim(String key) {
+		String name;
+		synchronized (this) {
+			Pool pool = pools.get(key);
+			if (pool == null) {
+				return null;
+			}
+			name = pool.getAvailable().pollFirst();
+			if (name == null) {
+				missCount++;
+			}
+			else {
+				hitCount++;
+			}
+			updateLag(pool);
+		}
+		refill();
+		return name;
+	}
+
+	/**
+	 * @param key the pool key
+	 * @return true if a pool with the given key is registered
+	 */
+	public synchronized boolean isRegistered(String key) {
+		return pools.containsKey(key);
+	}
+
+	/**
+	 * @param key the pool key
+	 * @return the number of applications ready to be claimed from the pool
+	 */
+	public synchronized int getAvailableCount(String key) {
+		Pool pool = pools.get(key);
+		return pool == null ? 0 : pool.getAvailable().size();
+	}
+
+	/**
+	 * @return the number of applications ready to be claimed from all pools
+	 */
+	public synchronized int getAvailableCount() {
+		return pools.values().stream().mapToInt(pool -> pool.getAvailable().size()).sum();
+	}
+
+	/**
+	 * @return the number of applications being created for any pool
+	 */
+	public synchronized int getRefillsInFlight() {
+		return refillsInFlight;
+	}
+
+	/**
+	 * @return the number of claims that found an application in the pool
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of claims that found the pool empty
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the fraction of claims that found an application in the pool, or zero if nothing was claimed yet
+	 */
+	public synchronized double getHitRate() {
+		long claims = hitCount + missCount;
+		return claims == 0 ? 0.0 : (double) hitCount / claims;
+	}
+
+	/**
+	 * @return the number of applications created for any pool
+	 */
+	public synchronized long getRefillCount() {
+		return refillCount;
+	}
+
+	/**
+	 * @return the number of applications that could not be created for any pool
+	 */
+	public synchronized long getRefillFailureCount() {
+		return refillFailureCount;
+	}
+
+	/**
+	 * @return the number of pools retired because another pool of their group was registered
+	 */
+	public synchronized long getRetiredCount() {
+		return retiredCount;
+	}
+
+	/**
+	 * @return how long the pool that has been below its size for the longest time has been waiting to be refilled,
+	 * 	or zero if all pools are full
+	 */
+	public synchronized Duration getRefillLag() {
+		long now = now();
+		return Duration.ofMillis(pools.values().stream()
+			.filter(pool -> pool.getBelowSizeSince() >= 0)
+			.mapToLong(pool -> now - pool.getBelowSizeSince())
+			.max()
+			.orElse(0L));
+	}
+
+	private void adopted(Pool pool, List<String> names) {
+		boolean retired;
+		synchronized (this) {
+			retired = pool.isRetired();
+			if (!retired) {
+				pool.getAvailable().addAll(names);
+			}
+			pool.setAdopting(false);
+			updateLag(pool);
+		}
+		if (retired) {
+			remove(pool, names);
+			return;
+		}
+		if (!names.isEmpty()) {
+			LOG.info("Added {} existing applications to warm pool {}", names.size(), pool.getKey());
+		}
+		refill();
+	}
+
+	private void refill() {
+		List<Pool> toRefill = new ArrayList<>();
+		synchronized (this) {
+			for (Pool pool : pools.values()) {
+				while (refillsInFlight < maxConcurrentRefills && pool.needsRefill()) {
+					pool.setInFlight(pool.getInFlight() + 1);
+					refillsInFlight++;
+					toRefill.add(pool);
+				}
+			}
+		}
+		toRefill.forEach(pool -> Mono.defer(pool.getProvisioner())
+			.switchIfEmpty(Mono.error(new IllegalStateException("No application was created")))
+			.subscribe(name -> refilled(pool, name), error -> refillFailed(pool, error)));
+	}
+
+	private void refilled(Pool pool, String name) {
+		boolean retired;
+		synchronized (this) {
+			pool.setInFlight(pool.getInFlight() - 1);
+			refillsInFlight--;
+			refillCount++;
+			retired = pool.isRetired();
+			if (!retired) {
+				pool.getAvailable().addLast(name);
+				updateLag(pool);
+			}
+		}
+		if (retired) {
+			remove(pool, Collections.singletonList(name));
+		}
+		else {
+			LOG.info("Added application {} to warm pool {}", name, pool.getKey());
+		}
+		refill();
+	}
+
+	private void refillFailed(Pool pool, Throwable error) {
+		synchronized (this) {
+			pool.setInFlight(pool.getInFlight() - 1);
+			refillsInFlight--;
+			refillFailureCount++;
+			pool.setRetryScheduled(true);
+		}
+		LOG.warn(String.format("Error creating an application for warm pool %s: %s", pool.getKey(),
+			error.getMessage()));
+		scheduler.schedule(() -> {
+			synchronized (this) {
+				pool.setRetryScheduled(false);
+			}
+			refill();
+		}, refillRetryDelayMillis, TimeUnit.MILLISECONDS);
+		refill();
+	}
+
+	private void remove(Pool pool, List<String> names) {
+		Flux.fromIterable(names)
+			.concatMap(name -> Mono.defer(() -> pool.getRemover().apply(name))
+				.doOnSuccess(v -> LOG.info("Removed application {} of retired warm pool {}", name, pool.getKey()))
+				.doOnError(e -> LOG.warn(String.format("Error removing application %s of retired warm pool %s: %s",
+					name, pool.getKey(), e.getMessage())))
+				.onErrorResume(e -> Mono.empty()))
+			.subscribe();
+	}
+
+	private void updateLag(Pool pool) {
+		if (pool.getAvailable().size() >= pool.getSize()) {
+			pool.setBelowSizeSince(-1);
+		}
+		else if (pool.getBelowSizeSince() < 0) {
+			pool.setBelowSizeSince(now());
+		}
+	}
+
+	private long now() {
+		return scheduler.now(TimeUnit.MILLISECONDS);
+	}
+
+	private static final class Pool {
+
+		private final String key;
+
+		private final String group;
+
+		private final int size;
+
+		private final Supplier<Mono<String>> provisioner;
+
+		private final Function<String, Mono<Void>> remover;
+
+		private final Deque<String> available = new ArrayDeque<>();
+
+		private int inFlight;
+
+		private boolean adopting;
+
+		private boolean retryScheduled;
+
+		private boolean retired;
+
+		private long belowSizeSince = -1;
+
+		public Pool(String key, String group, int size, Supplier<Mono<String>> provisioner,
+			Function<String, Mono<Void>> remover) {
+			this.key = key;
+			this.group = group;
+			this.size = size;
+			this.provisioner = provisioner;
+			this.remover = remover;
+		}
+
+		public boolean needsRefill() {
+			return !adopting && !retryScheduled && available.size() + inFlight < size;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getGroup() {
+			return group;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public Supplier<Mono<String>> getProvisioner() {
+			return provisioner;
+		}
+
+		public Function<String, Mono<Void>> getRemover() {
+			return remover;
+		}
+
+		public Deque<String> getAvailable() {
+			return available;
+		}
+
+		public int getInFlight() {
+			return inFlight;
+		}
+
+		public void setInFlight(int inFlight) {
+			this.inFlight = inFlight;
+		}
+
+		public void setAdopting(boolean adopting) {
+			this.adopting = adopting;
+		}
+
+		public void setRetryScheduled(boolean retryScheduled) {
+			this.retryScheduled = retryScheduled;
+		}
+
+		public boolean isRetired() {
+			return retired;
+		}
+
+		public void setRetired(boolean retired) {
+			this.retired = retired;
+		}
+
+		public long getBelowSizeSince() {
+			return belowSizeSince;
+		}
+
+		public void setBelowSizeSince(long belowSizeSince) {
+			this.belowSizeSince = belowSizeSince;
+		}
+
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+
+public class CloudFoundryWarmPoolProperties {
+
+	/**
+	 * The maximum number of warm pool applications pushed and staged at the same time, across all pools.
+	 */
+	private int maxConcurrentRefills = 1;
+
+	/**
+	 * How long to wait before refilling a pool again after a warm pool application could not be created.
+	 */
+	private Duration refillRetryDelay = Duration.ofMinutes(1);
+
+	public int getMaxConcurrentRefills() {
+		return maxConcurrentRefills;
+	}
+
+	public void setMaxConcurrentRefills(int maxConcurrentRefills) {
+		this.maxConcurrentRefills = maxConcurrentRefills;
+	}
+
+	public Duration getRefillRetryDelay() {
+		return refillRetryDelay;
+	}
+
+	public void setRefillRetryDelay(Duration refillRetryDelay) {
+		this.refillRetryDelay = refillRetryDelay;
+	}
+
+}
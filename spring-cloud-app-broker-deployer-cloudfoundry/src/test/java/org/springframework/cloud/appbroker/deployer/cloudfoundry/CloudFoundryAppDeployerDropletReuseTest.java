@@ -0,0 +1,277 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.cloudfoundry.client.CloudFoundryClient;
+import org.cloudfoundry.client.v3.BuildpackData;
+import org.cloudfoundry.client.v3.Lifecycle;
+import org.cloudfoundry.client.v3.LifecycleType;
+import org.cloudfoundry.client.v3.applications.ApplicationsV3;
+import org.cloudfoundry.client.v3.applications.GetApplicationCurrentDropletResponse;
+import org.cloudfoundry.client.v3.deployments.CreateDeploymentResponse;
+import org.cloudfoundry.client.v3.deployments.DeploymentState;
+import org.cloudfoundry.client.v3.deployments.DeploymentsV3;
+import org.cloudfoundry.client.v3.deployments.GetDeploymentResponse;
+import org.cloudfoundry.client.v3.droplets.CopyDropletResponse;
+import org.cloudfoundry.client.v3.droplets.DropletState;
+import org.cloudfoundry.client.v3.droplets.Droplets;
+import org.cloudfoundry.client.v3.droplets.GetDropletResponse;
+import org.cloudfoundry.operations.CloudFoundryOperations;
+import org.cloudfoundry.operations.applications.ApplicationDetail;
+import org.cloudfoundry.operations.applications.Applications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.appbroker.deployer.AppDeployer;
+import org.springframework.cloud.appbroker.deployer.DeployApplicationRequest;
+import org.springframework.cloud.appbroker.deployer.UpdateApplicationRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.ResourceLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CloudFoundryAppDeployerDropletReuseTest {
+
+	private static final String APP_NAME = "test-app";
+
+	private static final String APP_PATH = "test.jar";
+
+	@TempDir
+	Path directory;
+
+	@Mock
+	private Applications operationsApplications;
+
+	@Mock
+	private ApplicationsV3 applicationsV3;
+
+	@Mock
+	private Droplets droplets;
+
+	@Mock
+	private DeploymentsV3 deploymentsV3;
+
+	@Mock
+	private CloudFoundryOperations cloudFoundryOperations;
+
+	@Mock
+	private CloudFoundryClient cloudFoundryClient;
+
+	@Mock
+	private CloudFoundryOperationsUtils operationsUtils;
+
+	@Mock
+	private ResourceLoader resourceLoader;
+
+	private final CloudFoundryDropletRegistry dropletRegistry = new CloudFoundryDropletRegistry();
+
+	private AppDeployer appDeployer;
+
+	private String checksum;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Path artifact = Files.write(directory.resolve(APP_PATH), "app".getBytes(StandardCharsets.UTF_8));
+		checksum = new CloudFoundryArtifactChecksums(Schedulers.immediate()).checksum(artifact).block();
+
+		CloudFoundryDeploymentProperties deploymentProperties = new CloudFoundryDeploymentProperties();
+		deploymentProperties.setDropletReuse(true);
+		CloudFoundryTargetProperties targetProperties = new CloudFoundryTargetProperties();
+		targetProperties.setDefaultSpace("default-space");
+
+		given(resourceLoader.getResource(APP_PATH)).willReturn(new FileSystemResource(artifact));
+		given(cloudFoundryOperations.applications()).willReturn(operationsApplications);
+		given(cloudFoundryClient.applicationsV3()).willReturn(applicationsV3);
+		given(cloudFoundryClient.droplets()).willReturn(droplets);
+		given(cloudFoundryClient.deploymentsV3()).willReturn(deploymentsV3);
+		given(operationsUtils.getOperations(anyMap())).willReturn(Mono.just(cloudFoundryOperations));
+		given(operationsUtils.getOperationsForSpace(anyString())).willReturn(Mono.just(cloudFoundryOperations));
+
+		given(operationsApplications.pushManifest(any())).willReturn(Mono.empty());
+		given(operationsApplications.get(any())).willReturn(Mono.just(ApplicationDetail.builder()
+			.id("app-id")
+			.stack("")
+			.diskQuota(512)
+			.instances(1)
+			.memoryLimit(512)
+			.name(APP_NAME)
+			.requestedState("STOPPED")
+			.runningInstances(0)
+			.build()));
+		given(applicationsV3.getCurrentDroplet(any())).willReturn(Mono.just(GetApplicationCurrentDropletResponse
+			.builder()
+			.id("staged-droplet-id")
+			.createdAt("2019-07-05T10:37:47Z")
+			.state(DropletState.STAGED)
+			.lifecycle(createLifecycle())
+			.executionMetadata("")
+			.build()));
+		given(applicationsV3.setCurrentDroplet(any())).willReturn(Mono.empty());
+		given(applicationsV3.start(any())).willReturn(Mono.empty());
+
+		appDeployer = new CloudFoundryAppDeployer(deploymentProperties, cloudFoundryOperations, cloudFoundryClient,
+			operationsUtils, targetProperties, resourceLoader, CloudFoundryLookupCache.disabled(),
+			new CloudFoundryStatusPollerProperties(), dropletRegistry);
+	}
+
+	@Test
+	void firstDeploymentStagesAppAndRecordsDroplet() {
+		StepVerifier.create(appDeployer.deploy(deployRequest()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should().pushManifest(argThat(request -> !request.getNoStart()));
+		then(droplets).shouldHaveNoInteractions();
+		assertThat(dropletRegistry.getDroplet(checksum, null, null)).isEqualTo("staged-droplet-id");
+	}
+
+	@Test
+	void laterDeploymentCopiesRecordedDroplet() {
+		dropletRegistry.putDroplet(checksum, null, null, "reference-droplet-id");
+		givenDropletCopySucceeds();
+
+		StepVerifier.create(appDeployer.deploy(deployRequest()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should().pushManifest(argThat(request -> request.getNoStart()));
+		then(droplets).should().copy(argThat(request -> "reference-droplet-id".equals(request.getSourceDropletId())
+			&& "app-id".equals(request.getRelationships().getApplication().getData().getId())));
+		then(applicationsV3).should().setCurrentDroplet(argThat(request -> "app-id".equals(request.getApplicationId())
+			&& "copied-droplet-id".equals(request.getData().getId())));
+		then(applicationsV3).should().start(argThat(request -> "app-id".equals(request.getApplicationId())));
+		then(applicationsV3).should(never()).getCurrentDroplet(any());
+	}
+
+	@Test
+	void dropletStagedWithOtherBuildpackConfigurationIsNotCopied() {
+		dropletRegistry.putDroplet(checksum, null, null, "reference-droplet-id");
+
+		StepVerifier.create(appDeployer.deploy(DeployApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.serviceInstanceId("service-instance-id")
+			.environment("JBP_CONFIG_OPEN_JDK_JRE", "{ jre: { version: 11.+ } }")
+			.property("use-spring-application-json", "false")
+			.build()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should().pushManifest(argThat(request -> !request.getNoStart()));
+		then(droplets).shouldHaveNoInteractions();
+		assertThat(dropletRegistry.getDroplet(checksum, null, null)).isEqualTo("reference-droplet-id");
+	}
+
+	@Test
+	void upgradeCopiesRecordedDropletInsteadOfUploadingArtifact() {
+		dropletRegistry.putDroplet(checksum, null, null, "reference-droplet-id");
+		givenDropletCopySucceeds();
+		given(deploymentsV3.create(any())).willReturn(Mono.just(CreateDeploymentResponse.builder()
+			.state(DeploymentState.DEPLOYING)
+			.createdAt("2019-07-05T10:37:47Z")
+			.id("deployment-id")
+			.build()));
+		given(deploymentsV3.get(any())).willReturn(Mono.just(GetDeploymentResponse.builder()
+			.state(DeploymentState.DEPLOYED)
+			.createdAt("2019-07-05T10:37:47Z")
+			.id("deployment-id")
+			.build()));
+
+		StepVerifier.create(appDeployer.update(UpdateApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.property("upgrade", "true")
+			.build()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(droplets).should().copy(argThat(request -> "reference-droplet-id".equals(request.getSourceDropletId())
+			&& "app-id".equals(request.getRelationships().getApplication().getData().getId())));
+		then(deploymentsV3).should().create(argThat(request -> "copied-droplet-id".equals(request.getDroplet()
+			.getId())));
+		then(cloudFoundryClient).should(never()).resourceMatch();
+		then(cloudFoundryClient).should(never()).builds();
+	}
+
+	@Test
+	void failedDropletCopyFallsBackToStaging() {
+		dropletRegistry.putDroplet(checksum, null, null, "deleted-droplet-id");
+		given(droplets.copy(any())).willReturn(Mono.error(new IllegalStateException("droplet not found")));
+
+		StepVerifier.create(appDeployer.deploy(deployRequest()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should().pushManifest(argThat(request -> request.getNoStart()));
+		then(operationsApplications).should().pushManifest(argThat(request -> !request.getNoStart()));
+		then(applicationsV3).should(never()).start(any());
+		assertThat(dropletRegistry.getDroplet(checksum, null, null)).isEqualTo("staged-droplet-id");
+	}
+
+	private void givenDropletCopySucceeds() {
+		given(droplets.copy(any())).willReturn(Mono.just(CopyDropletResponse.builder()
+			.id("copied-droplet-id")
+			.createdAt("2019-07-05T10:37:47Z")
+			.state(DropletState.COPYING)
+			.lifecycle(createLifecycle())
+			.executionMetadata("")
+			.build()));
+		given(droplets.get(any())).willReturn(Mono.just(GetDropletResponse.builder()
+			.id("copied-droplet-id")
+			.createdAt("2019-07-05T10:37:47Z")
+			.state(DropletState.STAGED)
+			.lifecycle(createLifecycle())
+			.executionMetadata("")
+			.build()));
+	}
+
+	private DeployApplicationRequest deployRequest() {
+		return DeployApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.serviceInstanceId("service-instance-id")
+			.build();
+	}
+
+	private static Lifecycle createLifecycle() {
+		return Lifecycle.builder().data(BuildpackData.builder().build()).type(LifecycleType.BUILDPACK).build();
+	}
+
+}
@@ -17,6 +17,8 @@
 package org.springframework.cloud.appbroker.deployer.cloudfoundry;
 
 import java.io.File;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Map;
 
@@ -28,8 +30,19 @@ import org.cloudfoundry.client.v2.organizations.ListOrganizationSpacesRequest;
 import org.cloudfoundry.client.v2.organizations.ListOrganizationSpacesResponse;
 import org.cloudfoundry.client.v2.organizations.OrganizationEntity;
 import org.cloudfoundry.client.v2.serviceinstances.GetServiceInstanceResponse;
+import org.cloudfoundry.client.v2.serviceinstances.ListServiceInstancesRequest;
+import org.cloudfoundry.client.v2.serviceinstances.ListServiceInstancesResponse;
 import org.cloudfoundry.client.v2.serviceinstances.ServiceInstanceEntity;
+import org.cloudfoundry.client.v2.serviceinstances.ServiceInstanceResource;
 import org.cloudfoundry.client.v2.serviceinstances.ServiceInstances;
+import org.cloudfoundry.client.v2.serviceplans.ListServicePlansRequest;
+import org.cloudfoundry.client.v2.serviceplans.ListServicePlansResponse;
+import org.cloudfoundry.client.v2.serviceplans.ServicePlanEntity;
+import org.cloudfoundry.client.v2.serviceplans.ServicePlanResource;
+import org.cloudfoundry.client.v2.serviceplans.ServicePlans;
+import org.cloudfoundry.client.v2.services.ListServicesRequest;
+import org.cloudfoundry.client.v2.services.ListServicesResponse;
+import org.cloudfoundry.client.v2.services.ServiceResource;
 import org.cloudfoundry.client.v2.spaces.CreateSpaceRequest;
 import org.cloudfoundry.client.v2.spaces.DeleteSpaceRequest;
 import org.cloudfoundry.client.v2.spaces.GetSpaceRequest;
@@ -75,6 +88,7 @@ import org.springframework.util.CollectionUtils;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -83,6 +97,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 import static org.springframework.cloud.appbroker.deployer.DeploymentProperties.TARGET_PROPERTY_KEY;
 
 @SuppressWarnings("UnassignedFluxMonoInstance")
@@ -118,6 +133,12 @@ class CloudFoundryAppDeployerTest {
 	@Mock
 	private org.cloudfoundry.client.v2.spaces.Spaces clientSpaces;
 
+	@Mock
+	private org.cloudfoundry.client.v2.services.Services clientServices;
+
+	@Mock
+	private ServicePlans clientServicePlans;
+
 	@Mock
 	private org.cloudfoundry.client.v2.organizations.Organizations clientOrganizations;
 
@@ -558,6 +579,7 @@ class CloudFoundryAppDeployerTest {
 			.delete(DeleteSpaceRequest
 				.builder()
 				.spaceId("service-instance-space-id")
+				.recursive(true)
 				.build()))
 			.willReturn(Mono.empty());
 
@@ -572,6 +594,8 @@ class CloudFoundryAppDeployerTest {
 			appDeployer.deleteServiceInstance(request))
 			.assertNext(response -> assertThat(response.getName()).isEqualTo("service-instance-name"))
 			.verifyComplete();
+
+		then(operationsUtils).should().evictOperationsForSpace("service-instance-id");
 	}
 
 	@Test
@@ -837,6 +861,64 @@ class CloudFoundryAppDeployerTest {
 		then(operationsUtils).shouldHaveNoMoreInteractions();
 	}
 
+	@Test
+	void getServiceInstanceByIdCachesEntityLookups() {
+		CloudFoundryTargetProperties targetProperties = new CloudFoundryTargetProperties();
+		AppDeployer cachingAppDeployer = new CloudFoundryAppDeployer(deploymentProperties, cloudFoundryOperations,
+			cloudFoundryClient, operationsUtils, targetProperties, resourceLoader,
+			new CloudFoundryLookupCache(Duration.ofMinutes(5), 100, Clock.systemUTC()));
+
+		given(operationsServices.getInstance(any(GetServiceInstanceRequest.class)))
+			.willReturn(Mono.just(ServiceInstance.builder()
+				.id("foo-service-instance-id")
+				.name("my-foo-service")
+				.service("foo-service")
+				.plan("foo-plan")
+				.type(ServiceInstanceType.MANAGED)
+				.build()));
+
+		given(clientServiceInstances
+			.get(any(org.cloudfoundry.client.v2.serviceinstances.GetServiceInstanceRequest.class)))
+			.willReturn(Mono.just(GetServiceInstanceResponse.builder()
+				.entity(ServiceInstanceEntity.builder()
+					.name("my-foo-service")
+					.spaceId("foo-space-id")
+					.build())
+				.build()));
+
+		given(clientSpaces.get(any(GetSpaceRequest.class)))
+			.willReturn(Mono.just(GetSpaceResponse.builder()
+				.entity(SpaceEntity.builder()
+					.name("foo-space")
+					.organizationId("foo-organization-id")
+					.build())
+				.build()));
+
+		given(clientOrganizations.get(any(GetOrganizationRequest.class)))
+			.willReturn(Mono.just(GetOrganizationResponse.builder()
+				.entity(OrganizationEntity.builder()
+					.name("foo-organization")
+					.build())
+				.build()));
+
+		org.springframework.cloud.appbroker.deployer.GetServiceInstanceRequest request =
+			org.springframework.cloud.appbroker.deployer.GetServiceInstanceRequest
+				.builder()
+				.serviceInstanceId("foo-service-instance-id")
+				.properties(emptyMap())
+				.build();
+
+		StepVerifier.create(cachingAppDeployer.getServiceInstance(request)
+			.then(cachingAppDeployer.getServiceInstance(request)))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo("my-foo-service"))
+			.verifyComplete();
+
+		then(clientServiceInstances).should(times(1)).get(any());
+		then(clientSpaces).should(times(1)).get(any());
+		then(clientOrganizations).should(times(1)).get(any());
+		then(operationsServices).should(times(2)).getInstance(any());
+	}
+
 	@Test
 	void getServiceInstanceByName() {
 		given(operationsServices.getInstance(any(GetServiceInstanceRequest.class)))
@@ -903,6 +985,55 @@ class CloudFoundryAppDeployerTest {
 		then(operationsUtils).shouldHaveNoMoreInteractions();
 	}
 
+	@Test
+	void listServiceInstancesOfPlan() {
+		given(cloudFoundryClient.services()).willReturn(clientServices);
+		given(cloudFoundryClient.servicePlans()).willReturn(clientServicePlans);
+		given(clientServices.list(any(ListServicesRequest.class)))
+			.willReturn(Mono.just(ListServicesResponse.builder()
+				.resource(ServiceResource.builder()
+					.metadata(Metadata.builder().id("foo-service-id").build())
+					.build())
+				.totalPages(1)
+				.build()));
+		given(clientServicePlans.list(any(ListServicePlansRequest.class)))
+			.willReturn(Mono.just(ListServicePlansResponse.builder()
+				.resource(ServicePlanResource.builder()
+					.metadata(Metadata.builder().id("foo-plan-id").build())
+					.entity(ServicePlanEntity.builder().name("foo-plan").build())
+					.build())
+				.resource(ServicePlanResource.builder()
+					.metadata(Metadata.builder().id("bar-plan-id").build())
+					.entity(ServicePlanEntity.builder().name("bar-plan").build())
+					.build())
+				.totalPages(1)
+				.build()));
+		given(clientServiceInstances.list(any(ListServiceInstancesRequest.class)))
+			.willReturn(Mono.just(ListServiceInstancesResponse.builder()
+				.resource(ServiceInstanceResource.builder()
+					.metadata(Metadata.builder().id("instance-1").build())
+					.build())
+				.resource(ServiceInstanceResource.builder()
+					.metadata(Metadata.builder().id("instance-2").build())
+					.build())
+				.totalPages(1)
+				.build()));
+
+		StepVerifier.create(appDeployer.listServiceInstances(
+			org.springframework.cloud.appbroker.deployer.ListServiceInstancesRequest.builder()
+				.serviceName("foo-service")
+				.planName("foo-plan")
+				.build()))
+			.assertNext(response -> assertThat(response.getServiceInstanceIds())
+				.containsExactly("instance-1", "instance-2"))
+			.verifyComplete();
+
+		then(clientServices).should().list(argThat(req -> req.getLabels().contains("foo-service")));
+		then(clientServicePlans).should().list(argThat(req -> req.getServiceIds().contains("foo-service-id")));
+		then(clientServiceInstances).should()
+			.list(argThat(req -> req.getServicePlanIds().equals(singletonList("foo-plan-id"))));
+	}
+
 	private ApplicationManifest.Builder baseManifest() {
 		return ApplicationManifest.builder()
 			.services(new ArrayList<>());
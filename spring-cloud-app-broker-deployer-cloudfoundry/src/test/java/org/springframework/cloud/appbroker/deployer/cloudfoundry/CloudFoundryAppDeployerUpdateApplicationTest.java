@@ -16,14 +16,28 @@
 
 package org.springframework.cloud.appbroker.deployer.cloudfoundry;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.cloudfoundry.client.CloudFoundryClient;
 import org.cloudfoundry.client.v2.Metadata;
 import org.cloudfoundry.client.v2.applications.ApplicationsV2;
 import org.cloudfoundry.client.v2.applications.AssociateApplicationRouteRequest;
 import org.cloudfoundry.client.v2.applications.UpdateApplicationResponse;
+import org.cloudfoundry.client.v2.applications.UploadApplicationRequest;
+import org.cloudfoundry.client.v2.applications.UploadApplicationResponse;
+import org.cloudfoundry.client.v2.jobs.JobEntity;
+import org.cloudfoundry.client.v2.resourcematch.ListMatchingResourcesResponse;
+import org.cloudfoundry.client.v2.resourcematch.ResourceMatch;
 import org.cloudfoundry.client.v2.routes.CreateRouteRequest;
 import org.cloudfoundry.client.v2.routes.CreateRouteResponse;
 import org.cloudfoundry.client.v2.routes.Routes;
@@ -44,13 +58,11 @@ import org.cloudfoundry.client.v3.deployments.DeploymentState;
 import org.cloudfoundry.client.v3.deployments.DeploymentsV3;
 import org.cloudfoundry.client.v3.deployments.GetDeploymentResponse;
 import org.cloudfoundry.client.v3.packages.BitsData;
-import org.cloudfoundry.client.v3.packages.CreatePackageResponse;
 import org.cloudfoundry.client.v3.packages.GetPackageResponse;
 import org.cloudfoundry.client.v3.packages.PackageResource;
 import org.cloudfoundry.client.v3.packages.PackageState;
 import org.cloudfoundry.client.v3.packages.PackageType;
 import org.cloudfoundry.client.v3.packages.Packages;
-import org.cloudfoundry.client.v3.packages.UploadPackageResponse;
 import org.cloudfoundry.operations.CloudFoundryOperations;
 import org.cloudfoundry.operations.applications.ApplicationDetail;
 import org.cloudfoundry.operations.applications.Applications;
@@ -62,6 +74,7 @@ import org.cloudfoundry.operations.spaces.Spaces;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -82,6 +95,7 @@ import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -114,6 +128,9 @@ class CloudFoundryAppDeployerUpdateApplicationTest {
 	@Mock
 	private Packages packages;
 
+	@Mock
+	private ResourceMatch resourceMatch;
+
 	@Mock
 	private Routes routes;
 
@@ -151,6 +168,7 @@ class CloudFoundryAppDeployerUpdateApplicationTest {
 		given(cloudFoundryClient.builds()).willReturn(builds);
 		given(cloudFoundryClient.deploymentsV3()).willReturn(deploymentsV3);
 		given(cloudFoundryClient.routes()).willReturn(routes);
+		given(cloudFoundryClient.resourceMatch()).willReturn(resourceMatch);
 		given(operationsUtils.getOperations(anyMap())).willReturn(Mono.just(cloudFoundryOperations));
 		given(operationsUtils.getOperationsForSpace(anyString())).willReturn(Mono.just(cloudFoundryOperations));
 
@@ -160,26 +178,6 @@ class CloudFoundryAppDeployerUpdateApplicationTest {
 		given(operationsApplications.get(any()))
 			.willReturn(Mono.just(createApplicationDetail()));
 
-		given(packages.create(any()))
-			.willReturn(Mono.just(CreatePackageResponse.builder()
-				.data(BitsData.builder().build())
-				.state(PackageState.READY)
-				.type(PackageType.BITS)
-				.createdAt("DATETIME")
-				.id("package-id")
-				.build()));
-
-		given(packages.upload(any()))
-			.willReturn(Mono.just(UploadPackageResponse.builder()
-				.data(BitsData.builder().build())
-				.state(PackageState.READY)
-				.type(PackageType.BITS)
-				.createdAt("2019-07-05T10:37:47Z")
-				.createdAt("2019-07-05T10:37:47Z")
-				.id("package-id")
-				.build()));
-
-
 		given(packages.get(any()))
 			.willReturn(Mono.just(GetPackageResponse.builder()
 				.data(BitsData.builder().build())
@@ -281,13 +279,34 @@ class CloudFoundryAppDeployerUpdateApplicationTest {
 	}
 
 	@Test
-	void updateAppWithUpgrade() {
+	void updateAppWithUpgrade(@TempDir Path directory) throws IOException {
+		Path artifact = createArtifact(directory.resolve("upgrade.jar"), "cached.txt", "changed.txt");
+		given(resourceLoader.getResource("upgrade.jar")).willReturn(new FileSystemResource(artifact));
+		given(resourceMatch.list(any()))
+			.willReturn(Mono.just(ListMatchingResourcesResponse.builder()
+				.resource(org.cloudfoundry.client.v2.resourcematch.Resource.builder()
+					.hash("0c93713c1e43fccf897b7b4f02e822c65d557fdf")
+					.size(6)
+					.build())
+				.build()));
+		ArgumentCaptor<UploadApplicationRequest> uploadCaptor = ArgumentCaptor.forClass(UploadApplicationRequest.class);
+		List<String> uploadedEntries = new ArrayList<>();
+		given(applicationsV2.upload(uploadCaptor.capture()))
+			.willAnswer(invocation -> {
+				UploadApplicationRequest upload = invocation.getArgument(0);
+				uploadedEntries.addAll(entryNames(upload.getApplication()));
+				return Mono.just(UploadApplicationResponse.builder()
+					.metadata(Metadata.builder().id("job-id").build())
+					.entity(JobEntity.builder().status("finished").build())
+					.build());
+			});
+
 		Map<String, String> properties = new HashMap<>();
 		properties.put("upgrade", "true");
 
 		UpdateApplicationRequest request = UpdateApplicationRequest.builder()
 			.name(APP_NAME)
-			.path(APP_PATH)
+			.path("upgrade.jar")
 			.properties(properties)
 			.build();
 
@@ -295,7 +314,40 @@ class CloudFoundryAppDeployerUpdateApplicationTest {
 			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
 			.verifyComplete();
 
-		then(applicationsV2).shouldHaveNoInteractions();
+		assertThat(uploadedEntries).containsExactly("changed.txt");
+		assertThat(uploadCaptor.getValue().getApplicationId()).isEqualTo("app-id");
+		assertThat(uploadCaptor.getValue().getResources())
+			.extracting(org.cloudfoundry.client.v2.applications.Resource::getPath)
+			.containsExactly("cached.txt");
+		assertThat(Files.exists(uploadCaptor.getValue().getApplication())).isFalse();
+		then(applicationsV2).should(never()).update(any());
+	}
+
+	@Test
+	void updateAppFailsWhenBuildFails() {
+		given(applicationsV2.update(any()))
+			.willReturn(Mono.just(UpdateApplicationResponse.builder()
+				.build()));
+		given(builds.get(any()))
+			.willReturn(Mono.just(GetBuildResponse.builder()
+				.state(BuildState.FAILED)
+				.createdBy(CreatedBy.builder().id("create-by-id").email("an-email").name("creator").build())
+				.inputPackage(Relationship.builder().id("package-id").build())
+				.lifecycle(createLifecycle())
+				.createdAt("DATETIME")
+				.id("build-id")
+				.build()));
+
+		UpdateApplicationRequest request = UpdateApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.build();
+
+		StepVerifier.create(appDeployer.update(request))
+			.expectErrorMessage("build build-id failed")
+			.verify();
+
+		then(deploymentsV3).shouldHaveNoInteractions();
 	}
 
 	@Test
@@ -569,6 +621,25 @@ class CloudFoundryAppDeployerUpdateApplicationTest {
 		);
 	}
 
+	private static Path createArtifact(Path path, String... names) throws IOException {
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			for (String name : names) {
+				out.putNextEntry(new ZipEntry(name));
+				out.write(name.substring(0, name.indexOf('.')).getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+		return path;
+	}
+
+	private static List<String> entryNames(Path archive) throws IOException {
+		List<String> names = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			zip.stream().forEach(entry -> names.add(entry.getName()));
+		}
+		return names;
+	}
+
 	private ApplicationDetail createApplicationDetail() {
 		return ApplicationDetail
 			.builder()
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudfoundry.client.CloudFoundryClient;
+import org.cloudfoundry.client.v2.applications.ApplicationsV2;
+import org.cloudfoundry.client.v2.applications.UpdateApplicationResponse;
+import org.cloudfoundry.client.v3.BuildpackData;
+import org.cloudfoundry.client.v3.Lifecycle;
+import org.cloudfoundry.client.v3.LifecycleType;
+import org.cloudfoundry.client.v3.Relationship;
+import org.cloudfoundry.client.v3.applications.ApplicationsV3;
+import org.cloudfoundry.client.v3.applications.ListApplicationPackagesResponse;
+import org.cloudfoundry.client.v3.builds.BuildState;
+import org.cloudfoundry.client.v3.builds.Builds;
+import org.cloudfoundry.client.v3.builds.CreateBuildResponse;
+import org.cloudfoundry.client.v3.builds.CreatedBy;
+import org.cloudfoundry.client.v3.builds.Droplet;
+import org.cloudfoundry.client.v3.builds.GetBuildResponse;
+import org.cloudfoundry.client.v3.packages.BitsData;
+import org.cloudfoundry.client.v3.packages.PackageResource;
+import org.cloudfoundry.client.v3.packages.PackageState;
+import org.cloudfoundry.client.v3.packages.PackageType;
+import org.cloudfoundry.operations.CloudFoundryOperations;
+import org.cloudfoundry.operations.applications.ApplicationDetail;
+import org.cloudfoundry.operations.applications.Applications;
+import org.cloudfoundry.operations.applications.PushApplicationManifestRequest;
+import org.cloudfoundry.operations.services.Services;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.appbroker.deployer.DeployApplicationRequest;
+import org.springframework.cloud.appbroker.deployer.DeploymentProperties;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.ResourceLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CloudFoundryAppDeployerWarmPoolTest {
+
+	private static final String APP_NAME = "test-app";
+
+	private static final String APP_PATH = "test.jar";
+
+	@TempDir
+	Path directory;
+
+	@Mock
+	private Applications operationsApplications;
+
+	@Mock
+	private Services operationsServices;
+
+	@Mock
+	private ApplicationsV2 applicationsV2;
+
+	@Mock
+	private ApplicationsV3 applicationsV3;
+
+	@Mock
+	private Builds builds;
+
+	@Mock
+	private CloudFoundryOperations cloudFoundryOperations;
+
+	@Mock
+	private CloudFoundryClient cloudFoundryClient;
+
+	@Mock
+	private CloudFoundryOperationsUtils operationsUtils;
+
+	@Mock
+	private ResourceLoader resourceLoader;
+
+	private final CloudFoundryWarmPool warmPool = new CloudFoundryWarmPool();
+
+	private CloudFoundryAppDeployer appDeployer;
+
+	@BeforeEach
+	@SuppressWarnings("PMD.ExcessiveMethodLength")
+	void setUp() throws IOException {
+		Path artifact = Files.write(directory.resolve(APP_PATH), "app".getBytes(StandardCharsets.UTF_8));
+
+		CloudFoundryDeploymentProperties deploymentProperties = new CloudFoundryDeploymentProperties();
+		CloudFoundryTargetProperties targetProperties = new CloudFoundryTargetProperties();
+		targetProperties.setDefaultSpace("default-space");
+
+		given(resourceLoader.getResource(APP_PATH)).willReturn(new FileSystemResource(artifact));
+		given(cloudFoundryOperations.applications()).willReturn(operationsApplications);
+		given(cloudFoundryOperations.services()).willReturn(operationsServices);
+		given(cloudFoundryClient.applicationsV2()).willReturn(applicationsV2);
+		given(cloudFoundryClient.applicationsV3()).willReturn(applicationsV3);
+		given(cloudFoundryClient.builds()).willReturn(builds);
+		given(operationsUtils.getOperations(anyMap())).willReturn(Mono.just(cloudFoundryOperations));
+		given(operationsUtils.getOperationsForSpace(anyString())).willReturn(Mono.just(cloudFoundryOperations));
+
+		given(operationsApplications.pushManifest(any())).willReturn(Mono.empty());
+		given(operationsApplications.list()).willReturn(Flux.empty());
+		given(operationsApplications.rename(any())).willReturn(Mono.empty());
+		given(operationsApplications.get(any())).willReturn(Mono.just(ApplicationDetail.builder()
+			.id("app-id")
+			.stack("")
+			.diskQuota(512)
+			.instances(1)
+			.memoryLimit(512)
+			.name(APP_NAME)
+			.requestedState("STOPPED")
+			.runningInstances(0)
+			.build()));
+		given(applicationsV3.listPackages(any())).willReturn(Mono.just(ListApplicationPackagesResponse.builder()
+			.resource(PackageResource.builder()
+				.data(BitsData.builder().build())
+				.state(PackageState.READY)
+				.type(PackageType.BITS)
+				.createdAt("2019-07-05T10:37:47Z")
+				.updatedAt("2019-07-05T10:37:47Z")
+				.id("package-id")
+				.build())
+			.build()));
+		given(builds.create(any())).willReturn(Mono.just(CreateBuildResponse.builder()
+			.state(BuildState.STAGING)
+			.createdBy(CreatedBy.builder().id("create-by-id").email("an-email").name("creator").build())
+			.inputPackage(Relationship.builder().id("package-id").build())
+			.lifecycle(createLifecycle())
+			.createdAt("2019-07-05T10:37:47Z")
+			.id("build-id")
+			.build()));
+		given(builds.get(any())).willReturn(Mono.just(GetBuildResponse.builder()
+			.state(BuildState.STAGED)
+			.createdBy(CreatedBy.builder().id("create-by-id").email("an-email").name("creator").build())
+			.inputPackage(Relationship.builder().id("package-id").build())
+			.lifecycle(createLifecycle())
+			.droplet(Droplet.builder().id("droplet-id").build())
+			.createdAt("2019-07-05T10:37:47Z")
+			.id("build-id")
+			.build()));
+		given(applicationsV3.setCurrentDroplet(any())).willReturn(Mono.empty());
+		given(applicationsV3.start(any())).willReturn(Mono.empty());
+		given(applicationsV2.update(any())).willReturn(Mono.just(UpdateApplicationResponse.builder().build()));
+		given(operationsServices.bind(any())).willReturn(Mono.empty());
+
+		appDeployer = new CloudFoundryAppDeployer(deploymentProperties, cloudFoundryOperations, cloudFoundryClient,
+			operationsUtils, targetProperties, resourceLoader, CloudFoundryLookupCache.disabled(),
+			new CloudFoundryStatusPollerProperties(), new CloudFoundryDropletRegistry(), warmPool);
+	}
+
+	@Test
+	void firstDeploymentPushesAppAndFillsWarmPool() {
+		StepVerifier.create(appDeployer.deploy(deployRequest()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		awaitAvailableWarmApplications(1);
+
+		then(operationsApplications).should().pushManifest(argThat(request ->
+			APP_NAME.equals(request.getManifests().get(0).getName()) && !request.getNoStart()));
+		then(operationsApplications).should().pushManifest(argThat(request ->
+			request.getManifests().get(0).getName().startsWith("warm-") && request.getNoStart()
+				&& request.getManifests().get(0).getNoRoute()));
+		then(applicationsV3).should().setCurrentDroplet(argThat(request -> "app-id".equals(request.getApplicationId())
+			&& "droplet-id".equals(request.getData().getId())));
+		assertThat(warmPool.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	void deploymentClaimsWarmApplication() {
+		StepVerifier.create(appDeployer.prepareWarmPool(deployRequest()))
+			.verifyComplete();
+		awaitAvailableWarmApplications(1);
+		String warmName = warmApplicationName();
+
+		StepVerifier.create(appDeployer.deploy(deployRequest()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should(never()).pushManifest(argThat(request ->
+			APP_NAME.equals(request.getManifests().get(0).getName())));
+		then(operationsApplications).should().rename(argThat(request -> warmName.equals(request.getName())
+			&& APP_NAME.equals(request.getNewName())));
+		then(applicationsV2).should().update(argThat(request -> "app-id".equals(request.getApplicationId())
+			&& "service-instance-id".equals(request.getEnvironmentJsons()
+			.get("spring.cloud.appbroker.service-instance-id"))));
+		then(operationsServices).should().bind(argThat(request -> APP_NAME.equals(request.getApplicationName())
+			&& "my-db".equals(request.getServiceInstanceName())));
+		then(applicationsV3).should().start(argThat(request -> "app-id".equals(request.getApplicationId())));
+		assertThat(warmPool.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void failedClaimFallsBackToPush() {
+		StepVerifier.create(appDeployer.prepareWarmPool(deployRequest()))
+			.verifyComplete();
+		awaitAvailableWarmApplications(1);
+		given(operationsApplications.rename(any())).willReturn(Mono.error(new IllegalStateException("not found")));
+
+		StepVerifier.create(appDeployer.deploy(deployRequest()))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should().pushManifest(argThat(request ->
+			APP_NAME.equals(request.getManifests().get(0).getName()) && !request.getNoStart()));
+		then(operationsServices).should(never()).bind(any());
+	}
+
+	@Test
+	void warmApplicationsAreStagedWithTheStagingVariablesOfTheTemplate() {
+		StepVerifier.create(appDeployer.prepareWarmPool(deployRequestWithJre("{ jre: { version: 11.+ } }")))
+			.verifyComplete();
+		awaitAvailableWarmApplications(1);
+
+		then(operationsApplications).should().pushManifest(argThat(request ->
+			request.getManifests().get(0).getName().startsWith("warm-")
+				&& "{ jre: { version: 11.+ } }".equals(request.getManifests().get(0).getEnvironmentVariables()
+				.get("JBP_CONFIG_OPEN_JDK_JRE"))));
+	}
+
+	@Test
+	void deploymentWithOtherStagingVariablesDoesNotClaimWarmApplication() {
+		StepVerifier.create(appDeployer.prepareWarmPool(deployRequest()))
+			.verifyComplete();
+		awaitAvailableWarmApplications(1);
+		String warmName = warmApplicationName();
+
+		StepVerifier.create(appDeployer.deploy(deployRequestWithJre("{ jre: { version: 11.+ } }")))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		then(operationsApplications).should(never()).rename(argThat(request -> warmName.equals(request.getName())));
+		then(operationsApplications).should().pushManifest(argThat(request ->
+			APP_NAME.equals(request.getManifests().get(0).getName())));
+		assertThat(warmPool.getHitCount()).isZero();
+	}
+
+	@Test
+	void deploymentWithoutWarmPoolSizeIsNotPooled() {
+		DeployApplicationRequest request = DeployApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.build();
+
+		StepVerifier.create(appDeployer.deploy(request))
+			.assertNext(response -> assertThat(response.getName()).isEqualTo(APP_NAME))
+			.verifyComplete();
+
+		assertThat(warmPool.getAvailableCount()).isZero();
+		assertThat(warmPool.getRefillsInFlight()).isZero();
+		then(operationsApplications).should(never()).list();
+	}
+
+	private DeployApplicationRequest deployRequest() {
+		Map<String, String> properties = new HashMap<>();
+		properties.put(CloudFoundryDeploymentProperties.WARM_POOL_SIZE_PROPERTY_KEY, "1");
+		properties.put(CloudFoundryDeploymentProperties.NO_ROUTE_PROPERTY, "true");
+		return DeployApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.properties(properties)
+			.service("my-db")
+			.serviceInstanceId("service-instance-id")
+			.build();
+	}
+
+	private DeployApplicationRequest deployRequestWithJre(String jreConfig) {
+		Map<String, String> properties = new HashMap<>();
+		properties.put(CloudFoundryDeploymentProperties.WARM_POOL_SIZE_PROPERTY_KEY, "1");
+		properties.put(CloudFoundryDeploymentProperties.NO_ROUTE_PROPERTY, "true");
+		properties.put(DeploymentProperties.USE_SPRING_APPLICATION_JSON_KEY, "false");
+		return DeployApplicationRequest.builder()
+			.name(APP_NAME)
+			.path(APP_PATH)
+			.properties(properties)
+			.environment("JBP_CONFIG_OPEN_JDK_JRE", jreConfig)
+			.service("my-db")
+			.serviceInstanceId("service-instance-id")
+			.build();
+	}
+
+	private String warmApplicationName() {
+		ArgumentCaptor<PushApplicationManifestRequest> captor =
+			ArgumentCaptor.forClass(PushApplicationManifestRequest.class);
+		then(operationsApplications).should(atLeastOnce()).pushManifest(captor.capture());
+		return captor.getAllValues().stream()
+			.map(request -> request.getManifests().get(0).getName())
+			.filter(name -> name.startsWith("warm-"))
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+	}
+
+	private void awaitAvailableWarmApplications(int count) {
+		Mono.fromCallable(warmPool::getAvailableCount)
+			.filter(available -> available == count)
+			.repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10)).take(500))
+			.block(Duration.ofSeconds(10));
+		assertThat(warmPool.getAvailableCount()).isEqualTo(count);
+	}
+
+	private static Lifecycle createLifecycle() {
+		return Lifecycle.builder().data(BuildpackData.builder().build()).type(LifecycleType.BUILDPACK).build();
+	}
+
+}
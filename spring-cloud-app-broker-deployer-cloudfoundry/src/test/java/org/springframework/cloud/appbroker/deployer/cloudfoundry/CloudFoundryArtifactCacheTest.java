@@ -0,0 +1,288 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CloudFoundryArtifactCacheTest {
+
+	private final Map<String, String> contents = new ConcurrentHashMap<>();
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final AtomicBoolean failing = new AtomicBoolean();
+
+	private final MutableClock clock = new MutableClock();
+
+	private HttpServer server;
+
+	@TempDir
+	Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void artifactIsDownloadedOnceAndServedFromDisk() throws IOException {
+		contents.put("/app.jar", "app-1");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofMegabytes(1));
+
+		Resource first = cache.resolve(remote("/app.jar")).block();
+		Resource second = cache.resolve(remote("/app.jar")).block();
+
+		assertThat(first.isFile()).isTrue();
+		assertThat(first.getFilename()).endsWith(".jar");
+		assertThat(read(second)).isEqualTo("app-1");
+		assertThat(requests).hasValue(1);
+		assertThat(cache.getDownloadCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void unchangedArtifactIsRevalidatedAfterInterval() throws IOException {
+		contents.put("/app.jar", "app-1");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofMegabytes(1));
+		cache.resolve(remote("/app.jar")).block();
+
+		clock.advance(Duration.ofMinutes(2));
+		Resource revalidated = cache.resolve(remote("/app.jar")).block();
+
+		assertThat(read(revalidated)).isEqualTo("app-1");
+		assertThat(requests).hasValue(2);
+		assertThat(cache.getRevalidationCount()).isEqualTo(1);
+		assertThat(cache.getDownloadCount()).isEqualTo(1);
+	}
+
+	@Test
+	void changedArtifactIsDownloadedAgain() throws IOException {
+		contents.put("/app.jar", "app-1");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofMegabytes(1));
+		Resource first = cache.resolve(remote("/app.jar")).block();
+
+		contents.put("/app.jar", "app-2");
+		clock.advance(Duration.ofMinutes(2));
+		Resource second = cache.resolve(remote("/app.jar")).block();
+
+		assertThat(read(second)).isEqualTo("app-2");
+		assertThat(second.getFile()).isNotEqualTo(first.getFile());
+		assertThat(first.exists()).isFalse();
+		assertThat(cache.getDownloadCount()).isEqualTo(2);
+		assertThat(cache.getEntryCount()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(5);
+	}
+
+	@Test
+	void leastRecentlyUsedArtifactIsEvictedWhenFull() throws IOException {
+		contents.put("/a.jar", "aaaa");
+		contents.put("/b.jar", "bbbb");
+		contents.put("/c.jar", "cccc");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofBytes(10));
+
+		cache.resolve(remote("/a.jar")).block();
+		Resource b = cache.resolve(remote("/b.jar")).block();
+		cache.resolve(remote("/a.jar")).block();
+		cache.resolve(remote("/c.jar")).block();
+
+		assertThat(b.exists()).isFalse();
+		assertThat(cache.getEvictionCount()).isEqualTo(1);
+		assertThat(cache.getEntryCount()).isEqualTo(2);
+		assertThat(cache.getSize()).isEqualTo(8);
+
+		cache.resolve(remote("/a.jar")).block();
+		assertThat(requests).hasValue(3);
+	}
+
+	@Test
+	void artifactInUseIsKeptOnDiskUntilReleased() throws IOException {
+		contents.put("/a.jar", "aaaa");
+		contents.put("/b.jar", "bbbb");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofBytes(6));
+		Resource b = remote("/b.jar");
+
+		Resource used = cache.use(remote("/a.jar"), a -> cache.resolve(b)
+			.then(Mono.fromCallable(() -> {
+				assertThat(cache.getEvictionCount()).isEqualTo(1);
+				assertThat(read(a)).isEqualTo("aaaa");
+				return a;
+			})))
+			.block();
+
+		assertThat(used.exists()).isFalse();
+		assertThat(cache.getEntryCount()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(4);
+	}
+
+	@Test
+	void artifactsWithSameContentShareOneCopy() throws IOException {
+		contents.put("/a.jar", "same");
+		contents.put("/b.jar", "same");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofMegabytes(1));
+
+		Resource a = cache.resolve(remote("/a.jar")).block();
+		Resource b = cache.resolve(remote("/b.jar")).block();
+
+		assertThat(a.getFile()).isEqualTo(b.getFile());
+		assertThat(cache.getEntryCount()).isEqualTo(2);
+		assertThat(cache.getSize()).isEqualTo(4);
+	}
+
+	@Test
+	void cachedCopyIsServedWhenServerFails() throws IOException {
+		contents.put("/app.jar", "app-1");
+		CloudFoundryArtifactCache cache = cache(DataSize.ofMegabytes(1));
+		cache.resolve(remote("/app.jar")).block();
+
+		failing.set(true);
+		clock.advance(Duration.ofMinutes(2));
+
+		assertThat(read(cache.resolve(remote("/app.jar")).block())).isEqualTo("app-1");
+	}
+
+	@Test
+	void cachedArtifactsSurviveRestart() throws IOException {
+		contents.put("/app.jar", "app-1");
+		cache(DataSize.ofMegabytes(1)).resolve(remote("/app.jar")).block();
+
+		CloudFoundryArtifactCache restarted = cache(DataSize.ofMegabytes(1));
+
+		assertThat(restarted.getEntryCount()).isEqualTo(1);
+		assertThat(read(restarted.resolve(remote("/app.jar")).block())).isEqualTo("app-1");
+		assertThat(requests).hasValue(1);
+		assertThat(restarted.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void localFilesAreNotCopied() throws IOException {
+		Path artifact = Files.write(directory.resolve("local.jar"), "local".getBytes(StandardCharsets.UTF_8));
+		CloudFoundryArtifactCache cache = cache(DataSize.ofMegabytes(1));
+		Resource local = new FileSystemResource(artifact);
+
+		assertThat(cache.resolve(local).block()).isSameAs(local);
+		assertThat(cache.getEntryCount()).isZero();
+	}
+
+	@Test
+	void disabledCacheReturnsResourceAsItIs() throws IOException {
+		Resource remote = remote("/app.jar");
+
+		assertThat(CloudFoundryArtifactCache.disabled().resolve(remote).block()).isSameAs(remote);
+		assertThat(requests).hasValue(0);
+	}
+
+	private CloudFoundryArtifactCache cache(DataSize maxSize) {
+		CloudFoundryArtifactCacheProperties properties = new CloudFoundryArtifactCacheProperties();
+		properties.setDirectory(directory.resolve("cache").toString());
+		properties.setMaxSize(maxSize);
+		return new CloudFoundryArtifactCache(properties, Schedulers.immediate(), clock);
+	}
+
+	private Resource remote(String path) throws IOException {
+		return new UrlResource(new URL("http", "localhost", server.getAddress().getPort(), path));
+	}
+
+	private static String read(Resource resource) throws IOException {
+		return new String(Files.readAllBytes(resource.getFile().toPath()), StandardCharsets.UTF_8);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		String content = contents.get(exchange.getRequestURI().getPath());
+		if (failing.get() || content == null) {
+			exchange.sendResponseHeaders(failing.get() ? 500 : 404, -1);
+			exchange.close();
+			return;
+		}
+		String etag = "\"" + content + "\"";
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+		byte[] body = content.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("ETag", etag);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2019-01-01T00:00:00Z");
+
+		public void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CloudFoundryArtifactChecksumsTest {
+
+	private static final String EMPTY_SHA_256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+	private final CloudFoundryArtifactChecksums checksums = new CloudFoundryArtifactChecksums(Schedulers.immediate());
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void checksumIsSha256OfContents() throws IOException {
+		Path artifact = Files.createFile(directory.resolve("empty.jar"));
+
+		assertThat(checksums.checksum(artifact).block()).isEqualTo(EMPTY_SHA_256);
+	}
+
+	@Test
+	void sameContentsHaveSameChecksum() throws IOException {
+		Path first = write("first.jar", "app");
+		Path second = write("second.jar", "app");
+		Path other = write("other.jar", "other app");
+
+		assertThat(checksums.checksum(first).block()).isEqualTo(checksums.checksum(second).block());
+		assertThat(checksums.checksum(first).block()).isNotEqualTo(checksums.checksum(other).block());
+	}
+
+	@Test
+	void checksumIsComputedAgainWhenArtifactChanges() throws IOException {
+		Path artifact = write("app.jar", "version 1");
+		String original = checksums.checksum(artifact).block();
+
+		write("app.jar", "version 2, larger");
+		Files.setLastModifiedTime(artifact, FileTime.fromMillis(Files.getLastModifiedTime(artifact).toMillis() + 1000));
+
+		assertThat(checksums.checksum(artifact).block()).isNotEqualTo(original);
+	}
+
+	@Test
+	void directoryChecksumCoversFileNamesAndContents() throws IOException {
+		Path app = Files.createDirectories(directory.resolve("app"));
+		Files.write(app.resolve("a.txt"), "a".getBytes(StandardCharsets.UTF_8));
+		String original = checksums.checksum(app).block();
+
+		Files.move(app.resolve("a.txt"), app.resolve("b.txt"));
+
+		assertThat(checksums.checksum(app).block()).isNotEqualTo(original);
+	}
+
+	@Test
+	void leastRecentlyUsedChecksumIsForgotten() throws IOException {
+		CloudFoundryArtifactChecksums bounded = new CloudFoundryArtifactChecksums(Schedulers.immediate(), 1);
+		Path artifact = write("app.jar", "version 1");
+		FileTime lastModified = Files.getLastModifiedTime(artifact);
+		String original = bounded.checksum(artifact).block();
+		bounded.checksum(write("other.jar", "other app")).block();
+
+		write("app.jar", "version 2");
+		Files.setLastModifiedTime(artifact, lastModified);
+
+		assertThat(bounded.checksum(artifact).block()).isNotEqualTo(original);
+	}
+
+	@Test
+	void maxEntriesMustBePositive() {
+		assertThatThrownBy(() -> new CloudFoundryArtifactChecksums(Schedulers.immediate(), 0))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private Path write(String name, String contents) throws IOException {
+		return Files.write(directory.resolve(name), contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.appbroker.deployer.cloudfoundry.CloudFoundryArtifactFingerprints.Fingerprint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CloudFoundryArtifactFingerprintsTest {
+
+	private static final String ONE_SHA_1 = "fe05bcdcdc4928012781a5f1a2a77cbb5398e106";
+
+	private static final String TWO_SHA_1 = "ad782ecdac770fc6eb9a62e44f90873fb97fb26b";
+
+	private final CloudFoundryArtifactFingerprints fingerprints = new CloudFoundryArtifactFingerprints(
+		new CloudFoundryArtifactChecksums(Schedulers.immediate()), Schedulers.immediate());
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void archiveFilesAreFingerprintedWithSha1() throws IOException {
+		Path artifact = createArchive(directory.resolve("app.jar"));
+
+		List<Fingerprint> result = fingerprints.fingerprints(artifact).block();
+
+		assertThat(result).extracting(Fingerprint::getPath).containsExactly("lib/one.txt", "two.txt");
+		assertThat(result).extracting(Fingerprint::getHash).containsExactly(ONE_SHA_1, TWO_SHA_1);
+		assertThat(result).extracting(Fingerprint::getSize).containsExactly(3L, 3L);
+	}
+
+	@Test
+	void directoryFilesAreFingerprintedWithRelativePaths() throws IOException {
+		Path app = Files.createDirectories(directory.resolve("app"));
+		Files.createDirectories(app.resolve("lib"));
+		Files.write(app.resolve("lib/one.txt"), "one".getBytes(StandardCharsets.UTF_8));
+		Files.write(app.resolve("two.txt"), "two".getBytes(StandardCharsets.UTF_8));
+
+		List<Fingerprint> result = fingerprints.fingerprints(app).block();
+
+		assertThat(result).extracting(Fingerprint::getPath).containsExactly("lib/one.txt", "two.txt");
+		assertThat(result).extracting(Fingerprint::getHash).containsExactly(ONE_SHA_1, TWO_SHA_1);
+	}
+
+	@Test
+	void fingerprintsAreComputedOncePerArtifactChecksum() throws IOException {
+		Path first = createArchive(directory.resolve("first.jar"));
+		Path second = Files.copy(first, directory.resolve("second.jar"));
+
+		List<Fingerprint> fromFirst = fingerprints.fingerprints(first).block();
+		List<Fingerprint> fromSecond = fingerprints.fingerprints(second).block();
+
+		assertThat(fromSecond).isSameAs(fromFirst);
+	}
+
+	@Test
+	void leastRecentlyUsedFingerprintsAreComputedAgain() throws IOException {
+		CloudFoundryArtifactFingerprints bounded = new CloudFoundryArtifactFingerprints(
+			new CloudFoundryArtifactChecksums(Schedulers.immediate()), Schedulers.immediate(), 1);
+		Path first = createArchive(directory.resolve("first.jar"));
+		Path other = Files.createDirectories(directory.resolve("other"));
+		Files.write(other.resolve("three.txt"), "three".getBytes(StandardCharsets.UTF_8));
+
+		List<Fingerprint> original = bounded.fingerprints(first).block();
+		bounded.fingerprints(other).block();
+
+		assertThat(bounded.fingerprints(first).block()).isNotSameAs(original);
+	}
+
+	@Test
+	void archiveHoldsOnlyTheGivenFiles() throws IOException {
+		Path artifact = createArchive(directory.resolve("app.jar"));
+		List<Fingerprint> all = fingerprints.fingerprints(artifact).block();
+
+		Path archive = fingerprints.createArchive(artifact, all.subList(1, 2)).block();
+
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			List<String> names = new ArrayList<>();
+			zip.stream().forEach(entry -> names.add(entry.getName()));
+			assertThat(names).containsExactly("two.txt");
+		}
+
+		fingerprints.deleteArchive(archive).block();
+
+		assertThat(archive).doesNotExist();
+	}
+
+	@Test
+	void emptyArchiveIsRejected() throws IOException {
+		Path artifact = createArchive(directory.resolve("app.jar"));
+
+		assertThatThrownBy(() -> fingerprints.createArchive(artifact, Collections.emptyList()).block())
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static Path createArchive(Path path) throws IOException {
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			out.putNextEntry(new ZipEntry("lib/"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("lib/one.txt"));
+			out.write("one".getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("two.txt"));
+			out.write("two".getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+		return path;
+	}
+
+}
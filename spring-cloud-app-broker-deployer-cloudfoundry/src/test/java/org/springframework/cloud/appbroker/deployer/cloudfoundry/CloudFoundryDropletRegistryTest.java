@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CloudFoundryDropletRegistryTest {
+
+	private final CloudFoundryDropletRegistry registry = new CloudFoundryDropletRegistry(2);
+
+	@Test
+	void dropletIsKeyedByChecksumBuildpackAndStack() {
+		registry.putDroplet("checksum", "java_buildpack", "cflinuxfs3", "droplet-id");
+
+		assertThat(registry.getDroplet("checksum", "java_buildpack", "cflinuxfs3")).isEqualTo("droplet-id");
+		assertThat(registry.getDroplet("checksum", "java_buildpack", null)).isNull();
+		assertThat(registry.getDroplet("checksum", "go_buildpack", "cflinuxfs3")).isNull();
+		assertThat(registry.getDroplet("other", "java_buildpack", "cflinuxfs3")).isNull();
+		assertThat(registry.getHitCount()).isEqualTo(1);
+		assertThat(registry.getMissCount()).isEqualTo(3);
+	}
+
+	@Test
+	void dropletIsKeyedByStagingEnvironment() {
+		registry.putDroplet("checksum", null, null, "environment", "droplet-id");
+
+		assertThat(registry.getDroplet("checksum", null, null, "environment")).isEqualTo("droplet-id");
+		assertThat(registry.getDroplet("checksum", null, null, "other")).isNull();
+		assertThat(registry.getDroplet("checksum", null, null)).isNull();
+	}
+
+	@Test
+	void removeDropletKeepsNewerDroplet() {
+		registry.putDroplet("checksum", null, null, "droplet-1");
+		registry.putDroplet("checksum", null, null, "droplet-2");
+
+		registry.removeDroplet("checksum", null, null, "droplet-1");
+		assertThat(registry.getDroplet("checksum", null, null)).isEqualTo("droplet-2");
+
+		registry.removeDroplet("checksum", null, null, "droplet-2");
+		assertThat(registry.getDroplet("checksum", null, null)).isNull();
+	}
+
+	@Test
+	void invalidateForgetsAllDropletsOfChecksum() {
+		registry.putDroplet("checksum", "java_buildpack", null, "droplet-1");
+		registry.putDroplet("checksum", "go_buildpack", null, "droplet-2");
+
+		registry.invalidate("checksum");
+
+		assertThat(registry.getSize()).isZero();
+	}
+
+	@Test
+	void leastRecentlyUsedDropletIsForgottenWhenFull() {
+		registry.putDroplet("checksum-1", null, null, "droplet-1");
+		registry.putDroplet("checksum-2", null, null, "droplet-2");
+		registry.getDroplet("checksum-1", null, null);
+		registry.putDroplet("checksum-3", null, null, "droplet-3");
+
+		assertThat(registry.getSize()).isEqualTo(2);
+		assertThat(registry.getDroplet("checksum-1", null, null)).isEqualTo("droplet-1");
+		assertThat(registry.getDroplet("checksum-2", null, null)).isNull();
+	}
+
+	@Test
+	void invalidMaxEntriesIsRejected() {
+		assertThatThrownBy(() -> new CloudFoundryDropletRegistry(0))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
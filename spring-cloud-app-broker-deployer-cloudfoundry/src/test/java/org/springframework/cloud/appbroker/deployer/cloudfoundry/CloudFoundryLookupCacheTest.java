@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CloudFoundryLookupCacheTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	@Test
+	void repeatedLookupIsAnsweredFromCache() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 10, clock);
+
+		StepVerifier.create(cache.get("space", "dev", () -> lookup("space-id")))
+			.expectNext("space-id")
+			.verifyComplete();
+		StepVerifier.create(cache.get("space", "dev", () -> lookup("other-id")))
+			.expectNext("space-id")
+			.verifyComplete();
+
+		assertThat(lookups).hasValue(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	void entitiesAreKeyedByTypeAndId() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 10, clock);
+
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		cache.get("organization", "dev", () -> lookup("org-id")).block();
+		cache.get("space", "prod", () -> lookup("prod-id")).block();
+
+		assertThat(lookups).hasValue(3);
+		assertThat(cache.getSize()).isEqualTo(3);
+	}
+
+	@Test
+	void expiredEntityIsLookedUpAgain() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 10, clock);
+
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		clock.advance(Duration.ofSeconds(59));
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		assertThat(lookups).hasValue(1);
+
+		clock.advance(Duration.ofSeconds(1));
+		StepVerifier.create(cache.get("space", "dev", () -> lookup("new-id")))
+			.expectNext("new-id")
+			.verifyComplete();
+		assertThat(lookups).hasValue(2);
+	}
+
+	@Test
+	void leastRecentlyUsedEntityIsEvictedWhenFull() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 2, clock);
+
+		cache.get("space", "a", () -> lookup("a")).block();
+		cache.get("space", "b", () -> lookup("b")).block();
+		cache.get("space", "a", () -> lookup("a")).block();
+		cache.get("space", "c", () -> lookup("c")).block();
+
+		assertThat(cache.getSize()).isEqualTo(2);
+		assertThat(cache.getEvictionCount()).isEqualTo(1);
+
+		cache.get("space", "a", () -> lookup("a")).block();
+		assertThat(lookups).hasValue(3);
+		cache.get("space", "b", () -> lookup("b")).block();
+		assertThat(lookups).hasValue(4);
+	}
+
+	@Test
+	void emptyAndFailedLookupsAreNotCached() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 10, clock);
+
+		StepVerifier.create(cache.get("space", "dev", () -> Mono.<String>empty()))
+			.verifyComplete();
+		StepVerifier.create(cache.get("organization", "org", () -> Mono.<String>error(new IllegalStateException())))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		assertThat(cache.getSize()).isZero();
+
+		StepVerifier.create(cache.get("space", "dev", () -> lookup("space-id")))
+			.expectNext("space-id")
+			.verifyComplete();
+		StepVerifier.create(cache.get("organization", "org", () -> lookup("org-id")))
+			.expectNext("org-id")
+			.verifyComplete();
+	}
+
+	@Test
+	void invalidatedEntityIsLookedUpAgain() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 10, clock);
+
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		cache.get("space", "prod", () -> lookup("prod-id")).block();
+		cache.invalidate("space", "dev");
+
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		cache.get("space", "prod", () -> lookup("prod-id")).block();
+		assertThat(lookups).hasValue(3);
+
+		cache.invalidateAll();
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	void concurrentLookupsShareOneRequest() {
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(Duration.ofMinutes(1), 10, clock);
+		TestPublisher<String> response = TestPublisher.create();
+
+		Mono<String> first = cache.get("space", "dev", () -> {
+			lookups.incrementAndGet();
+			return response.mono();
+		});
+		Mono<String> second = cache.get("space", "dev", () -> lookup("unused"));
+
+		StepVerifier.create(first.zipWith(second))
+			.then(() -> response.emit("space-id"))
+			.assertNext(ids -> {
+				assertThat(ids.getT1()).isEqualTo("space-id");
+				assertThat(ids.getT2()).isEqualTo("space-id");
+			})
+			.verifyComplete();
+
+		assertThat(lookups).hasValue(1);
+	}
+
+	@Test
+	void disabledCacheAlwaysLooksUp() {
+		CloudFoundryLookupCache cache = CloudFoundryLookupCache.disabled();
+
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+
+		assertThat(lookups).hasValue(2);
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	void disabledPropertiesDisableCaching() {
+		CloudFoundryLookupCacheProperties properties = new CloudFoundryLookupCacheProperties();
+		properties.setEnabled(false);
+		CloudFoundryLookupCache cache = new CloudFoundryLookupCache(properties);
+
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+		cache.get("space", "dev", () -> lookup("space-id")).block();
+
+		assertThat(lookups).hasValue(2);
+	}
+
+	@Test
+	void invalidMaxEntriesIsRejected() {
+		assertThatThrownBy(() -> new CloudFoundryLookupCache(Duration.ofMinutes(1), 0, clock))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private Mono<String> lookup(String value) {
+		return Mono.fromCallable(() -> {
+			lookups.incrementAndGet();
+			return value;
+		});
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2019-01-01T00:00:00Z");
+
+		public void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+	}
+
+}
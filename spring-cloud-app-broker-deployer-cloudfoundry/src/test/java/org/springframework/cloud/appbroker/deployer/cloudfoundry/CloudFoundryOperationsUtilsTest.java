@@ -16,6 +16,11 @@
 
 package org.springframework.cloud.appbroker.deployer.cloudfoundry;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Collections;
 
 import org.cloudfoundry.operations.CloudFoundryOperations;
@@ -28,6 +33,7 @@ import org.springframework.cloud.appbroker.deployer.DeploymentProperties;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CloudFoundryOperationsUtilsTest {
 
@@ -69,4 +75,104 @@ class CloudFoundryOperationsUtilsTest {
 			.verifyComplete();
 	}
 
+	@Test
+	void getOperationsForSpaceCreatesNewOperationsWithoutReuse() {
+		CloudFoundryOperations first = operationsUtils.getOperationsForSpace("foo-space").block();
+		CloudFoundryOperations second = operationsUtils.getOperationsForSpace("foo-space").block();
+
+		assertThat(first).isNotSameAs(second);
+		assertThat(operationsUtils.getReusableOperationsCount()).isZero();
+	}
+
+	@Test
+	void getOperationsForSpaceReusesOperations() {
+		CloudFoundryOperationsUtils reusingUtils = new CloudFoundryOperationsUtils(operations,
+			new CloudFoundryLookupCacheProperties());
+
+		CloudFoundryOperations first = reusingUtils.getOperationsForSpace("foo-space").block();
+		CloudFoundryOperations second = reusingUtils.getOperationsForSpace("foo-space").block();
+		CloudFoundryOperations other = reusingUtils.getOperationsForOrgAndSpace("foo-org", "foo-space").block();
+
+		assertThat(first).isSameAs(second);
+		assertThat(other).isNotSameAs(first);
+		assertThat(ReflectionTestUtils.getField(other, "organization")).isEqualTo("foo-org");
+		assertThat(reusingUtils.getReusableOperationsCount()).isEqualTo(2);
+	}
+
+	@Test
+	void evictOperationsForSpaceRemovesAllOrganizations() {
+		CloudFoundryOperationsUtils reusingUtils = new CloudFoundryOperationsUtils(operations,
+			new CloudFoundryLookupCacheProperties());
+
+		CloudFoundryOperations first = reusingUtils.getOperationsForSpace("foo-space").block();
+		reusingUtils.getOperationsForOrgAndSpace("foo-org", "foo-space").block();
+		reusingUtils.getOperationsForSpace("bar-space").block();
+
+		reusingUtils.evictOperationsForSpace("foo-space");
+
+		assertThat(reusingUtils.getReusableOperationsCount()).isEqualTo(1);
+		assertThat(reusingUtils.getOperationsForSpace("foo-space").block()).isNotSameAs(first);
+	}
+
+	@Test
+	void leastRecentlyUsedOperationsAreEvictedWhenFull() {
+		CloudFoundryOperationsUtils reusingUtils = new CloudFoundryOperationsUtils(operations,
+			Duration.ofMinutes(5), 2, Clock.systemUTC());
+
+		CloudFoundryOperations first = reusingUtils.getOperationsForSpace("space-1").block();
+		CloudFoundryOperations second = reusingUtils.getOperationsForSpace("space-2").block();
+		reusingUtils.getOperationsForSpace("space-1").block();
+		reusingUtils.getOperationsForSpace("space-3").block();
+
+		assertThat(reusingUtils.getReusableOperationsCount()).isEqualTo(2);
+		assertThat(reusingUtils.getOperationsForSpace("space-1").block()).isSameAs(first);
+		assertThat(reusingUtils.getOperationsForSpace("space-2").block()).isNotSameAs(second);
+	}
+
+	@Test
+	void expiredOperationsAreReplaced() {
+		MutableClock clock = new MutableClock();
+		CloudFoundryOperationsUtils reusingUtils = new CloudFoundryOperationsUtils(operations,
+			Duration.ofMinutes(5), 10, clock);
+		CloudFoundryOperations first = reusingUtils.getOperationsForSpace("foo-space").block();
+
+		clock.advance(Duration.ofMinutes(4));
+		assertThat(reusingUtils.getOperationsForSpace("foo-space").block()).isSameAs(first);
+
+		clock.advance(Duration.ofMinutes(1));
+		assertThat(reusingUtils.getOperationsForSpace("foo-space").block()).isNotSameAs(first);
+	}
+
+	@Test
+	void invalidMaxEntriesIsRejected() {
+		assertThatThrownBy(() -> new CloudFoundryOperationsUtils(operations, Duration.ofMinutes(5), 0,
+			Clock.systemUTC()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2019-01-01T00:00:00Z");
+
+		public void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+	}
+
 }
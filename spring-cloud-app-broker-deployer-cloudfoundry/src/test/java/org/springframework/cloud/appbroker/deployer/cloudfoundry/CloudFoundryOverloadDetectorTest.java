@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import org.cloudfoundry.client.v2.ClientV2Exception;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CloudFoundryOverloadDetectorTest {
+
+	private final CloudFoundryOverloadDetector detector = new CloudFoundryOverloadDetector();
+
+	@Test
+	void rateLimitedAndServerErrorResponsesAreOverloads() {
+		assertThat(detector.isOverloaded(error(429))).isTrue();
+		assertThat(detector.isOverloaded(error(502))).isTrue();
+		assertThat(detector.isOverloaded(error(503))).isTrue();
+	}
+
+	@Test
+	void clientErrorsAndOtherExceptionsAreNotOverloads() {
+		assertThat(detector.isOverloaded(error(404))).isFalse();
+		assertThat(detector.isOverloaded(error(422))).isFalse();
+		assertThat(detector.isOverloaded(new IllegalStateException("failed"))).isFalse();
+	}
+
+	private static ClientV2Exception error(int statusCode) {
+		return new ClientV2Exception(statusCode, 0, "error", "CF-Error");
+	}
+
+}
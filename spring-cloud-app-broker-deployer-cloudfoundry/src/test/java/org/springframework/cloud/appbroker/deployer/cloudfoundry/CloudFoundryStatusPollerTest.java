@@ -0,0 +1,225 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CloudFoundryStatusPollerTest {
+
+	private static final String PENDING = "pending";
+
+	private static final String READY = "ready";
+
+	private static final String FAILED = "failed";
+
+	private final Map<String, String> states = new ConcurrentHashMap<>();
+
+	private VirtualTimeScheduler scheduler;
+
+	private CloudFoundryStatusPoller<String> poller;
+
+	@BeforeEach
+	void setUp() {
+		CloudFoundryStatusPollerProperties properties = new CloudFoundryStatusPollerProperties();
+		properties.setMinInterval(Duration.ofSeconds(1));
+		properties.setMaxInterval(Duration.ofSeconds(10));
+		properties.setTimeout(Duration.ofMinutes(1));
+		properties.setLookupTimeout(Duration.ofSeconds(5));
+
+		scheduler = VirtualTimeScheduler.create();
+		poller = new CloudFoundryStatusPoller<>("build",
+			id -> {
+				if ("broken".equals(id)) {
+					return Mono.error(new IllegalStateException("lookup failed"));
+				}
+				if ("hung".equals(id)) {
+					return Mono.never();
+				}
+				return Mono.justOrEmpty(states.get(id));
+			},
+			READY::equals, FAILED::equals, properties, scheduler);
+	}
+
+	@Test
+	void completesWhenResourceIsAlreadyReady() {
+		states.put("build-1", READY);
+
+		StepVerifier.create(poller.waitFor("build-1"))
+			.expectNext(READY)
+			.verifyComplete();
+
+		assertThat(poller.getPollCount()).isEqualTo(1);
+		assertThat(poller.getWaitingCount()).isZero();
+	}
+
+	@Test
+	void completesWhenResourceBecomesReady() {
+		states.put("build-1", PENDING);
+
+		StepVerifier.create(poller.waitFor("build-1"))
+			.then(() -> {
+				states.put("build-1", READY);
+				scheduler.advanceTimeBy(Duration.ofSeconds(1));
+			})
+			.expectNext(READY)
+			.verifyComplete();
+
+		assertThat(poller.getPollCount()).isEqualTo(2);
+	}
+
+	@Test
+	void waitersShareOneLookupPerResourceAndPoll() {
+		List<String> results = new CopyOnWriteArrayList<>();
+		states.put("build-1", PENDING);
+		states.put("build-2", PENDING);
+
+		poller.waitFor("build-1").subscribe(results::add);
+		poller.waitFor("build-2").subscribe(results::add);
+		poller.waitFor("build-1").subscribe(results::add);
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+		assertThat(poller.getPollCount()).isEqualTo(2);
+		assertThat(poller.getLookupCount()).isEqualTo(3);
+		assertThat(poller.getWaitingCount()).isEqualTo(2);
+
+		states.put("build-1", READY);
+		states.put("build-2", READY);
+		scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+		assertThat(results).containsExactly(READY, READY, READY);
+		assertThat(poller.getWaitingCount()).isZero();
+	}
+
+	@Test
+	void failsWhenResourceFails() {
+		states.put("build-1", PENDING);
+
+		StepVerifier.create(poller.waitFor("build-1"))
+			.then(() -> {
+				states.put("build-1", FAILED);
+				scheduler.advanceTimeBy(Duration.ofSeconds(1));
+			})
+			.expectErrorMessage("build build-1 failed")
+			.verify();
+	}
+
+	@Test
+	void lookupErrorFailsOnlyItsWaiter() {
+		List<String> results = new CopyOnWriteArrayList<>();
+		states.put("build-1", PENDING);
+		poller.waitFor("build-1").subscribe(results::add);
+
+		StepVerifier.create(poller.waitFor("broken"))
+			.then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(1)))
+			.expectErrorMessage("lookup failed")
+			.verify();
+
+		states.put("build-1", READY);
+		scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+		assertThat(results).containsExactly(READY);
+	}
+
+	@Test
+	void timesOutWhenResourceNeverReachesTerminalState() {
+		states.put("build-1", PENDING);
+
+		StepVerifier.create(poller.waitFor("build-1"))
+			.then(() -> scheduler.advanceTimeBy(Duration.ofMinutes(2)))
+			.expectError(TimeoutException.class)
+			.verify();
+
+		assertThat(poller.getWaitingCount()).isZero();
+	}
+
+	@Test
+	void hungLookupDoesNotStopPollingOfOtherResources() {
+		List<String> results = new CopyOnWriteArrayList<>();
+		states.put("build-1", PENDING);
+		poller.waitFor("hung").subscribe();
+		poller.waitFor("build-1").subscribe(results::add);
+
+		states.put("build-1", READY);
+		scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+		assertThat(results).containsExactly(READY);
+		assertThat(poller.getWaitingCount()).isEqualTo(1);
+		assertThat(poller.getPollCount()).isGreaterThan(1);
+	}
+
+	@Test
+	void timesOutWhileLookupHangs() {
+		StepVerifier.create(poller.waitFor("hung"))
+			.then(() -> scheduler.advanceTimeBy(Duration.ofMinutes(1)))
+			.expectErrorSatisfies(e -> assertThat(e)
+				.isInstanceOf(TimeoutException.class)
+				.hasMessage("Timed out waiting for build hung"))
+			.verify();
+
+		assertThat(poller.getWaitingCount()).isZero();
+	}
+
+	@Test
+	void intervalDoublesWhileNothingChanges() {
+		states.put("build-1", PENDING);
+		poller.waitFor("build-1").subscribe();
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(25));
+
+		// polls at 0, 1, 3, 7, 15 and 25 seconds
+		assertThat(poller.getPollCount()).isEqualTo(6);
+	}
+
+	@Test
+	void stopsPollingWhenNothingIsWaitedFor() {
+		states.put("build-1", PENDING);
+		Disposable waiting = poller.waitFor("build-1").subscribe();
+
+		waiting.dispose();
+		scheduler.advanceTimeBy(Duration.ofMinutes(1));
+
+		assertThat(poller.getWaitingCount()).isZero();
+		assertThat(poller.getPollCount()).isEqualTo(2);
+	}
+
+	@Test
+	void invalidConcurrencyIsRejected() {
+		CloudFoundryStatusPollerProperties properties = new CloudFoundryStatusPollerProperties();
+		properties.setMaxConcurrency(0);
+
+		assertThatThrownBy(() -> new CloudFoundryStatusPoller<String>("build", Mono::just, READY::equals,
+			FAILED::equals, properties))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import org.cloudfoundry.client.v2.ClientV2Exception;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CloudFoundryTransientErrorClassifierTest {
+
+	private final CloudFoundryTransientErrorClassifier classifier = new CloudFoundryTransientErrorClassifier();
+
+	@Test
+	void onlyRateLimitedAndUnavailableResponsesAreRejectedBeforeProcessing() {
+		assertThat(classifier.isRejected(error(429))).isTrue();
+		assertThat(classifier.isRejected(error(503))).isTrue();
+		assertThat(classifier.isRejected(error(500))).isFalse();
+		assertThat(classifier.isRejected(error(502))).isFalse();
+	}
+
+	@Test
+	void connectionFailuresAndServerErrorsAreTransient() {
+		assertThat(classifier.isTransient(new IllegalStateException(new IOException("connection reset")))).isTrue();
+		assertThat(classifier.isTransient(new TimeoutException())).isTrue();
+		assertThat(classifier.isTransient(error(429))).isTrue();
+		assertThat(classifier.isTransient(error(500))).isTrue();
+		assertThat(classifier.isTransient(error(404))).isFalse();
+		assertThat(classifier.isTransient(new IllegalStateException("failed"))).isFalse();
+	}
+
+	private static ClientV2Exception error(int statusCode) {
+		return new ClientV2Exception(statusCode, 0, "error", "CF-Error");
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer.cloudfoundry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CloudFoundryWarmPoolTest {
+
+	private final AtomicInteger created = new AtomicInteger();
+
+	private VirtualTimeScheduler scheduler;
+
+	private CloudFoundryWarmPool warmPool;
+
+	@BeforeEach
+	void setUp() {
+		CloudFoundryWarmPoolProperties properties = new CloudFoundryWarmPoolProperties();
+		properties.setMaxConcurrentRefills(2);
+		properties.setRefillRetryDelay(Duration.ofSeconds(30));
+
+		scheduler = VirtualTimeScheduler.create();
+		warmPool = new CloudFoundryWarmPool(properties, scheduler);
+	}
+
+	@Test
+	void registeredPoolIsFilled() {
+		assertThat(warmPool.register("pool", 3, Flux.empty(), this::createApplication)).isTrue();
+
+		assertThat(warmPool.isRegistered("pool")).isTrue();
+		assertThat(warmPool.getAvailableCount("pool")).isEqualTo(3);
+		assertThat(warmPool.getRefillCount()).isEqualTo(3);
+		assertThat(warmPool.getRefillLag()).isZero();
+	}
+
+	@Test
+	void poolIsRegisteredOnlyOnce() {
+		warmPool.register("pool", 1, Flux.empty(), this::createApplication);
+
+		assertThat(warmPool.register("pool", 5, Flux.empty(), this::createApplication)).isFalse();
+		assertThat(warmPool.getAvailableCount("pool")).isEqualTo(1);
+	}
+
+	@Test
+	void existingApplicationsAreAddedBeforeRefilling() {
+		warmPool.register("pool", 3, Flux.just("existing-1", "existing-2"), this::createApplication);
+
+		assertThat(warmPool.getAvailableCount("pool")).isEqualTo(3);
+		assertThat(created.get()).isEqualTo(1);
+		assertThat(warmPool.claim("pool")).isEqualTo("existing-1");
+	}
+
+	@Test
+	void claimReturnsApplicationAndRefillsPool() {
+		warmPool.register("pool", 2, Flux.empty(), this::createApplication);
+
+		assertThat(warmPool.claim("pool")).isEqualTo("app-1");
+
+		assertThat(warmPool.getAvailableCount("pool")).isEqualTo(2);
+		assertThat(warmPool.getHitCount()).isEqualTo(1);
+		assertThat(warmPool.getMissCount()).isZero();
+		assertThat(warmPool.getHitRate()).isEqualTo(1.0);
+	}
+
+	@Test
+	void claimFromUnknownPoolIsNotCounted() {
+		assertThat(warmPool.claim("unknown")).isNull();
+
+		assertThat(warmPool.getHitCount()).isZero();
+		assertThat(warmPool.getMissCount()).isZero();
+		assertThat(warmPool.getHitRate()).isZero();
+	}
+
+	@Test
+	void claimFromEmptyPoolIsAMiss() {
+		List<TestPublisher<String>> refills = new ArrayList<>();
+		warmPool.register("pool", 1, Flux.empty(), () -> {
+			TestPublisher<String> refill = TestPublisher.create();
+			refills.add(refill);
+			return refill.mono();
+		});
+
+		assertThat(warmPool.claim("pool")).isNull();
+
+		assertThat(warmPool.getMissCount()).isEqualTo(1);
+		assertThat(warmPool.getHitRate()).isZero();
+		assertThat(refills).hasSize(1);
+	}
+
+	@Test
+	void refillsShareConcurrencyBudget() {
+		List<TestPublisher<String>> refills = new ArrayList<>();
+		warmPool.register("pool-1", 2, Flux.empty(), () -> pendingRefill(refills));
+		warmPool.register("pool-2", 2, Flux.empty(), () -> pendingRefill(refills));
+
+		assertThat(refills).hasSize(2);
+		assertThat(warmPool.getRefillsInFlight()).isEqualTo(2);
+
+		refills.get(0).emit("app-1");
+
+		assertThat(refills).hasSize(3);
+		assertThat(warmPool.getRefillsInFlight()).isEqualTo(2);
+		assertThat(warmPool.getAvailableCount()).isEqualTo(1);
+	}
+
+	@Test
+	void refillLagMeasuresTimeBelowSize() {
+		List<TestPublisher<String>> refills = new ArrayList<>();
+		warmPool.register("pool", 1, Flux.empty(), () -> pendingRefill(refills));
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(45));
+
+		assertThat(warmPool.getRefillLag()).isEqualTo(Duration.ofSeconds(45));
+
+		refills.get(0).emit("app-1");
+
+		assertThat(warmPool.getRefillLag()).isZero();
+	}
+
+	@Test
+	void failedRefillIsRetriedAfterDelay() {
+		AtomicInteger attempts = new AtomicInteger();
+		warmPool.register("pool", 1, Flux.empty(), () -> attempts.incrementAndGet() == 1
+			? Mono.error(new IllegalStateException("staging failed")) : Mono.just("app"));
+
+		assertThat(warmPool.getRefillFailureCount()).isEqualTo(1);
+		assertThat(warmPool.getAvailableCount("pool")).isZero();
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(29));
+
+		assertThat(attempts.get()).isEqualTo(1);
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+		assertThat(attempts.get()).isEqualTo(2);
+		assertThat(warmPool.getAvailableCount("pool")).isEqualTo(1);
+	}
+
+	@Test
+	void poolWithNewKeyRetiresOtherPoolsOfItsGroup() {
+		List<String> removed = new ArrayList<>();
+		warmPool.register("old", "group", 2, Flux.empty(), this::createApplication,
+			name -> Mono.fromRunnable(() -> removed.add(name)));
+		warmPool.register("other", "other-group", 1, Flux.empty(), this::createApplication, name -> Mono.empty());
+		warmPool.register("new", "group", 1, Flux.empty(), this::createApplication, name -> Mono.empty());
+
+		assertThat(warmPool.isRegistered("old")).isFalse();
+		assertThat(warmPool.isRegistered("other")).isTrue();
+		assertThat(warmPool.claim("old")).isNull();
+		assertThat(warmPool.getAvailableCount("new")).isEqualTo(1);
+		assertThat(warmPool.getRetiredCount()).isEqualTo(1);
+		assertThat(removed).containsExactly("app-1", "app-2");
+	}
+
+	@Test
+	void applicationCreatedForRetiredPoolIsRemoved() {
+		List<String> removed = new ArrayList<>();
+		List<TestPublisher<String>> refills = new ArrayList<>();
+		warmPool.register("old", "group", 1, Flux.empty(), () -> pendingRefill(refills),
+			name -> Mono.fromRunnable(() -> removed.add(name)));
+		warmPool.register("new", "group", 1, Flux.empty(), this::createApplication, name -> Mono.empty());
+
+		refills.get(0).emit("late-app");
+
+		assertThat(removed).containsExactly("late-app");
+		assertThat(warmPool.getAvailableCount()).isEqualTo(1);
+		assertThat(warmPool.getRefillsInFlight()).isZero();
+	}
+
+	@Test
+	void failureToFindExistingApplicationsStillFillsPool() {
+		warmPool.register("pool", 1, Flux.error(new IllegalStateException("list failed")), this::createApplication);
+
+		assertThat(warmPool.getAvailableCount("pool")).isEqualTo(1);
+	}
+
+	@Test
+	void invalidSizesAreRejected() {
+		assertThatThrownBy(() -> warmPool.register("pool", 0, Flux.empty(), this::createApplication))
+			.isInstanceOf(IllegalArgumentException.class);
+
+		CloudFoundryWarmPoolProperties properties = new CloudFoundryWarmPoolProperties();
+		properties.setMaxConcurrentRefills(0);
+		assertThatThrownBy(() -> new CloudFoundryWarmPool(properties))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private Mono<String> createApplication() {
+		return Mono.fromCallable(() -> "app-" + created.incrementAndGet());
+	}
+
+	private static Mono<String> pendingRefill(List<TestPublisher<String>> refills) {
+		TestPublisher<String> refill = TestPublisher.create();
+		refills.add(refill);
+		return refill.mono();
+	}
+
+}
@@ -36,6 +36,10 @@ public interface AppDeployer {
 		return Mono.empty();
 	}
 
+	default Mono<ListServiceInstancesResponse> listServiceInstances(ListServiceInstancesRequest request) {
+		return Mono.empty();
+	}
+
 	default Mono<CreateServiceInstanceResponse> createServiceInstance(CreateServiceInstanceRequest request) {
 		return Mono.empty();
 	}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+public class ListServiceInstancesRequest {
+
+	private final String serviceName;
+
+	private final String planName;
+
+	protected ListServiceInstancesRequest(String serviceName, String planName) {
+		this.serviceName = serviceName;
+		this.planName = planName;
+	}
+
+	public static ListServiceInstancesRequestBuilder builder() {
+		return new ListServiceInstancesRequestBuilder();
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public String getPlanName() {
+		return planName;
+	}
+
+	public static final class ListServiceInstancesRequestBuilder {
+
+		private String serviceName;
+
+		private String planName;
+
+		private ListServiceInstancesRequestBuilder() {
+		}
+
+		public ListServiceInstancesRequestBuilder serviceName(String serviceName) {
+			this.serviceName = serviceName;
+			return this;
+		}
+
+		public ListServiceInstancesRequestBuilder planName(String planName) {
+			this.planName = planName;
+			return this;
+		}
+
+		public ListServiceInstancesRequest build() {
+			return new ListServiceInstancesRequest(serviceName, planName);
+		}
+
+	}
+
+}
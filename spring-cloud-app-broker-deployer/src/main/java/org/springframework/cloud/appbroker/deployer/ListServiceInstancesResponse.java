@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ListServiceInstancesResponse {
+
+	private final List<String> serviceInstanceIds;
+
+	protected ListServiceInstancesResponse(List<String> serviceInstanceIds) {
+		this.serviceInstanceIds = Collections.unmodifiableList(serviceInstanceIds);
+	}
+
+	public static ListServiceInstancesResponseBuilder builder() {
+		return new ListServiceInstancesResponseBuilder();
+	}
+
+	public List<String> getServiceInstanceIds() {
+		return serviceInstanceIds;
+	}
+
+	public static final class ListServiceInstancesResponseBuilder {
+
+		private final List<String> serviceInstanceIds = new ArrayList<>();
+
+		private ListServiceInstancesResponseBuilder() {
+		}
+
+		public ListServiceInstancesResponseBuilder serviceInstanceIds(List<String> serviceInstanceIds) {
+			this.serviceInstanceIds.addAll(serviceInstanceIds);
+			return this;
+		}
+
+		public ListServiceInstancesResponseBuilder serviceInstanceId(String serviceInstanceId) {
+			this.serviceInstanceIds.add(serviceInstanceId);
+			return this;
+		}
+
+		public ListServiceInstancesResponse build() {
+			return new ListServiceInstancesResponse(new ArrayList<>(serviceInstanceIds));
+		}
+
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+/**
+ * Decides whether an error returned by the deployment platform indicates that the platform is overloaded, for example
+ * because it rate limited the request.
+ *
+ * @see TransientErrorClassifier
+ */
+@FunctionalInterface
+public interface OverloadDetector {
+
+	/**
+	 * @param exception the error returned by the deployment platform
+	 * @return {@code true} if the error indicates that the platform is overloaded
+	 */
+	boolean isOverloaded(Throwable exception);
+
+}
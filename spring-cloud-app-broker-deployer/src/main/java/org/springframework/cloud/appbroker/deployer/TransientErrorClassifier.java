@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.deployer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decides whether an error returned by the deployment platform is transient, so that the call that failed with it can
+ * be retried, and whether the platform rejected the call before processing it.
+ */
+public interface TransientErrorClassifier {
+
+	/**
+	 * @param exception the error returned by the deployment platform
+	 * @return {@code true} if the error is likely to go away when the request is repeated later. By default, errors
+	 * 	caused by a failed or timed out connection are transient.
+	 */
+	default boolean isTransient(Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException || cause instanceof TimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param exception the error returned by the deployment platform
+	 * @return {@code true} if the platform rejected the request without processing it, so that the request can be
+	 * 	repeated even if it is not idempotent
+	 */
+	default boolean isRejected(Throwable exception) {
+		return false;
+	}
+
+}
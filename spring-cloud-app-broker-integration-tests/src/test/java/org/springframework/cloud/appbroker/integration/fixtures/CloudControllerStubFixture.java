@@ -219,7 +219,9 @@ public class CloudControllerStubFixture extends WiremockStubFixture {
 	}
 
 	public void stubUpdateAppWithUpgrade(final String appName) {
-		stubCreatePackage(appName);
+		stubUploadAppBits(appName);
+		stubGetPackage(appName);
+		stubPackageReady(appName);
 		stubCreateBuild(appName);
 		stubCreateDeployment(appName);
 	}
@@ -252,21 +254,7 @@ public class CloudControllerStubFixture extends WiremockStubFixture {
 					replace("@guid", appGuid(appName))))));
 	}
 
-	private void stubCreatePackage(String appName) {
-		stubFor(post(urlPathEqualTo("/v3/packages"))
-			.withRequestBody(
-				matchingJsonPath("$.[?(@.relationships.app.data.guid == '" + appGuid(appName) + "')]"))
-			.willReturn(ok()
-				.withBody(cc("get-package-READY",
-					replace("@guid", packageGuid(appName)),
-					replace("@app-guid", appGuid(appName))))));
-
-		stubFor(post(urlPathEqualTo("/v3/packages/" + packageGuid(appName) + "/upload"))
-			.willReturn(ok()
-				.withBody(cc("get-package-READY",
-					replace("@guid", packageGuid(appName)),
-					replace("@app-guid", appGuid(appName))))));
-
+	private void stubPackageReady(String appName) {
 		stubFor(get(urlPathEqualTo("/v3/packages/" + packageGuid(appName)))
 			.willReturn(ok()
 				.withBody(cc("get-package-READY",
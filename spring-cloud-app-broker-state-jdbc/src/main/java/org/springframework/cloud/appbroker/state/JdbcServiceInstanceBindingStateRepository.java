@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A {@link ServiceInstanceBindingStateRepository} that stores states in the {@code service_instance_binding_state}
+ * table, so that they survive a broker restart. See {@code schema-jdbc.sql} in this package for the table
+ * definition.
+ */
+public class JdbcServiceInstanceBindingStateRepository implements ServiceInstanceBindingStateRepository {
+
+	private final JdbcStateStore store;
+
+	public JdbcServiceInstanceBindingStateRepository(JdbcTemplate jdbcTemplate,
+		JdbcStateRepositoryProperties properties) {
+		this(new JdbcStateStore(jdbcTemplate, properties.getTablePrefix() + "service_instance_binding_state",
+			Arrays.asList("service_instance_id", "binding_id"), properties.getBatchSize(),
+			properties.getCacheTimeToLive(), properties.getCacheMaxEntries(), Schedulers.boundedElastic()));
+	}
+
+	public JdbcServiceInstanceBindingStateRepository(JdbcStateStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> saveState(String serviceInstanceId, String bindingId, OperationState state,
+		String description) {
+		return Mono.defer(() -> store.save(
+			new ServiceInstanceState(state, description, new Timestamp(Instant.now().toEpochMilli())),
+			serviceInstanceId, bindingId));
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> getState(String serviceInstanceId, String bindingId) {
+		return store.find(serviceInstanceId, bindingId)
+			.switchIfEmpty(Mono.defer(() -> Mono.error(new IllegalArgumentException(
+				"Unknown binding " + bindingId + " for service instance ID " + serviceInstanceId))));
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> removeState(String serviceInstanceId, String bindingId) {
+		return getState(serviceInstanceId, bindingId)
+			.flatMap(state -> store.delete(serviceInstanceId, bindingId)
+				.thenReturn(state));
+	}
+
+	@Override
+	public Mono<Map<String, ServiceInstanceState>> getStates(String serviceInstanceId) {
+		return store.findAll(serviceInstanceId)
+			.map(JdbcServiceInstanceBindingStateRepository::byBindingId);
+	}
+
+	@Override
+	public Mono<Map<String, ServiceInstanceState>> removeStates(String serviceInstanceId) {
+		return store.deleteAll(serviceInstanceId)
+			.map(JdbcServiceInstanceBindingStateRepository::byBindingId);
+	}
+
+	/**
+	 * @return the store used by this repository
+	 */
+	public JdbcStateStore getStore() {
+		return store;
+	}
+
+	private static Map<String, ServiceInstanceState> byBindingId(Map<List<Object>, ServiceInstanceState> states) {
+		Map<String, ServiceInstanceState> byBindingId = new LinkedHashMap<>();
+		states.forEach((key, state) -> byBindingId.put((String) key.get(1), state));
+		return byBindingId;
+	}
+
+}
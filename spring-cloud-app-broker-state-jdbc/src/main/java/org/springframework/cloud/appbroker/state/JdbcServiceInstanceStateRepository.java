@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A {@link ServiceInstanceStateRepository} that stores states in the {@code service_instance_state} table, so that
+ * they survive a broker restart. See {@code schema-jdbc.sql} in this package for the table definition.
+ */
+public class JdbcServiceInstanceStateRepository implements ServiceInstanceStateRepository {
+
+	private final JdbcStateStore store;
+
+	public JdbcServiceInstanceStateRepository(JdbcTemplate jdbcTemplate, JdbcStateRepositoryProperties properties) {
+		this(new JdbcStateStore(jdbcTemplate, properties.getTablePrefix() + "service_instance_state",
+			Collections.singletonList("service_instance_id"), properties.getBatchSize(),
+			properties.getCacheTimeToLive(), properties.getCacheMaxEntries(), Schedulers.boundedElastic()));
+	}
+
+	public JdbcServiceInstanceStateRepository(JdbcStateStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> saveState(String serviceInstanceId, OperationState state, String description) {
+		return Mono.defer(() -> store.save(
+			new ServiceInstanceState(state, description, new Timestamp(Instant.now().toEpochMilli())),
+			serviceInstanceId));
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> getState(String serviceInstanceId) {
+		return store.find(serviceInstanceId)
+			.switchIfEmpty(Mono.defer(() ->
+				Mono.error(new IllegalArgumentException("Unknown service instance ID " + serviceInstanceId))));
+	}
+
+	@Override
+	public Mono<ServiceInstanceState> removeState(String serviceInstanceId) {
+		return getState(serviceInstanceId)
+			.flatMap(state -> store.delete(serviceInstanceId)
+				.thenReturn(state));
+	}
+
+	/**
+	 * @return the store used by this repository
+	 */
+	public JdbcStateStore getStore() {
+		return store;
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the JDBC state repositories
+ */
+public class JdbcStateRepositoryProperties {
+
+	/**
+	 * The maximum number of state changes written to the database in one batch.
+	 */
+	private int batchSize = 100;
+
+	/**
+	 * How long a state read from or written to the database is served from memory. States changed by other broker
+	 * instances sharing the database become visible after this time.
+	 */
+	private Duration cacheTimeToLive = Duration.ofSeconds(5);
+
+	/**
+	 * The maximum number of states served from memory. The least recently used states are evicted first.
+	 */
+	private int cacheMaxEntries = 10_000;
+
+	/**
+	 * A prefix for the names of the state tables.
+	 */
+	private String tablePrefix = "";
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public Duration getCacheTimeToLive() {
+		return cacheTimeToLive;
+	}
+
+	public void setCacheTimeToLive(Duration cacheTimeToLive) {
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
+	public int getCacheMaxEntries() {
+		return cacheMaxEntries;
+	}
+
+	public void setCacheMaxEntries(int cacheMaxEntries) {
+		this.cacheMaxEntries = cacheMaxEntries;
+	}
+
+	public String getTablePrefix() {
+		return tablePrefix;
+	}
+
+	public void setTablePrefix(String tablePrefix) {
+		this.tablePrefix = tablePrefix;
+	}
+
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Stores {@link ServiceInstanceState}s in a database table using JDBC. All blocking JDBC calls run on the given
+ * {@link Scheduler}, so callers on event loop threads are never blocked.
+ * <p>
+ * Writes are batched: while one batch is being written, new writes queue up and are sent together in the next
+ * batch of at most {@code batchSize} rows. Reads are served from a read-through cache whose entries expire after
+ * {@code cacheTimeToLive}, so that changes made by other broker instances sharing the database become visible. The
+ * cache holds at most {@code cacheMaxEntries} states, and the least recently used are evicted first.
+ */
+public class JdbcStateStore {
+
+	private static final int MAX_DESCRIPTION_LENGTH = 4000;
+
+	private static final RowMapper<ServiceInstanceState> ROW_MAPPER = (resultSet, rowNum) -> new ServiceInstanceState(
+		OperationState.valueOf(resultSet.getString("operation_state")),
+		resultSet.getString("description"),
+		resultSet.getTimestamp("last_updated"));
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String tableName;
+
+	private final List<String> keyColumns;
+
+	private final Scheduler scheduler;
+
+	private final int batchSize;
+
+	private final long cacheTimeToLiveNanos;
+
+	private final String selectSql;
+
+	private final String updateSql;
+
+	private final String insertSql;
+
+	private final String deleteSql;
+
+	private final Map<List<Object>, CachedState> cache;
+
+	private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger flushWorkInProgress = new AtomicInteger();
+
+	private final AtomicLong batchCount = new AtomicLong();
+
+	private final AtomicLong writeCount = new AtomicLong();
+
+	/**
+	 * Construct a new {@link JdbcStateStore}
+	 *
+	 * @param jdbcTemplate the JDBC template
+	 * @param tableName the table holding the states
+	 * @param keyColumns the columns identifying a state, in the order keys are passed to this store
+	 * @param batchSize the maximum number of rows written in one batch
+	 * @param cacheTimeToLive how long a cached state is served without reading it from the database again
+	 * @param cacheMaxEntries the maximum number of cached states
+	 * @param scheduler the scheduler running blocking JDBC calls
+	 */
+	public JdbcStateStore(JdbcTemplate jdbcTemplate, String tableName, List<String> keyColumns, int batchSize,
+		Duration cacheTimeToLive, int cacheMaxEntries, Scheduler scheduler) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be greater than zero");
+		}
+		if (cacheMaxEntries <= 0) {
+			throw new IllegalArgumentException("cacheMaxEntries must be greater than zero");
+		}
+		this.jdbcTemplate = jdbcTemplate;
+		this.tableName = tableName;
+		this.keyColumns = new ArrayList<>(keyColumns);
+		this.scheduler = scheduler;
+		this.batchSize = batchSize;
+		this.cacheTimeToLiveNanos = cacheTimeToLive.toNanos();
+		this.cache = new LinkedHashMap<List<Object>, CachedState>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedState> eldest) {
+				return size() > cacheMaxEntries;
+			}
+		};
+
+		String keyCondition = keyCondition(keyColumns.size());
+		this.selectSql = "SELECT operation_state, description, last_updated FROM " + tableName +
+			" WHERE " + keyCondition;
+		this.updateSql = "UPDATE " + tableName + " SET operation_state = ?, description = ?, last_updated = ?" +
+			" WHERE " + keyCondition;
+		this.insertSql = "INSERT INTO " + tableName + " (operation_state, description, last_updated, " +
+			String.join(", ", keyColumns) + ") VALUES (?, ?, ?" +
+			keyColumns.stream().map(column -> ", ?").collect(Collectors.joining()) + ")";
+		this.deleteSql = "DELETE FROM " + tableName + " WHERE " + keyCondition;
+	}
+
+	/**
+	 * Find a state
+	 *
+	 * @param keys the key column values
+	 * @return the state, or an empty {@code Mono} if there is none
+	 */
+	public Mono<ServiceInstanceState> find(Object... keys) {
+		return Mono.defer(() -> {
+			List<Object> key = Arrays.asList(keys);
+			CachedState cached;
+			synchronized (cache) {
+				cached = cache.get(key);
+			}
+			if (cached != null && !cached.isExpired(System.nanoTime())) {
+				return Mono.just(cached.getState());
+			}
+			return Mono.fromCallable(() -> load(key))
+				.subscribeOn(scheduler);
+		});
+	}
+
+	/**
+	 * Save a state. The returned {@code Mono} completes once the batch containing the write has been committed.
+	 *
+	 * @param state the state
+	 * @param keys the key column values
+	 * @return the saved state
+	 */
+	public Mono<ServiceInstanceState> save(ServiceInstanceState state, Object... keys) {
+		return Mono.<ServiceInstanceState>create(sink -> enqueue(new PendingWrite(Arrays.asList(keys), state, sink)));
+	}
+
+	/**
+	 * Delete a state. The returned {@code Mono} completes once the batch containing the delete has been committed.
+	 *
+	 * @param keys the key column values
+	 * @return a {@code Mono} signalling completion
+	 */
+	public Mono<Void> delete(Object... keys) {
+		return Mono.<ServiceInstanceState>create(sink -> enqueue(new PendingWrite(Arrays.asList(keys), null, sink)))
+			.then();
+	}
+
+	/**
+	 * Find all states whose leading key columns match the given values with a single query
+	 *
+	 * @param keyPrefix the values of the leading key columns
+	 * @return the states, keyed by their full key column values
+	 */
+	public Mono<Map<List<Object>, ServiceInstanceState>> findAll(Object... keyPrefix) {
+		return Mono.fromCallable(() -> loadAll(Arrays.asList(keyPrefix)))
+			.subscribeOn(scheduler);
+	}
+
+	/**
+	 * Delete all states whose leading key columns match the given values with a single statement. The delete is
+	 * queued like {@link #delete(Object...)}, so it is written after the saves and deletes queued before it, but it
+	 * is written on its own rather than as part of a batch. The returned {@code Mono} completes once it has been
+	 * committed.
+	 *
+	 * @param keyPrefix the values of the leading key columns
+	 * @return the deleted states, keyed by their full key column values
+	 */
+	public Mono<Map<List<Object>, ServiceInstanceState>> deleteAll(Object... keyPrefix) {
+		return Mono.create(sink -> enqueue(new PrefixDelete(Arrays.asList(keyPrefix), sink)));
+	}
+
+	/**
+	 * @return the number of batches written
+	 */
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * @return the number of saves and deletes written
+	 */
+	public long getWriteCount() {
+		return writeCount.get();
+	}
+
+	/**
+	 * @return the number of cached states
+	 */
+	public int getCachedCount() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * @return the number of saves and deletes waiting for the next batch
+	 */
+	public int getPendingWriteCount() {
+		return pendingWrites.size();
+	}
+
+	private ServiceInstanceState load(List<Object> key) {
+		List<ServiceInstanceState> states = jdbcTemplate.query(selectSql, ROW_MAPPER, key.toArray());
+		if (states.isEmpty()) {
+			return null;
+		}
+		ServiceInstanceState state = states.get(0);
+		long now = System.nanoTime();
+		// a write that completed while the row was being read is newer than the row, so keep it
+		synchronized (cache) {
+			cache.compute(key, (k, cached) -> cached == null || cached.isExpired(now) ?
+				new CachedState(state, now + cacheTimeToLiveNanos) : cached);
+		}
+		return state;
+	}
+
+	private Map<List<Object>, ServiceInstanceState> loadAll(List<Object> prefix) {
+		if (prefix.isEmpty() || prefix.size() > keyColumns.size()) {
+			throw new IllegalArgumentException("Expected between 1 and " + keyColumns.size() + " key values");
+		}
+		Map<List<Object>, ServiceInstanceState> states = new LinkedHashMap<>();
+		jdbcTemplate.query("SELECT operation_state, description, last_updated, " + String.join(", ", keyColumns) +
+			" FROM " + tableName + " WHERE " + keyCondition(prefix.size()), resultSet -> {
+			List<Object> key = new ArrayList<>(keyColumns.size());
+			for (String column : keyColumns) {
+				key.add(resultSet.getObject(column));
+			}
+			states.put(key, ROW_MAPPER.mapRow(resultSet, states.size()));
+		}, prefix.toArray());
+		return states;
+	}
+
+	private String keyCondition(int columnCount) {
+		return keyColumns.subList(0, columnCount).stream()
+			.map(column -> column + " = ?")
+			.collect(Collectors.joining(" AND "));
+	}
+
+	private void enqueue(PendingWrite write) {
+		pendingWrites.offer(write);
+		if (flushWorkInProgress.getAndIncrement() == 0) {
+			scheduler.schedule(this::flush);
+		}
+	}
+
+	private void flush() {
+		int missed = 1;
+		do {
+			List<PendingWrite> batch = nextBatch();
+			while (!batch.isEmpty()) {
+				write(batch);
+				batch = nextBatch();
+			}
+			missed = flushWorkInProgress.addAndGet(-missed);
+		}
+		while (missed != 0);
+	}
+
+	/**
+	 * Take the next batch of queued writes. A {@link PrefixDelete} ends the batch before it and is taken on its own,
+	 * so that it is written strictly after the writes queued before it and before those queued after it.
+	 */
+	private List<PendingWrite> nextBatch() {
+		List<PendingWrite> batch = new ArrayList<>();
+		for (PendingWrite write = pendingWrites.peek(); write != null; write = pendingWrites.peek()) {
+			if (write instanceof PrefixDelete && !batch.isEmpty()) {
+				break;
+			}
+			pendingWrites.poll();
+			batch.add(write);
+			if (write instanceof PrefixDelete || batch.size() >= batchSize) {
+				break;
+			}
+		}
+		return batch;
+	}
+
+	private void write(List<PendingWrite> batch) {
+		if (batch.get(0) instanceof PrefixDelete) {
+			deleteAll((PrefixDelete) batch.get(0));
+			return;
+		}
+
+		Map<List<Object>, PendingWrite> latestWrites = new LinkedHashMap<>();
+		for (PendingWrite write : batch) {
+			latestWrites.remove(write.getKey());
+			latestWrites.put(write.getKey(), write);
+		}
+
+		List<Object[]> deletes = new ArrayList<>();
+		List<PendingWrite> upserts = new ArrayList<>();
+		for (PendingWrite write : latestWrites.values()) {
+			if (write.isDelete()) {
+				deletes.add(write.getKey().toArray());
+			}
+			else {
+				upserts.add(write);
+			}
+		}
+
+		try {
+			if (!deletes.isEmpty()) {
+				jdbcTemplate.batchUpdate(deleteSql, deletes);
+			}
+			if (!upserts.isEmpty()) {
+				upsert(upserts);
+			}
+		}
+		catch (RuntimeException e) {
+			// any failure, not only a DataAccessException, must fail the batch rather than end the drain loop
+			synchronized (cache) {
+				latestWrites.keySet().forEach(cache::remove);
+			}
+			batch.forEach(write -> write.error(e));
+			return;
+		}
+
+		batchCount.incrementAndGet();
+		writeCount.addAndGet(batch.size());
+		long expiresAt = System.nanoTime() + cacheTimeToLiveNanos;
+		synchronized (cache) {
+			for (PendingWrite write : latestWrites.values()) {
+				if (write.isDelete()) {
+					cache.remove(write.getKey());
+				}
+				else {
+					cache.put(write.getKey(), new CachedState(write.getState(), expiresAt));
+				}
+			}
+		}
+		batch.forEach(PendingWrite::success);
+	}
+
+	private void deleteAll(PrefixDelete delete) {
+		List<Object> prefix = delete.getKey();
+		Map<List<Object>, ServiceInstanceState> states;
+		try {
+			states = loadAll(prefix);
+			jdbcTemplate.update("DELETE FROM " + tableName + " WHERE " + keyCondition(prefix.size()),
+				prefix.toArray());
+		}
+		catch (RuntimeException e) {
+			delete.error(e);
+			return;
+		}
+
+		batchCount.incrementAndGet();
+		writeCount.incrementAndGet();
+		synchronized (cache) {
+			cache.keySet().removeIf(key -> key.subList(0, prefix.size()).equals(prefix));
+		}
+		delete.success(states);
+	}
+
+	private void upsert(List<PendingWrite> upserts) {
+		int[] updated = jdbcTemplate.batchUpdate(updateSql, upserts.stream()
+			.map(this::parameters)
+			.collect(Collectors.toList()));
+
+		List<PendingWrite> inserts = new ArrayList<>();
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] == 0) {
+				inserts.add(upserts.get(i));
+			}
+		}
+		if (inserts.isEmpty()) {
+			return;
+		}
+
+		List<Object[]> insertParameters = inserts.stream()
+			.map(this::parameters)
+			.collect(Collectors.toList());
+		try {
+			jdbcTemplate.batchUpdate(insertSql, insertParameters);
+		}
+		catch (DuplicateKeyException e) {
+			// another broker instance inserted one of the rows since the update
+			jdbcTemplate.batchUpdate(updateSql, insertParameters);
+		}
+	}
+
+	private Object[] parameters(PendingWrite write) {
+		ServiceInstanceState state = write.getState();
+		String description = state.getDescription();
+		if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+			description = description.substring(0, MAX_DESCRIPTION_LENGTH);
+		}
+
+		List<Object> parameters = new ArrayList<>();
+		parameters.add(state.getOperationState().name());
+		parameters.add(description);
+		parameters.add(state.getLastUpdated());
+		parameters.addAll(write.getKey());
+		return parameters.toArray();
+	}
+
+	private static class CachedState {
+
+		private final ServiceInstanceState state;
+
+		private final long expiresAt;
+
+		public CachedState(ServiceInstanceState state, long expiresAt) {
+			this.state = state;
+			this.expiresAt = expiresAt;
+		}
+
+		public ServiceInstanceState getState() {
+			return state;
+		}
+
+		public boolean isExpired(long now) {
+			return now - expiresAt > 0;
+		}
+
+	}
+
+	private static class PendingWrite {
+
+		private final List<Object> key;
+
+		private final ServiceInstanceState state;
+
+		private final MonoSink<ServiceInstanceState> sink;
+
+		public PendingWrite(List<Object> key, ServiceInstanceState state, MonoSink<ServiceInstanceState> sink) {
+			this.key = key;
+			this.state = state;
+			this.sink = sink;
+		}
+
+		public List<Object> getKey() {
+			return key;
+		}
+
+		public ServiceInstanceState getState() {
+			return state;
+		}
+
+		public boolean isDelete() {
+			return state == null;
+		}
+
+		public void success() {
+			if (state == null) {
+				sink.success();
+			}
+			else {
+				sink.success(state);
+			}
+		}
+
+		public void error(Throwable e) {
+			sink.error(e);
+		}
+
+	}
+
+	/**
+	 * A delete of all states whose leading key columns match a prefix
+	 */
+	private static class PrefixDelete extends PendingWrite {
+
+		private final MonoSink<Map<List<Object>, ServiceInstanceState>> sink;
+
+		public PrefixDelete(List<Object> prefix, MonoSink<Map<List<Object>, ServiceInstanceState>> sink) {
+			super(prefix, null, null);
+			this.sink = sink;
+		}
+
+		public void success(Map<List<Object>, ServiceInstanceState> states) {
+			sink.success(states);
+		}
+
+		@Override
+		public void success() {
+			sink.success();
+		}
+
+		@Override
+		public void error(Throwable e) {
+			sink.error(e);
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+CREATE TABLE service_instance_state (
+	service_instance_id VARCHAR(255) NOT NULL,
+	operation_state VARCHAR(32) NOT NULL,
+	description VARCHAR(4000),
+	last_updated TIMESTAMP NOT NULL,
+	PRIMARY KEY (service_instance_id)
+);
+
+CREATE TABLE service_instance_binding_state (
+	service_instance_id VARCHAR(255) NOT NULL,
+	binding_id VARCHAR(255) NOT NULL,
+	operation_state VARCHAR(32) NOT NULL,
+	description VARCHAR(4000),
+	last_updated TIMESTAMP NOT NULL,
+	PRIMARY KEY (service_instance_id, binding_id)
+);
+
+CREATE INDEX service_instance_binding_state_instance_idx ON service_instance_binding_state (service_instance_id);
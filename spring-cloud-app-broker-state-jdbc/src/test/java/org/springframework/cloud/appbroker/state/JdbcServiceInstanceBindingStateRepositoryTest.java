@@ -0,0 +1,171 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcServiceInstanceBindingStateRepositoryTest {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private JdbcServiceInstanceBindingStateRepository stateRepository;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+			.setType(EmbeddedDatabaseType.H2)
+			.generateUniqueName(true)
+			.addScript("org/springframework/cloud/appbroker/state/schema-jdbc.sql")
+			.build();
+		jdbcTemplate = new JdbcTemplate(database);
+		stateRepository = new JdbcServiceInstanceBindingStateRepository(jdbcTemplate,
+			new JdbcStateRepositoryProperties());
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void saveAndGet() {
+		StepVerifier.create(stateRepository.saveState("foo-service", "foo-binding", OperationState.IN_PROGRESS, "bar"))
+			.assertNext(serviceInstanceState -> {
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+				assertThat(serviceInstanceState.getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+
+		StepVerifier.create(new JdbcServiceInstanceBindingStateRepository(jdbcTemplate,
+			new JdbcStateRepositoryProperties()).getState("foo-service", "foo-binding"))
+			.assertNext(serviceInstanceState -> {
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+				assertThat(serviceInstanceState.getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	void bindingsOfDifferentInstancesAreKeptApart() {
+		stateRepository.saveState("service1", "binding", OperationState.SUCCEEDED, "one").block();
+		stateRepository.saveState("service2", "binding", OperationState.FAILED, "two").block();
+
+		StepVerifier.create(stateRepository.getState("service1", "binding"))
+			.assertNext(serviceInstanceState ->
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.SUCCEEDED))
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.getState("service2", "binding"))
+			.assertNext(serviceInstanceState ->
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.FAILED))
+			.verifyComplete();
+	}
+
+	@Test
+	void saveAndRemove() {
+		stateRepository.saveState("foo-service", "foo-binding", OperationState.IN_PROGRESS, "bar").block();
+
+		StepVerifier.create(stateRepository.removeState("foo-service", "foo-binding"))
+			.assertNext(serviceInstanceState ->
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.IN_PROGRESS))
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.getState("foo-service", "foo-binding"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM service_instance_binding_state", Integer.class))
+			.isZero();
+	}
+
+	@Test
+	void getWithUnknownBinding() {
+		StepVerifier.create(stateRepository.getState("foo-service", "foo-binding"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+	}
+
+	@Test
+	void getAndRemoveStatesOfServiceInstance() {
+		stateRepository.saveState("foo-service", "foo-binding", OperationState.SUCCEEDED, "foo").block();
+		stateRepository.saveState("foo-service", "bar-binding", OperationState.IN_PROGRESS, "bar").block();
+		stateRepository.saveState("other-service", "foo-binding", OperationState.SUCCEEDED, "other").block();
+
+		StepVerifier.create(stateRepository.getStates("foo-service"))
+			.assertNext(states -> {
+				assertThat(states).containsOnlyKeys("foo-binding", "bar-binding");
+				assertThat(states.get("bar-binding").getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.removeStates("foo-service"))
+			.assertNext(states -> assertThat(states).containsOnlyKeys("foo-binding", "bar-binding"))
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.getStates("foo-service"))
+			.assertNext(states -> assertThat(states).isEmpty())
+			.verifyComplete();
+		StepVerifier.create(stateRepository.getState("foo-service", "foo-binding"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+		StepVerifier.create(stateRepository.getState("other-service", "foo-binding"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("other"))
+			.verifyComplete();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM service_instance_binding_state", Integer.class))
+			.isEqualTo(1);
+	}
+
+	@Test
+	void saveQueuedBeforeRemovingStatesOfServiceInstanceIsNotRestored() {
+		stateRepository.saveState("foo-service", "foo-binding", OperationState.SUCCEEDED, "foo").block();
+		Mono<ServiceInstanceState> queuedSave = stateRepository.saveState("foo-service", "bar-binding",
+			OperationState.IN_PROGRESS, "bar").cache();
+		queuedSave.subscribe();
+
+		StepVerifier.create(stateRepository.removeStates("foo-service"))
+			.assertNext(states -> assertThat(states).containsOnlyKeys("foo-binding", "bar-binding"))
+			.verifyComplete();
+		StepVerifier.create(queuedSave)
+			.expectNextCount(1)
+			.verifyComplete();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM service_instance_binding_state", Integer.class))
+			.isZero();
+	}
+
+	@Test
+	void statesOfUnknownServiceInstanceAreEmpty() {
+		StepVerifier.create(stateRepository.removeStates("unknown"))
+			.assertNext(states -> assertThat(states).isEmpty())
+			.verifyComplete();
+	}
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.appbroker.state;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.servicebroker.model.instance.OperationState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcServiceInstanceStateRepositoryTest {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private JdbcServiceInstanceStateRepository stateRepository;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+			.setType(EmbeddedDatabaseType.H2)
+			.generateUniqueName(true)
+			.addScript("org/springframework/cloud/appbroker/state/schema-jdbc.sql")
+			.build();
+		jdbcTemplate = new JdbcTemplate(database);
+		stateRepository = new JdbcServiceInstanceStateRepository(jdbcTemplate, new JdbcStateRepositoryProperties());
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void saveAndGet() {
+		StepVerifier.create(stateRepository.saveState("foo", OperationState.IN_PROGRESS, "bar"))
+			.assertNext(serviceInstanceState -> {
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+				assertThat(serviceInstanceState.getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.getState("foo"))
+			.assertNext(serviceInstanceState -> {
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.IN_PROGRESS);
+				assertThat(serviceInstanceState.getDescription()).isEqualTo("bar");
+			})
+			.verifyComplete();
+
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT operation_state FROM service_instance_state WHERE service_instance_id = ?", String.class, "foo"))
+			.isEqualTo("IN_PROGRESS");
+	}
+
+	@Test
+	void stateSurvivesNewRepositoryInstance() {
+		stateRepository.saveState("foo", OperationState.SUCCEEDED, "done").block();
+
+		JdbcServiceInstanceStateRepository restarted =
+			new JdbcServiceInstanceStateRepository(jdbcTemplate, new JdbcStateRepositoryProperties());
+
+		StepVerifier.create(restarted.getState("foo"))
+			.assertNext(serviceInstanceState -> {
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.SUCCEEDED);
+				assertThat(serviceInstanceState.getDescription()).isEqualTo("done");
+				assertThat(serviceInstanceState.getLastUpdated()).isNotNull();
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	void updateState() {
+		stateRepository.saveState("foo", OperationState.IN_PROGRESS, "bar").block();
+		stateRepository.saveState("foo", OperationState.FAILED, "failed").block();
+
+		StepVerifier.create(stateRepository.getState("foo"))
+			.assertNext(serviceInstanceState -> {
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.FAILED);
+				assertThat(serviceInstanceState.getDescription()).isEqualTo("failed");
+			})
+			.verifyComplete();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM service_instance_state", Integer.class))
+			.isEqualTo(1);
+	}
+
+	@Test
+	void saveAndRemove() {
+		stateRepository.saveState("foo", OperationState.IN_PROGRESS, "bar").block();
+
+		StepVerifier.create(stateRepository.removeState("foo"))
+			.assertNext(serviceInstanceState ->
+				assertThat(serviceInstanceState.getOperationState()).isEqualTo(OperationState.IN_PROGRESS))
+			.verifyComplete();
+
+		StepVerifier.create(stateRepository.getState("foo"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM service_instance_state", Integer.class))
+			.isZero();
+	}
+
+	@Test
+	void getWithUnknownServiceInstanceId() {
+		StepVerifier.create(stateRepository.getState("foo"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+	}
+
+	@Test
+	void removeWithUnknownServiceInstanceId() {
+		StepVerifier.create(stateRepository.removeState("foo"))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+	}
+
+	@Test
+	void concurrentWritesAreBatched() {
+		JdbcStateStore store = new JdbcStateStore(jdbcTemplate, "service_instance_state",
+			Collections.singletonList("service_instance_id"), 50, Duration.ofSeconds(5), 10_000,
+			Schedulers.boundedElastic());
+		JdbcServiceInstanceStateRepository repository = new JdbcServiceInstanceStateRepository(store);
+
+		StepVerifier.create(
+			Flux.range(0, 2_000)
+				.parallel(8)
+				.runOn(Schedulers.newParallel("parallel-test", 8))
+				.flatMap(value -> repository.saveState("foo" + value, OperationState.IN_PROGRESS, "bar")))
+			.expectNextCount(2_000)
+			.verifyComplete();
+
+		assertThat(store.getWriteCount()).isEqualTo(2_000);
+		assertThat(store.getBatchCount()).isLessThanOrEqualTo(2_000).isGreaterThanOrEqualTo(2_000 / 50);
+		assertThat(store.getPendingWriteCount()).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM service_instance_state", Integer.class))
+			.isEqualTo(2_000);
+	}
+
+	@Test
+	void longDescriptionIsTruncated() {
+		String description = String.join("", Collections.nCopies(5_000, "x"));
+
+		stateRepository.saveState("foo", OperationState.FAILED, description).block();
+
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT description FROM service_instance_state WHERE service_instance_id = ?", String.class, "foo"))
+			.hasSize(4_000);
+	}
+
+	@Test
+	void writesContinueAfterABatchFailsWithAnUnexpectedException() {
+		AtomicBoolean fail = new AtomicBoolean(true);
+		JdbcTemplate failingTemplate = new JdbcTemplate(database) {
+			@Override
+			public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+				if (fail.getAndSet(false)) {
+					throw new IllegalStateException("unexpected");
+				}
+				return super.batchUpdate(sql, batchArgs);
+			}
+		};
+		JdbcStateStore store = new JdbcStateStore(failingTemplate, "service_instance_state",
+			Collections.singletonList("service_instance_id"), 50, Duration.ofSeconds(5), 10_000,
+			Schedulers.boundedElastic());
+		JdbcServiceInstanceStateRepository repository = new JdbcServiceInstanceStateRepository(store);
+
+		StepVerifier.create(repository.saveState("foo", OperationState.IN_PROGRESS, "bar"))
+			.expectError(IllegalStateException.class)
+			.verify();
+
+		StepVerifier.create(repository.saveState("foo", OperationState.SUCCEEDED, "bar"))
+			.expectNextCount(1)
+			.verifyComplete();
+		assertThat(store.getPendingWriteCount()).isZero();
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT operation_state FROM service_instance_state WHERE service_instance_id = ?", String.class, "foo"))
+			.isEqualTo(OperationState.SUCCEEDED.name());
+	}
+
+	@Test
+	void cacheIsBoundedByEntries() {
+		JdbcStateStore store = new JdbcStateStore(jdbcTemplate, "service_instance_state",
+			Collections.singletonList("service_instance_id"), 50, Duration.ofSeconds(5), 2,
+			Schedulers.boundedElastic());
+		JdbcServiceInstanceStateRepository repository = new JdbcServiceInstanceStateRepository(store);
+
+		repository.saveState("foo", OperationState.SUCCEEDED, "foo").block();
+		repository.saveState("bar", OperationState.SUCCEEDED, "bar").block();
+		repository.getState("foo").block();
+		repository.saveState("baz", OperationState.SUCCEEDED, "baz").block();
+
+		assertThat(store.getCachedCount()).isEqualTo(2);
+		jdbcTemplate.update("UPDATE service_instance_state SET description = 'changed'");
+		StepVerifier.create(repository.getState("foo"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("foo"))
+			.verifyComplete();
+		StepVerifier.create(repository.getState("bar"))
+			.assertNext(state -> assertThat(state.getDescription()).isEqualTo("changed"))
+			.verifyComplete();
+	}
+
+}